@@ -0,0 +1,19 @@
+-- Migration: sequence-backed pooled ids for expense write tables
+-- Run this against your Postgres database
+--
+-- Expense, ExpenseParticipant, ExpenseEvent and LedgerEntry now draw ids from
+-- sequences with allocationSize = 50 so Hibernate can batch their inserts.
+-- Each sequence increments by 50 and starts past the current max id so
+-- pooled ranges never overlap existing rows.
+
+CREATE SEQUENCE IF NOT EXISTS expenses_seq INCREMENT BY 50;
+SELECT setval('expenses_seq', COALESCE((SELECT MAX(id) FROM expenses), 0) + 50);
+
+CREATE SEQUENCE IF NOT EXISTS expense_participants_seq INCREMENT BY 50;
+SELECT setval('expense_participants_seq', COALESCE((SELECT MAX(id) FROM expense_participants), 0) + 50);
+
+CREATE SEQUENCE IF NOT EXISTS expense_events_seq INCREMENT BY 50;
+SELECT setval('expense_events_seq', COALESCE((SELECT MAX(id) FROM expense_events), 0) + 50);
+
+CREATE SEQUENCE IF NOT EXISTS ledger_entries_seq INCREMENT BY 50;
+SELECT setval('ledger_entries_seq', COALESCE((SELECT MAX(id) FROM ledger_entries), 0) + 50);
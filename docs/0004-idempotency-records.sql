@@ -0,0 +1,25 @@
+-- Migration: generic idempotency record store
+-- Run this against your Postgres database
+--
+-- One row per (X-User-Id, method and path, Idempotency-Key) seen on a mutating
+-- request under /groups/** or /users. A row without response_status is a
+-- reservation held, and kept alive, while the first request runs. Expired rows
+-- are purged by the application.
+--
+-- Client-visible change: POST /groups/{groupId}/expenses already honoured
+-- Idempotency-Key through expenses.idempotency_key, where reusing a key with a
+-- different body returned the original expense. The key is now checked against
+-- the stored request first, so a different body gets 422 and an identical
+-- retry replays the stored response with Idempotent-Replayed: true.
+
+CREATE TABLE IF NOT EXISTS idempotency_records (
+  record_key varchar(200) PRIMARY KEY,
+  fingerprint varchar(64) NOT NULL,
+  response_status integer,
+  content_type varchar(255),
+  response_body bytea,
+  created_at timestamp(6) with time zone NOT NULL,
+  expires_at timestamp(6) with time zone NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_records_expires_at ON idempotency_records(expires_at);
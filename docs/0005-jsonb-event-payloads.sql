@@ -0,0 +1,20 @@
+-- Migration: typed jsonb payloads on expense_events
+-- Run this against your Postgres database
+--
+-- Event payloads are now JSON documents written by the application and carry
+-- participantUserIds and per-user balance deltas. Existing text payloads are
+-- valid JSON and convert in place; expenseId is added where it was missing so
+-- the expense filter matches old rows too. Old rows have no deltas and so are
+-- not returned by the userId filter.
+
+ALTER TABLE expense_events
+  ALTER COLUMN payload TYPE jsonb USING payload::jsonb;
+
+UPDATE expense_events
+  SET payload = payload || jsonb_build_object('expenseId', expense_id)
+  WHERE expense_id IS NOT NULL AND NOT payload ? 'expenseId';
+
+-- jsonb_path_ops supports @> only, which is all the events endpoint uses
+CREATE INDEX IF NOT EXISTS idx_expense_events_payload ON expense_events USING GIN (payload jsonb_path_ops);
+
+CREATE INDEX IF NOT EXISTS idx_expense_events_group_expense ON expense_events(group_id, expense_id);
@@ -0,0 +1,8 @@
+-- Migration: per-group ledger version
+-- Run this against your Postgres database
+--
+-- Every ledger change increments groups.ledger_version in the same
+-- transaction; computed settlement plans are cached against it.
+
+ALTER TABLE groups
+  ADD COLUMN IF NOT EXISTS ledger_version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,8 @@
+-- Migration: index ledger_entries by user
+-- Run this against your Postgres database
+--
+-- GET /users/{userId}/settlements finds the user's groups through their
+-- ledger rows; the (group_id, user_id) unique index cannot serve a lookup by
+-- user_id alone.
+
+CREATE INDEX IF NOT EXISTS idx_ledger_entries_user_id ON ledger_entries(user_id);
@@ -0,0 +1,50 @@
+-- Migration: ledger delta journal and periodic balance snapshots
+-- Run this against your Postgres database
+--
+-- Every ledger write appends its per-user deltas to ledger_deltas under the
+-- ledger_version it produced. The application snapshots changed groups every
+-- fairshare.ledger-snapshots.interval; GET /groups/{id}/ledger?asOf= starts
+-- from the latest snapshot at or before asOf and replays the deltas after it.
+-- Existing balances are snapshotted here, so history starts at this migration.
+
+CREATE TABLE IF NOT EXISTS ledger_deltas (
+  id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  group_id bigint NOT NULL,
+  user_id bigint NOT NULL,
+  delta numeric(12, 2) NOT NULL,
+  ledger_version bigint NOT NULL,
+  created_at timestamp(6) with time zone NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_deltas_group_version ON ledger_deltas(group_id, ledger_version);
+
+CREATE TABLE IF NOT EXISTS ledger_snapshots (
+  id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  group_id bigint NOT NULL,
+  ledger_version bigint NOT NULL,
+  taken_at timestamp(6) with time zone NOT NULL,
+  CONSTRAINT uk_ledger_snapshots_group_version UNIQUE (group_id, ledger_version)
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_snapshots_group_taken_at ON ledger_snapshots(group_id, taken_at);
+
+CREATE TABLE IF NOT EXISTS ledger_snapshot_balances (
+  id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  group_id bigint NOT NULL,
+  ledger_version bigint NOT NULL,
+  user_id bigint NOT NULL,
+  net_balance numeric(12, 2) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_snapshot_balances_group_version ON ledger_snapshot_balances(group_id, ledger_version);
+
+INSERT INTO ledger_snapshots (group_id, ledger_version, taken_at)
+SELECT g.id, g.ledger_version, now() FROM groups g
+WHERE NOT EXISTS (SELECT 1 FROM ledger_snapshots s WHERE s.group_id = g.id AND s.ledger_version = g.ledger_version);
+
+INSERT INTO ledger_snapshot_balances (group_id, ledger_version, user_id, net_balance)
+SELECT le.group_id, g.ledger_version, le.user_id, le.net_balance
+FROM ledger_entries le JOIN groups g ON g.id = le.group_id
+WHERE le.net_balance <> 0
+  AND NOT EXISTS (SELECT 1 FROM ledger_snapshot_balances b
+                  WHERE b.group_id = le.group_id AND b.ledger_version = g.ledger_version AND b.user_id = le.user_id);
@@ -0,0 +1,30 @@
+-- Migration: ledger reconciliation runs and drift reports
+-- Run this against your Postgres database
+--
+-- A reconciliation run recomputes each group's balances from expenses,
+-- participant shares and confirmed transfers and records every user whose
+-- ledger_entries balance differs. last_group_id is the resume checkpoint for
+-- a run that has not finished.
+
+CREATE TABLE IF NOT EXISTS reconciliation_runs (
+  id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  started_at timestamp(6) with time zone NOT NULL,
+  finished_at timestamp(6) with time zone,
+  last_group_id bigint NOT NULL,
+  groups_checked bigint NOT NULL,
+  groups_drifted bigint NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS ledger_drifts (
+  id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  run_id bigint NOT NULL,
+  group_id bigint NOT NULL,
+  user_id bigint NOT NULL,
+  expected_balance numeric(12, 2) NOT NULL,
+  actual_balance numeric(12, 2) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_drifts_run_group ON ledger_drifts(run_id, group_id);
+
+-- each group's transfers are summed per reconciliation check
+CREATE INDEX IF NOT EXISTS idx_confirmed_transfers_group_id ON confirmed_transfers(group_id);
@@ -0,0 +1,11 @@
+-- Migration: indexes for paging one member's ledger history
+-- Run this against your Postgres database
+--
+-- GET /groups/{groupId}/explanations/ledger/{userId} reads a member's
+-- expenses paid, shares and transfers newest first; each source is an
+-- index range scan on these.
+
+CREATE INDEX IF NOT EXISTS idx_expenses_group_payer_created ON expenses(group_id, payer_user_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_expense_participants_user_expense ON expense_participants(user_id, expense_id);
+CREATE INDEX IF NOT EXISTS idx_confirmed_transfers_group_from_created ON confirmed_transfers(group_id, from_user_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_confirmed_transfers_group_to_created ON confirmed_transfers(group_id, to_user_id, created_at);
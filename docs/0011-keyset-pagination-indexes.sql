@@ -0,0 +1,15 @@
+-- Migration: indexes for keyset pagination of expenses, events and transfers
+-- Run this against your Postgres database
+--
+-- The ?cursor=&limit= variants of GET /groups/{groupId}/expenses, /events and
+-- /confirmed-transfers read newest first by (created_at, id) strictly after the
+-- last row of the previous page. Each page is an index range scan on these, so
+-- a deep page costs the same as the first and no count query is run.
+
+CREATE INDEX IF NOT EXISTS idx_expenses_group_created_id ON expenses(group_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_expense_events_group_created_id ON expense_events(group_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_confirmed_transfers_group_created_id ON confirmed_transfers(group_id, created_at, id);
+
+-- group_id is a prefix of idx_confirmed_transfers_group_created_id, which now
+-- serves the reconciliation sums as well
+DROP INDEX IF EXISTS idx_confirmed_transfers_group_id;
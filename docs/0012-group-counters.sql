@@ -0,0 +1,18 @@
+-- Migration: per-group list counters
+-- Run this against your Postgres database
+--
+-- GET /groups/{groupId}/expenses, /events and /confirmed-transfers report
+-- totalItems from these instead of counting the group's rows on every page.
+-- ExpenseService adjusts them in the same transaction as each write; the
+-- group-counters repair job fixes any group whose counters drift.
+
+ALTER TABLE groups
+  ADD COLUMN IF NOT EXISTS expense_count bigint NOT NULL DEFAULT 0,
+  ADD COLUMN IF NOT EXISTS event_count bigint NOT NULL DEFAULT 0,
+  ADD COLUMN IF NOT EXISTS confirmed_transfer_count bigint NOT NULL DEFAULT 0;
+
+-- backfill existing groups
+UPDATE groups g SET
+  expense_count = (SELECT COUNT(*) FROM expenses e WHERE e.group_id = g.id AND (e.voided IS NULL OR e.voided = FALSE)),
+  event_count = (SELECT COUNT(*) FROM expense_events ev WHERE ev.group_id = g.id),
+  confirmed_transfer_count = (SELECT COUNT(*) FROM confirmed_transfers t WHERE t.group_id = g.id);
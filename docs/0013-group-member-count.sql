@@ -0,0 +1,15 @@
+-- Migration: maintained member count on groups
+-- Run this against your Postgres database
+--
+-- GET /groups?sort=memberCount used to order by a correlated COUNT over
+-- group_members for every visible group. GroupService now bumps member_count
+-- in the transaction that inserts the membership row, and the list reads it
+-- in (member_count, id) order from idx_groups_member_count_id, including the
+-- ?cursor=&limit= keyset variant.
+
+ALTER TABLE groups ADD COLUMN IF NOT EXISTS member_count bigint NOT NULL DEFAULT 0;
+
+-- backfill existing groups
+UPDATE groups g SET member_count = (SELECT COUNT(*) FROM group_members gm WHERE gm.group_id = g.id);
+
+CREATE INDEX IF NOT EXISTS idx_groups_member_count_id ON groups(member_count, id);
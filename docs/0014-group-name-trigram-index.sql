@@ -0,0 +1,11 @@
+-- Migration: trigram index for group name search
+-- Run this against your Postgres database
+--
+-- GET /groups?name= matches lower(name) LIKE '%x%', which a btree cannot
+-- serve, so every search scanned groups. A pg_trgm GIN index on lower(name)
+-- serves those substring matches as well as the similarity operator (%) and
+-- similarity() ranking behind ?sort=relevance.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_groups_name_trgm ON groups USING GIN (lower(name) gin_trgm_ops);
@@ -0,0 +1,10 @@
+-- Migration: claim reconciliation runs across instances
+-- Run this against your Postgres database
+--
+-- Every instance fires the reconciliation schedule. The instance that claims
+-- the unfinished run records itself in claimed_by and keeps claimed_until
+-- ahead of now at each checkpoint; the others skip that firing. A run whose
+-- lease has lapsed is taken over and resumed from last_group_id.
+
+ALTER TABLE reconciliation_runs ADD COLUMN IF NOT EXISTS claimed_by varchar(36);
+ALTER TABLE reconciliation_runs ADD COLUMN IF NOT EXISTS claimed_until timestamp(6) with time zone;
@@ -0,0 +1,69 @@
+package com.fairshare.fairshare.common;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * {@link KeysetCursor}s for pages whose cursor carries state the server trusts, such as a running
+ * balance. An HMAC-SHA256 of the parts is appended as a last part and checked on decode, so a cursor
+ * that was edited by hand is a bad request rather than a page computed from the edited values.
+ * <p>
+ * The key is {@code fairshare.cursor.signing-key}. Without one a random key is generated at startup,
+ * which only suits a single instance: cursors then stop working after a restart or on another node.
+ */
+@Component
+public class CursorSigner {
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+
+    public CursorSigner(@Value("${fairshare.cursor.signing-key:}") String signingKey) {
+        byte[] bytes;
+        if (signingKey == null || signingKey.isBlank()) {
+            bytes = new byte[32];
+            new SecureRandom().nextBytes(bytes);
+        } else {
+            bytes = signingKey.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(bytes, ALGORITHM);
+    }
+
+    public String encode(Object... parts) {
+        String[] values = new String[parts.length];
+        for (int i = 0; i < parts.length; i++) values[i] = String.valueOf(parts[i]);
+        Object[] signed = Arrays.copyOf(parts, parts.length + 1);
+        signed[parts.length] = sign(values);
+        return KeysetCursor.encode(signed);
+    }
+
+    /** The {@code parts} strings of a cursor made by {@link #encode}; a missing or wrong signature is a bad request. */
+    public String[] decode(String cursor, int parts) {
+        String[] decoded = KeysetCursor.decode(cursor, parts + 1);
+        String[] values = Arrays.copyOf(decoded, parts);
+        byte[] expected = sign(values).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, decoded[parts].getBytes(StandardCharsets.US_ASCII))) {
+            throw new BadRequestException("Invalid cursor");
+        }
+        return values;
+    }
+
+    private String sign(String[] values) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(mac.doFinal(String.join("|", values).getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign cursor", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.fairshare.fairshare.common;
+
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Identifies the database behind the application DataSource so hand-written SQL can pick
+ * Postgres syntax in production and an H2-compatible form in tests.
+ */
+@Component
+public class DatabasePlatform {
+    private final boolean postgres;
+
+    public DatabasePlatform(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            this.postgres = "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Unable to determine database platform", ex);
+        }
+    }
+
+    public boolean isPostgres() {
+        return postgres;
+    }
+}
@@ -0,0 +1,35 @@
+package com.fairshare.fairshare.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.StringJoiner;
+
+/**
+ * Opaque keyset cursors. The sort key of the last item on a page is joined and Base64url-encoded, so
+ * clients pass it back unchanged and the next page starts strictly after that key instead of at an
+ * offset. Parts must not contain {@code |}.
+ */
+public final class KeysetCursor {
+    private static final String SEPARATOR = "|";
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(Object... parts) {
+        StringJoiner joined = new StringJoiner(SEPARATOR);
+        for (Object part : parts) joined.add(String.valueOf(part));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Splits a cursor back into exactly {@code parts} strings; anything else is a bad request. */
+    public static String[] decode(String cursor, int parts) {
+        String[] decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+        if (decoded.length != parts) throw new BadRequestException("Invalid cursor");
+        return decoded;
+    }
+}
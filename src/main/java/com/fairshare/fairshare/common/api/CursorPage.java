@@ -0,0 +1,14 @@
+package com.fairshare.fairshare.common.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "A page of items read after a keyset cursor.")
+public record CursorPage<T>(
+        @Schema(description = "The items on this page, in the endpoint's sort order.")
+        List<T> items,
+        @Schema(description = "Pass as `cursor` to read the next page; null on the last page.")
+        String nextCursor
+) {
+}
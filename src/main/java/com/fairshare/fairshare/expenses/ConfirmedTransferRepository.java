@@ -1,6 +1,7 @@
 package com.fairshare.fairshare.expenses;
 
 import com.fairshare.fairshare.expenses.model.ConfirmedTransfer;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -18,19 +19,40 @@ public interface ConfirmedTransferRepository extends JpaRepository<ConfirmedTran
 
     List<ConfirmedTransfer> findByGroupIdOrderByCreatedAtDesc(Long groupId);
 
+    @Query("SELECT ct FROM ConfirmedTransfer ct WHERE ct.groupId = ?1 ORDER BY ct.createdAt DESC, ct.id DESC")
+    List<ConfirmedTransfer> findByGroupIdNewestFirst(Long groupId);
+
+    @Query("SELECT ct FROM ConfirmedTransfer ct WHERE ct.groupId = ?1 AND (ct.fromUserId = ?2 OR ct.toUserId = ?2) " +
+            "ORDER BY ct.createdAt DESC, ct.id DESC")
+    List<ConfirmedTransfer> findByGroupIdInvolvingUserNewestFirst(Long groupId, Long userId);
+
+    // keyset pages: strictly older than (beforeCreatedAt, beforeId), walking idx_confirmed_transfers_group_created_id
+    @Query("SELECT ct FROM ConfirmedTransfer ct WHERE ct.groupId = ?1 AND ct.createdAt BETWEEN ?2 AND ?3 " +
+            "AND (ct.createdAt < ?4 OR (ct.createdAt = ?4 AND ct.id < ?5)) ORDER BY ct.createdAt DESC, ct.id DESC")
+    List<ConfirmedTransfer> findByGroupIdNewestFirstBefore(Long groupId, Instant fromDate, Instant toDate,
+                                                           Instant beforeCreatedAt, Long beforeId, Limit limit);
+
+    @Query("SELECT ct FROM ConfirmedTransfer ct WHERE ct.groupId = ?1 AND ct.confirmationId = ?2 " +
+            "AND (ct.createdAt < ?3 OR (ct.createdAt = ?3 AND ct.id < ?4)) ORDER BY ct.createdAt DESC, ct.id DESC")
+    List<ConfirmedTransfer> findByGroupIdAndConfirmationIdNewestFirstBefore(Long groupId, String confirmationId,
+                                                                            Instant beforeCreatedAt, Long beforeId, Limit limit);
+
     List<ConfirmedTransfer> findByGroupIdAndConfirmationIdOrderByCreatedAtDesc(Long groupId, String confirmationId);
 
     @Query("SELECT COALESCE(SUM(ct.amount), 0) FROM ConfirmedTransfer ct WHERE ct.groupId = ?1 AND ct.fromUserId = ?2 AND ct.toUserId = ?3")
     BigDecimal sumConfirmedAmount(Long groupId, Long fromUserId, Long toUserId);
 
-    int countByGroupIdAndConfirmationId(Long groupId, String confirmationId);
-
-    List<ConfirmedTransfer> findByGroupIdAndFromUserId(Long groupId, Long fromUserId);
+    @Query("SELECT new com.fairshare.fairshare.expenses.PairwiseAmount(ct.fromUserId, ct.toUserId, SUM(ct.amount)) " +
+            "FROM ConfirmedTransfer ct WHERE ct.groupId = ?1 GROUP BY ct.fromUserId, ct.toUserId")
+    List<PairwiseAmount> sumConfirmedAmountsByPair(Long groupId);
 
-    List<ConfirmedTransfer> findByGroupIdAndToUserId(Long groupId, Long toUserId);
+    int countByGroupIdAndConfirmationId(Long groupId, String confirmationId);
 
     Page<ConfirmedTransfer> findByGroupId(Long groupId, Pageable pageable);
 
+    // no count query: the total comes from GroupCounters
+    List<ConfirmedTransfer> findAllByGroupId(Long groupId, Pageable pageable);
+
     Page<ConfirmedTransfer> findByGroupIdAndConfirmationId(Long groupId, String confirmationId, Pageable pageable);
 
     Page<ConfirmedTransfer> findByGroupIdAndCreatedAtBetween(Long groupId, Instant fromDate, Instant toDate, Pageable pageable);
@@ -1,9 +1,12 @@
 package com.fairshare.fairshare.expenses;
 
 import com.fairshare.fairshare.expenses.model.ExpenseEvent;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
 import java.util.List;
@@ -13,5 +16,67 @@ public interface ExpenseEventRepository extends JpaRepository<ExpenseEvent, Long
 
     Page<ExpenseEvent> findByGroupId(Long groupId, Pageable pageable);
 
+    // no count query: the total comes from GroupCounters
+    List<ExpenseEvent> findAllByGroupId(Long groupId, Pageable pageable);
+
     Page<ExpenseEvent> findByGroupIdAndCreatedAtBetween(Long groupId, Instant fromDate, Instant toDate, Pageable pageable);
+
+    Page<ExpenseEvent> findByGroupIdAndExpenseIdAndCreatedAtBetween(Long groupId, Long expenseId, Instant fromDate, Instant toDate, Pageable pageable);
+
+    // Keyset pages: strictly older than (beforeCreatedAt, beforeId), newest first.
+    @Query("SELECT ev FROM ExpenseEvent ev WHERE ev.groupId = :groupId AND ev.createdAt BETWEEN :fromDate AND :toDate " +
+            "AND (ev.createdAt < :beforeCreatedAt OR (ev.createdAt = :beforeCreatedAt AND ev.id < :beforeId)) " +
+            "ORDER BY ev.createdAt DESC, ev.id DESC")
+    List<ExpenseEvent> findByGroupIdNewestFirstBefore(@Param("groupId") Long groupId, @Param("fromDate") Instant fromDate,
+                                                      @Param("toDate") Instant toDate, @Param("beforeCreatedAt") Instant beforeCreatedAt,
+                                                      @Param("beforeId") Long beforeId, Limit limit);
+
+    @Query("SELECT ev FROM ExpenseEvent ev WHERE ev.groupId = :groupId AND ev.expenseId = :expenseId " +
+            "AND ev.createdAt BETWEEN :fromDate AND :toDate " +
+            "AND (ev.createdAt < :beforeCreatedAt OR (ev.createdAt = :beforeCreatedAt AND ev.id < :beforeId)) " +
+            "ORDER BY ev.createdAt DESC, ev.id DESC")
+    List<ExpenseEvent> findByGroupIdAndExpenseIdNewestFirstBefore(@Param("groupId") Long groupId, @Param("expenseId") Long expenseId,
+                                                                  @Param("fromDate") Instant fromDate, @Param("toDate") Instant toDate,
+                                                                  @Param("beforeCreatedAt") Instant beforeCreatedAt,
+                                                                  @Param("beforeId") Long beforeId, Limit limit);
+
+    @Query(value = "SELECT * FROM expense_events WHERE group_id = :groupId AND created_at BETWEEN :fromDate AND :toDate"
+            + " AND payload @> CAST(:filter AS jsonb)"
+            + " AND (created_at < :beforeCreatedAt OR (created_at = :beforeCreatedAt AND id < :beforeId))"
+            + " ORDER BY created_at DESC, id DESC",
+            nativeQuery = true)
+    List<ExpenseEvent> findByGroupIdAndPayloadContainingNewestFirstBefore(@Param("groupId") Long groupId, @Param("filter") String filter,
+                                                                          @Param("fromDate") Instant fromDate, @Param("toDate") Instant toDate,
+                                                                          @Param("beforeCreatedAt") Instant beforeCreatedAt,
+                                                                          @Param("beforeId") Long beforeId, Limit limit);
+
+    @Query(value = "SELECT * FROM expense_events WHERE group_id = :groupId AND created_at BETWEEN :fromDate AND :toDate"
+            + " AND CAST(payload AS VARCHAR) LIKE :expensePattern AND CAST(payload AS VARCHAR) LIKE :userPattern"
+            + " AND (created_at < :beforeCreatedAt OR (created_at = :beforeCreatedAt AND id < :beforeId))"
+            + " ORDER BY created_at DESC, id DESC",
+            nativeQuery = true)
+    List<ExpenseEvent> findByGroupIdAndPayloadLikeNewestFirstBefore(@Param("groupId") Long groupId, @Param("expensePattern") String expensePattern,
+                                                                    @Param("userPattern") String userPattern, @Param("fromDate") Instant fromDate,
+                                                                    @Param("toDate") Instant toDate, @Param("beforeCreatedAt") Instant beforeCreatedAt,
+                                                                    @Param("beforeId") Long beforeId, Limit limit);
+
+    // Postgres: jsonb containment, answered from the GIN index on payload (docs/0005). Sort properties
+    // must be column names since the query is native.
+    @Query(value = "SELECT * FROM expense_events WHERE group_id = :groupId AND created_at BETWEEN :fromDate AND :toDate"
+            + " AND payload @> CAST(:filter AS jsonb)",
+            countQuery = "SELECT count(*) FROM expense_events WHERE group_id = :groupId AND created_at BETWEEN :fromDate AND :toDate"
+                    + " AND payload @> CAST(:filter AS jsonb)",
+            nativeQuery = true)
+    Page<ExpenseEvent> findByGroupIdAndPayloadContaining(@Param("groupId") Long groupId, @Param("filter") String filter,
+                                                         @Param("fromDate") Instant fromDate, @Param("toDate") Instant toDate, Pageable pageable);
+
+    // H2 has no JSON containment operator, so tests match the serialized payload text instead.
+    @Query(value = "SELECT * FROM expense_events WHERE group_id = :groupId AND created_at BETWEEN :fromDate AND :toDate"
+            + " AND CAST(payload AS VARCHAR) LIKE :expensePattern AND CAST(payload AS VARCHAR) LIKE :userPattern",
+            countQuery = "SELECT count(*) FROM expense_events WHERE group_id = :groupId AND created_at BETWEEN :fromDate AND :toDate"
+                    + " AND CAST(payload AS VARCHAR) LIKE :expensePattern AND CAST(payload AS VARCHAR) LIKE :userPattern",
+            nativeQuery = true)
+    Page<ExpenseEvent> findByGroupIdAndPayloadLike(@Param("groupId") Long groupId, @Param("expensePattern") String expensePattern,
+                                                   @Param("userPattern") String userPattern, @Param("fromDate") Instant fromDate,
+                                                   @Param("toDate") Instant toDate, Pageable pageable);
 }
@@ -0,0 +1,110 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.common.BadRequestException;
+import com.fairshare.fairshare.common.DatabasePlatform;
+import com.fairshare.fairshare.expenses.model.ExpenseEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pages through a group's event log, optionally narrowed to one expense and/or one user.
+ * <p>
+ * The expense filter uses the (group_id, expense_id) index. The user filter matches the {@code deltas}
+ * array of the payload: on Postgres with {@code payload @> '{"deltas":[{"userId":..}]}'} against the
+ * GIN index, elsewhere by matching the serialized text.
+ * <p>
+ * {@link #findBefore} takes the same filters but reads a keyset page newest first, strictly older than a
+ * (createdAt, id) position, with no count query.
+ */
+@Component
+public class ExpenseEventSearch {
+    private static final Instant MIN_INSTANT = Instant.parse("0001-01-01T00:00:00Z");
+    private static final Instant MAX_INSTANT = Instant.parse("9999-12-31T23:59:59Z");
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "id",
+            "createdAt", "created_at",
+            "eventType", "event_type",
+            "expenseId", "expense_id");
+
+    private final ExpenseEventRepository eventRepo;
+    private final boolean postgres;
+
+    public ExpenseEventSearch(ExpenseEventRepository eventRepo, DatabasePlatform databasePlatform) {
+        this.eventRepo = eventRepo;
+        this.postgres = databasePlatform.isPostgres();
+    }
+
+    public Page<ExpenseEvent> find(Long groupId, Long expenseId, Long userId, Instant fromDate, Instant toDate, Pageable pageable) {
+        boolean dated = fromDate != null && toDate != null;
+        if (userId == null) {
+            if (expenseId != null) {
+                return eventRepo.findByGroupIdAndExpenseIdAndCreatedAtBetween(groupId, expenseId,
+                        dated ? fromDate : MIN_INSTANT, dated ? toDate : MAX_INSTANT, pageable);
+            }
+            return dated
+                    ? eventRepo.findByGroupIdAndCreatedAtBetween(groupId, fromDate, toDate, pageable)
+                    : eventRepo.findByGroupId(groupId, pageable);
+        }
+
+        Instant from = dated ? fromDate : MIN_INSTANT;
+        Instant to = dated ? toDate : MAX_INSTANT;
+        Pageable byColumn = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), toColumnSort(pageable.getSort()));
+        if (postgres) {
+            return eventRepo.findByGroupIdAndPayloadContaining(groupId, containmentFilter(expenseId, userId), from, to, byColumn);
+        }
+        return eventRepo.findByGroupIdAndPayloadLike(groupId, expensePattern(expenseId), userPattern(userId), from, to, byColumn);
+    }
+
+    public List<ExpenseEvent> findBefore(Long groupId, Long expenseId, Long userId, Instant fromDate, Instant toDate,
+                                         Instant beforeCreatedAt, Long beforeId, int limit) {
+        boolean dated = fromDate != null && toDate != null;
+        Instant from = dated ? fromDate : MIN_INSTANT;
+        Instant to = dated ? toDate : MAX_INSTANT;
+        if (userId == null) {
+            return expenseId != null
+                    ? eventRepo.findByGroupIdAndExpenseIdNewestFirstBefore(groupId, expenseId, from, to, beforeCreatedAt, beforeId, Limit.of(limit))
+                    : eventRepo.findByGroupIdNewestFirstBefore(groupId, from, to, beforeCreatedAt, beforeId, Limit.of(limit));
+        }
+        if (postgres) {
+            return eventRepo.findByGroupIdAndPayloadContainingNewestFirstBefore(groupId, containmentFilter(expenseId, userId),
+                    from, to, beforeCreatedAt, beforeId, Limit.of(limit));
+        }
+        return eventRepo.findByGroupIdAndPayloadLikeNewestFirstBefore(groupId, expensePattern(expenseId), userPattern(userId),
+                from, to, beforeCreatedAt, beforeId, Limit.of(limit));
+    }
+
+    private static String containmentFilter(Long expenseId, Long userId) {
+        return expenseId != null
+                ? String.format("{\"expenseId\":%d,\"deltas\":[{\"userId\":%d}]}", expenseId, userId)
+                : String.format("{\"deltas\":[{\"userId\":%d}]}", userId);
+    }
+
+    // expenseId is the first payload field and userId the first field of each delta, so both are
+    // always followed by a comma; ExpenseEventFilterIntegrationTest pins that order
+    static String expensePattern(Long expenseId) {
+        return expenseId != null ? "%\"expenseId\":" + expenseId + ",%" : "%";
+    }
+
+    static String userPattern(Long userId) {
+        return "%\"userId\":" + userId + ",%";
+    }
+
+    private static Sort toColumnSort(Sort sort) {
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            String column = SORT_COLUMNS.get(order.getProperty());
+            if (column == null) throw new BadRequestException("Unsupported sort property: " + order.getProperty());
+            orders.add(new Sort.Order(order.getDirection(), column));
+        }
+        return Sort.by(orders);
+    }
+}
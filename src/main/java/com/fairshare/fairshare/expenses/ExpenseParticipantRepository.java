@@ -17,12 +17,26 @@ public interface ExpenseParticipantRepository extends JpaRepository<ExpenseParti
     @Query("SELECT ep FROM ExpenseParticipant ep WHERE ep.expense.id IN :expenseIds ORDER BY ep.expense.id ASC, ep.userId ASC")
     List<ExpenseParticipant> findByExpenseIdInOrderByExpenseIdAscUserIdAsc(@Param("expenseIds") Collection<Long> expenseIds);
 
-    @Query("SELECT COALESCE(SUM(ep.shareAmount), 0) FROM ExpenseParticipant ep JOIN ep.expense e WHERE e.groupId = ?1 AND e.payerUserId = ?2 AND ep.userId = ?3")
+    @Query("SELECT COALESCE(SUM(ep.shareAmount), 0) FROM ExpenseParticipant ep JOIN ep.expense e " +
+            "WHERE e.groupId = ?1 AND e.payerUserId = ?2 AND ep.userId = ?3 AND (e.voided IS NULL OR e.voided = false)")
     BigDecimal sumShareByGroupAndPayerAndUser(Long groupId, Long payerUserId, Long participantUserId);
 
-    @Query("SELECT ep FROM ExpenseParticipant ep JOIN ep.expense e WHERE ep.userId = ?1 AND e.groupId = ?2")
-    List<ExpenseParticipant> findByUserIdAndGroupId(Long userId, Long groupId);
+    // each participant's total share per payer, i.e. what fromUserId owes toUserId before transfers
+    @Query("SELECT new com.fairshare.fairshare.expenses.PairwiseAmount(ep.userId, e.payerUserId, SUM(ep.shareAmount)) " +
+            "FROM ExpenseParticipant ep JOIN ep.expense e " +
+            "WHERE e.groupId = ?1 AND ep.userId <> e.payerUserId AND (e.voided IS NULL OR e.voided = false) " +
+            "GROUP BY ep.userId, e.payerUserId")
+    List<PairwiseAmount> sumSharesByParticipantAndPayer(Long groupId);
+
+    // shares of non-voided expenses with their expense loaded, newest expense first
+    @Query("SELECT ep FROM ExpenseParticipant ep JOIN FETCH ep.expense e " +
+            "WHERE e.groupId = ?1 AND (e.voided IS NULL OR e.voided = false) " +
+            "ORDER BY e.createdAt DESC, e.id DESC, ep.userId ASC")
+    List<ExpenseParticipant> findActiveByGroupIdNewestFirst(Long groupId);
+
+    @Query("SELECT ep FROM ExpenseParticipant ep JOIN FETCH ep.expense e " +
+            "WHERE e.groupId = ?1 AND ep.userId = ?2 AND (e.voided IS NULL OR e.voided = false) " +
+            "ORDER BY e.createdAt DESC, e.id DESC")
+    List<ExpenseParticipant> findActiveByGroupIdAndUserIdNewestFirst(Long groupId, Long userId);
 
-    // Delete a single participant row for an expense and user
-    void deleteByExpense_IdAndUserId(Long expenseId, Long userId);
 }
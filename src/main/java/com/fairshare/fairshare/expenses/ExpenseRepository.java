@@ -1,11 +1,14 @@
 package com.fairshare.fairshare.expenses;
 
 import com.fairshare.fairshare.expenses.model.Expense;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,12 +18,30 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
 
     Optional<Expense> findByGroupIdAndIdempotencyKey(Long groupId, String idempotencyKey);
 
+    List<Expense> findByGroupIdAndIdempotencyKeyIn(Long groupId, Collection<String> idempotencyKeys);
+
     @SuppressWarnings("unused")
     List<Expense> findByGroupIdAndVoidedFalseOrderByCreatedAtDesc(Long groupId);
 
-    List<Expense> findByGroupIdAndPayerUserId(Long groupId, Long payerUserId);
+    @Query("SELECT e FROM Expense e WHERE e.groupId = ?1 AND (e.voided IS NULL OR e.voided = false) " +
+            "ORDER BY e.createdAt DESC, e.id DESC")
+    List<Expense> findActiveByGroupIdNewestFirst(Long groupId);
+
+    @Query("SELECT e FROM Expense e WHERE e.groupId = ?1 AND e.payerUserId = ?2 AND (e.voided IS NULL OR e.voided = false) " +
+            "ORDER BY e.createdAt DESC, e.id DESC")
+    List<Expense> findActiveByGroupIdAndPayerNewestFirst(Long groupId, Long payerUserId);
+
+    // keyset page: strictly older than (beforeCreatedAt, beforeId), walking idx_expenses_group_created_id
+    @Query("SELECT e FROM Expense e WHERE e.groupId = ?1 AND (e.voided IS NULL OR e.voided = false) " +
+            "AND e.createdAt BETWEEN ?2 AND ?3 AND (e.createdAt < ?4 OR (e.createdAt = ?4 AND e.id < ?5)) " +
+            "ORDER BY e.createdAt DESC, e.id DESC")
+    List<Expense> findActiveByGroupIdNewestFirstBefore(Long groupId, Instant fromDate, Instant toDate,
+                                                       Instant beforeCreatedAt, Long beforeId, Limit limit);
 
-    Page<Expense> findByGroupIdAndVoidedFalse(Long groupId, Pageable pageable);
+    // no count query: the total comes from GroupCounters
+    @Query("SELECT e FROM Expense e WHERE e.groupId = ?1 AND (e.voided IS NULL OR e.voided = false)")
+    List<Expense> findActiveByGroupId(Long groupId, Pageable pageable);
 
-    Page<Expense> findByGroupIdAndVoidedFalseAndCreatedAtBetween(Long groupId, Instant fromDate, Instant toDate, Pageable pageable);
+    @Query("SELECT e FROM Expense e WHERE e.groupId = ?1 AND (e.voided IS NULL OR e.voided = false) AND e.createdAt BETWEEN ?2 AND ?3")
+    Page<Expense> findActiveByGroupIdAndCreatedAtBetween(Long groupId, Instant fromDate, Instant toDate, Pageable pageable);
 }
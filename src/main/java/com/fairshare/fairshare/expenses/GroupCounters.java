@@ -0,0 +1,96 @@
+package com.fairshare.fairshare.expenses;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Per-group row counts kept on {@code groups}, so list endpoints can report {@code totalItems} without a
+ * {@code COUNT(*)} over the group's rows: live (non-voided) expenses, expense events and confirmed
+ * transfers.
+ * <p>
+ * Writers call {@link #add} in the same transaction and under the same group write lock as the rows
+ * they insert or void, so the counts move together with the data. {@link #repair} recomputes a group's
+ * counts from the tables under that lock and fixes them if they drifted; {@link #repairDrifted} does so
+ * for every group whose counts disagree, on {@code fairshare.group-counters.repair-cron}.
+ */
+@Component
+public class GroupCounters {
+
+    public record Counts(long expenses, long events, long confirmedTransfers) {
+    }
+
+    private static final String ADD = """
+            UPDATE groups
+            SET expense_count = expense_count + ?, event_count = event_count + ?,
+                confirmed_transfer_count = confirmed_transfer_count + ?
+            WHERE id = ?""";
+
+    private static final String SELECT_COUNTS = "SELECT expense_count, event_count, confirmed_transfer_count FROM groups WHERE id = ?";
+
+    private static final String ACTUAL_EXPENSES = "(SELECT COUNT(*) FROM expenses e WHERE e.group_id = g.id AND (e.voided IS NULL OR e.voided = FALSE))";
+    private static final String ACTUAL_EVENTS = "(SELECT COUNT(*) FROM expense_events ev WHERE ev.group_id = g.id)";
+    private static final String ACTUAL_TRANSFERS = "(SELECT COUNT(*) FROM confirmed_transfers t WHERE t.group_id = g.id)";
+
+    private static final String DRIFTED_GROUPS = "SELECT g.id FROM groups g WHERE g.expense_count <> " + ACTUAL_EXPENSES
+            + " OR g.event_count <> " + ACTUAL_EVENTS
+            + " OR g.confirmed_transfer_count <> " + ACTUAL_TRANSFERS
+            + " ORDER BY g.id";
+
+    private static final String RECOMPUTE = "UPDATE groups g SET expense_count = " + ACTUAL_EXPENSES
+            + ", event_count = " + ACTUAL_EVENTS
+            + ", confirmed_transfer_count = " + ACTUAL_TRANSFERS
+            + " WHERE g.id = ? AND (g.expense_count <> " + ACTUAL_EXPENSES
+            + " OR g.event_count <> " + ACTUAL_EVENTS
+            + " OR g.confirmed_transfer_count <> " + ACTUAL_TRANSFERS + ")";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GroupWriteLock groupWriteLock;
+    private final TransactionTemplate transactionTemplate;
+
+    public GroupCounters(JdbcTemplate jdbcTemplate, GroupWriteLock groupWriteLock, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.groupWriteLock = groupWriteLock;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /** Adjusts the group's counts by the given amounts. Call in the writing transaction, under the group write lock. */
+    public void add(Long groupId, long expenses, long events, long confirmedTransfers) {
+        if (expenses == 0 && events == 0 && confirmedTransfers == 0) return;
+        jdbcTemplate.update(ADD, expenses, events, confirmedTransfers, groupId);
+    }
+
+    /** The group's maintained counts, or all zero if the group does not exist. */
+    public Counts counts(Long groupId) {
+        List<Counts> counts = jdbcTemplate.query(SELECT_COUNTS,
+                (rs, i) -> new Counts(rs.getLong(1), rs.getLong(2), rs.getLong(3)), groupId);
+        return counts.isEmpty() ? new Counts(0, 0, 0) : counts.get(0);
+    }
+
+    /**
+     * Recomputes the group's counts from its rows and stores them if they differ. Must run inside a
+     * transaction; returns whether the counts had drifted.
+     */
+    public boolean repair(Long groupId) {
+        groupWriteLock.lock(groupId);
+        return jdbcTemplate.update(RECOMPUTE, groupId) > 0;
+    }
+
+    /** Repairs every group whose counts disagree with its rows, one transaction per group. */
+    public int repairDrifted() {
+        int repaired = 0;
+        for (Long groupId : jdbcTemplate.queryForList(DRIFTED_GROUPS, Long.class)) {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> repair(groupId)))) repaired++;
+        }
+        return repaired;
+    }
+
+    @Scheduled(cron = "${fairshare.group-counters.repair-cron:0 30 1 * * *}")
+    public void repairOnSchedule() {
+        repairDrifted();
+    }
+}
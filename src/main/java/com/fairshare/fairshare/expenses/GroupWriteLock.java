@@ -0,0 +1,98 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.common.DatabasePlatform;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes ledger-mutating work per group for the rest of the current transaction.
+ * <p>
+ * {@code advisory} takes {@code pg_advisory_xact_lock(groupId)}, which Postgres releases at commit or
+ * rollback and which holds across application nodes. {@code striped} locks one of a fixed set of
+ * in-JVM locks chosen by groupId and releases it when the transaction completes; it only protects a
+ * single-node deployment. When {@code fairshare.group-write-lock.strategy} is not set, Postgres uses
+ * advisory and anything else uses striped.
+ * <p>
+ * {@link Strategy#NONE} leaves concurrent writers to the row locks the statements take, which can lose
+ * ledger updates. It is the unlocked baseline the serialization test measures against and cannot be
+ * configured.
+ */
+@Component
+public class GroupWriteLock {
+
+    public enum Strategy { ADVISORY, STRIPED, NONE }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Strategy strategy;
+    private final ReentrantLock[] stripes;
+
+    @Autowired
+    public GroupWriteLock(
+            JdbcTemplate jdbcTemplate,
+            DatabasePlatform databasePlatform,
+            @Value("${fairshare.group-write-lock.strategy:}") String strategy,
+            @Value("${fairshare.group-write-lock.stripes:256}") int stripes
+    ) {
+        this(jdbcTemplate, resolve(strategy, databasePlatform), stripes);
+    }
+
+    GroupWriteLock(JdbcTemplate jdbcTemplate, Strategy strategy, int stripes) {
+        if (stripes <= 0) throw new IllegalArgumentException("fairshare.group-write-lock.stripes must be positive");
+        this.jdbcTemplate = jdbcTemplate;
+        this.strategy = strategy;
+        this.stripes = new ReentrantLock[strategy == Strategy.STRIPED ? stripes : 0];
+        for (int i = 0; i < this.stripes.length; i++) this.stripes[i] = new ReentrantLock();
+    }
+
+    private static Strategy resolve(String configured, DatabasePlatform databasePlatform) {
+        if (configured == null || configured.isBlank()) {
+            return databasePlatform.isPostgres() ? Strategy.ADVISORY : Strategy.STRIPED;
+        }
+        Strategy strategy = Strategy.valueOf(configured.trim().toUpperCase(Locale.ROOT));
+        if (strategy == Strategy.NONE) {
+            throw new IllegalStateException("fairshare.group-write-lock.strategy must be advisory or striped");
+        }
+        if (strategy == Strategy.ADVISORY && !databasePlatform.isPostgres()) {
+            throw new IllegalStateException("fairshare.group-write-lock.strategy=advisory requires PostgreSQL");
+        }
+        return strategy;
+    }
+
+    public Strategy strategy() {
+        return strategy;
+    }
+
+    /**
+     * Blocks until this transaction holds the group's write lock. Must be called inside a transaction;
+     * the lock is released when it commits or rolls back.
+     */
+    public void lock(Long groupId) {
+        switch (strategy) {
+            case ADVISORY -> jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> null, groupId);
+            case STRIPED -> lockStripe(groupId);
+            case NONE -> {
+            }
+        }
+    }
+
+    private void lockStripe(Long groupId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Group write lock requires an active transaction");
+        }
+        ReentrantLock stripe = stripes[Math.floorMod(Long.hashCode(groupId), stripes.length)];
+        stripe.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                stripe.unlock();
+            }
+        });
+    }
+}
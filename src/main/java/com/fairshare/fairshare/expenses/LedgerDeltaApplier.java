@@ -0,0 +1,91 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.common.DatabasePlatform;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies aggregated ledger deltas as a single batched upsert. Balances are incremented in the
+ * database rather than read, changed in memory and written back, so concurrent writers to the same
+ * group cannot lose each other's updates.
+ * <p>
+ * Every non-empty apply also bumps {@code groups.ledger_version} in the same transaction, so anything
+ * derived from the ledger can be cached against that version, and appends the deltas to
+ * {@code ledger_deltas} under the new version for {@link LedgerSnapshots} to replay.
+ */
+@Component
+public class LedgerDeltaApplier {
+
+    private static final String POSTGRES_UPSERT = """
+            INSERT INTO ledger_entries (id, group_id, user_id, net_balance)
+            VALUES (nextval('ledger_entries_seq'), ?, ?, ?)
+            ON CONFLICT (group_id, user_id)
+            DO UPDATE SET net_balance = ledger_entries.net_balance + EXCLUDED.net_balance""";
+
+    private static final String MERGE_UPSERT = """
+            MERGE INTO ledger_entries le
+            USING (SELECT CAST(? AS BIGINT) AS group_id, CAST(? AS BIGINT) AS user_id, CAST(? AS NUMERIC(12, 2)) AS delta) d
+            ON le.group_id = d.group_id AND le.user_id = d.user_id
+            WHEN MATCHED THEN UPDATE SET net_balance = le.net_balance + d.delta
+            WHEN NOT MATCHED THEN INSERT (id, group_id, user_id, net_balance)
+                VALUES (NEXT VALUE FOR ledger_entries_seq, d.group_id, d.user_id, d.delta)""";
+
+    private static final String BUMP_VERSION = "UPDATE groups SET ledger_version = ledger_version + 1 WHERE id = ?";
+    // reads the version bumped just before, so the journal rows carry the version this write produced
+    private static final String JOURNAL = """
+            INSERT INTO ledger_deltas (group_id, user_id, delta, ledger_version, created_at)
+            SELECT id, ?, ?, ledger_version, ? FROM groups WHERE id = ?""";
+
+    private static final String SELECT_VERSION = "SELECT ledger_version FROM groups WHERE id = ?";
+    // answered from idx_ledger_entries_user_id, then the groups primary key
+    private static final String SELECT_VERSIONS_WHERE_USER_HAS_BALANCE = """
+            SELECT g.id, g.ledger_version FROM ledger_entries le JOIN groups g ON g.id = le.group_id
+            WHERE le.user_id = ? AND le.net_balance <> 0
+            ORDER BY g.id""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String upsertSql;
+
+    public LedgerDeltaApplier(JdbcTemplate jdbcTemplate, DatabasePlatform databasePlatform) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.upsertSql = databasePlatform.isPostgres() ? POSTGRES_UPSERT : MERGE_UPSERT;
+    }
+
+    public void apply(Long groupId, LedgerDeltas deltas) {
+        if (deltas.isEmpty()) return;
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        List<Object[]> journal = new ArrayList<>(deltas.size());
+        for (Map.Entry<Long, BigDecimal> delta : deltas.asMap().entrySet()) {
+            BigDecimal amount = delta.getValue().setScale(2, RoundingMode.HALF_UP);
+            rows.add(new Object[]{groupId, delta.getKey(), amount});
+            journal.add(new Object[]{delta.getKey(), amount, now, groupId});
+        }
+        jdbcTemplate.batchUpdate(upsertSql, rows);
+        jdbcTemplate.update(BUMP_VERSION, groupId);
+        jdbcTemplate.batchUpdate(JOURNAL, journal);
+    }
+
+    /** The group's current ledger version, or 0 if the group does not exist. */
+    public long version(Long groupId) {
+        List<Long> versions = jdbcTemplate.queryForList(SELECT_VERSION, Long.class, groupId);
+        return versions.isEmpty() ? 0L : versions.get(0);
+    }
+
+    /** The current ledger version of every group in which the user has a non-zero balance, by group id. */
+    public Map<Long, Long> versionsWhereUserHasBalance(Long userId) {
+        Map<Long, Long> versions = new LinkedHashMap<>();
+        jdbcTemplate.query(SELECT_VERSIONS_WHERE_USER_HAS_BALANCE,
+                rs -> { versions.put(rs.getLong(1), rs.getLong(2)); }, userId);
+        return versions;
+    }
+}
@@ -0,0 +1,45 @@
+package com.fairshare.fairshare.expenses;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-user balance changes collected over one operation. Deltas for the same user are summed,
+ * and iteration is by ascending userId so concurrent writers lock ledger rows in the same order.
+ */
+public final class LedgerDeltas {
+    private final TreeMap<Long, BigDecimal> byUser = new TreeMap<>();
+
+    public LedgerDeltas add(Long userId, BigDecimal delta) {
+        byUser.merge(userId, delta, BigDecimal::add);
+        return this;
+    }
+
+    public LedgerDeltas addAll(LedgerDeltas other) {
+        other.byUser.forEach(this::add);
+        return this;
+    }
+
+    /** A copy without the users whose deltas summed to zero, so their ledger rows are left untouched. */
+    public LedgerDeltas withoutZeroes() {
+        LedgerDeltas out = new LedgerDeltas();
+        byUser.forEach((userId, delta) -> {
+            if (delta.signum() != 0) out.byUser.put(userId, delta);
+        });
+        return out;
+    }
+
+    public boolean isEmpty() {
+        return byUser.isEmpty();
+    }
+
+    public int size() {
+        return byUser.size();
+    }
+
+    public Map<Long, BigDecimal> asMap() {
+        return Collections.unmodifiableMap(byUser);
+    }
+}
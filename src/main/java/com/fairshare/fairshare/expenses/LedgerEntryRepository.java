@@ -3,6 +3,7 @@ package com.fairshare.fairshare.expenses;
 import com.fairshare.fairshare.expenses.model.LedgerEntry;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,4 +11,6 @@ public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long>
     Optional<LedgerEntry> findByGroupIdAndUserId(Long groupId, Long userId);
 
     List<LedgerEntry> findByGroupIdOrderByUserIdAsc(Long groupId);
+
+    List<LedgerEntry> findByGroupIdInOrderByGroupIdAscUserIdAsc(Collection<Long> groupIds);
 }
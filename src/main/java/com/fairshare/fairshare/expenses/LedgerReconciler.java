@@ -0,0 +1,297 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.common.DatabasePlatform;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks {@code ledger_entries} against the balances implied by history: payer totals of non-voided
+ * expenses, minus their participant shares, plus confirmed transfers sent, minus those received.
+ * <p>
+ * Each group is checked with one aggregated query that returns only the users whose stored balance
+ * differs. A run walks the groups in id order, {@code fairshare.reconciliation.batch-size} at a time, and
+ * checks each batch in parallel on a pool of {@code fairshare.reconciliation.threads}. After a batch its
+ * drifts and the highest group id are committed together to {@code reconciliation_runs}, so a run that
+ * was interrupted picks up from that checkpoint the next time it starts.
+ * <p>
+ * Every instance fires the same schedule, so a run is claimed in the database before any group is checked.
+ * The claim is a lease on the run row ({@code claimed_by}, {@code claimed_until}) taken in one transaction
+ * that holds {@code pg_advisory_xact_lock} on Postgres and reads the unfinished run {@code FOR UPDATE}. An
+ * instance that finds the run leased to another skips this firing. Each checkpoint renews the lease for
+ * {@code fairshare.reconciliation.lease} and only commits while this instance still holds it, so a run whose
+ * lease expired and was taken over stops without writing its batch twice.
+ * <p>
+ * Each query reads one consistent snapshot, so it needs no group lock. Results are published as
+ * {@code fairshare.reconciliation.*} meters: cumulative counts of checked and drifted groups and users,
+ * the drifted groups in the current or last run, and that run's throughput in groups per second.
+ */
+@Component
+public class LedgerReconciler {
+
+    public static final String GROUPS_CHECKED = "fairshare.reconciliation.groups.checked";
+    public static final String GROUPS_DRIFTED = "fairshare.reconciliation.groups.drifted";
+    public static final String USERS_DRIFTED = "fairshare.reconciliation.users.drifted";
+    public static final String RUN_GROUPS_DRIFTED = "fairshare.reconciliation.run.groups.drifted";
+    public static final String RUN_THROUGHPUT = "fairshare.reconciliation.run.throughput";
+
+    private static final String DRIFTED_BALANCES = """
+            SELECT user_id, SUM(expected) AS expected, SUM(actual) AS actual FROM (
+                SELECT e.payer_user_id AS user_id, e.amount AS expected, CAST(0 AS NUMERIC(12, 2)) AS actual
+                FROM expenses e WHERE e.group_id = ? AND (e.voided IS NULL OR e.voided = FALSE)
+                UNION ALL
+                SELECT p.user_id, -p.share_amount, CAST(0 AS NUMERIC(12, 2))
+                FROM expense_participants p JOIN expenses e ON e.id = p.expense_id
+                WHERE e.group_id = ? AND (e.voided IS NULL OR e.voided = FALSE)
+                UNION ALL
+                SELECT t.from_user_id, t.amount, CAST(0 AS NUMERIC(12, 2)) FROM confirmed_transfers t WHERE t.group_id = ?
+                UNION ALL
+                SELECT t.to_user_id, -t.amount, CAST(0 AS NUMERIC(12, 2)) FROM confirmed_transfers t WHERE t.group_id = ?
+                UNION ALL
+                SELECT le.user_id, CAST(0 AS NUMERIC(12, 2)), le.net_balance FROM ledger_entries le WHERE le.group_id = ?
+            ) balances
+            GROUP BY user_id
+            HAVING SUM(expected) <> SUM(actual)
+            ORDER BY user_id""";
+
+    private static final String NEXT_GROUPS = "SELECT id FROM groups WHERE id > ? ORDER BY id LIMIT ?";
+
+    // an arbitrary constant shared by every instance; only the claim transaction takes it
+    private static final long CLAIM_LOCK_KEY = 0x7265636f6e63696cL;
+
+    private static final String UNFINISHED_RUN = """
+            SELECT id, last_group_id, groups_checked, groups_drifted, claimed_until FROM reconciliation_runs
+            WHERE finished_at IS NULL ORDER BY id DESC LIMIT 1 FOR UPDATE""";
+
+    private static final String INSERT_RUN = """
+            INSERT INTO reconciliation_runs (started_at, last_group_id, groups_checked, groups_drifted, claimed_by, claimed_until)
+            VALUES (?, 0, 0, 0, ?, ?)""";
+
+    private static final String CLAIM_RUN = "UPDATE reconciliation_runs SET claimed_by = ?, claimed_until = ? WHERE id = ?";
+
+    private static final String CHECKPOINT = """
+            UPDATE reconciliation_runs
+            SET last_group_id = ?, groups_checked = groups_checked + ?, groups_drifted = groups_drifted + ?, claimed_until = ?
+            WHERE id = ? AND claimed_by = ?""";
+
+    private static final String FINISH_RUN = """
+            UPDATE reconciliation_runs SET finished_at = ?, claimed_by = NULL, claimed_until = NULL
+            WHERE id = ? AND claimed_by = ?""";
+
+    private static final String RELEASE_RUN = """
+            UPDATE reconciliation_runs SET claimed_by = NULL, claimed_until = NULL
+            WHERE id = ? AND claimed_by = ? AND finished_at IS NULL""";
+
+    private static final String INSERT_DRIFT = """
+            INSERT INTO ledger_drifts (run_id, group_id, user_id, expected_balance, actual_balance)
+            VALUES (?, ?, ?, ?, ?)""";
+
+    public record Drift(Long groupId, Long userId, BigDecimal expectedBalance, BigDecimal actualBalance) {
+    }
+
+    /** Totals for the whole run, including batches checked before a resume. */
+    public record RunSummary(long runId, long groupsChecked, long groupsDrifted, boolean resumed) {
+    }
+
+    private record UnfinishedRun(long id, long lastGroupId, long groupsChecked, long groupsDrifted, Timestamp claimedUntil) {
+    }
+
+    private record Claim(UnfinishedRun run, String token, boolean resumed) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final int batchSize;
+    private final Duration lease;
+    private final boolean postgres;
+    private final Counter groupsChecked;
+    private final Counter groupsDrifted;
+    private final Counter usersDrifted;
+    private volatile long runGroupsDrifted;
+    private volatile double runThroughput;
+
+    public LedgerReconciler(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            DatabasePlatform databasePlatform,
+            @Value("${fairshare.reconciliation.threads:4}") int threads,
+            @Value("${fairshare.reconciliation.batch-size:1000}") int batchSize,
+            @Value("${fairshare.reconciliation.lease:PT5M}") Duration lease
+    ) {
+        if (threads <= 0) throw new IllegalArgumentException("fairshare.reconciliation.threads must be positive");
+        if (batchSize <= 0) throw new IllegalArgumentException("fairshare.reconciliation.batch-size must be positive");
+        if (lease.isNegative() || lease.isZero()) throw new IllegalArgumentException("fairshare.reconciliation.lease must be positive");
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.lease = lease;
+        this.postgres = databasePlatform.isPostgres();
+        AtomicInteger threadCount = new AtomicInteger();
+        // a batch never queues more than batchSize checks, so the queue bound is never hit
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchSize),
+                r -> {
+                    Thread t = new Thread(r, "ledger-reconciler-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        this.groupsChecked = Counter.builder(GROUPS_CHECKED)
+                .description("Groups whose ledger has been reconciled against history")
+                .register(meterRegistry);
+        this.groupsDrifted = Counter.builder(GROUPS_DRIFTED)
+                .description("Reconciled groups with at least one drifted balance")
+                .register(meterRegistry);
+        this.usersDrifted = Counter.builder(USERS_DRIFTED)
+                .description("Ledger balances that did not match history")
+                .register(meterRegistry);
+        Gauge.builder(RUN_GROUPS_DRIFTED, this, r -> r.runGroupsDrifted)
+                .description("Drifted groups found by the current or last reconciliation run")
+                .register(meterRegistry);
+        Gauge.builder(RUN_THROUGHPUT, this, r -> r.runThroughput)
+                .description("Groups per second checked by the current or last reconciliation run")
+                .baseUnit("groups/s")
+                .register(meterRegistry);
+    }
+
+    /** The users in the group whose stored balance differs from history, ordered by userId. */
+    public List<Drift> check(Long groupId) {
+        return jdbcTemplate.query(DRIFTED_BALANCES,
+                (rs, i) -> new Drift(groupId, rs.getLong(1), rs.getBigDecimal(2), rs.getBigDecimal(3)),
+                groupId, groupId, groupId, groupId, groupId);
+    }
+
+    /**
+     * Reconciles every group, resuming the last unfinished run if there is one. Returns empty without
+     * checking anything when another instance holds the run's lease.
+     */
+    public synchronized Optional<RunSummary> run() {
+        Claim claim = transactionTemplate.execute(status -> claim());
+        if (claim == null) return Optional.empty();
+        long runId = claim.run().id();
+        long lastGroupId = claim.run().lastGroupId();
+        long checked = claim.run().groupsChecked();
+        long drifted = claim.run().groupsDrifted();
+        boolean finished = false;
+
+        runGroupsDrifted = drifted;
+        runThroughput = 0;
+        long started = System.nanoTime();
+        long checkedHere = 0;
+
+        try {
+            List<Long> batch;
+            while (!(batch = jdbcTemplate.queryForList(NEXT_GROUPS, Long.class, lastGroupId, batchSize)).isEmpty()) {
+                List<Drift> drifts = checkAll(batch);
+                long batchDrifted = drifts.stream().map(Drift::groupId).distinct().count();
+                long batchLast = batch.get(batch.size() - 1);
+                int batchChecked = batch.size();
+
+                transactionTemplate.executeWithoutResult(status -> {
+                    // the checkpoint goes first: if the lease was lost, nothing from this batch is written
+                    if (jdbcTemplate.update(CHECKPOINT, batchLast, batchChecked, batchDrifted,
+                            Timestamp.from(Instant.now().plus(lease)), runId, claim.token()) == 0) {
+                        throw new IllegalStateException("Reconciliation run " + runId + " was claimed by another instance");
+                    }
+                    jdbcTemplate.batchUpdate(INSERT_DRIFT, drifts.stream()
+                            .map(d -> new Object[]{runId, d.groupId(), d.userId(), d.expectedBalance(), d.actualBalance()})
+                            .toList());
+                });
+
+                lastGroupId = batchLast;
+                checked += batchChecked;
+                drifted += batchDrifted;
+                checkedHere += batchChecked;
+                groupsChecked.increment(batchChecked);
+                groupsDrifted.increment(batchDrifted);
+                usersDrifted.increment(drifts.size());
+                runGroupsDrifted = drifted;
+                runThroughput = checkedHere / Math.max((System.nanoTime() - started) / 1e9, 1e-9);
+            }
+
+            if (jdbcTemplate.update(FINISH_RUN, Timestamp.from(Instant.now()), runId, claim.token()) == 0) {
+                throw new IllegalStateException("Reconciliation run " + runId + " was claimed by another instance");
+            }
+            finished = true;
+        } finally {
+            // lets the next firing resume straight away instead of waiting for the lease to lapse
+            if (!finished) jdbcTemplate.update(RELEASE_RUN, runId, claim.token());
+        }
+        return Optional.of(new RunSummary(runId, checked, drifted, claim.resumed()));
+    }
+
+    // Runs in one transaction: takes over the unfinished run unless its lease is still live, or starts one.
+    private Claim claim() {
+        if (postgres) jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> null, CLAIM_LOCK_KEY);
+        Instant now = Instant.now();
+        String token = UUID.randomUUID().toString();
+        Timestamp until = Timestamp.from(now.plus(lease));
+
+        List<UnfinishedRun> unfinished = unfinishedRun();
+        if (unfinished.isEmpty()) {
+            jdbcTemplate.update(INSERT_RUN, Timestamp.from(now), token, until);
+            return new Claim(unfinishedRun().get(0), token, false);
+        }
+        UnfinishedRun run = unfinished.get(0);
+        if (run.claimedUntil() != null && run.claimedUntil().toInstant().isAfter(now)) return null;
+        jdbcTemplate.update(CLAIM_RUN, token, until, run.id());
+        return new Claim(run, token, true);
+    }
+
+    private List<UnfinishedRun> unfinishedRun() {
+        return jdbcTemplate.query(UNFINISHED_RUN, (rs, i) -> new UnfinishedRun(rs.getLong("id"), rs.getLong("last_group_id"),
+                rs.getLong("groups_checked"), rs.getLong("groups_drifted"), rs.getTimestamp("claimed_until")));
+    }
+
+    @Scheduled(cron = "${fairshare.reconciliation.cron:0 0 1 * * *}")
+    public void runOnSchedule() {
+        run();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<Drift> checkAll(List<Long> groupIds) {
+        List<Future<List<Drift>>> futures = new ArrayList<>(groupIds.size());
+        for (Long groupId : groupIds) futures.add(executor.submit(() -> check(groupId)));
+        List<Drift> drifts = new ArrayList<>();
+        try {
+            for (Future<List<Drift>> future : futures) drifts.addAll(future.get());
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconciliation interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("Reconciliation failed", e.getCause());
+        }
+        return drifts;
+    }
+}
@@ -0,0 +1,141 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.common.BadRequestException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Periodic per-group copies of the ledger, used to answer "what were the balances at instant T".
+ * <p>
+ * A point-in-time read starts from the latest snapshot taken at or before T and adds the deltas that
+ * {@link LedgerDeltaApplier} journaled after that snapshot's ledger version, up to T. Snapshots are only
+ * taken for groups whose ledger changed since their last one, so the replay is bounded by the deltas a
+ * group writes in one {@code fairshare.ledger-snapshots.interval}, however old the group is.
+ * <p>
+ * A snapshot is taken under the group's write lock, so no ledger write can be half-applied while the
+ * balances are copied. Groups that already had balances before the journal existed are seeded with a
+ * snapshot by the migration, and their history starts at that snapshot: its version is above zero and
+ * the journal holds nothing at or below it. Reads before that instant are rejected rather than replayed
+ * from an empty ledger.
+ */
+@Component
+public class LedgerSnapshots {
+
+    private static final String STALE_GROUPS = """
+            SELECT g.id FROM groups g
+            WHERE g.ledger_version > COALESCE((SELECT MAX(s.ledger_version) FROM ledger_snapshots s WHERE s.group_id = g.id), 0)
+            ORDER BY g.id""";
+
+    private static final String INSERT_SNAPSHOT = """
+            INSERT INTO ledger_snapshots (group_id, ledger_version, taken_at)
+            SELECT g.id, g.ledger_version, ? FROM groups g
+            WHERE g.id = ? AND NOT EXISTS (
+                SELECT 1 FROM ledger_snapshots s WHERE s.group_id = g.id AND s.ledger_version = g.ledger_version)""";
+
+    private static final String INSERT_BALANCES = """
+            INSERT INTO ledger_snapshot_balances (group_id, ledger_version, user_id, net_balance)
+            SELECT le.group_id, g.ledger_version, le.user_id, le.net_balance
+            FROM ledger_entries le JOIN groups g ON g.id = le.group_id
+            WHERE le.group_id = ? AND le.net_balance <> 0""";
+
+    private static final String LATEST_SNAPSHOT_VERSION = """
+            SELECT ledger_version FROM ledger_snapshots
+            WHERE group_id = ? AND taken_at <= ?
+            ORDER BY taken_at DESC, ledger_version DESC
+            LIMIT 1""";
+
+    // taken_at of the group's first snapshot when the journal cannot rebuild the ledger before it
+    private static final String HISTORY_START = """
+            SELECT s.taken_at FROM ledger_snapshots s
+            WHERE s.group_id = ?
+              AND s.ledger_version = (SELECT MIN(f.ledger_version) FROM ledger_snapshots f WHERE f.group_id = s.group_id)
+              AND s.ledger_version > 0
+              AND NOT EXISTS (SELECT 1 FROM ledger_deltas d WHERE d.group_id = s.group_id AND d.ledger_version <= s.ledger_version)""";
+
+    private static final String SNAPSHOT_BALANCES = """
+            SELECT user_id, net_balance FROM ledger_snapshot_balances
+            WHERE group_id = ? AND ledger_version = ?""";
+
+    private static final String DELTAS_SINCE = """
+            SELECT user_id, SUM(delta) FROM ledger_deltas
+            WHERE group_id = ? AND ledger_version > ? AND created_at <= ?
+            GROUP BY user_id""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GroupWriteLock groupWriteLock;
+    private final TransactionTemplate transactionTemplate;
+
+    public LedgerSnapshots(JdbcTemplate jdbcTemplate, GroupWriteLock groupWriteLock, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.groupWriteLock = groupWriteLock;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Each user's net balance in the group as of {@code asOf}, ordered by userId. Users whose balance
+     * was zero at that instant and did not change since the snapshot are omitted.
+     *
+     * @throws BadRequestException if {@code asOf} is earlier than the group's recorded history
+     */
+    public Map<Long, BigDecimal> balancesAsOf(Long groupId, Instant asOf) {
+        Timestamp at = Timestamp.from(asOf);
+        List<Long> versions = jdbcTemplate.queryForList(LATEST_SNAPSHOT_VERSION, Long.class, groupId, at);
+        if (versions.isEmpty()) {
+            // replaying from version zero is only right if the journal reaches back that far
+            List<Timestamp> start = jdbcTemplate.queryForList(HISTORY_START, Timestamp.class, groupId);
+            if (!start.isEmpty()) {
+                throw new BadRequestException("Ledger history for group " + groupId + " starts at " + start.get(0).toInstant());
+            }
+        }
+        long version = versions.isEmpty() ? 0L : versions.get(0);
+
+        Map<Long, BigDecimal> balances = new TreeMap<>();
+        if (!versions.isEmpty()) {
+            jdbcTemplate.query(SNAPSHOT_BALANCES, rs -> {
+                balances.put(rs.getLong(1), rs.getBigDecimal(2));
+            }, groupId, version);
+        }
+        jdbcTemplate.query(DELTAS_SINCE, rs -> {
+            balances.merge(rs.getLong(1), rs.getBigDecimal(2), BigDecimal::add);
+        }, groupId, version, at);
+        return balances;
+    }
+
+    /**
+     * Snapshots the group's current balances unless its current ledger version already has a snapshot.
+     * Must run inside a transaction; returns whether a snapshot was written.
+     */
+    public boolean snapshot(Long groupId) {
+        groupWriteLock.lock(groupId);
+        if (jdbcTemplate.update(INSERT_SNAPSHOT, Timestamp.from(Instant.now()), groupId) == 0) return false;
+        jdbcTemplate.update(INSERT_BALANCES, groupId);
+        return true;
+    }
+
+    /** Snapshots every group whose ledger changed since its last snapshot, one transaction per group. */
+    public int snapshotChangedGroups() {
+        int taken = 0;
+        for (Long groupId : jdbcTemplate.queryForList(STALE_GROUPS, Long.class)) {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> snapshot(groupId)))) taken++;
+        }
+        return taken;
+    }
+
+    @Scheduled(
+            initialDelayString = "${fairshare.ledger-snapshots.interval:PT1H}",
+            fixedDelayString = "${fairshare.ledger-snapshots.interval:PT1H}"
+    )
+    public void snapshotOnSchedule() {
+        snapshotChangedGroups();
+    }
+}
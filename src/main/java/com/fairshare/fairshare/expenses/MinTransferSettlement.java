@@ -0,0 +1,233 @@
+package com.fairshare.fairshare.expenses;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settlement plans with fewer transfers than the greedy matching in {@link SettlementCalculator}.
+ * <p>
+ * Splitting the members into k disjoint zero-sum subsets lets each subset settle on its own in
+ * |subset| - 1 transfers, so the fewest transfers overall is n - (largest such k). Up to
+ * {@code maxExactMembers} non-zero balances the largest partition is found exactly with a bitmask DP;
+ * beyond that, equal-and-opposite pairs and then zero-sum triples are split off and the rest is settled
+ * greedily. Either search stops when the current thread has used up {@code budget} of CPU time. Every
+ * subset is settled with the greedy calculator, and the greedy plan for the whole group is returned
+ * whenever the search ran out of time or did not beat it.
+ */
+public final class MinTransferSettlement {
+
+    /** Above this many non-zero balances the DP tables would need more than a few tens of megabytes. */
+    public static final int MAX_EXACT_MEMBERS_LIMIT = 22;
+    private static final int CHECK_INTERVAL = 4096;
+
+    public enum Source { EXACT, HEURISTIC, GREEDY }
+
+    /** The chosen plan, what produced it, and how many transfers the greedy plan would have needed. */
+    public record Plan(List<SettlementCalculator.Transfer> transfers, Source source, int greedyTransferCount) {
+        public int transfersSaved() {
+            return greedyTransferCount - transfers.size();
+        }
+    }
+
+    private MinTransferSettlement() {
+    }
+
+    public static Plan compute(Map<Long, BigDecimal> netBalances, int maxExactMembers, Duration budget) {
+        int n = netBalances.size();
+        long[] userIds = new long[n];
+        long[] cents = new long[n];
+        int k = 0;
+        for (var e : netBalances.entrySet()) {
+            userIds[k] = e.getKey();
+            cents[k] = e.getValue().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            k++;
+        }
+        return compute(userIds, cents, maxExactMembers, budget);
+    }
+
+    /** Plans over parallel arrays of unique user ids and signed cents; the arrays are not modified. */
+    public static Plan compute(long[] userIds, long[] balanceCents, int maxExactMembers, Duration budget) {
+        if (maxExactMembers > MAX_EXACT_MEMBERS_LIMIT) {
+            throw new IllegalArgumentException("maxExactMembers must be at most " + MAX_EXACT_MEMBERS_LIMIT);
+        }
+        Deadline deadline = new Deadline(budget);
+        List<SettlementCalculator.Transfer> greedy = SettlementCalculator.compute(userIds, balanceCents);
+
+        int n = 0;
+        long sum = 0;
+        for (long c : balanceCents) {
+            if (c != 0) n++;
+            sum += c;
+        }
+        // an unbalanced ledger cannot be partitioned into zero-sum subsets
+        if (sum != 0 || n < 3) return new Plan(greedy, Source.GREEDY, greedy.size());
+
+        long[] ids = new long[n];
+        long[] cents = new long[n];
+        for (int k = 0, m = 0; k < balanceCents.length; k++) {
+            if (balanceCents[k] == 0) continue;
+            ids[m] = userIds[k];
+            cents[m++] = balanceCents[k];
+        }
+
+        Source source = n <= maxExactMembers ? Source.EXACT : Source.HEURISTIC;
+        List<int[]> groups = source == Source.EXACT ? exactPartition(cents, deadline) : heuristicPartition(ids, cents, deadline);
+        if (groups == null) return new Plan(greedy, Source.GREEDY, greedy.size());
+
+        List<SettlementCalculator.Transfer> transfers = new ArrayList<>(n);
+        for (int[] group : groups) {
+            long[] groupIds = new long[group.length];
+            long[] groupCents = new long[group.length];
+            for (int k = 0; k < group.length; k++) {
+                groupIds[k] = ids[group[k]];
+                groupCents[k] = cents[group[k]];
+            }
+            transfers.addAll(SettlementCalculator.compute(groupIds, groupCents));
+        }
+        if (transfers.size() >= greedy.size()) return new Plan(greedy, Source.GREEDY, greedy.size());
+        return new Plan(transfers, source, greedy.size());
+    }
+
+    // best[mask] is the most zero-sum subsets the members in mask can be split into, taking an element
+    // out at a time; the walk back down from the full mask closes a subset every time the remaining
+    // members sum to zero. Returns null when the deadline passes.
+    private static List<int[]> exactPartition(long[] cents, Deadline deadline) {
+        int n = cents.length;
+        int full = (1 << n) - 1;
+        if (deadline.expired()) return null;
+        long[] sums = new long[full + 1];
+        byte[] best = new byte[full + 1];
+        for (int mask = 1; mask <= full; mask++) {
+            if ((mask & (CHECK_INTERVAL - 1)) == 0 && deadline.expired()) return null;
+            int low = Integer.numberOfTrailingZeros(mask);
+            sums[mask] = sums[mask & (mask - 1)] + cents[low];
+            int most = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                most = Math.max(most, best[mask & ~Integer.lowestOneBit(rest)]);
+            }
+            best[mask] = (byte) (sums[mask] == 0 ? most + 1 : most);
+        }
+
+        List<int[]> groups = new ArrayList<>(best[full]);
+        List<Integer> current = new ArrayList<>();
+        int mask = full;
+        while (mask != 0) {
+            int target = sums[mask] == 0 ? best[mask] - 1 : best[mask];
+            int pick = -1;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int bit = Integer.numberOfTrailingZeros(rest);
+                if (best[mask & ~(1 << bit)] == target) {
+                    pick = bit;
+                    break;
+                }
+            }
+            current.add(pick);
+            mask &= ~(1 << pick);
+            if (sums[mask] == 0) {
+                groups.add(current.stream().mapToInt(Integer::intValue).toArray());
+                current.clear();
+            }
+        }
+        return groups;
+    }
+
+    // Splits off debtor/creditor pairs of equal size, then triples where two balances on one side add up
+    // to one on the other, and leaves everything else as one final subset. Stops searching when the
+    // deadline passes and keeps what it has found.
+    private static List<int[]> heuristicPartition(long[] ids, long[] cents, Deadline deadline) {
+        int n = cents.length;
+        Integer[] boxedOrder = new Integer[n];
+        for (int k = 0; k < n; k++) boxedOrder[k] = k;
+        Arrays.sort(boxedOrder, (a, b) -> Long.compare(ids[a], ids[b]));
+        int[] order = new int[n];
+        for (int k = 0; k < n; k++) order[k] = boxedOrder[k];
+
+        boolean[] used = new boolean[n];
+        List<int[]> groups = new ArrayList<>();
+        Map<Long, ArrayDeque<Integer>> byAmount = new HashMap<>();
+        for (int k : order) byAmount.computeIfAbsent(cents[k], a -> new ArrayDeque<>()).add(k);
+
+        search:
+        {
+            for (int k : order) {
+                if (k % CHECK_INTERVAL == 0 && deadline.expired()) break search;
+                if (used[k] || cents[k] > 0) continue;
+                Integer match = takeUnused(byAmount.get(-cents[k]), used);
+                if (match == null) continue;
+                used[k] = true;
+                used[match] = true;
+                groups.add(new int[]{k, match});
+            }
+
+            List<Integer> debtors = new ArrayList<>();
+            List<Integer> creditors = new ArrayList<>();
+            for (int k : order) {
+                if (used[k]) continue;
+                (cents[k] < 0 ? debtors : creditors).add(k);
+            }
+            long steps = 0;
+            for (List<Integer> side : List.of(debtors, creditors)) {
+                for (int a = 0; a < side.size(); a++) {
+                    int first = side.get(a);
+                    for (int b = a + 1; b < side.size() && !used[first]; b++) {
+                        if (++steps % CHECK_INTERVAL == 0 && deadline.expired()) break search;
+                        int second = side.get(b);
+                        if (used[second]) continue;
+                        Integer third = takeUnused(byAmount.get(-(cents[first] + cents[second])), used);
+                        if (third == null) continue;
+                        used[first] = true;
+                        used[second] = true;
+                        used[third] = true;
+                        groups.add(new int[]{first, second, third});
+                    }
+                }
+            }
+        }
+
+        int remaining = 0;
+        for (boolean u : used) if (!u) remaining++;
+        if (remaining > 0) {
+            int[] rest = new int[remaining];
+            int m = 0;
+            for (int k : order) if (!used[k]) rest[m++] = k;
+            groups.add(rest);
+        }
+        return groups;
+    }
+
+    private static Integer takeUnused(ArrayDeque<Integer> candidates, boolean[] used) {
+        if (candidates == null) return null;
+        while (!candidates.isEmpty() && used[candidates.peekFirst()]) candidates.pollFirst();
+        return candidates.pollFirst();
+    }
+
+    // Measures CPU time of the calling thread where the JVM supports it, wall-clock time otherwise.
+    private static final class Deadline {
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+        private final boolean cpuTime;
+        private final long end;
+
+        Deadline(Duration budget) {
+            this.cpuTime = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+            this.end = now() + budget.toNanos();
+        }
+
+        boolean expired() {
+            return now() >= end;
+        }
+
+        private long now() {
+            return cpuTime ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+        }
+    }
+}
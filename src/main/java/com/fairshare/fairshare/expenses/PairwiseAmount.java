@@ -0,0 +1,9 @@
+package com.fairshare.fairshare.expenses;
+
+import java.math.BigDecimal;
+
+/**
+ * An amount aggregated per ordered (from, to) user pair, selected without loading any entities.
+ */
+public record PairwiseAmount(Long fromUserId, Long toUserId, BigDecimal amount) {
+}
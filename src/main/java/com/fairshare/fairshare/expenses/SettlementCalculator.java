@@ -2,17 +2,107 @@ package com.fairshare.fairshare.expenses;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.*;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Greedy settlement over net balances.
+ * <p>
+ * Balances are rounded half-up to cents, debtors are settled most-negative first (ties by ascending
+ * userId) against creditors largest first (ties by descending userId), and each step pays the smaller of
+ * the two remaining amounts. {@link Arithmetic#CENTS}, the default, does this over whole cents in
+ * {@code long[]}s; {@link Arithmetic#BIG_DECIMAL} is the original implementation over BigDecimal map
+ * entries. Both produce the same transfers.
+ */
 public final class SettlementCalculator {
 
+    private static final int ID_BITS = 32;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+
     private static final BigDecimal ZERO = new BigDecimal("0.00");
     private static final BigDecimal EPS = new BigDecimal("0.005"); // half-cent tolerance
 
+    /** Which implementation {@link #compute(Map, Arithmetic)} runs. */
+    public enum Arithmetic {
+        CENTS,
+        BIG_DECIMAL
+    }
+
     private SettlementCalculator() {
     }
 
     public static List<Transfer> compute(Map<Long, BigDecimal> netBalances) {
+        return compute(netBalances, Arithmetic.CENTS);
+    }
+
+    public static List<Transfer> compute(Map<Long, BigDecimal> netBalances, Arithmetic arithmetic) {
+        return arithmetic == Arithmetic.BIG_DECIMAL ? computeBigDecimal(netBalances) : computeCents(netBalances);
+    }
+
+    private static List<Transfer> computeCents(Map<Long, BigDecimal> netBalances) {
+        int n = netBalances.size();
+        long[] userIds = new long[n];
+        long[] cents = new long[n];
+        int k = 0;
+        for (var e : netBalances.entrySet()) {
+            userIds[k] = e.getKey();
+            cents[k] = toCents(e.getValue());
+            k++;
+        }
+        return compute(userIds, cents);
+    }
+
+    /**
+     * Settles balances given as parallel arrays of unique user ids and signed cents. The arrays are
+     * not modified.
+     */
+    public static List<Transfer> compute(long[] userIds, long[] balanceCents) {
+        int debtorCount = 0, creditorCount = 0;
+        for (long c : balanceCents) {
+            if (c < 0) debtorCount++;
+            else if (c > 0) creditorCount++;
+        }
+        long[] debtorIds = new long[debtorCount];
+        long[] debts = new long[debtorCount];
+        long[] creditorIds = new long[creditorCount];
+        long[] credits = new long[creditorCount];
+        for (int k = 0, d = 0, c = 0; k < balanceCents.length; k++) {
+            long v = balanceCents[k];
+            if (v < 0) {
+                debtorIds[d] = userIds[k];
+                debts[d++] = v;
+            } else if (v > 0) {
+                creditorIds[c] = userIds[k];
+                credits[c++] = v;
+            }
+        }
+
+        // both sides ascending by (cents, userId); creditors are walked from the end, which gives the
+        // largest credit first and descending userId on ties
+        sortByValueThenId(debts, debtorIds);
+        sortByValueThenId(credits, creditorIds);
+
+        List<Transfer> out = new ArrayList<>(debtorCount + creditorCount);
+        int i = 0, j = creditorCount - 1;
+        while (i < debtorCount && j >= 0) {
+            long debt = -debts[i];
+            long credit = credits[j];
+            long pay = Math.min(debt, credit);
+            out.add(new Transfer(debtorIds[i], creditorIds[j], BigDecimal.valueOf(pay, 2)));
+
+            if (debt == pay) i++;
+            else debts[i] = pay - debt;
+
+            if (credit == pay) j--;
+            else credits[j] = credit - pay;
+        }
+        return out;
+    }
+
+    private static List<Transfer> computeBigDecimal(Map<Long, BigDecimal> netBalances) {
         // debtors: negative balances; creditors: positive balances
         List<Map.Entry<Long, BigDecimal>> debtors = new ArrayList<>();
         List<Map.Entry<Long, BigDecimal>> creditors = new ArrayList<>();
@@ -31,7 +121,6 @@ public final class SettlementCalculator {
         debtors.sort(byValueThenIdAsc);                 // ascending (more negative first)
         creditors.sort(byValueThenIdAsc.reversed()); // descending
 
-
         int i = 0, j = 0;
         List<Transfer> out = new ArrayList<>();
 
@@ -67,6 +156,70 @@ public final class SettlementCalculator {
         return x.setScale(2, RoundingMode.HALF_UP);
     }
 
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // Sorts ascending by value, then userId, carrying the ids along; ids are unique. When every value
+    // fits in an int and every id in 32 unsigned bits, (value, id) is packed into one long and sorted
+    // with Arrays.sort, otherwise an in-place heap sort is used.
+    private static void sortByValueThenId(long[] values, long[] ids) {
+        int n = values.length;
+        if (n < 2) return;
+        if (fitsPackedKey(values, ids)) {
+            long[] keys = new long[n];
+            for (int k = 0; k < n; k++) keys[k] = values[k] << ID_BITS | ids[k];
+            Arrays.sort(keys);
+            for (int k = 0; k < n; k++) {
+                values[k] = keys[k] >> ID_BITS;
+                ids[k] = keys[k] & ID_MASK;
+            }
+            return;
+        }
+        heapSort(values, ids);
+    }
+
+    private static boolean fitsPackedKey(long[] values, long[] ids) {
+        for (int k = 0; k < values.length; k++) {
+            if (values[k] < Integer.MIN_VALUE || values[k] > Integer.MAX_VALUE) return false;
+            if (ids[k] < 0 || ids[k] > ID_MASK) return false;
+        }
+        return true;
+    }
+
+    private static void heapSort(long[] values, long[] ids) {
+        int n = values.length;
+        for (int k = n / 2 - 1; k >= 0; k--) siftDown(values, ids, k, n);
+        for (int end = n - 1; end > 0; end--) {
+            swap(values, ids, 0, end);
+            siftDown(values, ids, 0, end);
+        }
+    }
+
+    private static void siftDown(long[] values, long[] ids, int k, int n) {
+        while (true) {
+            int child = 2 * k + 1;
+            if (child >= n) return;
+            if (child + 1 < n && greater(values, ids, child + 1, child)) child++;
+            if (!greater(values, ids, child, k)) return;
+            swap(values, ids, k, child);
+            k = child;
+        }
+    }
+
+    private static boolean greater(long[] values, long[] ids, int a, int b) {
+        return values[a] != values[b] ? values[a] > values[b] : ids[a] > ids[b];
+    }
+
+    private static void swap(long[] values, long[] ids, int a, int b) {
+        long v = values[a];
+        values[a] = values[b];
+        values[b] = v;
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+    }
+
     public record Transfer(Long fromUserId, Long toUserId, BigDecimal amount) {
     }
 }
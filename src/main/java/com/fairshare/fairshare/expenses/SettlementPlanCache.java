@@ -0,0 +1,90 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.expenses.api.SettlementResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Computed settlement plans keyed by (groupId, ledger version, strategy).
+ * <p>
+ * A ledger change bumps the version (see {@link LedgerDeltaApplier}), so a cached plan is never stale
+ * for the version it was stored under and nothing has to be invalidated; plans for superseded versions
+ * simply age out of the bounded cache. Hit and miss counts are published as {@code cache.*} meters
+ * tagged {@code cache=settlementPlans}, and time spent computing plans as {@code fairshare.settlements.compute}
+ * tagged with the requested strategy.
+ */
+@Component
+public class SettlementPlanCache {
+    public static final String CACHE_NAME = "settlementPlans";
+    public static final String COMPUTE_TIMER = "fairshare.settlements.compute";
+
+    private final Cache<Key, SettlementResponse> plans;
+    private final Map<SettlementStrategy, Timer> computeTimers = new EnumMap<>(SettlementStrategy.class);
+
+    public SettlementPlanCache(
+            MeterRegistry meterRegistry,
+            @Value("${fairshare.settlement-cache.max-entries:10000}") long maxEntries
+    ) {
+        this.plans = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        for (SettlementStrategy strategy : SettlementStrategy.values()) {
+            computeTimers.put(strategy, Timer.builder(COMPUTE_TIMER)
+                    .description("Time spent loading a group's ledger and computing its settlement plan")
+                    .tag("strategy", strategy.param())
+                    .register(meterRegistry));
+        }
+        CaffeineCacheMetrics.monitor(meterRegistry, plans, CACHE_NAME);
+    }
+
+    /**
+     * Returns the plan cached for this version, computing and caching it on a miss. The caller must
+     * read {@code ledgerVersion} before loading the ledger so a plan is never stored under a newer
+     * version than the data it was computed from.
+     */
+    public SettlementResponse get(Long groupId, long ledgerVersion, SettlementStrategy strategy, Supplier<SettlementResponse> compute) {
+        return plans.get(new Key(groupId, ledgerVersion, strategy), key -> computeTimers.get(strategy).record(compute));
+    }
+
+    /**
+     * Returns the plans cached for each group at the given version, computing the missing ones with a
+     * single call to {@code compute}, which must return a plan for every group id it is given. The same
+     * ordering rule as {@link #get} applies to the versions. A bulk computation is recorded as one
+     * {@code fairshare.settlements.compute} sample.
+     */
+    public Map<Long, SettlementResponse> getAll(Map<Long, Long> versionByGroup, SettlementStrategy strategy,
+                                                Function<Set<Long>, Map<Long, SettlementResponse>> compute) {
+        List<Key> keys = versionByGroup.entrySet().stream()
+                .map(e -> new Key(e.getKey(), e.getValue(), strategy))
+                .toList();
+        Map<Key, SettlementResponse> found = plans.getAll(keys, missing -> {
+            Map<Long, Key> byGroup = new LinkedHashMap<>();
+            for (Key key : missing) byGroup.put(key.groupId(), key);
+            Map<Long, SettlementResponse> computed = computeTimers.get(strategy).record(() -> compute.apply(byGroup.keySet()));
+            Map<Key, SettlementResponse> loaded = new HashMap<>();
+            computed.forEach((groupId, plan) -> loaded.put(byGroup.get(groupId), plan));
+            return loaded;
+        });
+        Map<Long, SettlementResponse> byGroup = new LinkedHashMap<>();
+        for (Key key : keys) byGroup.put(key.groupId(), found.get(key));
+        return byGroup;
+    }
+
+    private record Key(Long groupId, long ledgerVersion, SettlementStrategy strategy) {
+    }
+}
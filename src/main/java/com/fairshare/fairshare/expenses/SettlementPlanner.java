@@ -0,0 +1,56 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.expenses.api.SettlementResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a group's net balances into a {@link SettlementResponse} using the requested strategy. The
+ * min-transfers search is bounded by {@code fairshare.settlements.min-transfers.time-budget} of CPU time
+ * and solves groups of up to {@code max-exact-members} non-zero balances exactly.
+ */
+@Component
+public class SettlementPlanner {
+    public static final String PRODUCED_BY_GREEDY = "greedy";
+    public static final String PRODUCED_BY_EXACT = "min-transfers-exact";
+    public static final String PRODUCED_BY_HEURISTIC = "min-transfers-heuristic";
+
+    private final Duration timeBudget;
+    private final int maxExactMembers;
+
+    public SettlementPlanner(
+            @Value("${fairshare.settlements.min-transfers.time-budget:200ms}") Duration timeBudget,
+            @Value("${fairshare.settlements.min-transfers.max-exact-members:20}") int maxExactMembers
+    ) {
+        if (maxExactMembers > MinTransferSettlement.MAX_EXACT_MEMBERS_LIMIT) {
+            throw new IllegalArgumentException("fairshare.settlements.min-transfers.max-exact-members must be at most "
+                    + MinTransferSettlement.MAX_EXACT_MEMBERS_LIMIT);
+        }
+        this.timeBudget = timeBudget;
+        this.maxExactMembers = maxExactMembers;
+    }
+
+    public SettlementResponse plan(Map<Long, BigDecimal> netBalances, SettlementStrategy strategy) {
+        if (strategy == SettlementStrategy.GREEDY) {
+            return new SettlementResponse(toResponse(SettlementCalculator.compute(netBalances)), PRODUCED_BY_GREEDY, 0);
+        }
+        MinTransferSettlement.Plan plan = MinTransferSettlement.compute(netBalances, maxExactMembers, timeBudget);
+        String producedBy = switch (plan.source()) {
+            case EXACT -> PRODUCED_BY_EXACT;
+            case HEURISTIC -> PRODUCED_BY_HEURISTIC;
+            case GREEDY -> PRODUCED_BY_GREEDY;
+        };
+        return new SettlementResponse(toResponse(plan.transfers()), producedBy, plan.transfersSaved());
+    }
+
+    private static List<SettlementResponse.Transfer> toResponse(List<SettlementCalculator.Transfer> transfers) {
+        return transfers.stream()
+                .map(t -> new SettlementResponse.Transfer(t.fromUserId(), t.toUserId(), t.amount()))
+                .toList();
+    }
+}
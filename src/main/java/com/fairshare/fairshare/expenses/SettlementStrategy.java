@@ -0,0 +1,27 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.common.BadRequestException;
+
+/** How GET /settlements builds its plan, as selected by the {@code strategy} query parameter. */
+public enum SettlementStrategy {
+    GREEDY("greedy"),
+    MIN_TRANSFERS("min-transfers");
+
+    private final String param;
+
+    SettlementStrategy(String param) {
+        this.param = param;
+    }
+
+    public String param() {
+        return param;
+    }
+
+    public static SettlementStrategy fromParam(String value) {
+        if (value == null || value.isBlank()) return GREEDY;
+        for (SettlementStrategy s : values()) {
+            if (s.param.equalsIgnoreCase(value.trim())) return s;
+        }
+        throw new BadRequestException("Unknown settlement strategy: " + value);
+    }
+}
@@ -0,0 +1,298 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.common.BadRequestException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits an expense total into per-user shares using whole cents held in {@code long}s.
+ * <p>
+ * Results match the original BigDecimal implementation exactly: equal splits hand leftover cents to
+ * participants in request order (payer last if not listed), every other mode rounds each share down
+ * and then spreads the remainder one cent at a time by ascending userId.
+ */
+public final class SplitEngine {
+
+    private static final long CENTS_PER_UNIT = 100L;
+    private static final long FRACTION_ONE = 10_000_000_000L; // share weights are rounded to 10 decimals
+    private static final int MAX_PERCENT_SCALE = 18;
+    private static final long[] POW10 = new long[19];
+    private static final int INDEX_BITS = 20;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    private static final long MAX_PACKED_ID = (1L << (63 - INDEX_BITS)) - 1;
+
+    static {
+        POW10[0] = 1L;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10L;
+    }
+
+    private SplitEngine() {
+    }
+
+    /**
+     * Allocates {@code totalAmount} among the participants (plus the payer, who is always included)
+     * using the first split mode that is present: exact amounts, percentages, shares, else equal.
+     * Returned map iterates in the order the shares should be reported.
+     */
+    public static Map<Long, BigDecimal> allocate(BigDecimal totalAmount, Long payer, List<Long> participantUserIds,
+                                                 List<BigDecimal> exactAmounts, List<BigDecimal> percentages, List<Integer> shares) {
+        long totalCents = toCents(totalAmount);
+        int listed = participantUserIds.size();
+        boolean payerListed = participantUserIds.contains(payer);
+        int n = payerListed ? listed : listed + 1;
+
+        long[] userIds = new long[n];
+        for (int i = 0; i < listed; i++) userIds[i] = participantUserIds.get(i);
+        if (!payerListed) userIds[listed] = payer;
+
+        long[] cents;
+        if (exactAmounts != null && !exactAmounts.isEmpty()) {
+            if (exactAmounts.size() != listed) {
+                throw new BadRequestException("exactAmounts length must match participantUserIds length");
+            }
+            long[] requested = new long[n];
+            for (int i = 0; i < listed; i++) requested[i] = toCents(exactAmounts.get(i));
+            cents = byExactAmounts(totalCents, userIds, requested);
+        } else if (percentages != null && !percentages.isEmpty()) {
+            if (percentages.size() != listed) {
+                throw new BadRequestException("percentages length must match participantUserIds length");
+            }
+            int scale = 0;
+            for (BigDecimal p : percentages) {
+                if (p == null) throw new BadRequestException("percentages must not contain null values");
+                int s = p.scale() > MAX_PERCENT_SCALE ? p.stripTrailingZeros().scale() : p.scale();
+                scale = Math.max(scale, s);
+            }
+            if (scale > MAX_PERCENT_SCALE) {
+                throw new BadRequestException("percentages support at most " + MAX_PERCENT_SCALE + " decimal places");
+            }
+            long[] unscaled = new long[n];
+            try {
+                for (int i = 0; i < listed; i++) unscaled[i] = percentages.get(i).movePointRight(scale).longValueExact();
+            } catch (ArithmeticException e) {
+                throw new BadRequestException("Percentages must sum to 100% within 0.01 tolerance");
+            }
+            cents = byPercentages(totalCents, userIds, unscaled, scale);
+        } else if (shares != null && !shares.isEmpty()) {
+            if (shares.size() != listed) {
+                throw new BadRequestException("shares length must match participantUserIds length");
+            }
+            int[] weights = new int[n];
+            for (int i = 0; i < listed; i++) weights[i] = shares.get(i);
+            cents = byShares(totalCents, userIds, weights);
+        } else {
+            cents = equal(totalCents, n);
+        }
+
+        Map<Long, BigDecimal> result = new LinkedHashMap<>(n * 4 / 3 + 1);
+        for (int i = 0; i < n; i++) result.put(userIds[i], BigDecimal.valueOf(cents[i], 2));
+        return result;
+    }
+
+    /**
+     * Equal split: every participant gets {@code total / count}, and the first {@code total % count}
+     * participants get one extra cent.
+     */
+    public static long[] equal(long totalCents, int count) {
+        long[] out = new long[count];
+        long base = totalCents / count;
+        int extra = (int) (totalCents - base * count);
+        for (int i = 0; i < count; i++) out[i] = i < extra ? base + 1 : base;
+        return out;
+    }
+
+    /**
+     * Exact amounts, which must add up to the total within one cent. Sorts {@code userIds} in place;
+     * the returned cents line up with the sorted ids.
+     */
+    public static long[] byExactAmounts(long totalCents, long[] userIds, long[] requestedCents) {
+        long requestedTotal = 0;
+        try {
+            for (long c : requestedCents) requestedTotal = Math.addExact(requestedTotal, c);
+        } catch (ArithmeticException e) {
+            requestedTotal = Long.MAX_VALUE;
+        }
+        if (requestedTotal == Long.MAX_VALUE || Math.abs(requestedTotal - totalCents) > 1) {
+            throw new BadRequestException("Exact amounts must sum to total amount within $0.01 tolerance");
+        }
+        return rebalance(totalCents, userIds, requestedCents);
+    }
+
+    /**
+     * Percentages given as unscaled values at {@code scale} decimal places, which must add up to 100
+     * within 0.01 once rounded to two places. Sorts {@code userIds} in place.
+     */
+    public static long[] byPercentages(long totalCents, long[] userIds, long[] percentUnscaled, int scale) {
+        long hundredths;
+        try {
+            long sum = 0;
+            for (long p : percentUnscaled) sum = Math.addExact(sum, p);
+            hundredths = scale <= 2 ? Math.multiplyExact(sum, POW10[2 - scale]) : roundHalfUp(sum, POW10[scale - 2]);
+        } catch (ArithmeticException e) {
+            throw new BadRequestException("Percentages must sum to 100% within 0.01 tolerance");
+        }
+        if (Math.abs(hundredths - 100 * CENTS_PER_UNIT) > 1) {
+            throw new BadRequestException("Percentages must sum to 100% within 0.01 tolerance");
+        }
+
+        long[] cents = new long[percentUnscaled.length];
+        for (int i = 0; i < cents.length; i++) cents[i] = percentShare(totalCents, percentUnscaled[i], scale);
+        return rebalance(totalCents, userIds, cents);
+    }
+
+    /**
+     * Integer weights. Each weight is first turned into a fraction rounded half-up to ten decimals,
+     * as the original implementation did. Sorts {@code userIds} in place.
+     */
+    public static long[] byShares(long totalCents, long[] userIds, int[] weights) {
+        int totalWeight = 0;
+        for (int w : weights) totalWeight += w;
+        if (totalWeight <= 0) throw new BadRequestException("Sum of shares must be positive");
+
+        long[] cents = new long[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            cents[i] = mulDivDown(totalCents, weightFraction(weights[i], totalWeight), FRACTION_ONE);
+        }
+        return rebalance(totalCents, userIds, cents);
+    }
+
+    // Sorts by userId, then spreads the rounding remainder one cent per participant in that order.
+    private static long[] rebalance(long totalCents, long[] userIds, long[] cents) {
+        for (long c : cents) requireNonNegative(c);
+        sortByUserId(userIds, cents);
+
+        long allocated = 0;
+        for (long c : cents) allocated += c;
+        long remainder = totalCents - allocated;
+        if (remainder != 0) {
+            int n = cents.length;
+            long step = remainder > 0 ? 1 : -1;
+            long rounds = Math.abs(remainder) / n;
+            int extra = (int) (Math.abs(remainder) % n);
+            for (int i = 0; i < n; i++) {
+                cents[i] += step * (i < extra ? rounds + 1 : rounds);
+            }
+            for (long c : cents) requireNonNegative(c);
+        }
+        return cents;
+    }
+
+    // total * (p / 10^scale) / 100, rounded half-up to ten decimals of currency and then truncated to cents
+    private static long percentShare(long totalCents, long percentUnscaled, int scale) {
+        long product;
+        try {
+            product = Math.multiplyExact(totalCents, percentUnscaled);
+        } catch (ArithmeticException e) {
+            return BigDecimal.valueOf(totalCents, 2)
+                    .multiply(BigDecimal.valueOf(percentUnscaled, scale))
+                    .divide(BigDecimal.valueOf(100), 10, RoundingMode.HALF_UP)
+                    .setScale(2, RoundingMode.DOWN)
+                    .unscaledValue().longValueExact();
+        }
+        if (scale <= 6) return product / POW10[scale + 2];
+        return roundHalfUp(product, POW10[scale - 6]) / POW10[8];
+    }
+
+    // weight / totalWeight in units of 1e-10, rounded half-up
+    private static long weightFraction(int weight, int totalWeight) {
+        try {
+            return roundHalfUp(Math.multiplyExact(weight, FRACTION_ONE), totalWeight);
+        } catch (ArithmeticException e) {
+            return BigDecimal.valueOf(weight).divide(BigDecimal.valueOf(totalWeight), 10, RoundingMode.HALF_UP)
+                    .unscaledValue().longValueExact();
+        }
+    }
+
+    private static long mulDivDown(long a, long b, long divisor) {
+        try {
+            return Math.multiplyExact(a, b) / divisor;
+        } catch (ArithmeticException e) {
+            return BigDecimal.valueOf(a).multiply(BigDecimal.valueOf(b))
+                    .divide(BigDecimal.valueOf(divisor), 0, RoundingMode.DOWN)
+                    .longValueExact();
+        }
+    }
+
+    // Matches RoundingMode.HALF_UP for a positive divisor: ties round away from zero.
+    private static long roundHalfUp(long dividend, long divisor) {
+        long q = dividend / divisor;
+        long r = Math.abs(dividend % divisor);
+        if (r != 0 && r >= divisor - r) {
+            q += dividend < 0 ? -1 : 1;
+        }
+        return q;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        if (amount == null) throw new IllegalArgumentException("Amount cannot be null");
+        BigDecimal normalized = amount.setScale(2, RoundingMode.HALF_UP);
+        if (normalized.signum() < 0) throw new IllegalArgumentException("Amount must be non-negative");
+        return normalized.unscaledValue().longValueExact();
+    }
+
+    private static void requireNonNegative(long cents) {
+        if (cents < 0) throw new IllegalArgumentException("Amount must be non-negative");
+    }
+
+    // Sorts the ids ascending, carrying the cents along; ids are unique. When ids and positions fit in
+    // one long they are packed and sorted with Arrays.sort, otherwise an in-place heap sort is used.
+    private static void sortByUserId(long[] ids, long[] values) {
+        int n = ids.length;
+        if (n < 2) return;
+        if (n <= 1 << INDEX_BITS && fitsPackedKey(ids)) {
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) keys[i] = ids[i] << INDEX_BITS | i;
+            Arrays.sort(keys);
+            long[] sortedValues = new long[n];
+            for (int i = 0; i < n; i++) {
+                int from = (int) (keys[i] & INDEX_MASK);
+                ids[i] = keys[i] >>> INDEX_BITS;
+                sortedValues[i] = values[from];
+            }
+            System.arraycopy(sortedValues, 0, values, 0, n);
+            return;
+        }
+        heapSort(ids, values);
+    }
+
+    private static boolean fitsPackedKey(long[] ids) {
+        for (long id : ids) {
+            if (id < 0 || id > MAX_PACKED_ID) return false;
+        }
+        return true;
+    }
+
+    private static void heapSort(long[] ids, long[] values) {
+        int n = ids.length;
+        for (int i = n / 2 - 1; i >= 0; i--) siftDown(ids, values, i, n);
+        for (int end = n - 1; end > 0; end--) {
+            swap(ids, values, 0, end);
+            siftDown(ids, values, 0, end);
+        }
+    }
+
+    private static void siftDown(long[] ids, long[] values, int i, int n) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) return;
+            if (child + 1 < n && ids[child + 1] > ids[child]) child++;
+            if (ids[i] >= ids[child]) return;
+            swap(ids, values, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(long[] ids, long[] values, int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        long v = values[a];
+        values[a] = values[b];
+        values[b] = v;
+    }
+}
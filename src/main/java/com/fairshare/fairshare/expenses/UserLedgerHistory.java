@@ -0,0 +1,99 @@
+package com.fairshare.fairshare.expenses;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One member's ledger contributions in a group, newest first, read a page at a time.
+ * <p>
+ * Expenses paid, expense shares and transfers sent and received are read as one UNION ALL ordered by
+ * (timestamp desc, type, referenceId desc), which is unique per contribution. A page starts strictly
+ * after the given {@link Key} and stops after {@code limit} rows, and the rows are fetched through a
+ * cursor of the same size, so a page never holds more than {@code limit} rows however long the
+ * history is. Voided expenses are skipped.
+ */
+@Component
+public class UserLedgerHistory {
+
+    /** Contribution types in the order they are listed when their timestamps are equal. */
+    public enum Type { EXPENSE_PAID, EXPENSE_SHARE, TRANSFER_SENT, TRANSFER_RECEIVED }
+
+    public record Key(Instant timestamp, Type type, long referenceId) {
+    }
+
+    /** {@code counterpartyUserId} is set for transfers only. */
+    public record Row(Key key, BigDecimal amount, String description, Long counterpartyUserId) {
+    }
+
+    private static final String CONTRIBUTIONS = """
+            SELECT ts, type_rank, reference_id, amount, description, counterparty_id FROM (
+                SELECT e.created_at AS ts, 0 AS type_rank, e.id AS reference_id, e.amount AS amount,
+                       e.description AS description, CAST(NULL AS BIGINT) AS counterparty_id
+                FROM expenses e
+                WHERE e.group_id = ? AND e.payer_user_id = ? AND (e.voided IS NULL OR e.voided = FALSE)
+                UNION ALL
+                SELECT e.created_at, 1, e.id, -p.share_amount, e.description, CAST(NULL AS BIGINT)
+                FROM expense_participants p JOIN expenses e ON e.id = p.expense_id
+                WHERE e.group_id = ? AND p.user_id = ? AND (e.voided IS NULL OR e.voided = FALSE)
+                UNION ALL
+                SELECT t.created_at, 2, t.id, t.amount, CAST(NULL AS VARCHAR(255)), t.to_user_id
+                FROM confirmed_transfers t WHERE t.group_id = ? AND t.from_user_id = ?
+                UNION ALL
+                SELECT t.created_at, 3, t.id, -t.amount, CAST(NULL AS VARCHAR(255)), t.from_user_id
+                FROM confirmed_transfers t WHERE t.group_id = ? AND t.to_user_id = ?
+            ) c
+            """;
+
+    private static final String AFTER_KEY = """
+            WHERE ts < ? OR (ts = ? AND type_rank > ?) OR (ts = ? AND type_rank = ? AND reference_id < ?)
+            """;
+
+    private static final String ORDER_AND_LIMIT = "ORDER BY ts DESC, type_rank ASC, reference_id DESC LIMIT ?";
+
+    private static final String FIRST_PAGE = CONTRIBUTIONS + ORDER_AND_LIMIT;
+    private static final String NEXT_PAGE = CONTRIBUTIONS + AFTER_KEY + ORDER_AND_LIMIT;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserLedgerHistory(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Up to {@code limit} contributions after {@code after}, or from the newest when it is null. */
+    public List<Row> page(Long groupId, Long userId, Key after, int limit) {
+        return jdbcTemplate.query(after == null ? FIRST_PAGE : NEXT_PAGE, ps -> {
+            ps.setFetchSize(limit);
+            ps.setMaxRows(limit);
+            int i = 1;
+            for (int source = 0; source < 4; source++) {
+                ps.setLong(i++, groupId);
+                ps.setLong(i++, userId);
+            }
+            if (after != null) i = bindAfter(ps, i, after);
+            ps.setInt(i, limit);
+        }, (rs, n) -> new Row(
+                new Key(rs.getTimestamp(1).toInstant(), Type.values()[rs.getInt(2)], rs.getLong(3)),
+                rs.getBigDecimal(4),
+                rs.getString(5),
+                rs.getObject(6) == null ? null : rs.getLong(6)));
+    }
+
+    private static int bindAfter(PreparedStatement ps, int i, Key after) throws SQLException {
+        Timestamp ts = Timestamp.from(after.timestamp());
+        int rank = after.type().ordinal();
+        ps.setTimestamp(i++, ts);
+        ps.setTimestamp(i++, ts);
+        ps.setInt(i++, rank);
+        ps.setTimestamp(i++, ts);
+        ps.setInt(i++, rank);
+        ps.setLong(i++, after.referenceId());
+        return i;
+    }
+}
@@ -0,0 +1,53 @@
+package com.fairshare.fairshare.expenses.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Setter
+@Getter
+@Schema(
+        name = "BatchCreateExpensesRequest",
+        description = "Expenses to create in one call. Each item is validated and reported on independently; an invalid item is rejected without failing the rest of the batch."
+)
+public class BatchCreateExpensesRequest {
+    @NotEmpty
+    @Size(max = 500)
+    private List<Item> items;
+
+    @SuppressWarnings("unused")
+    public BatchCreateExpensesRequest() {
+    }
+
+    public BatchCreateExpensesRequest(List<Item> items) {
+        this.items = items;
+    }
+
+    @Setter
+    @Getter
+    // items are not cascaded from the list: ExpenseService validates each one so a bad item is rejected on its own
+    public static class Item {
+        @Schema(description = "Idempotency key for this item; replaying a key returns the expense created the first time", example = "offline-7f3c")
+        @Size(max = 128)
+        private String idempotencyKey;
+
+        @NotNull
+        @Valid
+        private CreateExpenseRequest expense;
+
+        @SuppressWarnings("unused")
+        public Item() {
+        }
+
+        public Item(String idempotencyKey, CreateExpenseRequest expense) {
+            this.idempotencyKey = idempotencyKey;
+            this.expense = expense;
+        }
+    }
+}
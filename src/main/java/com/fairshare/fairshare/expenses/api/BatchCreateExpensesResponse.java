@@ -0,0 +1,37 @@
+package com.fairshare.fairshare.expenses.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Per-item outcome of a batch expense create, in request order.")
+public record BatchCreateExpensesResponse(
+        @Schema(description = "Number of expenses created by this call", example = "2")
+        int created,
+
+        @Schema(description = "Number of items answered from an earlier create with the same idempotency key", example = "1")
+        int replayed,
+
+        @Schema(description = "Number of items that failed validation and were not written", example = "0")
+        int rejected,
+
+        List<ItemResult> results
+) {
+    public enum Status {
+        CREATED,
+        REPLAYED,
+        REJECTED
+    }
+
+    public record ItemResult(
+            @Schema(description = "Position of the item in the request", example = "0")
+            int index,
+            String idempotencyKey,
+            Status status,
+            @Schema(description = "The created or replayed expense; absent when rejected")
+            ExpenseResponse expense,
+            @Schema(description = "Why the item was rejected; absent otherwise")
+            String error
+    ) {
+    }
+}
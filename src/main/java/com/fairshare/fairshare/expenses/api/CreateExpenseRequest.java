@@ -50,7 +50,7 @@ public class CreateExpenseRequest {
     // shares: relative integer weights, e.g., [2,1,1]
     @Getter
     @ArraySchema(schema = @Schema(description = "Relative integer weights for participants (corresponds to participantUserIds order). e.g., [2,1,1]", minimum = "1", example = "[2,1,1]"))
-    private List<@Positive Integer> shares;
+    private List<@NotNull @Positive Integer> shares;
 
     // exact amounts list, corresponding to participants order
     @Getter
@@ -1,7 +1,12 @@
 package com.fairshare.fairshare.expenses.api;
 
+import com.fairshare.fairshare.expenses.model.ExpenseEventPayload;
+import io.swagger.v3.oas.annotations.media.Schema;
+
 import java.time.Instant;
 
-public record EventResponse(Long eventId, Long groupId, Long expenseId, String eventType, String payload,
+public record EventResponse(Long eventId, Long groupId, Long expenseId, String eventType,
+                            @Schema(description = "The event body serialized as a JSON string, as this endpoint has always returned it") String payload,
+                            @Schema(description = "The same event body as a JSON object") ExpenseEventPayload details,
                             Instant createdAt) {
 }
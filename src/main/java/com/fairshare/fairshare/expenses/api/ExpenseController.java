@@ -1,7 +1,9 @@
 package com.fairshare.fairshare.expenses.api;
 
 import com.fairshare.fairshare.auth.AuthContext;
+import com.fairshare.fairshare.common.api.CursorPage;
 import com.fairshare.fairshare.common.api.PaginatedResponse;
+import com.fairshare.fairshare.expenses.SettlementStrategy;
 import com.fairshare.fairshare.expenses.service.ExpenseService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -63,25 +65,60 @@ public class ExpenseController {
                     )
             ),
             parameters = {
-                    @io.swagger.v3.oas.annotations.Parameter(name = "Idempotency-Key", in = io.swagger.v3.oas.annotations.enums.ParameterIn.HEADER, description = "Idempotency key to make create expense requests safe to retry")
+                    @io.swagger.v3.oas.annotations.Parameter(name = "Idempotency-Key", in = io.swagger.v3.oas.annotations.enums.ParameterIn.HEADER, description = "Idempotency key to make create expense requests safe to retry. A retry with the same key and body replays the original response with `Idempotent-Replayed: true`; reusing the key with a different body is rejected with 422 instead of returning the original expense, and a retry while the first request is still running gets 409.")
             }
     )
     @io.swagger.v3.oas.annotations.responses.ApiResponses({
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "201", description = "Created", content = @io.swagger.v3.oas.annotations.media.Content(mediaType = "application/json", schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = ExpenseResponse.class))),
-            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Bad Request", content = @io.swagger.v3.oas.annotations.media.Content(mediaType = "application/json", schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = com.fairshare.fairshare.common.api.ApiError.class)))
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Bad Request", content = @io.swagger.v3.oas.annotations.media.Content(mediaType = "application/json", schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = com.fairshare.fairshare.common.api.ApiError.class))),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "A request with the same Idempotency-Key is still being processed", content = @io.swagger.v3.oas.annotations.media.Content(mediaType = "application/json", schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = com.fairshare.fairshare.common.api.ApiError.class))),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "422", description = "Idempotency-Key was already used with a different request body", content = @io.swagger.v3.oas.annotations.media.Content(mediaType = "application/json", schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = com.fairshare.fairshare.common.api.ApiError.class)))
     })
     public ExpenseResponse createExpense(@PathVariable Long groupId, @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey, @Valid @RequestBody CreateExpenseRequest req, HttpServletRequest request) {
         return service.createExpense(groupId, authContext.getActorUserId(request), req, idempotencyKey);
     }
 
+    @PostMapping("/expenses:batch")
+    @io.swagger.v3.oas.annotations.Operation(
+            summary = "Create expenses in bulk",
+            description = "Create up to 500 expenses in one transaction. Each item carries its own idempotency key and is reported as CREATED, REPLAYED or REJECTED; " +
+                    "rejected items do not prevent the others from being written. Ledger balances are updated once per user for the whole batch.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    content = @io.swagger.v3.oas.annotations.media.Content(
+                            mediaType = "application/json",
+                            schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = BatchCreateExpensesRequest.class),
+                            examples = @io.swagger.v3.oas.annotations.media.ExampleObject(
+                                    name = "OfflineReplay",
+                                    summary = "Two queued expenses",
+                                    value = "{\"items\":[{\"idempotencyKey\":\"offline-1\",\"expense\":{\"description\":\"Taxi\",\"amount\":\"18.00\",\"payerUserId\":10}},{\"idempotencyKey\":\"offline-2\",\"expense\":{\"description\":\"Dinner\",\"amount\":\"40.00\",\"payerUserId\":11,\"participantUserIds\":[10,11],\"shares\":[1,3]}}]}"
+                            )
+                    )
+            )
+    )
+    @io.swagger.v3.oas.annotations.responses.ApiResponses({
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "OK", content = @io.swagger.v3.oas.annotations.media.Content(mediaType = "application/json", schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = BatchCreateExpensesResponse.class))),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Bad Request", content = @io.swagger.v3.oas.annotations.media.Content(mediaType = "application/json", schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = com.fairshare.fairshare.common.api.ApiError.class)))
+    })
+    public BatchCreateExpensesResponse createExpenses(@PathVariable Long groupId, @Valid @RequestBody BatchCreateExpensesRequest req, HttpServletRequest request) {
+        return service.createExpenses(groupId, authContext.getActorUserId(request), req);
+    }
+
     @GetMapping("/ledger")
-    @io.swagger.v3.oas.annotations.Operation(summary = "Get ledger for a group", description = "Returns net balances for each user in the group")
+    @io.swagger.v3.oas.annotations.Operation(summary = "Get ledger for a group", description = "Returns net balances for each user in the group, optionally as they stood at `asOf`")
+    @io.swagger.v3.oas.annotations.Parameter(name = "asOf", description = "ISO-8601 instant; when set, balances are rebuilt from the nearest earlier snapshot plus the changes recorded after it")
     @io.swagger.v3.oas.annotations.responses.ApiResponses({
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "OK", content = @io.swagger.v3.oas.annotations.media.Content(mediaType = "application/json", schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = LedgerResponse.class))),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "asOf is in the future or earlier than the group's recorded ledger history", content = @io.swagger.v3.oas.annotations.media.Content(mediaType = "application/json", schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = com.fairshare.fairshare.common.api.ApiError.class))),
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Group not found", content = @io.swagger.v3.oas.annotations.media.Content(mediaType = "application/json", schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = com.fairshare.fairshare.common.api.ApiError.class)))
     })
-    public LedgerResponse ledger(@PathVariable Long groupId, HttpServletRequest request) {
-        return service.getLedger(groupId, authContext.getActorUserId(request));
+    public LedgerResponse ledger(
+            @PathVariable Long groupId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant asOf,
+            HttpServletRequest request
+    ) {
+        Long actorUserId = authContext.getActorUserId(request);
+        if (asOf != null) return service.getLedgerAsOf(groupId, actorUserId, asOf);
+        return service.getLedger(groupId, actorUserId);
     }
 
     @GetMapping("/expenses")
@@ -99,11 +136,30 @@ public class ExpenseController {
         return service.listExpenses(groupId, authContext.getActorUserId(request), page, size, sort, fromDate, toDate);
     }
 
+    @GetMapping(value = "/expenses", params = "limit")
+    @io.swagger.v3.oas.annotations.Operation(summary = "Page through expenses with a cursor", description = "Chosen when `limit` is sent. Returns expenses newest first by (createdAt, id) without a total count; pass `nextCursor` back as `cursor` for the next page.")
+    @io.swagger.v3.oas.annotations.Parameter(name = "cursor", description = "Opaque cursor from the previous page; omit for the newest expenses")
+    @io.swagger.v3.oas.annotations.Parameter(name = "limit", description = "Expenses per page, 1 to 200")
+    public CursorPage<ExpenseResponse> listExpensesAfter(
+            @PathVariable Long groupId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant toDate,
+            HttpServletRequest request
+    ) {
+        return service.listExpensesAfter(groupId, authContext.getActorUserId(request), cursor, limit, fromDate, toDate);
+    }
+
     @GetMapping("/settlements")
     @io.swagger.v3.oas.annotations.Operation(summary = "Get settlement transfers for a group", description = "Returns suggested transfers to settle debts in the group")
     @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "OK", content = @io.swagger.v3.oas.annotations.media.Content(schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = SettlementResponse.class)))
-    public SettlementResponse settlements(@PathVariable Long groupId, HttpServletRequest request) {
-        return service.getSettlements(groupId, authContext.getActorUserId(request));
+    public SettlementResponse settlements(
+            @PathVariable Long groupId,
+            @RequestParam(defaultValue = "greedy") @io.swagger.v3.oas.annotations.Parameter(description = "greedy (default) or min-transfers, which searches for a plan with fewer transfers within a CPU time budget") String strategy,
+            HttpServletRequest request
+    ) {
+        return service.getSettlements(groupId, authContext.getActorUserId(request), SettlementStrategy.fromParam(strategy));
     }
 
     @PostMapping("/settlements/confirm")
@@ -131,8 +187,27 @@ public class ExpenseController {
     @GetMapping("/explanations/ledger")
     @io.swagger.v3.oas.annotations.Operation(summary = "Get ledger explanations for a group", description = "Returns a detailed explanation of each user's ledger, including contributing expenses and transfers.")
     @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "OK", content = @io.swagger.v3.oas.annotations.media.Content(schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = LedgerExplanationResponse.class)))
-    public LedgerExplanationResponse getLedgerExplanation(@PathVariable Long groupId, HttpServletRequest request) {
-        return service.getLedgerExplanation(groupId, authContext.getActorUserId(request));
+    @io.swagger.v3.oas.annotations.Parameter(name = "userId", description = "Only explain this member's balance")
+    public LedgerExplanationResponse getLedgerExplanation(@PathVariable Long groupId, @RequestParam(required = false) Long userId, HttpServletRequest request) {
+        return service.getLedgerExplanation(groupId, authContext.getActorUserId(request), userId);
+    }
+
+    @GetMapping("/explanations/ledger/{userId}")
+    @io.swagger.v3.oas.annotations.Operation(summary = "Page through one member's ledger", description = "Returns the member's contributions newest first, each with the running balance right after it. Pass `nextCursor` back as `cursor` for the next page.")
+    @io.swagger.v3.oas.annotations.Parameter(name = "cursor", description = "Opaque cursor from the previous page; omit for the newest contributions")
+    @io.swagger.v3.oas.annotations.Parameter(name = "limit", description = "Contributions per page, 1 to 200")
+    @io.swagger.v3.oas.annotations.responses.ApiResponses({
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "OK"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Bad Request", content = @io.swagger.v3.oas.annotations.media.Content(schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = com.fairshare.fairshare.common.api.ApiError.class)))
+    })
+    public CursorPage<LedgerContributionResponse> getUserLedgerExplanation(
+            @PathVariable Long groupId,
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            HttpServletRequest request
+    ) {
+        return service.getUserLedgerExplanation(groupId, authContext.getActorUserId(request), userId, cursor, limit);
     }
 
     @GetMapping("/owes")
@@ -147,6 +222,13 @@ public class ExpenseController {
         return new OwesResponse(service.amountOwedHistorical(groupId, authContext.getActorUserId(request), fromUserId, toUserId));
     }
 
+    @GetMapping("/owes/matrix")
+    @io.swagger.v3.oas.annotations.Operation(summary = "Pairwise owes matrix", description = "Returns, for every ordered pair of users with a non-zero amount, what `fromUserId` owes `toUserId`: their shares of non-voided expenses `toUserId` paid for, minus confirmed transfers between them. Each entry matches `GET /owes` for that pair.")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "OK", content = @io.swagger.v3.oas.annotations.media.Content(schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = OwesMatrixResponse.class)))
+    public OwesMatrixResponse owesMatrix(@PathVariable Long groupId, HttpServletRequest request) {
+        return service.getOwesMatrix(groupId, authContext.getActorUserId(request));
+    }
+
     @GetMapping("/owes/historical")
     @io.swagger.v3.oas.annotations.Operation(summary = "Historical owes (by expense/payment history)", description = "Computes how much fromUserId owes toUserId based on recorded expenses (where toUserId acted as payer) minus confirmed transfers from fromUserId to toUserId.")
     @io.swagger.v3.oas.annotations.Parameter(name = "fromUserId", description = "User id who would pay", required = true)
@@ -186,6 +268,8 @@ public class ExpenseController {
     @io.swagger.v3.oas.annotations.Operation(summary = "List expense events for a group", description = "Return the event log (ExpenseCreated, ExpenseUpdated, ExpenseVoided, etc.) for auditing")
     public PaginatedResponse<EventResponse> events(
             @PathVariable Long groupId,
+            @RequestParam(required = false) @io.swagger.v3.oas.annotations.Parameter(description = "Only events for this expense") Long expenseId,
+            @RequestParam(required = false) @io.swagger.v3.oas.annotations.Parameter(description = "Only events that involved this user as payer or participant") Long userId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt,desc") String sort,
@@ -193,7 +277,24 @@ public class ExpenseController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant toDate,
             HttpServletRequest request
     ) {
-        return service.listEvents(groupId, authContext.getActorUserId(request), page, size, sort, fromDate, toDate);
+        return service.listEvents(groupId, authContext.getActorUserId(request), expenseId, userId, page, size, sort, fromDate, toDate);
+    }
+
+    @GetMapping(value = "/events", params = "limit")
+    @io.swagger.v3.oas.annotations.Operation(summary = "Page through expense events with a cursor", description = "Chosen when `limit` is sent. Returns events newest first by (createdAt, id) without a total count; pass `nextCursor` back as `cursor` for the next page.")
+    @io.swagger.v3.oas.annotations.Parameter(name = "cursor", description = "Opaque cursor from the previous page; omit for the newest events")
+    @io.swagger.v3.oas.annotations.Parameter(name = "limit", description = "Events per page, 1 to 200")
+    public CursorPage<EventResponse> eventsAfter(
+            @PathVariable Long groupId,
+            @RequestParam(required = false) @io.swagger.v3.oas.annotations.Parameter(description = "Only events for this expense") Long expenseId,
+            @RequestParam(required = false) @io.swagger.v3.oas.annotations.Parameter(description = "Only events that involved this user as payer or participant") Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant toDate,
+            HttpServletRequest request
+    ) {
+        return service.listEventsAfter(groupId, authContext.getActorUserId(request), expenseId, userId, cursor, limit, fromDate, toDate);
     }
 
     @GetMapping("/confirmed-transfers")
@@ -211,4 +312,20 @@ public class ExpenseController {
         return service.listConfirmedTransfers(groupId, authContext.getActorUserId(request), confirmationId, page, size, sort, fromDate, toDate);
     }
 
+    @GetMapping(value = "/confirmed-transfers", params = "limit")
+    @io.swagger.v3.oas.annotations.Operation(summary = "Page through confirmed transfers with a cursor", description = "Chosen when `limit` is sent. Returns transfers newest first by (createdAt, id) without a total count; pass `nextCursor` back as `cursor` for the next page.")
+    @io.swagger.v3.oas.annotations.Parameter(name = "cursor", description = "Opaque cursor from the previous page; omit for the newest transfers")
+    @io.swagger.v3.oas.annotations.Parameter(name = "limit", description = "Transfers per page, 1 to 200")
+    public CursorPage<ConfirmedTransferResponse> confirmedTransfersAfter(
+            @PathVariable Long groupId,
+            @RequestParam(required = false) String confirmationId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant toDate,
+            HttpServletRequest request
+    ) {
+        return service.listConfirmedTransfersAfter(groupId, authContext.getActorUserId(request), confirmationId, cursor, limit, fromDate, toDate);
+    }
+
 }
@@ -0,0 +1,29 @@
+package com.fairshare.fairshare.expenses.api;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record LedgerContributionResponse(
+        @Schema(description = "EXPENSE_PAID, EXPENSE_SHARE, TRANSFER_SENT or TRANSFER_RECEIVED.")
+        String type,
+
+        @JsonFormat(shape = JsonFormat.Shape.STRING)
+        @Schema(type = "string", description = "Positive if it increases the balance, negative if it decreases.", example = "-12.50")
+        BigDecimal amount,
+
+        @Schema(description = "Expense description or transfer details.")
+        String description,
+
+        Instant timestamp,
+
+        @Schema(description = "The ID of the underlying expense or transfer.")
+        Long referenceId,
+
+        @JsonFormat(shape = JsonFormat.Shape.STRING)
+        @Schema(type = "string", description = "The user's net balance right after this contribution.", example = "37.75")
+        BigDecimal runningBalance
+) {
+}
@@ -0,0 +1,22 @@
+package com.fairshare.fairshare.expenses.api;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Sparse pairwise owes matrix: one entry per ordered pair with a non-zero amount, ordered by
+ * fromUserId then toUserId. Pairs without an entry owe nothing.
+ */
+public record OwesMatrixResponse(List<Entry> entries) {
+    public record Entry(
+            Long fromUserId,
+            Long toUserId,
+            @JsonFormat(shape = JsonFormat.Shape.STRING)
+            @Schema(type = "string", example = "5.00")
+            BigDecimal amount
+    ) {
+    }
+}
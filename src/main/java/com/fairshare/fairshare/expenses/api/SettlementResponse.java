@@ -6,7 +6,13 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import java.math.BigDecimal;
 import java.util.List;
 
-public record SettlementResponse(List<Transfer> transfers) {
+public record SettlementResponse(
+        List<Transfer> transfers,
+        @Schema(description = "What produced the plan: greedy, min-transfers-exact or min-transfers-heuristic. A min-transfers request reports greedy when the search ran out of time or found nothing better", example = "min-transfers-exact")
+        String strategy,
+        @Schema(description = "How many fewer transfers the plan has than the greedy plan", example = "1")
+        int transfersSaved
+) {
     public record Transfer(
             Long fromUserId,
             Long toUserId,
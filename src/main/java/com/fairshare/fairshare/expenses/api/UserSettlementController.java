@@ -0,0 +1,32 @@
+package com.fairshare.fairshare.expenses.api;
+
+import com.fairshare.fairshare.auth.AuthContext;
+import com.fairshare.fairshare.expenses.service.ExpenseService;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/users/{userId}")
+@Tag(name = "Expenses")
+@SecurityRequirement(name = "user-id-header")
+public class UserSettlementController {
+    private final ExpenseService service;
+    private final AuthContext authContext;
+
+    public UserSettlementController(ExpenseService service, AuthContext authContext) {
+        this.service = service;
+        this.authContext = authContext;
+    }
+
+    @GetMapping("/settlements")
+    @io.swagger.v3.oas.annotations.Operation(summary = "Get a user's settlement across all groups", description = "Nets the user's settlement transfers in every group against each counterparty and returns one transfer per counterparty, with the per-group transfers it is made of. "
+            + "The netting starts from each group's own settlement plan rather than from the user's balances: who the user pays or is paid by inside a group depends on every member's balance there, "
+            + "and each allocation must be confirmed in its own group, so the per-group plans are needed. They are served from the settlement plan cache at the group's ledger version and only recomputed after the group changes. "
+            + "Counterparties whose allocations cancel out are returned under offsets instead of as zero transfers")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "OK", content = @io.swagger.v3.oas.annotations.media.Content(schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = UserSettlementResponse.class)))
+    public UserSettlementResponse settlements(@PathVariable Long userId, HttpServletRequest request) {
+        return service.getUserSettlements(userId, authContext.getActorUserId(request));
+    }
+}
@@ -0,0 +1,42 @@
+package com.fairshare.fairshare.expenses.api;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public record UserSettlementResponse(
+        Long userId,
+        List<Transfer> transfers,
+        @Schema(description = "Counterparties whose per-group transfers cancel out. No payment is due, but confirming the allocations in their groups clears the balances there")
+        List<Offset> offsets
+) {
+
+    /**
+     * One payment between the user and a counterparty covering every group they share. Each allocation
+     * is a transfer from that group's settlement plan and can be confirmed back into the group as is.
+     */
+    public record Transfer(
+            Long fromUserId,
+            Long toUserId,
+            @JsonFormat(shape = JsonFormat.Shape.STRING)
+            @Schema(type = "string", example = "12.50")
+            BigDecimal amount,
+            List<GroupAllocation> allocations
+    ) {
+    }
+
+    public record Offset(Long counterpartyUserId, List<GroupAllocation> allocations) {
+    }
+
+    public record GroupAllocation(
+            Long groupId,
+            Long fromUserId,
+            Long toUserId,
+            @JsonFormat(shape = JsonFormat.Shape.STRING)
+            @Schema(type = "string", example = "12.50")
+            BigDecimal amount
+    ) {
+    }
+}
@@ -8,7 +8,14 @@ import java.time.Instant;
 
 @Getter
 @Entity
-@Table(name = "confirmed_transfers")
+@Table(
+        name = "confirmed_transfers",
+        indexes = {
+                @Index(name = "idx_confirmed_transfers_group_created_id", columnList = "group_id, created_at, id"),
+                @Index(name = "idx_confirmed_transfers_group_from_created", columnList = "group_id, from_user_id, created_at"),
+                @Index(name = "idx_confirmed_transfers_group_to_created", columnList = "group_id, to_user_id, created_at")
+        }
+)
 public class ConfirmedTransfer {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -8,17 +8,25 @@ import java.math.BigDecimal;
 import java.time.Instant;
 
 @Entity
-@Table(name = "expenses")
+@Table(
+        name = "expenses",
+        indexes = {
+                @Index(name = "idx_expenses_group_created_id", columnList = "group_id, created_at, id"),
+                @Index(name = "idx_expenses_group_payer_created", columnList = "group_id, payer_user_id, created_at")
+        }
+)
 public class Expense {
     @Getter
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expenses_seq")
+    @SequenceGenerator(name = "expenses_seq", sequenceName = "expenses_seq", allocationSize = 50)
     private Long id;
 
     @Getter
     @Column(name = "group_id", nullable = false)
     private Long groupId;
 
+    @Setter
     @Getter
     @Column(name = "payer_user_id", nullable = false)
     private Long payerUserId;
@@ -2,15 +2,21 @@ package com.fairshare.fairshare.expenses.model;
 
 import jakarta.persistence.*;
 import lombok.Getter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.Instant;
 
 @Getter
 @Entity
-@Table(name = "expense_events")
+@Table(name = "expense_events", indexes = {
+        @Index(name = "idx_expense_events_group_created_id", columnList = "group_id, created_at, id"),
+        @Index(name = "idx_expense_events_group_expense", columnList = "group_id, expense_id")
+})
 public class ExpenseEvent {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expense_events_seq")
+    @SequenceGenerator(name = "expense_events_seq", sequenceName = "expense_events_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "group_id", nullable = false)
@@ -22,8 +28,10 @@ public class ExpenseEvent {
     @Column(name = "event_type", nullable = false)
     private String eventType;
 
-    @Column(columnDefinition = "text")
-    private String payload;
+    // jsonb on Postgres, indexed with GIN for containment lookups (see docs/0005)
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "payload")
+    private ExpenseEventPayload payload;
 
     @Column(nullable = false, updatable = false)
     private final Instant createdAt = Instant.now();
@@ -32,7 +40,7 @@ public class ExpenseEvent {
     protected ExpenseEvent() {
     }
 
-    public ExpenseEvent(Long groupId, Long expenseId, String eventType, String payload) {
+    public ExpenseEvent(Long groupId, Long expenseId, String eventType, ExpenseEventPayload payload) {
         this.groupId = groupId;
         this.expenseId = expenseId;
         this.eventType = eventType;
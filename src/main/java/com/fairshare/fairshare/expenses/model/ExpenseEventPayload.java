@@ -0,0 +1,72 @@
+package com.fairshare.fairshare.expenses.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Body of an {@link ExpenseEvent}, stored as JSON. {@code deltas} lists every user the event involved,
+ * payers and participants alike, with their balance change (zero when a share was left as it was);
+ * the events endpoint filters on it by userId.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ExpenseEventPayload(
+        Long expenseId,
+        @JsonFormat(shape = JsonFormat.Shape.STRING) BigDecimal amount,
+        Long payerUserId,
+        Snapshot before,
+        Snapshot after,
+        List<Long> participantUserIds,
+        List<Delta> deltas
+) {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    public record Snapshot(@JsonFormat(shape = JsonFormat.Shape.STRING) BigDecimal amount, Long payerUserId) {
+    }
+
+    // userId is declared first so the serialized form always reads {"userId":..,"delta":..}
+    public record Delta(Long userId, @JsonFormat(shape = JsonFormat.Shape.STRING) BigDecimal delta) {
+    }
+
+    public static ExpenseEventPayload created(Expense expense, Iterable<Long> participantUserIds, Map<Long, BigDecimal> balanceDeltas) {
+        return new ExpenseEventPayload(expense.getId(), expense.getAmount(), expense.getPayerUserId(), null, null,
+                toList(participantUserIds), toDeltas(balanceDeltas));
+    }
+
+    public static ExpenseEventPayload updated(Expense expense, Snapshot before, Iterable<Long> participantUserIds, Map<Long, BigDecimal> balanceDeltas) {
+        return new ExpenseEventPayload(expense.getId(), null, null, before,
+                new Snapshot(expense.getAmount(), expense.getPayerUserId()), toList(participantUserIds), toDeltas(balanceDeltas));
+    }
+
+    public static ExpenseEventPayload voided(Expense expense, Iterable<Long> participantUserIds, Map<Long, BigDecimal> balanceDeltas) {
+        return created(expense, participantUserIds, balanceDeltas);
+    }
+
+    /** The payload as the JSON text stored in the expense_events row. */
+    public String toJson() {
+        try {
+            return JSON.writeValueAsString(this);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize event payload", e);
+        }
+    }
+
+    private static List<Long> toList(Iterable<Long> ids) {
+        List<Long> out = new ArrayList<>();
+        for (Long id : ids) out.add(id);
+        return out;
+    }
+
+    private static List<Delta> toDeltas(Map<Long, BigDecimal> balanceDeltas) {
+        List<Delta> out = new ArrayList<>(balanceDeltas.size());
+        for (var e : balanceDeltas.entrySet()) out.add(new Delta(e.getKey(), e.getValue()));
+        return out;
+    }
+}
@@ -2,6 +2,7 @@ package com.fairshare.fairshare.expenses.model;
 
 import jakarta.persistence.*;
 import lombok.Getter;
+import lombok.Setter;
 
 import java.math.BigDecimal;
 
@@ -9,11 +10,13 @@ import java.math.BigDecimal;
 @Entity
 @Table(
         name = "expense_participants",
-        uniqueConstraints = @UniqueConstraint(columnNames = {"expense_id", "user_id"})
+        uniqueConstraints = @UniqueConstraint(columnNames = {"expense_id", "user_id"}),
+        indexes = @Index(name = "idx_expense_participants_user_expense", columnList = "user_id, expense_id")
 )
 public class ExpenseParticipant {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expense_participants_seq")
+    @SequenceGenerator(name = "expense_participants_seq", sequenceName = "expense_participants_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -23,6 +26,7 @@ public class ExpenseParticipant {
     @Column(name = "user_id", nullable = false)
     private Long userId;
 
+    @Setter
     @Column(name = "share_amount", nullable = false, precision = 12, scale = 2)
     private BigDecimal shareAmount;
 
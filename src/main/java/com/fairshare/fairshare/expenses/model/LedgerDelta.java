@@ -0,0 +1,43 @@
+package com.fairshare.fairshare.expenses.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * One user's balance change from a single ledger write, tagged with the group ledger version the write
+ * produced. Rows are appended by {@link com.fairshare.fairshare.expenses.LedgerDeltaApplier} and replayed
+ * on top of a {@link LedgerSnapshot} to answer point-in-time ledger queries.
+ */
+@Getter
+@Entity
+@Table(
+        name = "ledger_deltas",
+        indexes = @Index(name = "idx_ledger_deltas_group_version", columnList = "group_id, ledger_version")
+)
+public class LedgerDelta {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "delta", nullable = false, precision = 12, scale = 2)
+    private BigDecimal delta;
+
+    @Column(name = "ledger_version", nullable = false)
+    private long ledgerVersion;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @SuppressWarnings("unused")
+    protected LedgerDelta() {
+    }
+}
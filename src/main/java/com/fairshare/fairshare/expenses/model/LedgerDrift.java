@@ -0,0 +1,41 @@
+package com.fairshare.fairshare.expenses.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * A user whose {@code ledger_entries} balance did not match the balance recomputed from expenses and
+ * confirmed transfers during a {@link ReconciliationRun}.
+ */
+@Getter
+@Entity
+@Table(
+        name = "ledger_drifts",
+        indexes = @Index(name = "idx_ledger_drifts_run_group", columnList = "run_id, group_id")
+)
+public class LedgerDrift {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "expected_balance", nullable = false, precision = 12, scale = 2)
+    private BigDecimal expectedBalance;
+
+    @Column(name = "actual_balance", nullable = false, precision = 12, scale = 2)
+    private BigDecimal actualBalance;
+
+    @SuppressWarnings("unused")
+    protected LedgerDrift() {
+    }
+}
@@ -9,11 +9,13 @@ import java.math.BigDecimal;
 @Entity
 @Table(
         name = "ledger_entries",
-        uniqueConstraints = @UniqueConstraint(columnNames = {"group_id", "user_id"})
+        uniqueConstraints = @UniqueConstraint(columnNames = {"group_id", "user_id"}),
+        indexes = @Index(name = "idx_ledger_entries_user_id", columnList = "user_id")
 )
 public class LedgerEntry {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entries_seq")
+    @SequenceGenerator(name = "ledger_entries_seq", sequenceName = "ledger_entries_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "group_id", nullable = false)
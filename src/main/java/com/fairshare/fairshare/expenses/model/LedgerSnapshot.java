@@ -0,0 +1,37 @@
+package com.fairshare.fairshare.expenses.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Marks that a group's balances at {@code ledgerVersion} were copied into
+ * {@link LedgerSnapshotBalance} rows at {@code takenAt}. Rows are written and read by
+ * {@link com.fairshare.fairshare.expenses.LedgerSnapshots}; the mapping keeps the schema in one place.
+ */
+@Getter
+@Entity
+@Table(
+        name = "ledger_snapshots",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"group_id", "ledger_version"}),
+        indexes = @Index(name = "idx_ledger_snapshots_group_taken_at", columnList = "group_id, taken_at")
+)
+public class LedgerSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+
+    @Column(name = "ledger_version", nullable = false)
+    private long ledgerVersion;
+
+    @Column(name = "taken_at", nullable = false, updatable = false)
+    private Instant takenAt;
+
+    @SuppressWarnings("unused")
+    protected LedgerSnapshot() {
+    }
+}
@@ -0,0 +1,37 @@
+package com.fairshare.fairshare.expenses.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * A non-zero balance captured by a {@link LedgerSnapshot}; users without a row had a zero balance.
+ */
+@Getter
+@Entity
+@Table(
+        name = "ledger_snapshot_balances",
+        indexes = @Index(name = "idx_ledger_snapshot_balances_group_version", columnList = "group_id, ledger_version")
+)
+public class LedgerSnapshotBalance {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+
+    @Column(name = "ledger_version", nullable = false)
+    private long ledgerVersion;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "net_balance", nullable = false, precision = 12, scale = 2)
+    private BigDecimal netBalance;
+
+    @SuppressWarnings("unused")
+    protected LedgerSnapshotBalance() {
+    }
+}
@@ -0,0 +1,48 @@
+package com.fairshare.fairshare.expenses.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Progress of one reconciliation pass over all groups. Groups are checked in id order and
+ * {@code lastGroupId} is advanced after each batch, so a run without {@code finishedAt} is resumed from
+ * there. While a run is in progress, {@code claimedBy} names the instance holding it until {@code claimedUntil}.
+ * Rows are written and read by {@link com.fairshare.fairshare.expenses.LedgerReconciler}; the
+ * mapping keeps the schema in one place.
+ */
+@Getter
+@Entity
+@Table(name = "reconciliation_runs")
+public class ReconciliationRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "started_at", nullable = false, updatable = false)
+    private Instant startedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    // every group with id <= lastGroupId has been checked
+    @Column(name = "last_group_id", nullable = false)
+    private long lastGroupId;
+
+    @Column(name = "groups_checked", nullable = false)
+    private long groupsChecked;
+
+    @Column(name = "groups_drifted", nullable = false)
+    private long groupsDrifted;
+
+    @Column(name = "claimed_by", length = 36)
+    private String claimedBy;
+
+    @Column(name = "claimed_until")
+    private Instant claimedUntil;
+
+    @SuppressWarnings("unused")
+    protected ReconciliationRun() {
+    }
+}
@@ -2,28 +2,47 @@ package com.fairshare.fairshare.expenses.service;
 
 import com.fairshare.fairshare.auth.ForbiddenException;
 import com.fairshare.fairshare.common.BadRequestException;
+import com.fairshare.fairshare.common.CursorSigner;
 import com.fairshare.fairshare.common.NotFoundException;
+import com.fairshare.fairshare.common.KeysetCursor;
 import com.fairshare.fairshare.common.SortUtils;
+import com.fairshare.fairshare.common.api.CursorPage;
 import com.fairshare.fairshare.common.api.PaginatedResponse;
+import com.fairshare.fairshare.expenses.GroupCounters;
+import com.fairshare.fairshare.expenses.GroupWriteLock;
+import com.fairshare.fairshare.expenses.SettlementPlanCache;
+import com.fairshare.fairshare.expenses.SettlementPlanner;
+import com.fairshare.fairshare.expenses.SettlementStrategy;
+import com.fairshare.fairshare.expenses.LedgerDeltaApplier;
+import com.fairshare.fairshare.expenses.LedgerDeltas;
+import com.fairshare.fairshare.expenses.LedgerSnapshots;
+import com.fairshare.fairshare.expenses.PairwiseAmount;
+import com.fairshare.fairshare.expenses.UserLedgerHistory;
 import com.fairshare.fairshare.expenses.model.Expense;
 import com.fairshare.fairshare.expenses.ExpenseRepository;
-import com.fairshare.fairshare.expenses.model.LedgerEntry;
 import com.fairshare.fairshare.expenses.LedgerEntryRepository;
 import com.fairshare.fairshare.expenses.ExpenseParticipantRepository;
 import com.fairshare.fairshare.expenses.ConfirmedTransferRepository;
 import com.fairshare.fairshare.expenses.ExpenseEventRepository;
+import com.fairshare.fairshare.expenses.ExpenseEventSearch;
 import com.fairshare.fairshare.expenses.api.*;
-import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.service.GroupMembershipCache;
 import com.fairshare.fairshare.expenses.model.ConfirmedTransfer;
 import com.fairshare.fairshare.expenses.model.ExpenseEvent;
+import com.fairshare.fairshare.expenses.model.ExpenseEventPayload;
 import com.fairshare.fairshare.expenses.model.ExpenseParticipant;
-import com.fairshare.fairshare.groups.model.GroupMember;
-import com.fairshare.fairshare.expenses.SettlementCalculator;
+import com.fairshare.fairshare.expenses.model.LedgerEntry;
+import com.fairshare.fairshare.expenses.SplitEngine;
 import jakarta.transaction.Transactional;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.LockModeType;
@@ -37,30 +56,65 @@ import java.util.stream.Collectors;
 @Service
 public class ExpenseService {
 
+    public static final int MAX_CURSOR_PAGE_SIZE = 200;
+
+    private static final Instant MIN_INSTANT = Instant.parse("0001-01-01T00:00:00Z");
+    private static final Instant MAX_INSTANT = Instant.parse("9999-12-31T23:59:59Z");
+
     private final ExpenseRepository expenseRepo;
     private final ExpenseParticipantRepository participantRepo;
     private final LedgerEntryRepository ledgerRepo;
-    private final GroupMemberRepository groupMemberRepo;
+    private final LedgerDeltaApplier ledgerDeltaApplier;
+    private final LedgerSnapshots ledgerSnapshots;
+    private final GroupWriteLock groupWriteLock;
+    private final GroupCounters groupCounters;
+    private final SettlementPlanCache settlementPlanCache;
+    private final SettlementPlanner settlementPlanner;
+    private final GroupMembershipCache membershipCache;
     private final ConfirmedTransferRepository confirmedTransferRepo;
     private final ExpenseEventRepository eventRepo;
+    private final ExpenseEventSearch eventSearch;
+    private final UserLedgerHistory userLedgerHistory;
     private final EntityManager em;
+    private final Validator validator;
+    private final CursorSigner cursorSigner;
 
     public ExpenseService(
             ExpenseRepository expenseRepo,
             ExpenseParticipantRepository participantRepo,
             LedgerEntryRepository ledgerRepo,
-            GroupMemberRepository groupMemberRepo,
+            LedgerDeltaApplier ledgerDeltaApplier,
+            LedgerSnapshots ledgerSnapshots,
+            GroupWriteLock groupWriteLock,
+            GroupCounters groupCounters,
+            SettlementPlanCache settlementPlanCache,
+            SettlementPlanner settlementPlanner,
+            GroupMembershipCache membershipCache,
             ConfirmedTransferRepository confirmedTransferRepo,
             ExpenseEventRepository eventRepo,
-            EntityManager em
+            ExpenseEventSearch eventSearch,
+            UserLedgerHistory userLedgerHistory,
+            EntityManager em,
+            Validator validator,
+            CursorSigner cursorSigner
     ) {
         this.expenseRepo = expenseRepo;
         this.participantRepo = participantRepo;
         this.ledgerRepo = ledgerRepo;
-        this.groupMemberRepo = groupMemberRepo;
+        this.ledgerDeltaApplier = ledgerDeltaApplier;
+        this.ledgerSnapshots = ledgerSnapshots;
+        this.groupWriteLock = groupWriteLock;
+        this.groupCounters = groupCounters;
+        this.settlementPlanCache = settlementPlanCache;
+        this.settlementPlanner = settlementPlanner;
+        this.membershipCache = membershipCache;
         this.confirmedTransferRepo = confirmedTransferRepo;
         this.eventRepo = eventRepo;
+        this.eventSearch = eventSearch;
+        this.userLedgerHistory = userLedgerHistory;
         this.em = em;
+        this.validator = validator;
+        this.cursorSigner = cursorSigner;
     }
 
     private static BigDecimal normalizeAmount(BigDecimal amount) {
@@ -72,7 +126,9 @@ public class ExpenseService {
 
     @Transactional
     public ExpenseResponse createExpense(Long groupId, Long actorUserId, CreateExpenseRequest req, String idempotencyKey) {
-        requireActorMember(groupId, actorUserId);
+        Set<Long> roster = loadRoster(groupId);
+        requireActorMember(roster, groupId, actorUserId);
+        groupWriteLock.lock(groupId);
         if (idempotencyKey != null && !idempotencyKey.isBlank()) {
             var existing = expenseRepo.findByGroupIdAndIdempotencyKey(groupId, idempotencyKey);
             if (existing.isPresent()) {
@@ -90,9 +146,7 @@ public class ExpenseService {
 
         List<Long> participantUserIds = req.participantUserIds();
         if (participantUserIds == null || participantUserIds.isEmpty()) {
-            participantUserIds = groupMemberRepo.findByGroupId(groupId).stream()
-                    .map(gm -> gm.getUser().getId())
-                    .toList();
+            participantUserIds = new ArrayList<>(roster);
         }
 
         LinkedHashSet<Long> uniqueParticipantIds = new LinkedHashSet<>(participantUserIds);
@@ -101,166 +155,196 @@ public class ExpenseService {
         }
 
         Long payer = req.payerUserId();
-        requireMember(groupId, payer);
-        for (Long uid : participantUserIds) requireMember(groupId, uid);
-
-        LinkedHashSet<Long> participants = new LinkedHashSet<>(participantUserIds);
-        participants.add(payer);
-
-        List<Long> splitUserIds = new ArrayList<>(participants);
+        requireMember(roster, groupId, payer);
+        for (Long uid : participantUserIds) requireMember(roster, groupId, uid);
 
-        Map<Long, BigDecimal> calculatedShares;
+        Map<Long, BigDecimal> calculatedShares = calculateShares(req, participantUserIds, payer, totalAmount);
 
-        int splitModeCount = 0;
-        List<String> providedModes = new ArrayList<>();
-        if (req.getExactAmounts() != null && !req.getExactAmounts().isEmpty()) {
-            splitModeCount++;
-            providedModes.add("exactAmounts");
-        }
-        if (req.getPercentages() != null && !req.getPercentages().isEmpty()) {
-            splitModeCount++;
-            providedModes.add("percentages");
-        }
-        if (req.getShares() != null && !req.getShares().isEmpty()) {
-            splitModeCount++;
-            providedModes.add("shares");
+        Expense expense;
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            expense = new Expense(groupId, payer, req.description().trim(), totalAmount, idempotencyKey);
+        } else {
+            expense = new Expense(groupId, payer, req.description().trim(), totalAmount);
         }
+        expense.setVoided(false);
+        expense = expenseRepo.save(expense);
 
-        if (splitModeCount > 1) {
-            throw new BadRequestException("Only one split mode can be provided. Found: " + String.join(", ", providedModes));
-        }
+        participantRepo.saveAll(participantRows(expense, calculatedShares));
 
-        if (req.getExactAmounts() != null && !req.getExactAmounts().isEmpty()) {
-            var exactAmounts = req.getExactAmounts();
-            if (exactAmounts.size() != participantUserIds.size()) {
-                throw new BadRequestException("exactAmounts length must match participantUserIds length");
-            }
-            Map<Long, BigDecimal> requestedShares = new LinkedHashMap<>();
-            for (int i = 0; i < participantUserIds.size(); i++) {
-                requestedShares.put(participantUserIds.get(i), normalizeAmount(exactAmounts.get(i)));
-            }
-            if (!requestedShares.containsKey(payer)) {
-                requestedShares.put(payer, BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
-            }
+        LedgerDeltas ledgerDeltas = new LedgerDeltas();
+        addCreatedExpenseDeltas(ledgerDeltas, payer, totalAmount, calculatedShares);
+        ledgerDeltaApplier.apply(groupId, ledgerDeltas);
 
-            BigDecimal requestedTotal = requestedShares.values().stream()
-                    .reduce(BigDecimal.ZERO, BigDecimal::add)
-                    .setScale(2, RoundingMode.HALF_UP);
-            BigDecimal tolerance = new BigDecimal("0.01");
-            if (requestedTotal.subtract(totalAmount).abs().compareTo(tolerance) > 0) {
-                throw new BadRequestException("Exact amounts must sum to total amount within $0.01 tolerance");
-            }
+        eventRepo.save(createdEvent(expense, calculatedShares));
+        groupCounters.add(groupId, 1, 1, 0);
 
-            calculatedShares = rebalanceRoundedShares(requestedShares, totalAmount);
+        return toExpenseResponse(expense, calculatedShares);
+    }
 
-        } else if (req.getPercentages() != null && !req.getPercentages().isEmpty()) {
-            var percentages = req.getPercentages();
-            if (percentages.size() != participantUserIds.size()) {
-                throw new BadRequestException("percentages length must match participantUserIds length");
-            }
-            BigDecimal percentageTotal = percentages.stream().reduce(BigDecimal.ZERO, BigDecimal::add).setScale(2, RoundingMode.HALF_UP);
-            BigDecimal tolerance = new BigDecimal("0.01");
-            if (percentageTotal.subtract(new BigDecimal("100")).abs().compareTo(tolerance) > 0) {
-                throw new BadRequestException("Percentages must sum to 100% within 0.01 tolerance");
+    @Transactional
+    public BatchCreateExpensesResponse createExpenses(Long groupId, Long actorUserId, BatchCreateExpensesRequest req) {
+        Set<Long> roster = loadRoster(groupId);
+        requireActorMember(roster, groupId, actorUserId);
+        groupWriteLock.lock(groupId);
+        List<BatchCreateExpensesRequest.Item> items = req.getItems();
+
+        Set<String> keys = new HashSet<>();
+        for (var item : items) {
+            if (item != null && item.getIdempotencyKey() != null && !item.getIdempotencyKey().isBlank()) {
+                keys.add(item.getIdempotencyKey());
             }
-
-            Map<Long, BigDecimal> requestedShares = new LinkedHashMap<>();
-            for (int i = 0; i < participantUserIds.size(); i++) {
-                BigDecimal share = totalAmount.multiply(percentages.get(i))
-                        .divide(new BigDecimal("100"), 10, RoundingMode.HALF_UP);
-                requestedShares.put(participantUserIds.get(i), share.setScale(2, RoundingMode.DOWN));
+        }
+        Map<String, Expense> existingByKey = new HashMap<>();
+        if (!keys.isEmpty()) {
+            for (Expense existing : expenseRepo.findByGroupIdAndIdempotencyKeyIn(groupId, keys)) {
+                existingByKey.putIfAbsent(existing.getIdempotencyKey(), existing);
             }
+        }
+        Map<Long, Map<Long, BigDecimal>> existingShares = loadSharesByExpenseId(
+                existingByKey.values().stream().map(Expense::getId).toList());
 
-            if (!requestedShares.containsKey(payer)) {
-                requestedShares.put(payer, BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
-            }
+        BatchCreateExpensesResponse.ItemResult[] results = new BatchCreateExpensesResponse.ItemResult[items.size()];
+        List<PendingExpense> pending = new ArrayList<>();
+        Map<String, PendingExpense> pendingByKey = new HashMap<>();
+        Map<Integer, PendingExpense> replaysOfPending = new LinkedHashMap<>();
+        LedgerDeltas ledgerDeltas = new LedgerDeltas();
 
-            calculatedShares = rebalanceRoundedShares(requestedShares, totalAmount);
+        for (int i = 0; i < items.size(); i++) {
+            var item = items.get(i);
+            String key = item == null || item.getIdempotencyKey() == null || item.getIdempotencyKey().isBlank() ? null : item.getIdempotencyKey();
 
-        } else if (req.getShares() != null && !req.getShares().isEmpty()) {
-            var shareWeights = req.getShares();
-            if (shareWeights.size() != participantUserIds.size()) {
-                throw new BadRequestException("shares length must match participantUserIds length");
-            }
-            int totalWeight = shareWeights.stream().mapToInt(Integer::intValue).sum();
-            if (totalWeight <= 0) throw new BadRequestException("Sum of shares must be positive");
-
-            Map<Long, BigDecimal> requestedShares = new LinkedHashMap<>();
-            for (int i = 0; i < participantUserIds.size(); i++) {
-                BigDecimal fraction = new BigDecimal(shareWeights.get(i)).divide(new BigDecimal(totalWeight), 10, RoundingMode.HALF_UP);
-                BigDecimal share = totalAmount.multiply(fraction).setScale(2, RoundingMode.DOWN);
-                requestedShares.put(participantUserIds.get(i), share);
+            if (key != null && existingByKey.containsKey(key)) {
+                Expense existing = existingByKey.get(key);
+                results[i] = new BatchCreateExpensesResponse.ItemResult(i, key, BatchCreateExpensesResponse.Status.REPLAYED,
+                        toExpenseResponse(existing, existingShares.getOrDefault(existing.getId(), Map.of())), null);
+                continue;
             }
-            if (!requestedShares.containsKey(payer)) {
-                requestedShares.put(payer, BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+            if (key != null && pendingByKey.containsKey(key)) {
+                replaysOfPending.put(i, pendingByKey.get(key));
+                continue;
             }
-            calculatedShares = rebalanceRoundedShares(requestedShares, totalAmount);
 
-        } else {
-            calculatedShares = splitEqually(totalAmount, splitUserIds);
+            try {
+                PendingExpense created = prepareBatchItem(groupId, roster, i, key, item);
+                addCreatedExpenseDeltas(ledgerDeltas, created.expense().getPayerUserId(), created.expense().getAmount(), created.shares());
+                pending.add(created);
+                if (key != null) pendingByKey.put(key, created);
+            } catch (BadRequestException | IllegalArgumentException e) {
+                results[i] = new BatchCreateExpensesResponse.ItemResult(i, key, BatchCreateExpensesResponse.Status.REJECTED, null, e.getMessage());
+            }
         }
 
-        Expense expense;
-        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
-            expense = new Expense(groupId, payer, req.description().trim(), totalAmount, idempotencyKey);
-        } else {
-            expense = new Expense(groupId, payer, req.description().trim(), totalAmount);
+        if (!pending.isEmpty()) {
+            List<Expense> expenses = expenseRepo.saveAll(pending.stream().map(PendingExpense::expense).toList());
+            List<ExpenseParticipant> participantRows = new ArrayList<>();
+            List<ExpenseEvent> events = new ArrayList<>(expenses.size());
+            for (PendingExpense p : pending) {
+                participantRows.addAll(participantRows(p.expense(), p.shares()));
+                events.add(createdEvent(p.expense(), p.shares()));
+            }
+            participantRepo.saveAll(participantRows);
+            ledgerDeltaApplier.apply(groupId, ledgerDeltas);
+            eventRepo.saveAll(events);
+            groupCounters.add(groupId, expenses.size(), events.size(), 0);
         }
-        expense.setVoided(false);
-        expense = expenseRepo.save(expense);
 
-        for (var shareEntry : calculatedShares.entrySet()) {
-            participantRepo.save(new ExpenseParticipant(expense, shareEntry.getKey(), normalizeAmount(shareEntry.getValue())));
+        for (PendingExpense p : pending) {
+            results[p.index()] = new BatchCreateExpensesResponse.ItemResult(p.index(), p.idempotencyKey(), BatchCreateExpensesResponse.Status.CREATED,
+                    toExpenseResponse(p.expense(), p.shares()), null);
         }
-
-        getOrCreateLedgerEntry(groupId, payer).add(totalAmount);
-        for (var shareEntry : calculatedShares.entrySet()) {
-            getOrCreateLedgerEntry(groupId, shareEntry.getKey()).add(shareEntry.getValue().negate());
+        for (var replay : replaysOfPending.entrySet()) {
+            PendingExpense p = replay.getValue();
+            results[replay.getKey()] = new BatchCreateExpensesResponse.ItemResult(replay.getKey(), p.idempotencyKey(), BatchCreateExpensesResponse.Status.REPLAYED,
+                    toExpenseResponse(p.expense(), p.shares()), null);
         }
 
-        String createdPayload = String.format("{\"expenseId\":%d,\"amount\":\"%s\"}", expense.getId(), expense.getAmount());
-        eventRepo.save(new ExpenseEvent(groupId, expense.getId(), "ExpenseCreated", createdPayload));
+        int created = 0, replayed = 0, rejected = 0;
+        for (var r : results) {
+            switch (r.status()) {
+                case CREATED -> created++;
+                case REPLAYED -> replayed++;
+                case REJECTED -> rejected++;
+            }
+        }
+        return new BatchCreateExpensesResponse(created, replayed, rejected, List.of(results));
+    }
 
-        return toExpenseResponse(expense, calculatedShares);
+    private record PendingExpense(int index, String idempotencyKey, Expense expense, Map<Long, BigDecimal> shares) {
     }
 
-    private Map<Long, BigDecimal> rebalanceRoundedShares(Map<Long, BigDecimal> roundedShares, BigDecimal totalAmount) {
-        List<Map.Entry<Long, BigDecimal>> entries = new ArrayList<>(roundedShares.entrySet());
-        entries.sort(Map.Entry.comparingByKey());
+    // Validates one batch item against the roster loaded for the whole batch; nothing is written here.
+    private PendingExpense prepareBatchItem(Long groupId, Set<Long> roster, int index, String idempotencyKey, BatchCreateExpensesRequest.Item item) {
+        if (item == null) throw new BadRequestException("Item must contain an expense");
+        validateItem(item);
+        CreateExpenseRequest req = item.getExpense();
+        BigDecimal totalAmount = normalizeAmount(req.amount());
 
-        Map<Long, BigDecimal> normalizedShares = new LinkedHashMap<>();
-        for (Map.Entry<Long, BigDecimal> entry : entries) {
-            normalizedShares.put(entry.getKey(), normalizeAmount(entry.getValue()));
+        List<Long> participantUserIds = req.participantUserIds();
+        if (participantUserIds == null || participantUserIds.isEmpty()) {
+            participantUserIds = new ArrayList<>(roster);
+        }
+        if (new HashSet<>(participantUserIds).size() != participantUserIds.size()) {
+            throw new BadRequestException("Participants must be unique");
         }
 
-        BigDecimal allocatedTotal = normalizedShares.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add).setScale(2, RoundingMode.HALF_UP);
-        BigDecimal remainder = totalAmount.setScale(2, RoundingMode.HALF_UP).subtract(allocatedTotal).setScale(2, RoundingMode.HALF_UP);
+        Long payer = req.payerUserId();
+        requireMember(roster, groupId, payer);
+        for (Long uid : participantUserIds) requireMember(roster, groupId, uid);
 
-        int remainingCents = remainder.movePointRight(2).intValueExact();
+        Map<Long, BigDecimal> shares = calculateShares(req, participantUserIds, payer, totalAmount);
+        Expense expense = idempotencyKey != null
+                ? new Expense(groupId, payer, req.description().trim(), totalAmount, idempotencyKey)
+                : new Expense(groupId, payer, req.description().trim(), totalAmount);
+        expense.setVoided(false);
+        return new PendingExpense(index, idempotencyKey, expense, shares);
+    }
 
-        Map<Long, BigDecimal> rebalancedShares = new LinkedHashMap<>();
-        for (Map.Entry<Long, BigDecimal> entry : entries) {
-            rebalancedShares.put(entry.getKey(), normalizedShares.get(entry.getKey()));
-        }
+    // the constraints @Valid applies to a single create, reported as one message for the item
+    private void validateItem(BatchCreateExpensesRequest.Item item) {
+        Set<ConstraintViolation<BatchCreateExpensesRequest.Item>> violations = validator.validate(item);
+        if (violations.isEmpty()) return;
+        String message = violations.stream()
+                .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+        throw new BadRequestException(message);
+    }
 
-        int i = 0;
-        int n = entries.size();
-        while (remainingCents > 0) {
-            Long id = entries.get(i % n).getKey();
-            rebalancedShares.put(id, rebalancedShares.get(id).add(new BigDecimal("0.01")));
-            i++;
-            remainingCents--;
+    private List<ExpenseParticipant> participantRows(Expense expense, Map<Long, BigDecimal> shares) {
+        List<ExpenseParticipant> rows = new ArrayList<>(shares.size());
+        for (var shareEntry : shares.entrySet()) {
+            rows.add(new ExpenseParticipant(expense, shareEntry.getKey(), normalizeAmount(shareEntry.getValue())));
         }
-        while (remainingCents < 0) {
-            Long id = entries.get(i % n).getKey();
-            rebalancedShares.put(id, rebalancedShares.get(id).subtract(new BigDecimal("0.01")));
-            i++;
-            remainingCents++;
+        return rows;
+    }
+
+    private static void addCreatedExpenseDeltas(LedgerDeltas deltas, Long payer, BigDecimal totalAmount, Map<Long, BigDecimal> shares) {
+        deltas.add(payer, totalAmount);
+        for (var shareEntry : shares.entrySet()) {
+            deltas.add(shareEntry.getKey(), shareEntry.getValue().negate());
         }
+    }
 
-        rebalancedShares.replaceAll((k, v) -> normalizeAmount(v));
+    private static ExpenseEvent createdEvent(Expense expense, Map<Long, BigDecimal> shares) {
+        LedgerDeltas deltas = new LedgerDeltas();
+        addCreatedExpenseDeltas(deltas, expense.getPayerUserId(), expense.getAmount(), shares);
+        ExpenseEventPayload payload = ExpenseEventPayload.created(expense, shares.keySet(), deltas.asMap());
+        return new ExpenseEvent(expense.getGroupId(), expense.getId(), "ExpenseCreated", payload);
+    }
+
+    private Map<Long, BigDecimal> calculateShares(CreateExpenseRequest req, List<Long> participantUserIds, Long payer, BigDecimal totalAmount) {
+        requireSingleSplitMode(req);
+        return SplitEngine.allocate(totalAmount, payer, participantUserIds, req.getExactAmounts(), req.getPercentages(), req.getShares());
+    }
 
-        return rebalancedShares;
+    private static void requireSingleSplitMode(CreateExpenseRequest req) {
+        List<String> providedModes = new ArrayList<>();
+        if (req.getExactAmounts() != null && !req.getExactAmounts().isEmpty()) providedModes.add("exactAmounts");
+        if (req.getPercentages() != null && !req.getPercentages().isEmpty()) providedModes.add("percentages");
+        if (req.getShares() != null && !req.getShares().isEmpty()) providedModes.add("shares");
+        if (providedModes.size() > 1) {
+            throw new BadRequestException("Only one split mode can be provided. Found: " + String.join(", ", providedModes));
+        }
     }
 
     @Transactional
@@ -272,6 +356,16 @@ public class ExpenseService {
         return new LedgerResponse(entries);
     }
 
+    @Transactional
+    public LedgerResponse getLedgerAsOf(Long groupId, Long actorUserId, Instant asOf) {
+        requireActorMember(groupId, actorUserId);
+        if (asOf.isAfter(Instant.now())) throw new BadRequestException("asOf must not be in the future");
+        var entries = ledgerSnapshots.balancesAsOf(groupId, asOf).entrySet().stream()
+                .map(e -> new LedgerResponse.Entry(e.getKey(), e.getValue()))
+                .toList();
+        return new LedgerResponse(entries);
+    }
+
     @Transactional
     public PaginatedResponse<ExpenseResponse> listExpenses(Long groupId, Long actorUserId, int page, int size, String sort, Instant fromDate, Instant toDate) {
         requireActorMember(groupId, actorUserId);
@@ -280,21 +374,14 @@ public class ExpenseService {
 
         Page<com.fairshare.fairshare.expenses.model.Expense> expensesPage;
         if (fromDate != null && toDate != null) {
-            expensesPage = expenseRepo.findByGroupIdAndVoidedFalseAndCreatedAtBetween(groupId, fromDate, toDate, pageRequest);
+            expensesPage = expenseRepo.findActiveByGroupIdAndCreatedAtBetween(groupId, fromDate, toDate, pageRequest);
         } else {
-            expensesPage = expenseRepo.findByGroupIdAndVoidedFalse(groupId, pageRequest);
+            expensesPage = PageableExecutionUtils.getPage(expenseRepo.findActiveByGroupId(groupId, pageRequest), pageRequest,
+                    () -> groupCounters.counts(groupId).expenses());
         }
 
         List<Expense> pageExpenses = expensesPage.getContent();
-        List<Long> expenseIds = pageExpenses.stream().map(Expense::getId).toList();
-        Map<Long, Map<Long, BigDecimal>> sharesByExpenseId = new LinkedHashMap<>();
-        if (!expenseIds.isEmpty()) {
-            for (ExpenseParticipant p : participantRepo.findByExpenseIdInOrderByExpenseIdAscUserIdAsc(expenseIds)) {
-                Long expenseId = p.getExpense().getId();
-                sharesByExpenseId.computeIfAbsent(expenseId, ignored -> new LinkedHashMap<>())
-                        .put(p.getUserId(), p.getShareAmount());
-            }
-        }
+        Map<Long, Map<Long, BigDecimal>> sharesByExpenseId = loadSharesByExpenseId(pageExpenses.stream().map(Expense::getId).toList());
 
         List<ExpenseResponse> expenseResponses = pageExpenses.stream()
                 .map(ex -> toExpenseResponse(ex, sharesByExpenseId.getOrDefault(ex.getId(), Map.of())))
@@ -309,6 +396,42 @@ public class ExpenseService {
         );
     }
 
+    /**
+     * Active expenses newest first, a keyset page at a time: the page after {@code cursor} by
+     * (createdAt, id), with no count query however deep the client scrolls.
+     */
+    @Transactional
+    public CursorPage<ExpenseResponse> listExpensesAfter(Long groupId, Long actorUserId, String cursor, int limit, Instant fromDate, Instant toDate) {
+        requireActorMember(groupId, actorUserId);
+        requireCursorPageSize(limit);
+        CreatedAtKey after = CreatedAtKey.decode(cursor);
+        boolean dated = fromDate != null && toDate != null;
+
+        List<Expense> expenses = expenseRepo.findActiveByGroupIdNewestFirstBefore(groupId,
+                dated ? fromDate : MIN_INSTANT, dated ? toDate : MAX_INSTANT, after.createdAt(), after.id(), Limit.of(limit + 1));
+        boolean more = expenses.size() > limit;
+        if (more) expenses = expenses.subList(0, limit);
+
+        Map<Long, Map<Long, BigDecimal>> sharesByExpenseId = loadSharesByExpenseId(expenses.stream().map(Expense::getId).toList());
+        List<ExpenseResponse> items = expenses.stream()
+                .map(ex -> toExpenseResponse(ex, sharesByExpenseId.getOrDefault(ex.getId(), Map.of())))
+                .toList();
+        Expense last = more ? expenses.get(expenses.size() - 1) : null;
+        return new CursorPage<>(items, last == null ? null : CreatedAtKey.encode(last.getCreatedAt(), last.getId()));
+    }
+
+    private Map<Long, Map<Long, BigDecimal>> loadSharesByExpenseId(List<Long> expenseIds) {
+        Map<Long, Map<Long, BigDecimal>> sharesByExpenseId = new LinkedHashMap<>();
+        if (!expenseIds.isEmpty()) {
+            for (ExpenseParticipant p : participantRepo.findByExpenseIdInOrderByExpenseIdAscUserIdAsc(expenseIds)) {
+                Long expenseId = p.getExpense().getId();
+                sharesByExpenseId.computeIfAbsent(expenseId, ignored -> new LinkedHashMap<>())
+                        .put(p.getUserId(), p.getShareAmount());
+            }
+        }
+        return sharesByExpenseId;
+    }
+
     private ExpenseResponse toExpenseResponse(Expense expense, Map<Long, BigDecimal> shares) {
         var splits = shares.entrySet().stream()
                 .map(x -> new ExpenseResponse.Split(x.getKey(), x.getValue()))
@@ -327,10 +450,12 @@ public class ExpenseService {
 
     @Transactional
     public ConfirmSettlementsResponse confirmSettlements(Long groupId, Long actorUserId, ConfirmSettlementsRequest req, String confirmationIdHeader) {
-        requireActorMember(groupId, actorUserId);
+        Set<Long> roster = loadRoster(groupId);
+        requireActorMember(roster, groupId, actorUserId);
         if (req == null || req.getTransfers() == null || req.getTransfers().isEmpty()) {
             return new ConfirmSettlementsResponse(null, 0);
         }
+        groupWriteLock.lock(groupId);
 
         String confirmationId;
         if (confirmationIdHeader != null && !confirmationIdHeader.isBlank()) {
@@ -348,6 +473,7 @@ public class ExpenseService {
         }
 
         int appliedCount = 0;
+        LedgerDeltas ledgerDeltas = new LedgerDeltas();
         for (var t : req.getTransfers()) {
             if (t.getAmount() == null || t.getAmount().signum() <= 0) {
                 throw new BadRequestException("Transfer amount must be positive");
@@ -357,30 +483,27 @@ public class ExpenseService {
 
             Long from = t.getFromUserId();
             Long to = t.getToUserId();
-            requireMember(groupId, from);
-            requireMember(groupId, to);
+            requireMember(roster, groupId, from);
+            requireMember(roster, groupId, to);
 
-            LedgerEntry fromEntry = getOrCreateLedgerEntry(groupId, from);
-            LedgerEntry toEntry = getOrCreateLedgerEntry(groupId, to);
-
-            fromEntry.add(amt);
-            toEntry.add(amt.negate());
-
-            ledgerRepo.save(fromEntry);
-            ledgerRepo.save(toEntry);
+            ledgerDeltas.add(from, amt);
+            ledgerDeltas.add(to, amt.negate());
 
             ConfirmedTransfer ct = new ConfirmedTransfer(groupId, from, to, amt, confirmationId);
             confirmedTransferRepo.save(ct);
             appliedCount++;
         }
+        ledgerDeltaApplier.apply(groupId, ledgerDeltas);
+        groupCounters.add(groupId, 0, 0, appliedCount);
         return new ConfirmSettlementsResponse(confirmationId, appliedCount);
     }
 
     @Transactional
     public BigDecimal amountOwedHistorical(Long groupId, Long actorUserId, Long fromUserId, Long toUserId) {
-        requireActorMember(groupId, actorUserId);
-        requireMember(groupId, fromUserId);
-        requireMember(groupId, toUserId);
+        Set<Long> roster = loadRoster(groupId);
+        requireActorMember(roster, groupId, actorUserId);
+        requireMember(roster, groupId, fromUserId);
+        requireMember(roster, groupId, toUserId);
 
         BigDecimal obligations = participantRepo.sumShareByGroupAndPayerAndUser(groupId, toUserId, fromUserId);
 
@@ -389,46 +512,59 @@ public class ExpenseService {
         return obligations.subtract(payments).setScale(2, RoundingMode.HALF_UP);
     }
 
-    private void requireMember(Long groupId, Long userId) {
-        if (!groupMemberRepo.existsByGroupIdAndUserId(groupId, userId)) {
-            throw new BadRequestException("User " + userId + " is not a member of group " + groupId);
+    @Transactional
+    public OwesMatrixResponse getOwesMatrix(Long groupId, Long actorUserId) {
+        requireActorMember(groupId, actorUserId);
+        Map<UserPair, BigDecimal> owed = new TreeMap<>(Comparator.comparing(UserPair::fromUserId).thenComparing(UserPair::toUserId));
+        for (PairwiseAmount share : participantRepo.sumSharesByParticipantAndPayer(groupId)) {
+            owed.merge(new UserPair(share.fromUserId(), share.toUserId()), share.amount(), BigDecimal::add);
         }
-    }
-
-    private void requireActorMember(Long groupId, Long actorUserId) {
-        if (actorUserId == null) return;
-        if (!groupMemberRepo.existsByGroupIdAndUserId(groupId, actorUserId)) {
-            throw new ForbiddenException("User " + actorUserId + " is not a member of group " + groupId);
+        for (PairwiseAmount paid : confirmedTransferRepo.sumConfirmedAmountsByPair(groupId)) {
+            owed.merge(new UserPair(paid.fromUserId(), paid.toUserId()), paid.amount().negate(), BigDecimal::add);
         }
+        var entries = owed.entrySet().stream()
+                .filter(e -> e.getValue().signum() != 0)
+                .map(e -> new OwesMatrixResponse.Entry(e.getKey().fromUserId(), e.getKey().toUserId(), e.getValue().setScale(2, RoundingMode.HALF_UP)))
+                .toList();
+        return new OwesMatrixResponse(entries);
     }
 
-    private LedgerEntry getOrCreateLedgerEntry(Long groupId, Long userId) {
-        return ledgerRepo.findByGroupIdAndUserId(groupId, userId)
-                .orElseGet(() -> ledgerRepo.save(new LedgerEntry(groupId, userId)));
+    private record UserPair(Long fromUserId, Long toUserId) {
     }
 
-    private Map<Long, BigDecimal> splitEqually(BigDecimal amount, List<Long> userIds) {
-        int participantCount = userIds.size();
+    // Member ids of the group in join order, fetched once per request for every membership check it makes.
+    private Set<Long> loadRoster(Long groupId) {
+        return membershipCache.roster(groupId).memberIds();
+    }
 
-        BigDecimal baseShare = amount.divide(BigDecimal.valueOf(participantCount), 2, RoundingMode.DOWN);
-        BigDecimal allocatedTotal = baseShare.multiply(BigDecimal.valueOf(participantCount));
-        BigDecimal remainder = amount.subtract(allocatedTotal);
+    private static void requireMember(Set<Long> roster, Long groupId, Long userId) {
+        if (!roster.contains(userId)) {
+            throw new BadRequestException("User " + userId + " is not a member of group " + groupId);
+        }
+    }
 
-        Map<Long, BigDecimal> equalShares = new LinkedHashMap<>();
-        for (Long id : userIds) equalShares.put(id, baseShare);
+    private static void requireActorMember(Set<Long> roster, Long groupId, Long actorUserId) {
+        if (actorUserId == null) return;
+        if (!roster.contains(actorUserId)) {
+            throw new ForbiddenException("User " + actorUserId + " is not a member of group " + groupId);
+        }
+    }
 
-        int cents = remainder.movePointRight(2).intValueExact();
-        for (int i = 0; i < cents; i++) {
-            Long id = userIds.get(i % participantCount);
-            equalShares.put(id, equalShares.get(id).add(new BigDecimal("0.01")));
+    private void requireActorMember(Long groupId, Long actorUserId) {
+        if (actorUserId == null) return;
+        if (!membershipCache.roster(groupId).isMember(actorUserId)) {
+            throw new ForbiddenException("User " + actorUserId + " is not a member of group " + groupId);
         }
-        equalShares.replaceAll((k, v) -> normalizeAmount(v));
-        return equalShares;
     }
 
     @Transactional
-    public SettlementResponse getSettlements(Long groupId, Long actorUserId) {
+    public SettlementResponse getSettlements(Long groupId, Long actorUserId, SettlementStrategy strategy) {
         requireActorMember(groupId, actorUserId);
+        long ledgerVersion = ledgerDeltaApplier.version(groupId);
+        return settlementPlanCache.get(groupId, ledgerVersion, strategy, () -> computeSettlements(groupId, strategy));
+    }
+
+    private SettlementResponse computeSettlements(Long groupId, SettlementStrategy strategy) {
         var entries = ledgerRepo.findByGroupIdOrderByUserIdAsc(groupId);
 
         Map<Long, java.math.BigDecimal> net = new java.util.LinkedHashMap<>();
@@ -436,155 +572,131 @@ public class ExpenseService {
             net.put(e.getUserId(), e.getNetBalance());
         }
 
-        var transfers = SettlementCalculator.compute(net).stream()
-                .map(t -> new SettlementResponse.Transfer(t.fromUserId(), t.toUserId(), t.amount()))
-                .toList();
+        return settlementPlanner.plan(net, strategy);
+    }
+
+    /**
+     * Consolidates the user's transfers from every group's greedy settlement plan into one transfer per
+     * counterparty. The group plans come from {@link SettlementPlanCache} under each group's current
+     * ledger version; only the groups that miss are loaded, all with one query. The per-group transfers
+     * are returned as allocations so each can be confirmed in its own group, and counterparties whose
+     * allocations cancel out are listed as offsets rather than as zero transfers.
+     */
+    @Transactional
+    public UserSettlementResponse getUserSettlements(Long userId, Long actorUserId) {
+        if (actorUserId != null && !actorUserId.equals(userId)) {
+            throw new ForbiddenException("User " + actorUserId + " cannot view settlements of user " + userId);
+        }
+        Map<Long, Long> versions = ledgerDeltaApplier.versionsWhereUserHasBalance(userId);
+        Map<Long, SettlementResponse> plans = settlementPlanCache.getAll(versions, SettlementStrategy.GREEDY, this::computeGreedySettlements);
+
+        // allocations per counterparty, and what the user owes them overall (negative when owed)
+        Map<Long, List<UserSettlementResponse.GroupAllocation>> allocations = new TreeMap<>();
+        Map<Long, BigDecimal> owed = new HashMap<>();
+        for (var plan : plans.entrySet()) {
+            for (SettlementResponse.Transfer t : plan.getValue().transfers()) {
+                boolean paying = t.fromUserId().equals(userId);
+                if (!paying && !t.toUserId().equals(userId)) continue;
+                Long counterparty = paying ? t.toUserId() : t.fromUserId();
+                allocations.computeIfAbsent(counterparty, c -> new ArrayList<>())
+                        .add(new UserSettlementResponse.GroupAllocation(plan.getKey(), t.fromUserId(), t.toUserId(), t.amount()));
+                owed.merge(counterparty, paying ? t.amount() : t.amount().negate(), BigDecimal::add);
+            }
+        }
 
-        return new SettlementResponse(transfers);
+        List<UserSettlementResponse.Transfer> transfers = new ArrayList<>(allocations.size());
+        List<UserSettlementResponse.Offset> offsets = new ArrayList<>();
+        for (var entry : allocations.entrySet()) {
+            Long counterparty = entry.getKey();
+            BigDecimal net = owed.get(counterparty);
+            if (net.signum() == 0) {
+                offsets.add(new UserSettlementResponse.Offset(counterparty, entry.getValue()));
+            } else if (net.signum() > 0) {
+                transfers.add(new UserSettlementResponse.Transfer(userId, counterparty, net, entry.getValue()));
+            } else {
+                transfers.add(new UserSettlementResponse.Transfer(counterparty, userId, net.negate(), entry.getValue()));
+            }
+        }
+        return new UserSettlementResponse(userId, transfers, offsets);
+    }
+
+    private Map<Long, SettlementResponse> computeGreedySettlements(Set<Long> groupIds) {
+        Map<Long, Map<Long, BigDecimal>> netByGroup = new HashMap<>();
+        for (LedgerEntry entry : ledgerRepo.findByGroupIdInOrderByGroupIdAscUserIdAsc(groupIds)) {
+            netByGroup.computeIfAbsent(entry.getGroupId(), g -> new LinkedHashMap<>()).put(entry.getUserId(), entry.getNetBalance());
+        }
+        Map<Long, SettlementResponse> plans = new HashMap<>();
+        for (Long groupId : groupIds) {
+            plans.put(groupId, settlementPlanner.plan(netByGroup.getOrDefault(groupId, Map.of()), SettlementStrategy.GREEDY));
+        }
+        return plans;
     }
 
     @Transactional
     public ExpenseResponse updateExpense(Long groupId, Long actorUserId, Long expenseId, CreateExpenseRequest req) {
-        requireActorMember(groupId, actorUserId);
+        Set<Long> roster = loadRoster(groupId);
+        requireActorMember(roster, groupId, actorUserId);
+        groupWriteLock.lock(groupId);
         Expense ex = expenseRepo.findById(expenseId).orElseThrow(() -> new NotFoundException("Expense not found"));
         em.lock(ex, LockModeType.PESSIMISTIC_WRITE);
         if (!ex.getGroupId().equals(groupId)) throw new BadRequestException("Expense does not belong to group");
         if (ex.isVoided()) throw new BadRequestException("Expense is voided");
 
-        Map<Long, BigDecimal> oldShares = new LinkedHashMap<>();
-        for (ExpenseParticipant p : participantRepo.findByExpense_Id(expenseId))
-            oldShares.put(p.getUserId(), p.getShareAmount());
+        Map<Long, ExpenseParticipant> existingByUser = new LinkedHashMap<>();
+        for (ExpenseParticipant p : participantRepo.findByExpense_Id(expenseId)) existingByUser.put(p.getUserId(), p);
         BigDecimal oldTotal = ex.getAmount();
+        Long oldPayer = ex.getPayerUserId();
 
         List<Long> participantUserIds = req.participantUserIds();
         if (participantUserIds == null || participantUserIds.isEmpty()) {
-            participantUserIds = new ArrayList<>(oldShares.keySet());
+            participantUserIds = new ArrayList<>(existingByUser.keySet());
         }
 
         LinkedHashSet<Long> uniqueParticipantIds = new LinkedHashSet<>(participantUserIds);
         if (uniqueParticipantIds.size() != participantUserIds.size()) throw new BadRequestException("Participants must be unique");
         Long payer = req.payerUserId();
-        requireMember(groupId, payer);
-        for (Long uid : participantUserIds) requireMember(groupId, uid);
-        LinkedHashSet<Long> participants = new LinkedHashSet<>(participantUserIds);
-        participants.add(payer);
-        List<Long> splitUserIds = new ArrayList<>(participants);
-
-        Map<Long, BigDecimal> newShares;
+        requireMember(roster, groupId, payer);
+        for (Long uid : participantUserIds) requireMember(roster, groupId, uid);
         BigDecimal totalAmount = normalizeAmount(req.amount());
+        Map<Long, BigDecimal> newShares = calculateShares(req, participantUserIds, payer, totalAmount);
 
-        int splitModeCount = 0;
-        List<String> providedModes = new ArrayList<>();
-        if (req.getExactAmounts() != null && !req.getExactAmounts().isEmpty()) {
-            splitModeCount++;
-            providedModes.add("exactAmounts");
-        }
-        if (req.getPercentages() != null && !req.getPercentages().isEmpty()) {
-            splitModeCount++;
-            providedModes.add("percentages");
-        }
-        if (req.getShares() != null && !req.getShares().isEmpty()) {
-            splitModeCount++;
-            providedModes.add("shares");
-        }
-
-        if (splitModeCount > 1) {
-            throw new BadRequestException("Only one split mode can be provided. Found: " + String.join(", ", providedModes));
-        }
-
-        if (req.getExactAmounts() != null && !req.getExactAmounts().isEmpty()) {
-            var exactAmounts = req.getExactAmounts();
-            if (exactAmounts.size() != participantUserIds.size())
-                throw new BadRequestException("exactAmounts length must match participantUserIds length");
-            Map<Long, BigDecimal> requestedShares = new LinkedHashMap<>();
-            for (int i = 0; i < participantUserIds.size(); i++)
-                requestedShares.put(participantUserIds.get(i), normalizeAmount(exactAmounts.get(i)));
-            if (!requestedShares.containsKey(payer)) requestedShares.put(payer, BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
-            newShares = rebalanceRoundedShares(requestedShares, totalAmount);
-        } else if (req.getPercentages() != null && !req.getPercentages().isEmpty()) {
-            var percentages = req.getPercentages();
-            if (percentages.size() != participantUserIds.size())
-                throw new BadRequestException("percentages length must match participantUserIds length");
-            BigDecimal percentageTotal = percentages.stream().reduce(BigDecimal.ZERO, BigDecimal::add).setScale(2, RoundingMode.HALF_UP);
-            if (percentageTotal.subtract(new BigDecimal("100")).abs().compareTo(new BigDecimal("0.01")) > 0)
-                throw new BadRequestException("Percentages must sum to 100% within 0.01 tolerance");
-            Map<Long, BigDecimal> requestedShares = new LinkedHashMap<>();
-            for (int i = 0; i < participantUserIds.size(); i++)
-                requestedShares.put(
-                        participantUserIds.get(i),
-                        totalAmount.multiply(percentages.get(i))
-                                .divide(new BigDecimal("100"), 10, RoundingMode.HALF_UP)
-                                .setScale(2, RoundingMode.DOWN)
-                );
-            if (!requestedShares.containsKey(payer)) requestedShares.put(payer, BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
-            newShares = rebalanceRoundedShares(requestedShares, totalAmount);
-        } else if (req.getShares() != null && !req.getShares().isEmpty()) {
-            var shareWeights = req.getShares();
-            if (shareWeights.size() != participantUserIds.size())
-                throw new BadRequestException("shares length must match participantUserIds length");
-            int totalWeight = shareWeights.stream().mapToInt(Integer::intValue).sum();
-            if (totalWeight <= 0) throw new BadRequestException("Sum of shares must be positive");
-            Map<Long, BigDecimal> requestedShares = new LinkedHashMap<>();
-            for (int i = 0; i < participantUserIds.size(); i++) {
-                BigDecimal fraction = new BigDecimal(shareWeights.get(i)).divide(new BigDecimal(totalWeight), 10, RoundingMode.HALF_UP);
-                requestedShares.put(participantUserIds.get(i), totalAmount.multiply(fraction).setScale(2, RoundingMode.DOWN));
-            }
-            if (!requestedShares.containsKey(payer)) requestedShares.put(payer, BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
-            newShares = rebalanceRoundedShares(requestedShares, totalAmount);
-        } else {
-            newShares = splitEqually(totalAmount, splitUserIds);
-        }
-
-        BigDecimal payerDelta = totalAmount.subtract(oldTotal).setScale(2, RoundingMode.HALF_UP);
-        LedgerEntry payerEntry = getOrCreateLedgerEntry(groupId, payer);
-        payerEntry.add(payerDelta);
-        ledgerRepo.save(payerEntry);
-
-        List<ExpenseParticipant> existingEntities = participantRepo.findByExpense_Id(expenseId);
-        Map<Long, ExpenseParticipant> existingByUser = existingEntities.stream()
-                .collect(Collectors.toMap(ExpenseParticipant::getUserId, ep -> ep, (a, b) -> a, LinkedHashMap::new));
+        // the old payer is credited back the old total and the new payer is credited the new one;
+        // when the payer is unchanged the two entries net to the difference
+        LedgerDeltas ledgerDeltas = new LedgerDeltas()
+                .add(oldPayer, oldTotal.negate())
+                .add(payer, totalAmount);
 
+        // diff the participant rows: changed shares are updated in place, new participants inserted and
+        // dropped ones deleted, all written together when the transaction flushes
+        List<ExpenseParticipant> added = new ArrayList<>();
         for (Map.Entry<Long, BigDecimal> shareEntry : newShares.entrySet()) {
             Long uid = shareEntry.getKey();
             BigDecimal newShare = normalizeAmount(shareEntry.getValue());
-
-            BigDecimal oldShare = existingByUser.containsKey(uid) ? existingByUser.get(uid).getShareAmount() : BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
-
-            BigDecimal participantDelta = oldShare.subtract(newShare).setScale(2, RoundingMode.HALF_UP);
-            LedgerEntry ledgerEntry = getOrCreateLedgerEntry(groupId, uid);
-            ledgerEntry.add(participantDelta);
-            ledgerRepo.save(ledgerEntry);
-
-            if (existingByUser.containsKey(uid)) {
-                ExpenseParticipant existingParticipant = existingByUser.get(uid);
-                if (existingParticipant.getShareAmount().compareTo(newShare) != 0) {
-                    participantRepo.deleteByExpense_IdAndUserId(expenseId, uid);
-                    participantRepo.flush();
-                    participantRepo.save(new ExpenseParticipant(ex, uid, newShare));
-                }
-                existingByUser.remove(uid);
+            ExpenseParticipant existing = existingByUser.remove(uid);
+            if (existing == null) {
+                ledgerDeltas.add(uid, newShare.negate());
+                added.add(new ExpenseParticipant(ex, uid, newShare));
             } else {
-                participantRepo.deleteByExpense_IdAndUserId(expenseId, uid);
-                participantRepo.flush();
-                participantRepo.save(new ExpenseParticipant(ex, uid, newShare));
+                ledgerDeltas.add(uid, existing.getShareAmount().subtract(newShare));
+                if (existing.getShareAmount().compareTo(newShare) != 0) existing.setShareAmount(newShare);
             }
         }
-
         for (ExpenseParticipant removed : existingByUser.values()) {
-            Long uid = removed.getUserId();
-            BigDecimal oldShare = removed.getShareAmount();
-            LedgerEntry ledgerEntry = getOrCreateLedgerEntry(groupId, uid);
-            ledgerEntry.add(oldShare);
-            ledgerRepo.save(ledgerEntry);
-            participantRepo.delete(removed);
+            ledgerDeltas.add(removed.getUserId(), removed.getShareAmount());
         }
+        participantRepo.saveAll(added);
+        participantRepo.deleteAll(existingByUser.values());
+        ledgerDeltaApplier.apply(groupId, ledgerDeltas.withoutZeroes());
 
+        ex.setPayerUserId(payer);
         ex.setAmount(totalAmount);
         ex.setDescription(req.description().trim());
         expenseRepo.save(ex);
 
-        String payload = String.format("{\"before\":{\"amount\":\"%s\"},\"after\":{\"amount\":\"%s\"}}", oldTotal, totalAmount);
+        ExpenseEventPayload payload = ExpenseEventPayload.updated(ex, new ExpenseEventPayload.Snapshot(oldTotal, oldPayer),
+                newShares.keySet(), ledgerDeltas.asMap());
         eventRepo.save(new ExpenseEvent(groupId, expenseId, "ExpenseUpdated", payload));
+        groupCounters.add(groupId, 0, 1, 0);
 
         return toExpenseResponse(ex, newShares);
     }
@@ -592,6 +704,7 @@ public class ExpenseService {
     @Transactional
     public void voidExpense(Long groupId, Long actorUserId, Long expenseId) {
         requireActorMember(groupId, actorUserId);
+        groupWriteLock.lock(groupId);
         Expense ex = expenseRepo.findById(expenseId).orElseThrow(() -> new NotFoundException("Expense not found"));
         if (!ex.getGroupId().equals(groupId)) throw new BadRequestException("Expense does not belong to group");
         if (ex.isVoided()) return;
@@ -601,38 +714,36 @@ public class ExpenseService {
             shares.put(p.getUserId(), p.getShareAmount());
 
         BigDecimal total = ex.getAmount();
-        LedgerEntry payerEntry = getOrCreateLedgerEntry(groupId, ex.getPayerUserId());
-        payerEntry.add(total.negate());
-        ledgerRepo.save(payerEntry);
-
+        LedgerDeltas ledgerDeltas = new LedgerDeltas().add(ex.getPayerUserId(), total.negate());
         for (var shareEntry : shares.entrySet()) {
-            LedgerEntry ledgerEntry = getOrCreateLedgerEntry(groupId, shareEntry.getKey());
-            ledgerEntry.add(shareEntry.getValue());
-            ledgerRepo.save(ledgerEntry);
+            ledgerDeltas.add(shareEntry.getKey(), shareEntry.getValue());
         }
+        ledgerDeltaApplier.apply(groupId, ledgerDeltas);
 
         ex.setVoided(true);
         expenseRepo.save(ex);
 
-        String payload = String.format("{\"expenseId\":%d,\"amount\":\"%s\"}", expenseId, total);
+        ExpenseEventPayload payload = ExpenseEventPayload.voided(ex, shares.keySet(), ledgerDeltas.asMap());
         eventRepo.save(new ExpenseEvent(groupId, expenseId, "ExpenseVoided", payload));
+        groupCounters.add(groupId, -1, 1, 0);
     }
 
     @Transactional
-    public PaginatedResponse<EventResponse> listEvents(Long groupId, Long actorUserId, int page, int size, String sort, Instant fromDate, Instant toDate) {
+    public PaginatedResponse<EventResponse> listEvents(Long groupId, Long actorUserId, Long expenseId, Long userId, int page, int size, String sort, Instant fromDate, Instant toDate) {
         requireActorMember(groupId, actorUserId);
         Sort sortBy = SortUtils.parseSort(sort, "createdAt,desc");
         PageRequest pageRequest = PageRequest.of(page, size, sortBy);
 
         Page<ExpenseEvent> eventPage;
-        if (fromDate != null && toDate != null) {
-            eventPage = eventRepo.findByGroupIdAndCreatedAtBetween(groupId, fromDate, toDate, pageRequest);
+        if (expenseId == null && userId == null && (fromDate == null || toDate == null)) {
+            eventPage = PageableExecutionUtils.getPage(eventRepo.findAllByGroupId(groupId, pageRequest), pageRequest,
+                    () -> groupCounters.counts(groupId).events());
         } else {
-            eventPage = eventRepo.findByGroupId(groupId, pageRequest);
+            eventPage = eventSearch.find(groupId, expenseId, userId, fromDate, toDate, pageRequest);
         }
 
         List<EventResponse> eventResponses = eventPage.getContent().stream()
-                .map(e -> new EventResponse(e.getId(), e.getGroupId(), e.getExpenseId(), e.getEventType(), e.getPayload(), e.getCreatedAt()))
+                .map(ExpenseService::toEventResponse)
                 .toList();
 
         return new PaginatedResponse<>(
@@ -644,6 +755,28 @@ public class ExpenseService {
         );
     }
 
+    /** Keyset variant of {@link #listEvents}: newest first by (createdAt, id), without a count query. */
+    @Transactional
+    public CursorPage<EventResponse> listEventsAfter(Long groupId, Long actorUserId, Long expenseId, Long userId, String cursor, int limit, Instant fromDate, Instant toDate) {
+        requireActorMember(groupId, actorUserId);
+        requireCursorPageSize(limit);
+        CreatedAtKey after = CreatedAtKey.decode(cursor);
+
+        List<ExpenseEvent> events = eventSearch.findBefore(groupId, expenseId, userId, fromDate, toDate, after.createdAt(), after.id(), limit + 1);
+        boolean more = events.size() > limit;
+        if (more) events = events.subList(0, limit);
+
+        ExpenseEvent last = more ? events.get(events.size() - 1) : null;
+        return new CursorPage<>(events.stream().map(ExpenseService::toEventResponse).toList(),
+                last == null ? null : CreatedAtKey.encode(last.getCreatedAt(), last.getId()));
+    }
+
+    private static EventResponse toEventResponse(ExpenseEvent e) {
+        ExpenseEventPayload payload = e.getPayload();
+        return new EventResponse(e.getId(), e.getGroupId(), e.getExpenseId(), e.getEventType(),
+                payload == null ? null : payload.toJson(), payload, e.getCreatedAt());
+    }
+
     @Transactional
     public PaginatedResponse<ConfirmedTransferResponse> listConfirmedTransfers(Long groupId, Long actorUserId, String confirmationId, int page, int size, String sort, Instant fromDate, Instant toDate) {
         requireActorMember(groupId, actorUserId);
@@ -656,11 +789,12 @@ public class ExpenseService {
         } else if (fromDate != null && toDate != null) {
             transferPage = confirmedTransferRepo.findByGroupIdAndCreatedAtBetween(groupId, fromDate, toDate, pageRequest);
         } else {
-            transferPage = confirmedTransferRepo.findByGroupId(groupId, pageRequest);
+            transferPage = PageableExecutionUtils.getPage(confirmedTransferRepo.findAllByGroupId(groupId, pageRequest), pageRequest,
+                    () -> groupCounters.counts(groupId).confirmedTransfers());
         }
 
         List<ConfirmedTransferResponse> transferResponses = transferPage.getContent().stream()
-                .map(ct -> new ConfirmedTransferResponse(ct.getId(), ct.getGroupId(), ct.getFromUserId(), ct.getToUserId(), ct.getAmount(), ct.getConfirmationId(), ct.getCreatedAt()))
+                .map(ExpenseService::toConfirmedTransferResponse)
                 .toList();
 
         return new PaginatedResponse<>(
@@ -672,78 +806,203 @@ public class ExpenseService {
         );
     }
 
+    /** Keyset variant of {@link #listConfirmedTransfers}: newest first by (createdAt, id), without a count query. */
     @Transactional
-    public LedgerExplanationResponse getLedgerExplanation(Long groupId, Long actorUserId) {
+    public CursorPage<ConfirmedTransferResponse> listConfirmedTransfersAfter(Long groupId, Long actorUserId, String confirmationId, String cursor, int limit, Instant fromDate, Instant toDate) {
         requireActorMember(groupId, actorUserId);
-        List<GroupMember> members = groupMemberRepo.findByGroupId(groupId);
-        List<LedgerExplanationResponse.UserLedgerExplanation> explanations = new ArrayList<>();
-
-        for (GroupMember member : members) {
-            Long userId = member.getUser().getId();
-            List<LedgerExplanationResponse.Contribution> contributions = new ArrayList<>();
-            BigDecimal netBalance = BigDecimal.ZERO;
-
-            // Expenses paid by the user
-            List<Expense> paidExpenses = expenseRepo.findByGroupIdAndPayerUserId(groupId, userId);
-            for (Expense expense : paidExpenses) {
-                contributions.add(new LedgerExplanationResponse.Contribution(
-                        "EXPENSE_PAID",
-                        expense.getAmount(),
-                        expense.getDescription(),
-                        expense.getCreatedAt(),
-                        expense.getId()
-                ));
-                netBalance = netBalance.add(expense.getAmount());
-            }
+        requireCursorPageSize(limit);
+        CreatedAtKey after = CreatedAtKey.decode(cursor);
+        boolean dated = fromDate != null && toDate != null;
 
-            // User's share in all expenses
-            List<ExpenseParticipant> participations = participantRepo.findByUserIdAndGroupId(userId, groupId);
-            for (ExpenseParticipant participation : participations) {
-                contributions.add(new LedgerExplanationResponse.Contribution(
-                        "EXPENSE_SHARE",
-                        participation.getShareAmount().negate(),
-                        participation.getExpense().getDescription(),
-                        participation.getExpense().getCreatedAt(),
-                        participation.getExpense().getId()
-                ));
-                netBalance = netBalance.subtract(participation.getShareAmount());
-            }
+        List<ConfirmedTransfer> transfers;
+        if (confirmationId != null && !confirmationId.isBlank()) {
+            transfers = confirmedTransferRepo.findByGroupIdAndConfirmationIdNewestFirstBefore(groupId, confirmationId,
+                    after.createdAt(), after.id(), Limit.of(limit + 1));
+        } else {
+            transfers = confirmedTransferRepo.findByGroupIdNewestFirstBefore(groupId,
+                    dated ? fromDate : MIN_INSTANT, dated ? toDate : MAX_INSTANT, after.createdAt(), after.id(), Limit.of(limit + 1));
+        }
+        boolean more = transfers.size() > limit;
+        if (more) transfers = transfers.subList(0, limit);
 
-            // Transfers sent by the user
-            List<ConfirmedTransfer> sentTransfers = confirmedTransferRepo.findByGroupIdAndFromUserId(groupId, userId);
-            for (ConfirmedTransfer transfer : sentTransfers) {
-                contributions.add(new LedgerExplanationResponse.Contribution(
-                        "TRANSFER_SENT",
-                        transfer.getAmount(),
-                        "Transfer to user " + transfer.getToUserId(),
-                        transfer.getCreatedAt(),
-                        transfer.getId()
-                ));
-                netBalance = netBalance.add(transfer.getAmount());
+        ConfirmedTransfer last = more ? transfers.get(transfers.size() - 1) : null;
+        return new CursorPage<>(transfers.stream().map(ExpenseService::toConfirmedTransferResponse).toList(),
+                last == null ? null : CreatedAtKey.encode(last.getCreatedAt(), last.getId()));
+    }
+
+    private static ConfirmedTransferResponse toConfirmedTransferResponse(ConfirmedTransfer ct) {
+        return new ConfirmedTransferResponse(ct.getId(), ct.getGroupId(), ct.getFromUserId(), ct.getToUserId(), ct.getAmount(), ct.getConfirmationId(), ct.getCreatedAt());
+    }
+
+    /**
+     * Explains every member's balance, or only {@code userId}'s when it is set, with a fixed number of
+     * queries: active expenses, their shares with the expense fetched, and transfers, each already
+     * newest first. Rows are bucketed per user in that order and the four buckets merged by timestamp.
+     */
+    @Transactional
+    public LedgerExplanationResponse getLedgerExplanation(Long groupId, Long actorUserId, Long userId) {
+        Set<Long> roster = loadRoster(groupId);
+        requireActorMember(roster, groupId, actorUserId);
+        if (userId != null) requireMember(roster, groupId, userId);
+
+        List<Expense> expenses;
+        List<ExpenseParticipant> shares;
+        List<ConfirmedTransfer> transfers;
+        if (userId == null) {
+            expenses = expenseRepo.findActiveByGroupIdNewestFirst(groupId);
+            shares = participantRepo.findActiveByGroupIdNewestFirst(groupId);
+            transfers = confirmedTransferRepo.findByGroupIdNewestFirst(groupId);
+        } else {
+            expenses = expenseRepo.findActiveByGroupIdAndPayerNewestFirst(groupId, userId);
+            shares = participantRepo.findActiveByGroupIdAndUserIdNewestFirst(groupId, userId);
+            transfers = confirmedTransferRepo.findByGroupIdInvolvingUserNewestFirst(groupId, userId);
+        }
+
+        Collection<Long> userIds = userId == null ? roster : List.of(userId);
+        Map<Long, UserContributions> byUser = new LinkedHashMap<>();
+        for (Long id : userIds) byUser.put(id, new UserContributions());
+
+        for (Expense expense : expenses) {
+            UserContributions c = byUser.get(expense.getPayerUserId());
+            if (c == null) continue;
+            c.paid.add(new LedgerExplanationResponse.Contribution(
+                    "EXPENSE_PAID", expense.getAmount(), expense.getDescription(), expense.getCreatedAt(), expense.getId()));
+            c.netBalance = c.netBalance.add(expense.getAmount());
+        }
+        for (ExpenseParticipant share : shares) {
+            UserContributions c = byUser.get(share.getUserId());
+            if (c == null) continue;
+            Expense expense = share.getExpense();
+            c.shares.add(new LedgerExplanationResponse.Contribution(
+                    "EXPENSE_SHARE", share.getShareAmount().negate(), expense.getDescription(), expense.getCreatedAt(), expense.getId()));
+            c.netBalance = c.netBalance.subtract(share.getShareAmount());
+        }
+        for (ConfirmedTransfer transfer : transfers) {
+            UserContributions sender = byUser.get(transfer.getFromUserId());
+            if (sender != null) {
+                sender.sent.add(new LedgerExplanationResponse.Contribution(
+                        "TRANSFER_SENT", transfer.getAmount(), "Transfer to user " + transfer.getToUserId(), transfer.getCreatedAt(), transfer.getId()));
+                sender.netBalance = sender.netBalance.add(transfer.getAmount());
+            }
+            UserContributions recipient = byUser.get(transfer.getToUserId());
+            if (recipient != null) {
+                recipient.received.add(new LedgerExplanationResponse.Contribution(
+                        "TRANSFER_RECEIVED", transfer.getAmount().negate(), "Transfer from user " + transfer.getFromUserId(), transfer.getCreatedAt(), transfer.getId()));
+                recipient.netBalance = recipient.netBalance.subtract(transfer.getAmount());
             }
+        }
 
-            // Transfers received by the user
-            List<ConfirmedTransfer> receivedTransfers = confirmedTransferRepo.findByGroupIdAndToUserId(groupId, userId);
-            for (ConfirmedTransfer transfer : receivedTransfers) {
-                contributions.add(new LedgerExplanationResponse.Contribution(
-                        "TRANSFER_RECEIVED",
-                        transfer.getAmount().negate(),
-                        "Transfer from user " + transfer.getFromUserId(),
-                        transfer.getCreatedAt(),
-                        transfer.getId()
-                ));
-                netBalance = netBalance.subtract(transfer.getAmount());
+        List<LedgerExplanationResponse.UserLedgerExplanation> explanations = new ArrayList<>(byUser.size());
+        for (Map.Entry<Long, UserContributions> entry : byUser.entrySet()) {
+            UserContributions c = entry.getValue();
+            explanations.add(new LedgerExplanationResponse.UserLedgerExplanation(
+                    entry.getKey(), c.netBalance, mergeNewestFirst(List.of(c.paid, c.shares, c.sent, c.received))));
+        }
+        return new LedgerExplanationResponse(explanations);
+    }
+
+    /**
+     * One member's contributions newest first, a keyset page at a time, each with the member's balance
+     * right after it. The first page starts from the current ledger balance; the cursor carries the
+     * balance before the last contribution returned, so later pages need no aggregate over history.
+     * The cursor is signed, so that balance is the one this method computed. The ledger row and the
+     * contributions are read in one repeatable-read snapshot, so a write committed between the two
+     * reads cannot make the first page's balances disagree with its rows.
+     */
+    // Spring's annotation, because jakarta.transaction.Transactional cannot set an isolation level
+    @org.springframework.transaction.annotation.Transactional(isolation = Isolation.REPEATABLE_READ, readOnly = true)
+    public CursorPage<LedgerContributionResponse> getUserLedgerExplanation(Long groupId, Long actorUserId, Long userId, String cursor, int limit) {
+        Set<Long> roster = loadRoster(groupId);
+        requireActorMember(roster, groupId, actorUserId);
+        requireMember(roster, groupId, userId);
+        requireCursorPageSize(limit);
+
+        UserLedgerHistory.Key after = null;
+        BigDecimal balance;
+        if (cursor == null || cursor.isBlank()) {
+            balance = ledgerRepo.findByGroupIdAndUserId(groupId, userId).map(LedgerEntry::getNetBalance).orElse(BigDecimal.ZERO);
+        } else {
+            String[] parts = cursorSigner.decode(cursor, 5);
+            try {
+                after = new UserLedgerHistory.Key(Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])),
+                        UserLedgerHistory.Type.valueOf(parts[2]), Long.parseLong(parts[3]));
+                balance = new BigDecimal(parts[4]);
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Invalid cursor");
             }
+        }
 
-            contributions.sort(Comparator.comparing(LedgerExplanationResponse.Contribution::timestamp).reversed());
+        List<UserLedgerHistory.Row> rows = userLedgerHistory.page(groupId, userId, after, limit + 1);
+        boolean more = rows.size() > limit;
+        if (more) rows = rows.subList(0, limit);
 
-            explanations.add(new LedgerExplanationResponse.UserLedgerExplanation(
-                    userId,
-                    netBalance,
-                    contributions
-            ));
+        List<LedgerContributionResponse> items = new ArrayList<>(rows.size());
+        for (UserLedgerHistory.Row row : rows) {
+            UserLedgerHistory.Key key = row.key();
+            String description = switch (key.type()) {
+                case TRANSFER_SENT -> "Transfer to user " + row.counterpartyUserId();
+                case TRANSFER_RECEIVED -> "Transfer from user " + row.counterpartyUserId();
+                default -> row.description();
+            };
+            items.add(new LedgerContributionResponse(key.type().name(), row.amount(), description, key.timestamp(), key.referenceId(), balance));
+            balance = balance.subtract(row.amount());
         }
 
-        return new LedgerExplanationResponse(explanations);
+        String nextCursor = null;
+        if (more) {
+            UserLedgerHistory.Key last = rows.get(rows.size() - 1).key();
+            nextCursor = cursorSigner.encode(last.timestamp().getEpochSecond(), last.timestamp().getNano(), last.type().name(), last.referenceId(), balance.toPlainString());
+        }
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    private static void requireCursorPageSize(int limit) {
+        if (limit < 1 || limit > MAX_CURSOR_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+    }
+
+    /** Position of the last row on a page sorted by (createdAt desc, id desc); the first page starts above every row. */
+    private record CreatedAtKey(Instant createdAt, long id) {
+        private static final CreatedAtKey FIRST = new CreatedAtKey(MAX_INSTANT, Long.MAX_VALUE);
+
+        static CreatedAtKey decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return FIRST;
+            String[] parts = KeysetCursor.decode(cursor, 3);
+            try {
+                return new CreatedAtKey(Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])), Long.parseLong(parts[2]));
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+        }
+
+        static String encode(Instant createdAt, long id) {
+            return KeysetCursor.encode(createdAt.getEpochSecond(), createdAt.getNano(), id);
+        }
+    }
+
+    private static final class UserContributions {
+        private final List<LedgerExplanationResponse.Contribution> paid = new ArrayList<>();
+        private final List<LedgerExplanationResponse.Contribution> shares = new ArrayList<>();
+        private final List<LedgerExplanationResponse.Contribution> sent = new ArrayList<>();
+        private final List<LedgerExplanationResponse.Contribution> received = new ArrayList<>();
+        private BigDecimal netBalance = BigDecimal.ZERO;
+    }
+
+    // k-way merge of lists that are each newest first; on equal timestamps the earlier list wins
+    private static List<LedgerExplanationResponse.Contribution> mergeNewestFirst(List<List<LedgerExplanationResponse.Contribution>> lists) {
+        int total = 0;
+        for (var list : lists) total += list.size();
+        List<LedgerExplanationResponse.Contribution> merged = new ArrayList<>(total);
+        int[] next = new int[lists.size()];
+        while (merged.size() < total) {
+            int pick = -1;
+            for (int k = 0; k < lists.size(); k++) {
+                if (next[k] == lists.get(k).size()) continue;
+                if (pick < 0 || lists.get(k).get(next[k]).timestamp().isAfter(lists.get(pick).get(next[pick]).timestamp())) pick = k;
+            }
+            merged.add(lists.get(pick).get(next[pick]++));
+        }
+        return merged;
     }
 }
@@ -1,6 +1,7 @@
 package com.fairshare.fairshare.groups.api;
 
 import com.fairshare.fairshare.auth.AuthContext;
+import com.fairshare.fairshare.common.api.CursorPage;
 import com.fairshare.fairshare.common.api.PaginatedResponse;
 import com.fairshare.fairshare.groups.service.GroupService;
 import com.fairshare.fairshare.groups.model.Group;
@@ -9,6 +10,8 @@ import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import com.fairshare.fairshare.groups.api.dto.GroupResponse;
+import com.fairshare.fairshare.groups.api.dto.GroupSummaryResponse;
+import com.fairshare.fairshare.groups.api.dto.MemberResponse;
 import com.fairshare.fairshare.groups.api.dto.GroupUpdateRequest;
 import com.fairshare.fairshare.groups.api.dto.CreateGroupRequest;
 import com.fairshare.fairshare.groups.api.dto.AddMemberRequest;
@@ -44,16 +47,35 @@ public class GroupController {
         return service.addMember(groupId, actorUserId, req.name(), req.email(), req.userId());
     }
 
+    @GetMapping("/{groupId}/members")
+    @io.swagger.v3.oas.annotations.Operation(summary = "Page through a group's members with a cursor", description = "Returns members in user id order without a total count; pass `nextCursor` back as `cursor` for the next page.")
+    @io.swagger.v3.oas.annotations.Parameter(name = "cursor", description = "Opaque cursor from the previous page; omit for the first page")
+    @io.swagger.v3.oas.annotations.Parameter(name = "limit", description = "Members per page, 1 to 200")
+    public CursorPage<MemberResponse> members(
+            @PathVariable Long groupId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            HttpServletRequest request
+    ) {
+        return service.listMembersAfter(groupId, authContext.getActorUserId(request), cursor, limit);
+    }
+
     @GetMapping("/{groupId}")
     public GroupResponse get(@PathVariable Long groupId, HttpServletRequest request) {
         return service.getGroup(groupId, authContext.getActorUserId(request));
     }
 
+    @GetMapping(value = "/{groupId}", params = "view=summary")
+    @io.swagger.v3.oas.annotations.Operation(summary = "Get a group without its member list", description = "Chosen when `view=summary` is sent. Returns id, name and memberCount; page members through GET /groups/{groupId}/members.")
+    public GroupSummaryResponse getSummary(@PathVariable Long groupId, HttpServletRequest request) {
+        return service.getGroupSummary(groupId, authContext.getActorUserId(request));
+    }
+
     @GetMapping
     public PaginatedResponse<GroupResponse> list(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "id,desc") String sort,
+            @RequestParam(defaultValue = "id,desc") @io.swagger.v3.oas.annotations.Parameter(description = "property,direction; `relevance` ranks groups by how closely their name matches `name`") String sort,
             @RequestParam(name = "pageSize", required = false) Integer pageSize,
             @RequestParam(name = "name", required = false) String name,
             HttpServletRequest request
@@ -62,6 +84,47 @@ public class GroupController {
         return service.listGroups(authContext.getActorUserId(request), page, effectiveSize, sort, name);
     }
 
+    @GetMapping(params = {"view=summary", "!limit"})
+    @io.swagger.v3.oas.annotations.Operation(summary = "List groups without their member lists", description = "Chosen when `view=summary` is sent. Same paging, sorting and filters as the full listing, but each group carries only id, name and memberCount.")
+    public PaginatedResponse<GroupSummaryResponse> listSummaries(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id,desc") String sort,
+            @RequestParam(name = "pageSize", required = false) Integer pageSize,
+            @RequestParam(name = "name", required = false) String name,
+            HttpServletRequest request
+    ) {
+        int effectiveSize = pageSize != null ? pageSize : size;
+        return service.listGroupSummaries(authContext.getActorUserId(request), page, effectiveSize, sort, name);
+    }
+
+    @GetMapping(params = "limit")
+    @io.swagger.v3.oas.annotations.Operation(summary = "Page through groups by member count with a cursor", description = "Chosen when `limit` is sent. Returns groups ordered by (memberCount, id) without a total count; pass `nextCursor` back as `cursor` for the next page.")
+    @io.swagger.v3.oas.annotations.Parameter(name = "cursor", description = "Opaque cursor from the previous page; omit for the first page")
+    @io.swagger.v3.oas.annotations.Parameter(name = "limit", description = "Groups per page, 1 to 200")
+    @io.swagger.v3.oas.annotations.Parameter(name = "sort", description = "memberCount,desc (default) or memberCount,asc")
+    public CursorPage<GroupResponse> listAfter(
+            @RequestParam(required = false) String cursor,
+            @RequestParam int limit,
+            @RequestParam(defaultValue = "memberCount,desc") String sort,
+            @RequestParam(name = "name", required = false) String name,
+            HttpServletRequest request
+    ) {
+        return service.listGroupsAfter(authContext.getActorUserId(request), cursor, limit, sort, name);
+    }
+
+    @GetMapping(params = {"limit", "view=summary"})
+    @io.swagger.v3.oas.annotations.Operation(summary = "Page through group summaries by member count with a cursor", description = "Chosen when both `limit` and `view=summary` are sent. Same order and cursor as the full cursor listing, without member lists.")
+    public CursorPage<GroupSummaryResponse> listSummariesAfter(
+            @RequestParam(required = false) String cursor,
+            @RequestParam int limit,
+            @RequestParam(defaultValue = "memberCount,desc") String sort,
+            @RequestParam(name = "name", required = false) String name,
+            HttpServletRequest request
+    ) {
+        return service.listGroupSummariesAfter(authContext.getActorUserId(request), cursor, limit, sort, name);
+    }
+
     @PatchMapping("/{groupId}")
     public GroupResponse patchName(@PathVariable Long groupId, @RequestBody @Valid GroupUpdateRequest req, HttpServletRequest request) {
         return service.updateGroupName(groupId, authContext.getActorUserId(request), req.getName());
@@ -0,0 +1,8 @@
+package com.fairshare.fairshare.groups.api.dto;
+
+public record GroupSummaryResponse(
+        Long id,
+        String name,
+        long memberCount
+) {
+}
@@ -8,7 +8,7 @@ import java.time.Instant;
 
 @Getter
 @Entity
-@Table(name = "groups")
+@Table(name = "groups", indexes = @Index(name = "idx_groups_member_count_id", columnList = "member_count, id"))
 public class Group {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -25,6 +25,24 @@ public class Group {
     @Column(updatable = false)
     private Long createdByUserId;
 
+    // bumped in SQL by LedgerDeltaApplier whenever the group's ledger changes; never written through JPA
+    @Column(name = "ledger_version", nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+    private long ledgerVersion;
+
+    // maintained in SQL by GroupCounters alongside expense, event and transfer writes; never written through JPA
+    @Column(name = "expense_count", nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+    private long expenseCount;
+
+    @Column(name = "event_count", nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+    private long eventCount;
+
+    @Column(name = "confirmed_transfer_count", nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+    private long confirmedTransferCount;
+
+    // bumped in SQL by GroupService in the transaction that inserts the membership row; never written through JPA
+    @Column(name = "member_count", nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+    private long memberCount;
+
     protected Group() {
     }
 
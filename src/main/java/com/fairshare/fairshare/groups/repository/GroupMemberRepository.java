@@ -1,6 +1,7 @@
 package com.fairshare.fairshare.groups.repository;
 
 import com.fairshare.fairshare.groups.model.GroupMember;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,8 +13,21 @@ public interface GroupMemberRepository extends JpaRepository<GroupMember, Long>
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     boolean existsByGroupIdAndUserId(Long groupId, Long userId);
     boolean existsByGroupIdAndUserIdAndRole(Long groupId, Long userId, GroupMember.Role role);
-    List<GroupMember> findByGroupId(Long groupId);
 
-    @Query("SELECT gm FROM GroupMember gm WHERE gm.group.id IN :groupIds ORDER BY gm.group.id ASC, gm.user.id ASC")
-    List<GroupMember> findByGroupIdInOrderByGroupIdAscUserIdAsc(@Param("groupIds") Collection<Long> groupIds);
+    @Query("SELECT new com.fairshare.fairshare.groups.repository.MemberRole(gm.user.id, gm.role) " +
+            "FROM GroupMember gm WHERE gm.group.id = :groupId ORDER BY gm.id ASC")
+    List<MemberRole> findMemberRolesByGroupId(@Param("groupId") Long groupId);
+
+    @Query("SELECT new com.fairshare.fairshare.groups.repository.GroupMemberView(gm.group.id, gm.user.id, u.name, gm.role) " +
+            "FROM GroupMember gm JOIN gm.user u WHERE gm.group.id = :groupId ORDER BY gm.user.id ASC")
+    List<GroupMemberView> findViewsByGroupId(@Param("groupId") Long groupId);
+
+    @Query("SELECT new com.fairshare.fairshare.groups.repository.GroupMemberView(gm.group.id, gm.user.id, u.name, gm.role) " +
+            "FROM GroupMember gm JOIN gm.user u WHERE gm.group.id IN :groupIds ORDER BY gm.group.id ASC, gm.user.id ASC")
+    List<GroupMemberView> findViewsByGroupIdIn(@Param("groupIds") Collection<Long> groupIds);
+
+    // keyset pages of a group's roster by user id, walking the (group_id, user_id) unique index
+    @Query("SELECT new com.fairshare.fairshare.groups.repository.GroupMemberView(gm.group.id, gm.user.id, u.name, gm.role) " +
+            "FROM GroupMember gm JOIN gm.user u WHERE gm.group.id = :groupId AND gm.user.id > :afterUserId ORDER BY gm.user.id ASC")
+    List<GroupMemberView> findViewsByGroupIdAfter(@Param("groupId") Long groupId, @Param("afterUserId") long afterUserId, Limit limit);
 }
@@ -0,0 +1,10 @@
+package com.fairshare.fairshare.groups.repository;
+
+import com.fairshare.fairshare.groups.model.GroupMember;
+
+/**
+ * A membership row with the member's display name, selected without loading the GroupMember, Group or
+ * User entities.
+ */
+public record GroupMemberView(Long groupId, Long userId, String name, GroupMember.Role role) {
+}
@@ -1,20 +1,92 @@
 package com.fairshare.fairshare.groups.repository;
 
 import com.fairshare.fairshare.groups.model.Group;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.List;
+
 public interface GroupRepository extends JpaRepository<Group, Long> {
-    Page<Group> findByNameContainingIgnoreCase(String name, Pageable pageable);
+    // namePattern is a lower-case LIKE pattern with % and _ escaped (see GroupNameSearch); LOWER(name) matches
+    // the trigram index on Postgres
+    @Query(value = "SELECT g FROM Group g WHERE LOWER(g.name) LIKE :namePattern ESCAPE '\\'",
+            countQuery = "SELECT COUNT(g) FROM Group g WHERE LOWER(g.name) LIKE :namePattern ESCAPE '\\'")
+    Page<Group> findByNameLike(@Param("namePattern") String namePattern, Pageable pageable);
 
     @Query(value = "SELECT g FROM Group g WHERE EXISTS (SELECT 1 FROM GroupMember gm WHERE gm.group.id = g.id AND gm.user.id = :userId)",
             countQuery = "SELECT COUNT(g) FROM Group g WHERE EXISTS (SELECT 1 FROM GroupMember gm WHERE gm.group.id = g.id AND gm.user.id = :userId)")
     Page<Group> findPageVisibleToUser(@Param("userId") Long userId, Pageable pageable);
 
-    @Query(value = "SELECT g FROM Group g WHERE LOWER(g.name) LIKE LOWER(CONCAT('%', :name, '%')) AND EXISTS (SELECT 1 FROM GroupMember gm WHERE gm.group.id = g.id AND gm.user.id = :userId)",
-            countQuery = "SELECT COUNT(g) FROM Group g WHERE LOWER(g.name) LIKE LOWER(CONCAT('%', :name, '%')) AND EXISTS (SELECT 1 FROM GroupMember gm WHERE gm.group.id = g.id AND gm.user.id = :userId)")
-    Page<Group> findPageVisibleToUserByName(@Param("userId") Long userId, @Param("name") String name, Pageable pageable);
+    @Query(value = "SELECT g FROM Group g WHERE LOWER(g.name) LIKE :namePattern ESCAPE '\\' AND EXISTS (SELECT 1 FROM GroupMember gm WHERE gm.group.id = g.id AND gm.user.id = :userId)",
+            countQuery = "SELECT COUNT(g) FROM Group g WHERE LOWER(g.name) LIKE :namePattern ESCAPE '\\' AND EXISTS (SELECT 1 FROM GroupMember gm WHERE gm.group.id = g.id AND gm.user.id = :userId)")
+    Page<Group> findPageVisibleToUserByNameLike(@Param("userId") Long userId, @Param("namePattern") String namePattern, Pageable pageable);
+
+    // ?sort=relevance on Postgres: substring matches plus pg_trgm similar names (the % operator), both served by
+    // idx_groups_name_trgm, most similar first. Native, so the Pageable must be unsorted.
+    @Query(value = "SELECT g.* FROM groups g WHERE (lower(g.name) LIKE :namePattern ESCAPE '\\' OR lower(g.name) % :name)"
+            + " ORDER BY similarity(lower(g.name), :name) DESC, g.id DESC",
+            countQuery = "SELECT count(*) FROM groups g WHERE (lower(g.name) LIKE :namePattern ESCAPE '\\' OR lower(g.name) % :name)",
+            nativeQuery = true)
+    Page<Group> findBySimilarName(@Param("name") String name, @Param("namePattern") String namePattern, Pageable pageable);
+
+    @Query(value = "SELECT g.* FROM groups g WHERE (lower(g.name) LIKE :namePattern ESCAPE '\\' OR lower(g.name) % :name)"
+            + " AND EXISTS (SELECT 1 FROM group_members gm WHERE gm.group_id = g.id AND gm.user_id = :userId)"
+            + " ORDER BY similarity(lower(g.name), :name) DESC, g.id DESC",
+            countQuery = "SELECT count(*) FROM groups g WHERE (lower(g.name) LIKE :namePattern ESCAPE '\\' OR lower(g.name) % :name)"
+                    + " AND EXISTS (SELECT 1 FROM group_members gm WHERE gm.group_id = g.id AND gm.user_id = :userId)",
+            nativeQuery = true)
+    Page<Group> findVisibleToUserBySimilarName(@Param("userId") Long userId, @Param("name") String name,
+                                               @Param("namePattern") String namePattern, Pageable pageable);
+
+    // ?sort=relevance elsewhere (H2 in tests): substring matches only, exact name first, then prefix matches,
+    // then shorter names
+    @Query(value = "SELECT g FROM Group g WHERE LOWER(g.name) LIKE :namePattern ESCAPE '\\'"
+            + " ORDER BY CASE WHEN LOWER(g.name) = :name THEN 0 WHEN LOWER(g.name) LIKE :prefixPattern ESCAPE '\\' THEN 1 ELSE 2 END,"
+            + " LENGTH(g.name), g.id DESC",
+            countQuery = "SELECT COUNT(g) FROM Group g WHERE LOWER(g.name) LIKE :namePattern ESCAPE '\\'")
+    Page<Group> findByNameLikeRanked(@Param("name") String name, @Param("namePattern") String namePattern,
+                                     @Param("prefixPattern") String prefixPattern, Pageable pageable);
+
+    @Query(value = "SELECT g FROM Group g WHERE LOWER(g.name) LIKE :namePattern ESCAPE '\\'"
+            + " AND EXISTS (SELECT 1 FROM GroupMember gm WHERE gm.group.id = g.id AND gm.user.id = :userId)"
+            + " ORDER BY CASE WHEN LOWER(g.name) = :name THEN 0 WHEN LOWER(g.name) LIKE :prefixPattern ESCAPE '\\' THEN 1 ELSE 2 END,"
+            + " LENGTH(g.name), g.id DESC",
+            countQuery = "SELECT COUNT(g) FROM Group g WHERE LOWER(g.name) LIKE :namePattern ESCAPE '\\'"
+                    + " AND EXISTS (SELECT 1 FROM GroupMember gm WHERE gm.group.id = g.id AND gm.user.id = :userId)")
+    Page<Group> findVisibleToUserByNameLikeRanked(@Param("userId") Long userId, @Param("name") String name,
+                                                  @Param("namePattern") String namePattern,
+                                                  @Param("prefixPattern") String prefixPattern, Pageable pageable);
+
+    // member_count is not written through JPA; call in the transaction that inserts the membership row
+    @Modifying
+    @Query(value = "UPDATE groups SET member_count = member_count + 1 WHERE id = :groupId", nativeQuery = true)
+    int incrementMemberCount(@Param("groupId") Long groupId);
+
+    // keyset pages by (memberCount, id), walking idx_groups_member_count_id
+    @Query("SELECT g FROM Group g WHERE LOWER(g.name) LIKE :namePattern ESCAPE '\\' " +
+            "AND (g.memberCount > :memberCount OR (g.memberCount = :memberCount AND g.id > :id)) ORDER BY g.memberCount ASC, g.id ASC")
+    List<Group> findByMemberCountAfter(@Param("namePattern") String namePattern, @Param("memberCount") long memberCount,
+                                       @Param("id") Long id, Limit limit);
+
+    @Query("SELECT g FROM Group g WHERE LOWER(g.name) LIKE :namePattern ESCAPE '\\' " +
+            "AND (g.memberCount < :memberCount OR (g.memberCount = :memberCount AND g.id < :id)) ORDER BY g.memberCount DESC, g.id DESC")
+    List<Group> findByMemberCountBefore(@Param("namePattern") String namePattern, @Param("memberCount") long memberCount,
+                                        @Param("id") Long id, Limit limit);
+
+    @Query("SELECT g FROM Group g WHERE LOWER(g.name) LIKE :namePattern ESCAPE '\\' " +
+            "AND EXISTS (SELECT 1 FROM GroupMember gm WHERE gm.group.id = g.id AND gm.user.id = :userId) " +
+            "AND (g.memberCount > :memberCount OR (g.memberCount = :memberCount AND g.id > :id)) ORDER BY g.memberCount ASC, g.id ASC")
+    List<Group> findVisibleToUserByMemberCountAfter(@Param("userId") Long userId, @Param("namePattern") String namePattern,
+                                                    @Param("memberCount") long memberCount, @Param("id") Long id, Limit limit);
+
+    @Query("SELECT g FROM Group g WHERE LOWER(g.name) LIKE :namePattern ESCAPE '\\' " +
+            "AND EXISTS (SELECT 1 FROM GroupMember gm WHERE gm.group.id = g.id AND gm.user.id = :userId) " +
+            "AND (g.memberCount < :memberCount OR (g.memberCount = :memberCount AND g.id < :id)) ORDER BY g.memberCount DESC, g.id DESC")
+    List<Group> findVisibleToUserByMemberCountBefore(@Param("userId") Long userId, @Param("namePattern") String namePattern,
+                                                     @Param("memberCount") long memberCount, @Param("id") Long id, Limit limit);
 }
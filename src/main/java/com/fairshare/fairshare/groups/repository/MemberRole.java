@@ -0,0 +1,9 @@
+package com.fairshare.fairshare.groups.repository;
+
+import com.fairshare.fairshare.groups.model.GroupMember;
+
+/**
+ * A member's user id and role, selected without loading the GroupMember, Group or User entities.
+ */
+public record MemberRole(Long userId, GroupMember.Role role) {
+}
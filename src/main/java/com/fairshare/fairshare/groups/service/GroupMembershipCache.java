@@ -0,0 +1,85 @@
+package com.fairshare.fairshare.groups.service;
+
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.MemberRole;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-process cache of group rosters keyed by groupId, used for membership and role checks.
+ * <p>
+ * The cache is bounded by the total number of member entries it holds and entries expire a fixed time
+ * after they were loaded. Code that changes membership must call {@link #invalidate(Long)}; the TTL only
+ * limits how long a change made outside this application can go unnoticed. Hit, miss and eviction counts
+ * are published as {@code cache.*} meters tagged {@code cache=groupMembership}.
+ */
+@Component
+public class GroupMembershipCache {
+    public static final String CACHE_NAME = "groupMembership";
+
+    private final GroupMemberRepository memberRepo;
+    private final Cache<Long, GroupRoster> rosters;
+
+    @Autowired
+    public GroupMembershipCache(
+            GroupMemberRepository memberRepo,
+            MeterRegistry meterRegistry,
+            @Value("${fairshare.membership-cache.max-members:1000000}") long maxMembers,
+            @Value("${fairshare.membership-cache.ttl:5m}") Duration ttl
+    ) {
+        this(memberRepo, maxMembers, ttl, Ticker.systemTicker());
+        CaffeineCacheMetrics.monitor(meterRegistry, rosters, CACHE_NAME);
+    }
+
+    public GroupMembershipCache(GroupMemberRepository memberRepo, long maxMembers, Duration ttl, Ticker ticker) {
+        this.memberRepo = memberRepo;
+        this.rosters = Caffeine.newBuilder()
+                .maximumWeight(maxMembers)
+                .weigher((Long groupId, GroupRoster roster) -> roster.size() + 1)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    public GroupRoster roster(Long groupId) {
+        return rosters.get(groupId, this::load);
+    }
+
+    /**
+     * Drops the cached roster now and, when called inside a transaction, again once it completes, so a
+     * request that reloads the roster before the membership change commits cannot keep the stale copy.
+     */
+    public void invalidate(Long groupId) {
+        rosters.invalidate(groupId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    rosters.invalidate(groupId);
+                }
+            });
+        }
+    }
+
+    private GroupRoster load(Long groupId) {
+        Map<Long, GroupMember.Role> roles = new LinkedHashMap<>();
+        for (MemberRole member : memberRepo.findMemberRolesByGroupId(groupId)) {
+            roles.put(member.userId(), member.role());
+        }
+        return new GroupRoster(groupId, roles);
+    }
+}
@@ -0,0 +1,65 @@
+package com.fairshare.fairshare.groups.service;
+
+import com.fairshare.fairshare.common.DatabasePlatform;
+import com.fairshare.fairshare.groups.model.Group;
+import com.fairshare.fairshare.groups.repository.GroupRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Finds groups by name, optionally only those the actor belongs to.
+ * <p>
+ * {@link #findContaining} keeps the case-insensitive substring match and sorts by the caller's
+ * {@link Pageable}. On Postgres, {@code LOWER(name) LIKE '%x%'} is served by the pg_trgm GIN index
+ * {@code idx_groups_name_trgm} instead of scanning {@code groups}.
+ * <p>
+ * {@link #findByRelevance} ranks matches for {@code ?sort=relevance}. On Postgres it also returns names
+ * that are trigram-similar to the search without containing it, ordered by {@code similarity()}. Elsewhere
+ * it returns substring matches only: exact names first, then prefix matches, then shorter names.
+ */
+@Component
+public class GroupNameSearch {
+    private final GroupRepository groupRepo;
+    private final boolean postgres;
+
+    public GroupNameSearch(GroupRepository groupRepo, DatabasePlatform databasePlatform) {
+        this.groupRepo = groupRepo;
+        this.postgres = databasePlatform.isPostgres();
+    }
+
+    public Page<Group> findContaining(Long actorUserId, String name, Pageable pageable) {
+        String namePattern = containsPattern(name);
+        return actorUserId != null
+                ? groupRepo.findPageVisibleToUserByNameLike(actorUserId, namePattern, pageable)
+                : groupRepo.findByNameLike(namePattern, pageable);
+    }
+
+    public Page<Group> findByRelevance(Long actorUserId, String name, int page, int size) {
+        String search = name.trim().toLowerCase();
+        String namePattern = containsPattern(name);
+        // both queries carry their own ORDER BY
+        Pageable unsorted = PageRequest.of(page, size);
+        if (postgres) {
+            return actorUserId != null
+                    ? groupRepo.findVisibleToUserBySimilarName(actorUserId, search, namePattern, unsorted)
+                    : groupRepo.findBySimilarName(search, namePattern, unsorted);
+        }
+        String prefixPattern = escapeLike(search) + "%";
+        return actorUserId != null
+                ? groupRepo.findVisibleToUserByNameLikeRanked(actorUserId, search, namePattern, prefixPattern, unsorted)
+                : groupRepo.findByNameLikeRanked(search, namePattern, prefixPattern, unsorted);
+    }
+
+    /** Lower-case LIKE pattern matching names that contain {@code name}; a null or blank name matches every group. */
+    public static String containsPattern(String name) {
+        String search = name == null ? "" : name.trim().toLowerCase();
+        return "%" + escapeLike(search) + "%";
+    }
+
+    // backslash-escapes the LIKE wildcards; every name query in GroupRepository declares it as its ESCAPE character
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,35 @@
+package com.fairshare.fairshare.groups.service;
+
+import com.fairshare.fairshare.groups.model.GroupMember;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of a group's members and their roles, in join order.
+ */
+public record GroupRoster(Long groupId, Map<Long, GroupMember.Role> roles) {
+
+    public GroupRoster {
+        roles = Collections.unmodifiableMap(new LinkedHashMap<>(roles));
+    }
+
+    /** Member user ids in join order. */
+    public Set<Long> memberIds() {
+        return roles.keySet();
+    }
+
+    public boolean isMember(Long userId) {
+        return roles.containsKey(userId);
+    }
+
+    public boolean isOwner(Long userId) {
+        return roles.get(userId) == GroupMember.Role.OWNER;
+    }
+
+    public int size() {
+        return roles.size();
+    }
+}
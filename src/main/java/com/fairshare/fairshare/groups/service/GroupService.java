@@ -2,20 +2,24 @@ package com.fairshare.fairshare.groups.service;
 
 import com.fairshare.fairshare.auth.ForbiddenException;
 import com.fairshare.fairshare.common.BadRequestException;
+import com.fairshare.fairshare.common.KeysetCursor;
 import com.fairshare.fairshare.common.NotFoundException;
 import com.fairshare.fairshare.common.SortUtils;
+import com.fairshare.fairshare.common.api.CursorPage;
 import com.fairshare.fairshare.common.api.PaginatedResponse;
 import com.fairshare.fairshare.groups.api.AddMemberResponse;
 import com.fairshare.fairshare.groups.api.dto.GroupResponse;
+import com.fairshare.fairshare.groups.api.dto.GroupSummaryResponse;
 import com.fairshare.fairshare.groups.api.dto.MemberResponse;
 import com.fairshare.fairshare.groups.model.Group;
 import com.fairshare.fairshare.groups.model.GroupMember;
 import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
 import com.fairshare.fairshare.groups.repository.GroupRepository;
+import com.fairshare.fairshare.groups.repository.GroupMemberView;
 import com.fairshare.fairshare.users.model.User;
 import com.fairshare.fairshare.users.repository.UserRepository;
-import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
@@ -29,16 +33,24 @@ import java.util.Set;
 
 @Service
 public class GroupService {
+    public static final int MAX_CURSOR_PAGE_SIZE = 200;
+
+    private static final String MEMBER_COUNT = "memberCount";
+    private static final String RELEVANCE = "relevance";
+
     private final GroupRepository groupRepo;
     private final UserRepository userRepo;
     private final GroupMemberRepository memberRepo;
-    private final EntityManager em;
+    private final GroupMembershipCache membershipCache;
+    private final GroupNameSearch nameSearch;
 
-    public GroupService(GroupRepository groupRepo, UserRepository userRepo, GroupMemberRepository memberRepo, EntityManager em) {
+    public GroupService(GroupRepository groupRepo, UserRepository userRepo, GroupMemberRepository memberRepo,
+                        GroupMembershipCache membershipCache, GroupNameSearch nameSearch) {
         this.groupRepo = groupRepo;
         this.userRepo = userRepo;
         this.memberRepo = memberRepo;
-        this.em = em;
+        this.membershipCache = membershipCache;
+        this.nameSearch = nameSearch;
     }
 
     @Transactional
@@ -49,6 +61,8 @@ public class GroupService {
                     .orElseThrow(() -> new NotFoundException("User " + actorUserId + " not found"));
             if (!memberRepo.existsByGroupIdAndUserId(group.getId(), actorUserId)) {
                 memberRepo.save(new GroupMember(group, actor, GroupMember.Role.OWNER));
+                groupRepo.incrementMemberCount(group.getId());
+                membershipCache.invalidate(group.getId());
             }
         }
         return group;
@@ -75,6 +89,8 @@ public class GroupService {
 
         if (!memberRepo.existsByGroupIdAndUserId(group.getId(), user.getId())) {
             memberRepo.save(new GroupMember(group, user, GroupMember.Role.MEMBER));
+            groupRepo.incrementMemberCount(group.getId());
+            membershipCache.invalidate(group.getId());
         }
 
         return new AddMemberResponse(user.getId(), user.getName());
@@ -96,6 +112,37 @@ public class GroupService {
         return toGroupResponse(group.getId(), group.getName(), actorUserId);
     }
 
+    /** {@code ?view=summary} of {@link #getGroup}: the maintained member count instead of the member list. */
+    public GroupSummaryResponse getGroupSummary(Long groupId, Long actorUserId) {
+        Group group = requireGroup(groupId);
+        requireMember(groupId, actorUserId);
+
+        return toGroupSummary(group);
+    }
+
+    /**
+     * A page of the group's members in user id order, starting strictly after the user id in
+     * {@code cursor}. Reads (user id, name) pairs off the (group_id, user_id) unique index without loading
+     * member entities or counting the group.
+     */
+    public CursorPage<MemberResponse> listMembersAfter(Long groupId, Long actorUserId, String cursor, int limit) {
+        requireCursorPageSize(limit);
+        requireGroup(groupId);
+        requireMember(groupId, actorUserId);
+
+        long afterUserId = Long.MIN_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            afterUserId = parseCursorPart(KeysetCursor.decode(cursor, 1)[0]);
+        }
+        List<GroupMemberView> members = memberRepo.findViewsByGroupIdAfter(groupId, afterUserId, Limit.of(limit + 1));
+        boolean more = members.size() > limit;
+        if (more) members = members.subList(0, limit);
+
+        GroupMemberView last = more ? members.get(members.size() - 1) : null;
+        return new CursorPage<>(members.stream().map(GroupService::toMemberResponse).toList(),
+                last == null ? null : KeysetCursor.encode(last.userId()));
+    }
+
     @Transactional
     public GroupResponse updateGroupName(Long groupId, Long actorUserId, String newName) {
         Group group = requireGroup(groupId);
@@ -113,45 +160,40 @@ public class GroupService {
     }
 
     public PaginatedResponse<GroupResponse> listGroups(Long actorUserId, int page, int size, String sort, String name) {
-        String[] sortParams = (sort == null) ? new String[]{"id", "desc"} : sort.split(",");
-        String sortProperty = sortParams.length > 0 ? sortParams[0].trim() : "id";
-        String sortDirection = sortParams.length > 1 ? sortParams[1].trim() : "desc";
-
-        if ("memberCount".equalsIgnoreCase(sortProperty)) {
-            return listGroupsByMemberCount(actorUserId, page, size, sortDirection, name);
-        }
+        Page<Group> groupsPage = findGroups(actorUserId, page, size, sort, name);
+        return toPaginatedResponse(groupsPage, toGroupResponses(groupsPage.getContent(), actorUserId));
+    }
 
-        Sort sortOrder = SortUtils.parseSort(sort, "id,desc");
-        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), size, sortOrder);
+    /** {@code ?view=summary} of {@link #listGroups}: no member lists are loaded. */
+    public PaginatedResponse<GroupSummaryResponse> listGroupSummaries(Long actorUserId, int page, int size, String sort, String name) {
+        Page<Group> groupsPage = findGroups(actorUserId, page, size, sort, name);
+        return toPaginatedResponse(groupsPage, groupsPage.getContent().stream().map(GroupService::toGroupSummary).toList());
+    }
 
-        Page<Group> groupsPage;
+    private Page<Group> findGroups(Long actorUserId, int page, int size, String sort, String name) {
         String trimmedName = name == null ? null : name.trim();
-        if (actorUserId != null) {
-            groupsPage = (trimmedName == null || trimmedName.isBlank())
-                    ? groupRepo.findPageVisibleToUser(actorUserId, pageRequest)
-                    : groupRepo.findPageVisibleToUserByName(actorUserId, trimmedName, pageRequest);
-        } else {
-            groupsPage = (trimmedName == null || trimmedName.isBlank())
-                    ? groupRepo.findAll(pageRequest)
-                    : groupRepo.findByNameContainingIgnoreCase(trimmedName, pageRequest);
+        boolean named = trimmedName != null && !trimmedName.isBlank();
+        Sort sortOrder = SortUtils.parseSort(sort, "id,desc");
+        Sort.Order order = sortOrder.iterator().next();
+        boolean relevance = RELEVANCE.equalsIgnoreCase(order.getProperty());
+        if (relevance && !named) {
+            throw new BadRequestException("sort=relevance requires a name to search for");
+        }
+        if (MEMBER_COUNT.equalsIgnoreCase(order.getProperty())) {
+            // ties fall back to id so the order matches idx_groups_member_count_id
+            sortOrder = Sort.by(order.getDirection(), MEMBER_COUNT, "id");
         }
+
+        Page<Group> groupsPage = findGroupsPage(actorUserId, trimmedName, relevance, Math.max(page, 0), size, sortOrder);
         if (groupsPage.getTotalPages() > 0 && page >= groupsPage.getTotalPages()) {
-            int clampedPage = groupsPage.getTotalPages() - 1;
-            PageRequest clampedRequest = PageRequest.of(clampedPage, size, sortOrder);
-            if (actorUserId != null) {
-                groupsPage = (trimmedName == null || trimmedName.isBlank())
-                        ? groupRepo.findPageVisibleToUser(actorUserId, clampedRequest)
-                        : groupRepo.findPageVisibleToUserByName(actorUserId, trimmedName, clampedRequest);
-            } else {
-                groupsPage = (trimmedName == null || trimmedName.isBlank())
-                        ? groupRepo.findAll(clampedRequest)
-                        : groupRepo.findByNameContainingIgnoreCase(trimmedName, clampedRequest);
-            }
+            groupsPage = findGroupsPage(actorUserId, trimmedName, relevance, groupsPage.getTotalPages() - 1, size, sortOrder);
         }
+        return groupsPage;
+    }
 
-        List<GroupResponse> groupResponses = toGroupResponses(groupsPage.getContent(), actorUserId);
+    private static <T> PaginatedResponse<T> toPaginatedResponse(Page<Group> groupsPage, List<T> items) {
         return new PaginatedResponse<>(
-                groupResponses,
+                items,
                 groupsPage.getTotalElements(),
                 groupsPage.getTotalPages(),
                 groupsPage.getNumber(),
@@ -159,63 +201,82 @@ public class GroupService {
         );
     }
 
-    @SuppressWarnings("SqlNoDataSourceInspection")
-    private PaginatedResponse<GroupResponse> listGroupsByMemberCount(Long actorUserId, int page, int size, String sortDirection, String name) {
-        StringBuilder where = new StringBuilder(" WHERE 1=1 ");
-        if (name != null && !name.isBlank()) {
-            where.append(" AND lower(g.name) LIKE :namePattern ");
-        }
-        if (actorUserId != null) {
-            where.append(" AND EXISTS (SELECT 1 FROM group_members me WHERE me.group_id = g.id AND me.user_id = :actorUserId) ");
+    private Page<Group> findGroupsPage(Long actorUserId, String name, boolean relevance, int page, int size, Sort sortOrder) {
+        if (relevance) {
+            return nameSearch.findByRelevance(actorUserId, name, page, size);
         }
-
-        String countSql = "SELECT COUNT(*) FROM groups g " + where;
-        var countQuery = em.createNativeQuery(countSql);
+        PageRequest pageRequest = PageRequest.of(page, size, sortOrder);
         if (name != null && !name.isBlank()) {
-            countQuery.setParameter("namePattern", "%" + name.trim().toLowerCase() + "%");
-        }
-        if (actorUserId != null) {
-            countQuery.setParameter("actorUserId", actorUserId);
+            return nameSearch.findContaining(actorUserId, name, pageRequest);
         }
+        return actorUserId != null
+                ? groupRepo.findPageVisibleToUser(actorUserId, pageRequest)
+                : groupRepo.findAll(pageRequest);
+    }
 
-        long totalItems = ((Number) countQuery.getSingleResult()).longValue();
-        int totalPages = size <= 0 ? 0 : (int) Math.ceil((double) totalItems / (double) size);
-        if (totalPages > 0 && page >= totalPages) page = totalPages - 1;
-        if (page < 0) page = 0;
-        int offset = page * size;
+    /**
+     * Cursor variant of {@link #listGroups}, sorted by member count. Each page starts strictly after the
+     * (memberCount, id) of the previous page's last group, so it is a range scan on
+     * idx_groups_member_count_id and no count query is run.
+     */
+    public CursorPage<GroupResponse> listGroupsAfter(Long actorUserId, String cursor, int limit, String sort, String name) {
+        CursorPage<Group> groups = findGroupsAfter(actorUserId, cursor, limit, sort, name);
+        return new CursorPage<>(toGroupResponses(groups.items(), actorUserId), groups.nextCursor());
+    }
 
-        String dirSql = "asc".equalsIgnoreCase(sortDirection) ? "ASC" : "DESC";
-        String sql = "SELECT g.id, g.name FROM groups g " + where +
-                " ORDER BY (SELECT COUNT(1) FROM group_members gm WHERE gm.group_id = g.id) " + dirSql +
-                " LIMIT :limit OFFSET :offset";
+    /** {@code ?view=summary} of {@link #listGroupsAfter}: no member lists are loaded. */
+    public CursorPage<GroupSummaryResponse> listGroupSummariesAfter(Long actorUserId, String cursor, int limit, String sort, String name) {
+        CursorPage<Group> groups = findGroupsAfter(actorUserId, cursor, limit, sort, name);
+        return new CursorPage<>(groups.items().stream().map(GroupService::toGroupSummary).toList(), groups.nextCursor());
+    }
 
-        var query = em.createNativeQuery(sql);
-        if (name != null && !name.isBlank()) {
-            query.setParameter("namePattern", "%" + name.trim().toLowerCase() + "%");
+    private CursorPage<Group> findGroupsAfter(Long actorUserId, String cursor, int limit, String sort, String name) {
+        requireCursorPageSize(limit);
+        Sort.Order order = SortUtils.parseSort(sort, "memberCount,desc").iterator().next();
+        if (!MEMBER_COUNT.equalsIgnoreCase(order.getProperty())) {
+            throw new BadRequestException("Cursor pages of groups are sorted by memberCount only");
         }
+        boolean ascending = order.isAscending();
+
+        long afterCount = ascending ? Long.MIN_VALUE : Long.MAX_VALUE;
+        long afterId = afterCount;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = KeysetCursor.decode(cursor, 2);
+            afterCount = parseCursorPart(parts[0]);
+            afterId = parseCursorPart(parts[1]);
+        }
+
+        String namePattern = GroupNameSearch.containsPattern(name);
+        Limit fetch = Limit.of(limit + 1);
+        List<Group> groups;
         if (actorUserId != null) {
-            query.setParameter("actorUserId", actorUserId);
+            groups = ascending
+                    ? groupRepo.findVisibleToUserByMemberCountAfter(actorUserId, namePattern, afterCount, afterId, fetch)
+                    : groupRepo.findVisibleToUserByMemberCountBefore(actorUserId, namePattern, afterCount, afterId, fetch);
+        } else {
+            groups = ascending
+                    ? groupRepo.findByMemberCountAfter(namePattern, afterCount, afterId, fetch)
+                    : groupRepo.findByMemberCountBefore(namePattern, afterCount, afterId, fetch);
         }
-        query.setParameter("limit", size);
-        query.setParameter("offset", offset);
+        boolean more = groups.size() > limit;
+        if (more) groups = groups.subList(0, limit);
 
-        @SuppressWarnings("unchecked")
-        List<Object[]> rows = query.getResultList();
+        Group last = more ? groups.get(groups.size() - 1) : null;
+        return new CursorPage<>(groups, last == null ? null : KeysetCursor.encode(last.getMemberCount(), last.getId()));
+    }
 
-        List<GroupSummary> summaries = rows.stream()
-                .map(r -> new GroupSummary(((Number) r[0]).longValue(), (String) r[1]))
-                .toList();
-        Map<Long, List<MemberResponse>> membersByGroupId = listMembersForGroups(
-                summaries.stream().map(GroupSummary::id).collect(java.util.stream.Collectors.toSet())
-        );
-        List<GroupResponse> results = summaries.stream()
-                .map(summary -> {
-                    List<MemberResponse> members = membersByGroupId.getOrDefault(summary.id(), List.of());
-                    return new GroupResponse(summary.id(), summary.name(), members, members.size(), actorUserId);
-                })
-                .toList();
+    private static void requireCursorPageSize(int limit) {
+        if (limit < 1 || limit > MAX_CURSOR_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+    }
 
-        return new PaginatedResponse<>(results, totalItems, totalPages, page, size);
+    private static long parseCursorPart(String part) {
+        try {
+            return Long.parseLong(part);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
     }
 
     private Group requireGroup(Long groupId) {
@@ -224,21 +285,21 @@ public class GroupService {
 
     private void requireMember(Long groupId, Long actorUserId) {
         if (actorUserId == null) return;
-        if (!memberRepo.existsByGroupIdAndUserId(groupId, actorUserId)) {
+        if (!membershipCache.roster(groupId).isMember(actorUserId)) {
             throw new ForbiddenException("User " + actorUserId + " is not a member of group " + groupId);
         }
     }
 
     private void requireOwner(Long groupId, Long actorUserId) {
         if (actorUserId == null) return;
-        if (!memberRepo.existsByGroupIdAndUserIdAndRole(groupId, actorUserId, GroupMember.Role.OWNER)) {
+        if (!membershipCache.roster(groupId).isOwner(actorUserId)) {
             throw new ForbiddenException("User " + actorUserId + " is not an owner of group " + groupId);
         }
     }
 
     private List<MemberResponse> listMembersForGroup(Long groupId) {
-        return memberRepo.findByGroupId(groupId).stream()
-                .map(gm -> new MemberResponse(gm.getUser().getId(), gm.getUser().getName()))
+        return memberRepo.findViewsByGroupId(groupId).stream()
+                .map(GroupService::toMemberResponse)
                 .toList();
     }
 
@@ -247,14 +308,17 @@ public class GroupService {
             return Map.of();
         }
         Map<Long, List<MemberResponse>> out = new LinkedHashMap<>();
-        for (GroupMember gm : memberRepo.findByGroupIdInOrderByGroupIdAscUserIdAsc(groupIds)) {
-            Long groupId = gm.getGroup().getId();
-            out.computeIfAbsent(groupId, ignored -> new java.util.ArrayList<>())
-                    .add(new MemberResponse(gm.getUser().getId(), gm.getUser().getName()));
+        for (GroupMemberView member : memberRepo.findViewsByGroupIdIn(groupIds)) {
+            out.computeIfAbsent(member.groupId(), ignored -> new java.util.ArrayList<>())
+                    .add(toMemberResponse(member));
         }
         return out;
     }
 
+    private static MemberResponse toMemberResponse(GroupMemberView member) {
+        return new MemberResponse(member.userId(), member.name());
+    }
+
     private List<GroupResponse> toGroupResponses(List<Group> groups, Long actorUserId) {
         Set<Long> groupIds = groups.stream().map(Group::getId).collect(java.util.stream.Collectors.toSet());
         Map<Long, List<MemberResponse>> membersByGroupId = listMembersForGroups(groupIds);
@@ -264,10 +328,12 @@ public class GroupService {
         }).toList();
     }
 
+    private static GroupSummaryResponse toGroupSummary(Group group) {
+        return new GroupSummaryResponse(group.getId(), group.getName(), group.getMemberCount());
+    }
+
     private GroupResponse toGroupResponse(Long groupId, String groupName, Long actorUserId) {
         List<MemberResponse> members = listMembersForGroup(groupId);
         return new GroupResponse(groupId, groupName, members, members.size(), actorUserId);
     }
-
-    private record GroupSummary(Long id, String name) {}
 }
@@ -0,0 +1,261 @@
+package com.fairshare.fairshare.idempotency;
+
+import com.fairshare.fairshare.auth.AuthContext;
+import com.fairshare.fairshare.auth.UnauthenticatedException;
+import com.fairshare.fairshare.common.api.ApiError;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Makes POST, PATCH and DELETE requests under {@code /groups/**} and {@code /users} safe to retry when
+ * they carry an {@code Idempotency-Key} header.
+ * <p>
+ * The first request reserves the key, runs normally and, if it succeeds, stores its status and body.
+ * A retry with the same key and payload gets the stored bytes back without reaching the controller;
+ * a retry with a different payload is rejected with 422, and one that arrives while the first is
+ * still running gets 409. Unsuccessful responses are not stored, so the caller can fix and resend.
+ * <p>
+ * Keys are scoped to the caller and to the method and path they were sent to, so the same key sent to
+ * two groups, or by two callers, names two records. When auth is required a keyed request without a
+ * valid {@code X-User-Id} is rejected with 401 before anything is reserved.
+ * <p>
+ * A reservation is kept alive by {@link IdempotencyStore} for as long as its request runs, so it only
+ * expires, and a retry only runs the handler again, once the instance that held it is gone.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 128;
+    private static final Set<String> METHODS = Set.of("POST", "PATCH", "DELETE");
+    private static final List<String> PATHS = List.of("/groups/**", "/users");
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+    private static final UrlPathHelper PATH_HELPER = new UrlPathHelper();
+
+    private final IdempotencyStore store;
+    private final AuthContext authContext;
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyFilter(IdempotencyStore store, AuthContext authContext, ObjectMapper objectMapper) {
+        this.store = store;
+        this.authContext = authContext;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!METHODS.contains(request.getMethod())) return true;
+        String key = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (key == null || key.isBlank()) return true;
+        String path = PATH_HELPER.getPathWithinApplication(request);
+        return PATHS.stream().noneMatch(pattern -> PATH_MATCHER.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY_HEADER).trim();
+        if (key.length() > MAX_KEY_LENGTH) {
+            writeError(request, response, HttpStatus.BAD_REQUEST,
+                    IDEMPOTENCY_KEY_HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        Long actorUserId;
+        try {
+            actorUserId = authContext.getActorUserId(request);
+        } catch (UnauthenticatedException e) {
+            writeError(request, response, HttpStatus.UNAUTHORIZED, e.getMessage());
+            return;
+        }
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+        String recordKey = recordKey(actorUserId, request, key);
+        String fingerprint = fingerprint(request, body);
+
+        // a second pass covers a record that was released or expired between our insert and read
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Instant now = Instant.now();
+            if (store.reserve(recordKey, fingerprint, now)) {
+                execute(new CachedBodyRequest(request, body), response, chain, recordKey);
+                return;
+            }
+            Optional<IdempotencyStore.StoredResponse> existing = store.find(recordKey);
+            if (existing.isEmpty()) continue;
+            IdempotencyStore.StoredResponse stored = existing.get();
+            // only orphaned reservations expire: the store extends those whose request is still running
+            if (stored.expiresAt().isBefore(now)) {
+                store.deleteIfExpired(recordKey, now);
+                continue;
+            }
+            if (!stored.fingerprint().equals(fingerprint)) {
+                writeError(request, response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        IDEMPOTENCY_KEY_HEADER + " was already used with a different request");
+                return;
+            }
+            if (stored.inFlight()) break;
+            replay(response, stored);
+            return;
+        }
+        writeError(request, response, HttpStatus.CONFLICT,
+                "A request with this " + IDEMPOTENCY_KEY_HEADER + " is still being processed");
+    }
+
+    private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain chain, String recordKey)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            chain.doFilter(request, wrapper);
+            int status = wrapper.getStatus();
+            if (status >= 200 && status < 300) {
+                store.complete(recordKey, status, wrapper.getContentType(), wrapper.getContentAsByteArray(), Instant.now());
+                stored = true;
+            }
+        } finally {
+            if (!stored) store.release(recordKey);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private static void replay(HttpServletResponse response, IdempotencyStore.StoredResponse stored) throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) response.setContentType(stored.contentType());
+        response.setHeader(REPLAYED_HEADER, "true");
+        byte[] body = stored.body() == null ? new byte[0] : stored.body();
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private void writeError(HttpServletRequest request, HttpServletResponse response, HttpStatus status, String message)
+            throws IOException {
+        ApiError error = new ApiError(Instant.now(), status.value(), status.getReasonPhrase(), message,
+                request.getRequestURI(), List.of());
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    // "<actor>:<method and path digest>:<key>"; the digest keeps long paths within the column
+    private static String recordKey(Long actorUserId, HttpServletRequest request, String key) {
+        MessageDigest digest = sha256();
+        digest.update(request.getMethod().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ' ');
+        digest.update(PATH_HELPER.getPathWithinApplication(request).getBytes(StandardCharsets.UTF_8));
+        String scope = HexFormat.of().formatHex(digest.digest(), 0, 8);
+        return (actorUserId == null ? "" : actorUserId.toString()) + ":" + scope + ":" + key;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String fingerprint(HttpServletRequest request, byte[] body) {
+        MessageDigest digest = sha256();
+        digest.update(request.getMethod().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+        digest.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+        if (request.getQueryString() != null) {
+            digest.update((byte) '?');
+            digest.update(request.getQueryString().getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) '\n');
+        digest.update(body);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // The body has to be read up front for the fingerprint, so the handler is given a copy.
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // the body is already in memory, so it is all available and all read at once
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
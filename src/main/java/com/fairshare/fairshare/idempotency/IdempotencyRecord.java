@@ -0,0 +1,51 @@
+package com.fairshare.fairshare.idempotency;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+
+/**
+ * Stored outcome of a mutating request sent with an {@code Idempotency-Key}. A row without a
+ * response status is a reservation held while the first request is still running.
+ * Rows are written and read by {@link IdempotencyStore}; the mapping keeps the schema in one place.
+ */
+@Getter
+@Entity
+@Table(
+        name = "idempotency_records",
+        indexes = @Index(name = "idx_idempotency_records_expires_at", columnList = "expires_at")
+)
+public class IdempotencyRecord {
+    // "<X-User-Id>:<digest of method and path>:<Idempotency-Key>", so the same key from different callers or
+    // sent to different endpoints never collides
+    @Id
+    @Column(name = "record_key", length = 200)
+    private String recordKey;
+
+    // SHA-256 of method, path, query and body, hex encoded
+    @Column(name = "fingerprint", nullable = false, length = 64)
+    private String fingerprint;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @JdbcTypeCode(SqlTypes.VARBINARY)
+    @Column(name = "response_body", length = 1_048_576)
+    private byte[] responseBody;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @SuppressWarnings("unused")
+    protected IdempotencyRecord() {
+    }
+}
@@ -0,0 +1,140 @@
+package com.fairshare.fairshare.idempotency;
+
+import com.fairshare.fairshare.common.DatabasePlatform;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads and writes {@code idempotency_records} with plain JDBC so each step commits on its own,
+ * independently of the transaction the handled request opens.
+ * <p>
+ * Reservations this instance holds are pushed forward by {@code in-flight-timeout} every
+ * {@code heartbeat-interval} until their request completes or is released. A reservation therefore
+ * only expires once the instance holding it has stopped, and only then may a retry take the key over.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final String POSTGRES_RESERVE = """
+            INSERT INTO idempotency_records (record_key, fingerprint, created_at, expires_at)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (record_key) DO NOTHING""";
+
+    private static final String MERGE_RESERVE = """
+            MERGE INTO idempotency_records r
+            USING (SELECT CAST(? AS VARCHAR(200)) AS record_key, CAST(? AS VARCHAR(64)) AS fingerprint,
+                          CAST(? AS TIMESTAMP WITH TIME ZONE) AS created_at, CAST(? AS TIMESTAMP WITH TIME ZONE) AS expires_at) d
+            ON r.record_key = d.record_key
+            WHEN NOT MATCHED THEN INSERT (record_key, fingerprint, created_at, expires_at)
+                VALUES (d.record_key, d.fingerprint, d.created_at, d.expires_at)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String reserveSql;
+    private final Duration ttl;
+    private final Duration inFlightTimeout;
+    private final Set<String> held = ConcurrentHashMap.newKeySet();
+
+    public IdempotencyStore(
+            JdbcTemplate jdbcTemplate,
+            DatabasePlatform databasePlatform,
+            @Value("${fairshare.idempotency.ttl:24h}") Duration ttl,
+            @Value("${fairshare.idempotency.in-flight-timeout:1m}") Duration inFlightTimeout
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reserveSql = databasePlatform.isPostgres() ? POSTGRES_RESERVE : MERGE_RESERVE;
+        this.ttl = ttl;
+        this.inFlightTimeout = inFlightTimeout;
+    }
+
+    public record StoredResponse(String fingerprint, Integer status, String contentType, byte[] body, Instant expiresAt) {
+        public boolean inFlight() {
+            return status == null;
+        }
+    }
+
+    /**
+     * Claims the key for a first execution. Returns false when a record already exists; the insert
+     * is the only statement a first-time key costs.
+     */
+    public boolean reserve(String recordKey, String fingerprint, Instant now) {
+        boolean reserved = jdbcTemplate.update(reserveSql, recordKey, fingerprint,
+                Timestamp.from(now), Timestamp.from(now.plus(inFlightTimeout))) == 1;
+        if (reserved) held.add(recordKey);
+        return reserved;
+    }
+
+    public Optional<StoredResponse> find(String recordKey) {
+        List<StoredResponse> rows = jdbcTemplate.query(
+                "SELECT fingerprint, response_status, content_type, response_body, expires_at FROM idempotency_records WHERE record_key = ?",
+                (rs, i) -> new StoredResponse(
+                        rs.getString("fingerprint"),
+                        (Integer) rs.getObject("response_status"),
+                        rs.getString("content_type"),
+                        rs.getBytes("response_body"),
+                        rs.getTimestamp("expires_at").toInstant()),
+                recordKey);
+        return rows.stream().findFirst();
+    }
+
+    public void complete(String recordKey, int status, String contentType, byte[] body, Instant now) {
+        held.remove(recordKey);
+        jdbcTemplate.update(
+                "UPDATE idempotency_records SET response_status = ?, content_type = ?, response_body = ?, expires_at = ? WHERE record_key = ?",
+                status, contentType, body, Timestamp.from(now.plus(ttl)), recordKey);
+    }
+
+    /** Drops a reservation whose request did not succeed, so the key can be retried. */
+    public void release(String recordKey) {
+        held.remove(recordKey);
+        jdbcTemplate.update("DELETE FROM idempotency_records WHERE record_key = ? AND response_status IS NULL", recordKey);
+    }
+
+    public boolean deleteIfExpired(String recordKey, Instant now) {
+        return jdbcTemplate.update("DELETE FROM idempotency_records WHERE record_key = ? AND expires_at < ?",
+                recordKey, Timestamp.from(now)) == 1;
+    }
+
+    /** Extends every reservation this instance still holds; returns how many rows were extended. */
+    public int extendHeldReservations(Instant now) {
+        List<String> keys = List.copyOf(held);
+        if (keys.isEmpty()) return 0;
+        Timestamp expiresAt = Timestamp.from(now.plus(inFlightTimeout));
+        int extended = 0;
+        for (int count : jdbcTemplate.batchUpdate(
+                "UPDATE idempotency_records SET expires_at = ? WHERE record_key = ? AND response_status IS NULL",
+                keys.stream().map(key -> new Object[]{expiresAt, key}).toList())) {
+            extended += count;
+        }
+        return extended;
+    }
+
+    @Scheduled(
+            initialDelayString = "${fairshare.idempotency.heartbeat-interval:PT15S}",
+            fixedDelayString = "${fairshare.idempotency.heartbeat-interval:PT15S}"
+    )
+    public void extendHeldReservations() {
+        extendHeldReservations(Instant.now());
+    }
+
+    public int purgeExpired(Instant now) {
+        return jdbcTemplate.update("DELETE FROM idempotency_records WHERE expires_at < ?", Timestamp.from(now));
+    }
+
+    @Scheduled(
+            initialDelayString = "${fairshare.idempotency.cleanup-interval:PT10M}",
+            fixedDelayString = "${fairshare.idempotency.cleanup-interval:PT10M}"
+    )
+    public void purgeExpired() {
+        purgeExpired(Instant.now());
+    }
+}
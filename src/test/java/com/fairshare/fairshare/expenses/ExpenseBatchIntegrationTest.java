@@ -0,0 +1,165 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ExpenseBatchIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Test
+    @DisplayName("Batch create reports created, replayed and rejected items and replays safely")
+    void batchCreateWithPerItemIdempotency() throws Exception {
+        Long gid = createGroup("BatchGroup");
+        Long alice = addMember(gid, "alice");
+        Long bob = addMember(gid, "bob");
+
+        String batch = String.format("""
+                {"items":[
+                  {"idempotencyKey":"k1","expense":{"description":"Taxi","amount":"18.00","payerUserId":%d}},
+                  {"idempotencyKey":"k2","expense":{"description":"Dinner","amount":"40.00","payerUserId":%d,"participantUserIds":[%d,%d],"shares":[1,3]}},
+                  {"idempotencyKey":"k1","expense":{"description":"Taxi","amount":"18.00","payerUserId":%d}},
+                  {"idempotencyKey":"k3","expense":{"description":"Stranger","amount":"5.00","payerUserId":999999}}
+                ]}""", alice, bob, alice, bob, alice);
+
+        JsonNode first = postBatch(gid, batch);
+        assertThat(first.get("created").asInt()).isEqualTo(2);
+        assertThat(first.get("replayed").asInt()).isEqualTo(1);
+        assertThat(first.get("rejected").asInt()).isEqualTo(1);
+        JsonNode results = first.get("results");
+        assertThat(results.get(0).get("status").asText()).isEqualTo("CREATED");
+        assertThat(results.get(1).get("status").asText()).isEqualTo("CREATED");
+        assertThat(results.get(2).get("status").asText()).isEqualTo("REPLAYED");
+        assertThat(results.get(2).get("expense").get("expenseId").asLong()).isEqualTo(results.get(0).get("expense").get("expenseId").asLong());
+        assertThat(results.get(3).get("status").asText()).isEqualTo("REJECTED");
+        assertThat(results.get(3).get("error").asText()).contains("not a member");
+
+        // Taxi: alice +18, both -9. Dinner: bob +40, alice -10, bob -30.
+        Map<Long, BigDecimal> expected = Map.of(alice, new BigDecimal("-1.00"), bob, new BigDecimal("1.00"));
+        assertThat(ledger(gid)).containsOnlyKeys(alice, bob);
+        ledger(gid).forEach((uid, balance) -> assertThat(balance).isEqualByComparingTo(expected.get(uid)));
+
+        JsonNode replay = postBatch(gid, batch);
+        assertThat(replay.get("created").asInt()).isZero();
+        assertThat(replay.get("replayed").asInt()).isEqualTo(3);
+        assertThat(replay.get("rejected").asInt()).isEqualTo(1);
+        assertThat(replay.get("results").get(1).get("expense").get("expenseId").asLong())
+                .isEqualTo(results.get(1).get("expense").get("expenseId").asLong());
+        ledger(gid).forEach((uid, balance) -> assertThat(balance).isEqualByComparingTo(expected.get(uid)));
+
+        String listed = mvc.perform(get("/groups/" + gid + "/expenses")).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        assertThat(mapper.readTree(listed).get("totalItems").asLong()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Invalid items are rejected individually")
+    void invalidItemsAreRejected() throws Exception {
+        Long gid = createGroup("BatchInvalid");
+        Long alice = addMember(gid, "alice");
+
+        String batch = String.format("""
+                {"items":[
+                  {"expense":{"description":"","amount":"10.00","payerUserId":%d}},
+                  {"expense":{"description":"Bad split","amount":"10.00","payerUserId":%d,"participantUserIds":[%d],"exactAmounts":["9.00"]}},
+                  {"expense":{"description":"Ok","amount":"10.00","payerUserId":%d}}
+                ]}""", alice, alice, alice, alice);
+
+        JsonNode resp = postBatch(gid, batch);
+        assertThat(resp.get("created").asInt()).isEqualTo(1);
+        assertThat(resp.get("rejected").asInt()).isEqualTo(2);
+        assertThat(resp.get("results").get(2).get("status").asText()).isEqualTo("CREATED");
+
+        mvc.perform(post("/groups/" + gid + "/expenses:batch").contentType(MediaType.APPLICATION_JSON).content("{\"items\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Batch items get the same bean validation as a single create")
+    void batchItemsUseSingleCreateValidation() throws Exception {
+        Long gid = createGroup("BatchValidation");
+        Long alice = addMember(gid, "alice");
+        Long bob = addMember(gid, "bob");
+
+        String zeroShare = String.format("""
+                {"description":"Zero share","amount":"10.00","payerUserId":%d,"participantUserIds":[%d,%d],"shares":[0,5]}""", alice, alice, bob);
+        mvc.perform(post("/groups/" + gid + "/expenses").contentType(MediaType.APPLICATION_JSON).content(zeroShare))
+                .andExpect(status().isBadRequest());
+
+        String batch = String.format("""
+                {"items":[
+                  {"expense":%s},
+                  {"expense":{"description":"Null share","amount":"10.00","payerUserId":%d,"participantUserIds":[%d,%d],"shares":[null,5]}},
+                  {"idempotencyKey":"%s","expense":{"description":"Long key","amount":"10.00","payerUserId":%d}},
+                  {"expense":{"description":"Ok","amount":"10.00","payerUserId":%d,"participantUserIds":[%d,%d],"shares":[1,1]}}
+                ]}""", zeroShare, alice, alice, bob, "k".repeat(129), alice, alice, alice, bob);
+
+        JsonNode resp = postBatch(gid, batch);
+        assertThat(resp.get("created").asInt()).isEqualTo(1);
+        assertThat(resp.get("rejected").asInt()).isEqualTo(3);
+        JsonNode results = resp.get("results");
+        assertThat(results.get(0).get("status").asText()).isEqualTo("REJECTED");
+        assertThat(results.get(0).get("error").asText()).startsWith("expense.shares[0]");
+        assertThat(results.get(1).get("status").asText()).isEqualTo("REJECTED");
+        assertThat(results.get(1).get("error").asText()).startsWith("expense.shares[0]");
+        assertThat(results.get(2).get("status").asText()).isEqualTo("REJECTED");
+        assertThat(results.get(2).get("error").asText()).startsWith("idempotencyKey");
+        assertThat(results.get(3).get("status").asText()).isEqualTo("CREATED");
+
+        Map<Long, BigDecimal> balances = ledger(gid);
+        assertThat(balances.get(alice)).isEqualByComparingTo("5.00");
+        assertThat(balances.get(bob)).isEqualByComparingTo("-5.00");
+    }
+
+    private JsonNode postBatch(Long gid, String body) throws Exception {
+        String resp = mvc.perform(post("/groups/" + gid + "/expenses:batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(resp);
+    }
+
+    private Map<Long, BigDecimal> ledger(Long gid) throws Exception {
+        String resp = mvc.perform(get("/groups/" + gid + "/ledger")).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        for (JsonNode e : mapper.readTree(resp).get("entries")) {
+            balances.put(e.get("userId").asLong(), new BigDecimal(e.get("netBalance").asText()));
+        }
+        return balances;
+    }
+
+    private Long createGroup(String name) throws Exception {
+        String resp = mvc.perform(post("/groups").contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"" + name + "\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(resp).get("id").asLong();
+    }
+
+    private Long addMember(Long gid, String name) throws Exception {
+        String body = String.format("{\"name\":\"%s\",\"email\":\"%s+%d@example.com\"}", name, name, gid);
+        String resp = mvc.perform(post("/groups/" + gid + "/members").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(resp).get("userId").asLong();
+    }
+}
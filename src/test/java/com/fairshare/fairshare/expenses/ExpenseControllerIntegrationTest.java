@@ -224,4 +224,36 @@ public class ExpenseControllerIntegrationTest {
         mvc.perform(post("/groups/" + gid + "/expenses").contentType(MediaType.APPLICATION_JSON).content(exp))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    @DisplayName("Min-transfers strategy reports what produced the plan and the transfers it saved")
+    void minTransfersSettlementStrategy() throws Exception {
+        String gresp = mvc.perform(post("/groups").contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"MinTransfers\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Long gid = mapper.readTree(gresp).get("id").asLong();
+
+        Long[] ids = new Long[5];
+        for (int i = 0; i < ids.length; i++) {
+            String m = String.format("{\"name\":\"mt%d\",\"email\":\"mt%d+%d@example.com\"}", i, i, gid);
+            String r = mvc.perform(post("/groups/" + gid + "/members").contentType(MediaType.APPLICATION_JSON).content(m)).andExpect(status().isCreated()).andReturn().getResponse().getContentAsString();
+            ids[i] = mapper.readTree(r).get("userId").asLong();
+        }
+        // balances +5, +4, -4, -3, -2: greedy needs four transfers, {+4,-4} and {+5,-3,-2} need three
+        String e1 = String.format("{\"description\":\"A\",\"amount\":\"5.00\",\"payerUserId\":%d,\"participantUserIds\":[%d,%d],\"exactAmounts\":[\"3.00\",\"2.00\"]}", ids[0], ids[3], ids[4]);
+        String e2 = String.format("{\"description\":\"B\",\"amount\":\"4.00\",\"payerUserId\":%d,\"participantUserIds\":[%d],\"exactAmounts\":[\"4.00\"]}", ids[1], ids[2]);
+        mvc.perform(post("/groups/" + gid + "/expenses").contentType(MediaType.APPLICATION_JSON).content(e1)).andExpect(status().isCreated());
+        mvc.perform(post("/groups/" + gid + "/expenses").contentType(MediaType.APPLICATION_JSON).content(e2)).andExpect(status().isCreated());
+
+        JsonNode greedy = mapper.readTree(mvc.perform(get("/groups/" + gid + "/settlements")).andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertThat(greedy.get("strategy").asText()).isEqualTo("greedy");
+        assertThat(greedy.get("transfers")).hasSize(4);
+
+        JsonNode min = mapper.readTree(mvc.perform(get("/groups/" + gid + "/settlements?strategy=min-transfers")).andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertThat(min.get("strategy").asText()).isEqualTo("min-transfers-exact");
+        assertThat(min.get("transfers")).hasSize(3);
+        assertThat(min.get("transfersSaved").asInt()).isEqualTo(1);
+
+        mvc.perform(get("/groups/" + gid + "/settlements?strategy=fewest")).andExpect(status().isBadRequest());
+    }
 }
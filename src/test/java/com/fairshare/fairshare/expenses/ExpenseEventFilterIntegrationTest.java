@@ -0,0 +1,123 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ExpenseEventFilterIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Events can be filtered by userId and expenseId and carry typed payloads")
+    void filtersEventsByUserAndExpense() throws Exception {
+        Long gid = mapper.readTree(mvc.perform(post("/groups").contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"EventFilters\"}"))
+                .andExpect(status().isCreated()).andReturn().getResponse().getContentAsString()).get("id").asLong();
+        Long a = addMember(gid, "a");
+        Long b = addMember(gid, "b");
+        Long c = addMember(gid, "c");
+        Long d = addMember(gid, "d");
+
+        Long dinner = createExpense(gid, String.format("{\"description\":\"Dinner\",\"amount\":\"10.00\",\"payerUserId\":%d,\"participantUserIds\":[%d,%d]}", a, a, b));
+        Long taxi = createExpense(gid, String.format("{\"description\":\"Taxi\",\"amount\":\"8.00\",\"payerUserId\":%d,\"participantUserIds\":[%d,%d]}", c, c, d));
+        mvc.perform(patch("/groups/" + gid + "/expenses/" + dinner).contentType(MediaType.APPLICATION_JSON)
+                        .content(String.format("{\"description\":\"Dinner\",\"amount\":\"12.00\",\"payerUserId\":%d,\"participantUserIds\":[%d,%d]}", a, a, b)))
+                .andExpect(status().isOk());
+        mvc.perform(delete("/groups/" + gid + "/expenses/" + taxi)).andExpect(status().isNoContent());
+
+        JsonNode forB = events(gid, "?userId=" + b + "&sort=createdAt,asc");
+        assertThat(types(forB)).containsExactly("ExpenseCreated", "ExpenseUpdated");
+        assertThat(forB.get(0).get("expenseId").asLong()).isEqualTo(dinner);
+
+        assertThat(forB.get(0).get("payload").isTextual()).as("payload keeps its string shape").isTrue();
+        assertThat(mapper.readTree(forB.get(0).get("payload").asText())).isEqualTo(forB.get(0).get("details"));
+
+        JsonNode created = forB.get(0).get("details");
+        assertThat(created.get("expenseId").asLong()).isEqualTo(dinner);
+        assertThat(created.get("amount").asText()).isEqualTo("10.00");
+        assertThat(created.get("payerUserId").asLong()).isEqualTo(a);
+        assertThat(created.get("participantUserIds")).extracting(JsonNode::asLong).containsExactly(a, b);
+        assertThat(created.get("deltas")).hasSize(2);
+
+        JsonNode updated = forB.get(1).get("details");
+        assertThat(updated.get("before").get("amount").asText()).isEqualTo("10.00");
+        assertThat(updated.get("after").get("amount").asText()).isEqualTo("12.00");
+        for (JsonNode delta : updated.get("deltas")) {
+            String expected = delta.get("userId").asLong() == a ? "1.00" : "-1.00";
+            assertThat(delta.get("delta").asText()).isEqualTo(expected);
+        }
+
+        assertThat(types(events(gid, "?userId=" + d + "&sort=createdAt,asc"))).containsExactly("ExpenseCreated", "ExpenseVoided");
+        assertThat(types(events(gid, "?expenseId=" + taxi + "&sort=createdAt,asc"))).containsExactly("ExpenseCreated", "ExpenseVoided");
+        assertThat(types(events(gid, "?expenseId=" + taxi + "&userId=" + c))).hasSize(2);
+        assertThat(types(events(gid, "?expenseId=" + dinner + "&userId=" + c))).isEmpty();
+        assertThat(types(events(gid, ""))).hasSize(4);
+
+        mvc.perform(get("/groups/" + gid + "/events?userId=" + b + "&sort=payload,asc")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Stored payloads keep expenseId and delta userId first, as the text filter expects")
+    void storedPayloadMatchesTextFilterPatterns() throws Exception {
+        Long gid = mapper.readTree(mvc.perform(post("/groups").contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"EventFieldOrder\"}"))
+                .andExpect(status().isCreated()).andReturn().getResponse().getContentAsString()).get("id").asLong();
+        Long a = addMember(gid, "a");
+        Long b = addMember(gid, "b");
+        Long expenseId = createExpense(gid, String.format("{\"description\":\"Dinner\",\"amount\":\"10.00\",\"payerUserId\":%d,\"participantUserIds\":[%d,%d]}", a, a, b));
+
+        String stored = jdbcTemplate.queryForObject("SELECT CAST(payload AS VARCHAR) FROM expense_events WHERE expense_id = ?", String.class, expenseId);
+        assertThat(stored).startsWith("{" + unwrap(ExpenseEventSearch.expensePattern(expenseId)));
+        assertThat(stored).contains("{" + unwrap(ExpenseEventSearch.userPattern(a)));
+        assertThat(stored).contains("{" + unwrap(ExpenseEventSearch.userPattern(b)));
+    }
+
+    // the LIKE patterns are %...%; what is between the wildcards has to appear verbatim
+    private static String unwrap(String likePattern) {
+        return likePattern.substring(1, likePattern.length() - 1);
+    }
+
+    private Long addMember(Long gid, String name) throws Exception {
+        String body = String.format("{\"name\":\"%s\",\"email\":\"%s+%d@example.com\"}", name, name, gid);
+        return mapper.readTree(mvc.perform(post("/groups/" + gid + "/members").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated()).andReturn().getResponse().getContentAsString()).get("userId").asLong();
+    }
+
+    private Long createExpense(Long gid, String body) throws Exception {
+        return mapper.readTree(mvc.perform(post("/groups/" + gid + "/expenses").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated()).andReturn().getResponse().getContentAsString()).get("expenseId").asLong();
+    }
+
+    private JsonNode events(Long gid, String query) throws Exception {
+        return mapper.readTree(mvc.perform(get("/groups/" + gid + "/events" + query)).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("items");
+    }
+
+    private static List<String> types(JsonNode items) {
+        List<String> out = new ArrayList<>();
+        for (JsonNode item : items) out.add(item.get("eventType").asText());
+        return out;
+    }
+}
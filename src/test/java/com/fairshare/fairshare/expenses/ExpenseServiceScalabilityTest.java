@@ -1,25 +1,33 @@
 package com.fairshare.fairshare.expenses;
 
+import com.fairshare.fairshare.common.CursorSigner;
 import com.fairshare.fairshare.common.api.PaginatedResponse;
+import com.fairshare.fairshare.expenses.api.CreateExpenseRequest;
 import com.fairshare.fairshare.expenses.api.ExpenseResponse;
 import com.fairshare.fairshare.expenses.model.Expense;
 import com.fairshare.fairshare.expenses.model.ExpenseParticipant;
 import com.fairshare.fairshare.expenses.service.ExpenseService;
+import com.fairshare.fairshare.groups.model.GroupMember;
 import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.MemberRole;
+import com.fairshare.fairshare.groups.service.GroupMembershipCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -41,39 +49,67 @@ class ExpenseServiceScalabilityTest {
     @Mock
     private LedgerEntryRepository ledgerRepo;
     @Mock
+    private LedgerDeltaApplier ledgerDeltaApplier;
+    @Mock
+    private LedgerSnapshots ledgerSnapshots;
+    @Mock
+    private GroupWriteLock groupWriteLock;
+    @Mock
+    private GroupCounters groupCounters;
+    @Mock
     private GroupMemberRepository groupMemberRepo;
     @Mock
     private ConfirmedTransferRepository confirmedTransferRepo;
     @Mock
     private ExpenseEventRepository eventRepo;
     @Mock
+    private ExpenseEventSearch eventSearch;
+    @Mock
+    private UserLedgerHistory userLedgerHistory;
+    @Mock
     private EntityManager em;
     @Captor
     private ArgumentCaptor<List<Long>> idsCaptor;
 
-    @Test
-    void listExpenses_usesBatchParticipantLookupPerPage() {
-        ExpenseService service = new ExpenseService(
+    private ExpenseService newService() {
+        return new ExpenseService(
                 expenseRepo,
                 participantRepo,
                 ledgerRepo,
-                groupMemberRepo,
+                ledgerDeltaApplier,
+                ledgerSnapshots,
+                groupWriteLock,
+                groupCounters,
+                new SettlementPlanCache(new SimpleMeterRegistry(), 100),
+                new SettlementPlanner(Duration.ofMillis(200), 20),
+                new GroupMembershipCache(groupMemberRepo, 10_000, Duration.ofMinutes(5), Ticker.systemTicker()),
                 confirmedTransferRepo,
                 eventRepo,
-                em
+                eventSearch,
+                userLedgerHistory,
+                em,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new CursorSigner("test")
         );
+    }
+
+    @Test
+    void listExpenses_usesBatchParticipantLookupPerPage() {
+        ExpenseService service = newService();
 
         Long groupId = 77L;
         Long actorId = 501L;
-        when(groupMemberRepo.existsByGroupIdAndUserId(groupId, actorId)).thenReturn(true);
+        when(groupMemberRepo.findMemberRolesByGroupId(groupId))
+                .thenReturn(List.of(new MemberRole(actorId, GroupMember.Role.MEMBER)));
 
         Expense ex1 = new Expense(groupId, 1001L, "Dinner", new BigDecimal("30.00"));
         Expense ex2 = new Expense(groupId, 1002L, "Taxi", new BigDecimal("20.00"));
         ReflectionTestUtils.setField(ex1, "id", 1L);
         ReflectionTestUtils.setField(ex2, "id", 2L);
 
-        org.mockito.Mockito.when(expenseRepo.findByGroupIdAndVoidedFalse(eq(groupId), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(ex1, ex2), PageRequest.of(0, 2), 2));
+        org.mockito.Mockito.when(expenseRepo.findActiveByGroupId(eq(groupId), any(Pageable.class)))
+                .thenReturn(List.of(ex1, ex2));
+        when(groupCounters.counts(groupId)).thenReturn(new GroupCounters.Counts(2, 4, 0));
 
         ExpenseParticipant p1 = new ExpenseParticipant(ex1, 1001L, new BigDecimal("15.00"));
         ExpenseParticipant p2 = new ExpenseParticipant(ex1, 1002L, new BigDecimal("15.00"));
@@ -85,6 +121,7 @@ class ExpenseServiceScalabilityTest {
         PaginatedResponse<ExpenseResponse> response = service.listExpenses(groupId, actorId, 0, 2, "createdAt,desc", null, null);
 
         assertThat(response.items()).hasSize(2);
+        assertThat(response.totalItems()).isEqualTo(2);
         assertThat(response.items().get(0).splits()).hasSize(2);
         assertThat(response.items().get(1).splits()).hasSize(2);
 
@@ -94,4 +131,26 @@ class ExpenseServiceScalabilityTest {
         verify(participantRepo).findByExpenseIdInOrderByExpenseIdAscUserIdAsc(idsCaptor.capture());
         assertThat(idsCaptor.getValue()).containsExactly(1L, 2L);
     }
+
+    @Test
+    void createExpense_checksAllMembershipAgainstOneCachedRoster() {
+        ExpenseService service = newService();
+
+        Long groupId = 88L;
+        List<Long> members = LongStream.rangeClosed(1, 100).boxed().toList();
+        when(groupMemberRepo.findMemberRolesByGroupId(groupId))
+                .thenReturn(members.stream().map(id -> new MemberRole(id, GroupMember.Role.MEMBER)).toList());
+        when(expenseRepo.save(any(Expense.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        ExpenseResponse response = service.createExpense(groupId, 1L,
+                new CreateExpenseRequest("Trip", new BigDecimal("100.00"), 1L, members), null);
+        ExpenseResponse defaulted = service.createExpense(groupId, 1L,
+                new CreateExpenseRequest("Trip", new BigDecimal("100.00"), 1L, null), null);
+
+        assertThat(response.splits()).hasSize(100);
+        assertThat(defaulted.splits()).extracting(ExpenseResponse.Split::userId).containsExactlyElementsOf(members);
+        verify(groupMemberRepo, times(1)).findMemberRolesByGroupId(groupId);
+        verify(groupMemberRepo, never()).existsByGroupIdAndUserId(anyLong(), anyLong());
+        verify(groupMemberRepo, never()).findViewsByGroupId(anyLong());
+    }
 }
@@ -0,0 +1,141 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.expenses.api.CreateExpenseRequest;
+import com.fairshare.fairshare.expenses.api.ExpenseResponse;
+import com.fairshare.fairshare.expenses.model.LedgerEntry;
+import com.fairshare.fairshare.expenses.service.ExpenseService;
+import com.fairshare.fairshare.groups.model.Group;
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.GroupRepository;
+import com.fairshare.fairshare.support.SqlStatementCounter;
+import com.fairshare.fairshare.users.model.User;
+import com.fairshare.fairshare.users.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.fairshare.fairshare.support.SqlStatementCounter")
+public class ExpenseUpdateIntegrationTest {
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private GroupRepository groupRepo;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private GroupMemberRepository memberRepo;
+
+    @Autowired
+    private LedgerEntryRepository ledgerRepo;
+
+    @Test
+    @DisplayName("Updating a large expense writes participant changes as batched statements")
+    void updateWritesParticipantDiffInBatches() {
+        Group group = groupRepo.save(new Group("Update " + UUID.randomUUID()));
+        List<Long> memberIds = addMembers(group, 60);
+        Long payer = memberIds.getFirst();
+        ExpenseResponse created = expenseService.createExpense(group.getId(), null,
+                new CreateExpenseRequest("Trip", new BigDecimal("500.00"), payer, memberIds.subList(0, 50)), null);
+
+        // drop members 1-5, keep 6-49 with new shares, add 50-59
+        List<Long> updatedParticipants = new ArrayList<>(memberIds.subList(6, 60));
+        updatedParticipants.add(0, payer);
+        SqlStatementCounter.reset();
+        ExpenseResponse updated = expenseService.updateExpense(group.getId(), null, created.expenseId(),
+                new CreateExpenseRequest("Trip", new BigDecimal("731.17"), payer, updatedParticipants));
+
+        // one batch each for new participants and the event, changed shares and the expense, removed participants
+        assertThat(SqlStatementCounter.inserts()).isEqualTo(2);
+        assertThat(SqlStatementCounter.updates()).isEqualTo(2);
+        assertThat(SqlStatementCounter.deletes()).isEqualTo(1);
+
+        assertThat(updated.splits()).hasSize(55);
+        assertLedgerMatches(group.getId(), payer, updated);
+    }
+
+    @Test
+    @DisplayName("Changing the payer moves the old total off the old payer and the new total onto the new payer")
+    void payerChangeMovesCredit() {
+        Group group = groupRepo.save(new Group("Payer " + UUID.randomUUID()));
+        List<Long> memberIds = addMembers(group, 3);
+        Long alice = memberIds.get(0);
+        Long bob = memberIds.get(1);
+        ExpenseResponse created = expenseService.createExpense(group.getId(), null,
+                new CreateExpenseRequest("Dinner", new BigDecimal("90.00"), alice, memberIds), null);
+
+        ExpenseResponse updated = expenseService.updateExpense(group.getId(), null, created.expenseId(),
+                new CreateExpenseRequest("Dinner", new BigDecimal("120.00"), bob, memberIds));
+
+        assertThat(updated.payerUserId()).isEqualTo(bob);
+        Map<Long, BigDecimal> balances = balances(group.getId());
+        assertThat(balances.get(alice)).isEqualByComparingTo("-40.00");
+        assertThat(balances.get(bob)).isEqualByComparingTo("80.00");
+        assertThat(balances.get(memberIds.get(2))).isEqualByComparingTo("-40.00");
+    }
+
+    @Test
+    @DisplayName("Users whose share did not change get no ledger write")
+    void unchangedSharesLeaveLedgerAlone() {
+        Group group = groupRepo.save(new Group("Same " + UUID.randomUUID()));
+        List<Long> memberIds = addMembers(group, 4);
+        ExpenseResponse created = expenseService.createExpense(group.getId(), null,
+                new CreateExpenseRequest("Cab", new BigDecimal("40.00"), memberIds.getFirst(), memberIds), null);
+
+        SqlStatementCounter.reset();
+        expenseService.updateExpense(group.getId(), null, created.expenseId(),
+                new CreateExpenseRequest("Cab home", new BigDecimal("40.00"), memberIds.getFirst(), memberIds));
+
+        // only the expense row changes; every share and balance stays as it was
+        assertThat(SqlStatementCounter.updates()).isEqualTo(1);
+        assertThat(SqlStatementCounter.deletes()).isZero();
+        assertThat(SqlStatementCounter.inserts()).isEqualTo(1);
+    }
+
+    private void assertLedgerMatches(Long groupId, Long payer, ExpenseResponse expense) {
+        Map<Long, BigDecimal> expected = new HashMap<>();
+        for (ExpenseResponse.Split split : expense.splits()) {
+            expected.merge(split.userId(), split.shareAmount().negate(), BigDecimal::add);
+        }
+        expected.merge(payer, expense.amount(), BigDecimal::add);
+
+        Map<Long, BigDecimal> actual = balances(groupId);
+        for (Map.Entry<Long, BigDecimal> e : actual.entrySet()) {
+            assertThat(e.getValue()).as("balance of %d", e.getKey())
+                    .isEqualByComparingTo(expected.getOrDefault(e.getKey(), BigDecimal.ZERO));
+        }
+        assertThat(actual.keySet()).containsAll(expected.keySet());
+    }
+
+    private Map<Long, BigDecimal> balances(Long groupId) {
+        Map<Long, BigDecimal> out = new HashMap<>();
+        for (LedgerEntry entry : ledgerRepo.findByGroupIdOrderByUserIdAsc(groupId)) {
+            out.put(entry.getUserId(), entry.getNetBalance());
+        }
+        return out;
+    }
+
+    private List<Long> addMembers(Group group, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = userRepo.save(new User("member" + i, "member" + i + "+" + UUID.randomUUID() + "@example.com"));
+            memberRepo.save(new GroupMember(group, user, GroupMember.Role.MEMBER));
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,142 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.expenses.api.CreateExpenseRequest;
+import com.fairshare.fairshare.expenses.service.ExpenseService;
+import com.fairshare.fairshare.groups.model.Group;
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.GroupMemberView;
+import com.fairshare.fairshare.groups.repository.GroupRepository;
+import com.fairshare.fairshare.support.JdbcRoundTripCounter;
+import com.fairshare.fairshare.users.model.User;
+import com.fairshare.fairshare.users.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Round trips are counted at the JDBC layer, so Hibernate's batches and the ledger, journal and counter
+ * statements that go through JdbcTemplate are all seen. On H2 the group write lock is an in-JVM stripe;
+ * on Postgres {@code pg_advisory_xact_lock} adds one more fixed round trip.
+ */
+@SpringBootTest
+@Import(JdbcRoundTripCounter.Config.class)
+public class ExpenseWriteBatchingIntegrationTest {
+
+    // roster select, ledger upsert batch, ledger_version bump, journal batch, counters update,
+    // expense insert batch, event insert batch
+    private static final int FIXED_ROUND_TRIPS = 7;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    private int batchSize;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private GroupRepository groupRepo;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private GroupMemberRepository memberRepo;
+
+    @Test
+    @DisplayName("Create expense takes a fixed number of round trips plus one participant batch per batch_size rows")
+    void createExpenseRoundTripsAreBoundedByParticipantBatches() {
+        for (int participants : new int[]{10, 200}) {
+            createExpense(newGroup(participants));
+
+            int participantBatches = (participants + batchSize - 1) / batchSize;
+            assertThat(JdbcRoundTripCounter.roundTrips("insert into expense_participants"))
+                    .as("participant insert batches for %d participants", participants)
+                    .isEqualTo(participantBatches);
+            assertThat(JdbcRoundTripCounter.roundTrips("merge into ledger_entries")).isEqualTo(1);
+            assertThat(JdbcRoundTripCounter.roundTrips("insert into ledger_deltas")).isEqualTo(1);
+            assertThat(JdbcRoundTripCounter.log()).filteredOn(r -> r.sql().toLowerCase(Locale.ROOT).startsWith("merge into ledger_entries"))
+                    .singleElement().extracting(JdbcRoundTripCounter.RoundTrip::rows).isEqualTo(participants);
+
+            // pooled sequences fetch a block of ids at a time: at most one fetch per batch_size rows, plus
+            // one for each entity whose block ran out
+            int sequenceFetches = countStartingWith("select next value for");
+            assertThat(sequenceFetches).isLessThanOrEqualTo(participantBatches + 3);
+            assertThat(JdbcRoundTripCounter.roundTrips() - participantBatches - sequenceFetches)
+                    .as("round trips that do not depend on the participant count, for %d participants", participants)
+                    .isEqualTo(FIXED_ROUND_TRIPS);
+            assertThat(JdbcRoundTripCounter.roundTrips()).isLessThanOrEqualTo(FIXED_ROUND_TRIPS + 3 + 2 * participantBatches);
+        }
+    }
+
+    @Test
+    @DisplayName("Membership checks use one roster query whatever the participant count")
+    void createExpenseSelectsDoNotGrowWithParticipants() {
+        createExpense(newGroup(10));
+        int smallGroupSelects = selects();
+        createExpense(newGroup(200));
+        int largeGroupSelects = selects();
+
+        assertThat(smallGroupSelects).isEqualTo(1);
+        assertThat(largeGroupSelects).isEqualTo(smallGroupSelects);
+    }
+
+    @Test
+    @DisplayName("Ledger balance updates for existing entries do not go through entity updates")
+    void secondExpenseDoesNotUpdateLedgerEntities() {
+        Long groupId = newGroup(200);
+        createExpense(groupId);
+        createExpense(groupId);
+
+        assertThat(JdbcRoundTripCounter.roundTrips("update ledger_entries")).isZero();
+        assertThat(JdbcRoundTripCounter.roundTrips("merge into ledger_entries")).isEqualTo(1);
+    }
+
+    private Long newGroup(int participantCount) {
+        Group group = groupRepo.save(new Group("Batch " + UUID.randomUUID()));
+        addMembers(group, participantCount);
+        return group.getId();
+    }
+
+    // counts only this call's round trips
+    private void createExpense(Long groupId) {
+        List<Long> memberIds = memberRepo.findViewsByGroupId(groupId).stream().map(GroupMemberView::userId).sorted().toList();
+        JdbcRoundTripCounter.reset();
+        expenseService.createExpense(
+                groupId,
+                memberIds.getFirst(),
+                new CreateExpenseRequest("Groceries", new BigDecimal("123.45"), memberIds.getFirst(), memberIds),
+                null
+        );
+    }
+
+    private static int selects() {
+        return countStartingWith("select") - countStartingWith("select next value for");
+    }
+
+    private static int countStartingWith(String prefix) {
+        return (int) JdbcRoundTripCounter.log().stream()
+                .filter(r -> r.sql().stripLeading().toLowerCase(Locale.ROOT).startsWith(prefix))
+                .count();
+    }
+
+    private List<Long> addMembers(Group group, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = userRepo.save(new User("member" + i, "member" + i + "+" + UUID.randomUUID() + "@example.com"));
+            memberRepo.save(new GroupMember(group, user, GroupMember.Role.MEMBER));
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,115 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.expenses.api.ConfirmSettlementsRequest;
+import com.fairshare.fairshare.expenses.api.CreateExpenseRequest;
+import com.fairshare.fairshare.expenses.api.ExpenseResponse;
+import com.fairshare.fairshare.expenses.service.ExpenseService;
+import com.fairshare.fairshare.groups.model.Group;
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.GroupRepository;
+import com.fairshare.fairshare.users.model.User;
+import com.fairshare.fairshare.users.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class GroupCountersIntegrationTest {
+
+    @Autowired
+    private GroupCounters groupCounters;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private GroupRepository groupRepo;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private GroupMemberRepository memberRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Writes keep the counters in step and list totals are read from them")
+    void countersFollowWrites() {
+        Group group = groupRepo.save(new Group("Counters " + UUID.randomUUID()));
+        Long groupId = group.getId();
+        List<Long> members = addMembers(group, 3);
+
+        ExpenseResponse dinner = expenseService.createExpense(groupId, null,
+                new CreateExpenseRequest("Dinner", new BigDecimal("30.00"), members.get(0), members), "dinner-key");
+        // an idempotent replay writes nothing
+        expenseService.createExpense(groupId, null,
+                new CreateExpenseRequest("Dinner", new BigDecimal("30.00"), members.get(0), members), "dinner-key");
+        ExpenseResponse taxi = expenseService.createExpense(groupId, null,
+                new CreateExpenseRequest("Taxi", new BigDecimal("12.00"), members.get(1), members), null);
+        expenseService.createExpense(groupId, null,
+                new CreateExpenseRequest("Fuel", new BigDecimal("18.00"), members.get(2), members), null);
+        expenseService.updateExpense(groupId, null, dinner.expenseId(),
+                new CreateExpenseRequest("Dinner", new BigDecimal("33.00"), members.get(0), members));
+        expenseService.voidExpense(groupId, null, taxi.expenseId());
+        expenseService.voidExpense(groupId, null, taxi.expenseId());
+        ConfirmSettlementsRequest settle = new ConfirmSettlementsRequest(List.of(
+                new ConfirmSettlementsRequest.Transfer(members.get(1), members.get(0), new BigDecimal("5.00")),
+                new ConfirmSettlementsRequest.Transfer(members.get(2), members.get(0), new BigDecimal("5.00"))));
+        expenseService.confirmSettlements(groupId, null, settle, "settle-1");
+        expenseService.confirmSettlements(groupId, null, settle, "settle-1");
+
+        assertThat(groupCounters.counts(groupId)).isEqualTo(new GroupCounters.Counts(2, 5, 2));
+        assertThat(expenseService.listExpenses(groupId, null, 0, 1, "createdAt,desc", null, null).totalItems()).isEqualTo(2);
+        assertThat(expenseService.listEvents(groupId, null, null, null, 0, 2, "createdAt,desc", null, null).totalPages()).isEqualTo(3);
+        assertThat(expenseService.listConfirmedTransfers(groupId, null, null, 0, 1, "createdAt,desc", null, null).totalItems()).isEqualTo(2);
+
+        // filtered lists still count their matches
+        assertThat(expenseService.listEvents(groupId, null, dinner.expenseId(), null, 0, 1, "createdAt,desc", null, null).totalItems()).isEqualTo(2);
+        assertThat(expenseService.listExpenses(groupId, null, 0, 1, "createdAt,desc",
+                Instant.parse("2000-01-01T00:00:00Z"), Instant.now().plusSeconds(60)).totalItems()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Repair recomputes drifted counters and leaves correct ones alone")
+    void repairsDriftedCounters() {
+        Group drifted = groupRepo.save(new Group("Drifted " + UUID.randomUUID()));
+        List<Long> members = addMembers(drifted, 2);
+        expenseService.createExpense(drifted.getId(), null,
+                new CreateExpenseRequest("Dinner", new BigDecimal("20.00"), members.get(0), members), null);
+        Group clean = groupRepo.save(new Group("Clean " + UUID.randomUUID()));
+        List<Long> others = addMembers(clean, 2);
+        expenseService.createExpense(clean.getId(), null,
+                new CreateExpenseRequest("Dinner", new BigDecimal("20.00"), others.get(0), others), null);
+
+        jdbcTemplate.update("UPDATE groups SET expense_count = 40, event_count = 0 WHERE id = ?", drifted.getId());
+        assertThat(expenseService.listExpenses(drifted.getId(), null, 0, 10, "createdAt,desc", null, null).items()).hasSize(1);
+
+        assertThat(groupCounters.repairDrifted()).isGreaterThanOrEqualTo(1);
+        assertThat(groupCounters.counts(drifted.getId())).isEqualTo(new GroupCounters.Counts(1, 1, 0));
+        assertThat(groupCounters.counts(clean.getId())).isEqualTo(new GroupCounters.Counts(1, 1, 0));
+        assertThat(groupCounters.repairDrifted()).isZero();
+    }
+
+    private List<Long> addMembers(Group group, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = userRepo.save(new User("member" + i, "counters-" + UUID.randomUUID() + "@example.com"));
+            memberRepo.save(new GroupMember(group, user, GroupMember.Role.MEMBER));
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,280 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.common.BadRequestException;
+import com.fairshare.fairshare.common.DatabasePlatform;
+import com.fairshare.fairshare.expenses.api.ConfirmSettlementsRequest;
+import com.fairshare.fairshare.expenses.api.CreateExpenseRequest;
+import com.fairshare.fairshare.expenses.model.ConfirmedTransfer;
+import com.fairshare.fairshare.expenses.model.Expense;
+import com.fairshare.fairshare.expenses.model.ExpenseParticipant;
+import com.fairshare.fairshare.expenses.model.LedgerEntry;
+import com.fairshare.fairshare.expenses.service.ExpenseService;
+import com.fairshare.fairshare.groups.model.Group;
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.GroupRepository;
+import com.fairshare.fairshare.users.model.User;
+import com.fairshare.fairshare.users.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs a mixed create/update/void/settle workload from several threads, then checks that every
+ * group's balances sum to zero and match its expenses and transfers. Each strategy gets its own
+ * application context, so the writes go through the {@link ExpenseService} Spring wires with that
+ * strategy's {@link GroupWriteLock}. Throughput is printed so the strategies can be compared.
+ * <p>
+ * The advisory strategy is never exercised here: it needs PostgreSQL and the tests only run against
+ * H2, so only the striped lock and the unlocked baseline are measured.
+ */
+public class GroupWriteSerializationIntegrationTest {
+
+    private static final int WRITERS = 8;
+    private static final int OPS_PER_WRITER = 40;
+    private static final int GROUPS = 2;
+    private static final int MEMBERS = 5;
+
+    @Nested
+    @SpringBootTest(properties = "fairshare.group-write-lock.strategy=striped")
+    class Striped {
+        @Test
+        @DisplayName("Concurrent ledger writes keep every group balanced under the striped lock")
+        void concurrentWritesKeepGroupsBalanced(@Autowired ApplicationContext context) throws Exception {
+            Workload workload = new Workload(context);
+            assertThat(workload.lock.strategy()).isEqualTo(GroupWriteLock.Strategy.STRIPED);
+
+            Run run = workload.run();
+            assertThat(run.failed).as("failed writes").isZero();
+            for (Long groupId : run.groupIds) {
+                Map<Long, BigDecimal> balances = workload.balances(groupId);
+                assertThat(balances.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add))
+                        .as("sum of balances in group %d", groupId)
+                        .isEqualByComparingTo("0.00");
+                assertThat(balances).as("ledger of group %d", groupId)
+                        .usingComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                        .isEqualTo(workload.recomputed(groupId, balances.keySet()));
+                assertThat(workload.groupCounters.counts(groupId)).as("counters of group %d", groupId)
+                        .isEqualTo(workload.countedRows(groupId));
+            }
+        }
+    }
+
+    @Nested
+    @SpringBootTest
+    @Import(UnlockedGroupWriteLock.class)
+    class Unlocked {
+        // without serialization an update can read participants and totals from different states, so
+        // this is only measured; it is the baseline the locking strategies are compared against
+        @Test
+        @DisplayName("Concurrent ledger writes without a group write lock are measured as the baseline")
+        void unlockedBaseline(@Autowired ApplicationContext context) throws Exception {
+            Workload workload = new Workload(context);
+            assertThat(workload.lock.strategy()).isEqualTo(GroupWriteLock.Strategy.NONE);
+            assertThat(workload.run().writes).isPositive();
+        }
+    }
+
+    @Test
+    @DisplayName("The unlocked strategy cannot be configured")
+    void noneIsRejectedInConfiguration() {
+        DatabasePlatform h2 = mock(DatabasePlatform.class);
+        assertThatThrownBy(() -> new GroupWriteLock(null, h2, "none", 256))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("fairshare.group-write-lock.strategy");
+    }
+
+    /** Replaces only the group write lock; everything else in the context is the application's own. */
+    @TestConfiguration(proxyBeanMethods = false)
+    static class UnlockedGroupWriteLock {
+        @Bean
+        @Primary
+        GroupWriteLock unlockedGroupWriteLock(JdbcTemplate jdbcTemplate) {
+            return new GroupWriteLock(jdbcTemplate, GroupWriteLock.Strategy.NONE, 1);
+        }
+    }
+
+    private static final class Workload {
+        private final ExpenseService service;
+        private final GroupWriteLock lock;
+        private final GroupCounters groupCounters;
+        private final ExpenseRepository expenseRepo;
+        private final ExpenseParticipantRepository participantRepo;
+        private final LedgerEntryRepository ledgerRepo;
+        private final ConfirmedTransferRepository confirmedTransferRepo;
+        private final GroupRepository groupRepo;
+        private final GroupMemberRepository groupMemberRepo;
+        private final UserRepository userRepo;
+        private final JdbcTemplate jdbcTemplate;
+        private final PlatformTransactionManager transactionManager;
+
+        Workload(ApplicationContext context) {
+            this.service = context.getBean(ExpenseService.class);
+            this.lock = context.getBean(GroupWriteLock.class);
+            this.groupCounters = context.getBean(GroupCounters.class);
+            this.expenseRepo = context.getBean(ExpenseRepository.class);
+            this.participantRepo = context.getBean(ExpenseParticipantRepository.class);
+            this.ledgerRepo = context.getBean(LedgerEntryRepository.class);
+            this.confirmedTransferRepo = context.getBean(ConfirmedTransferRepository.class);
+            this.groupRepo = context.getBean(GroupRepository.class);
+            this.groupMemberRepo = context.getBean(GroupMemberRepository.class);
+            this.userRepo = context.getBean(UserRepository.class);
+            this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+            this.transactionManager = context.getBean(PlatformTransactionManager.class);
+        }
+
+        Run run() throws Exception {
+            GroupWriteLock.Strategy strategy = lock.strategy();
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            List<Long> groupIds = new ArrayList<>();
+            Map<Long, List<Long>> membersByGroup = new HashMap<>();
+            Map<Long, List<Long>> expensesByGroup = new HashMap<>();
+            for (int g = 0; g < GROUPS; g++) {
+                Group group = groupRepo.save(new Group("Stress " + strategy + " " + UUID.randomUUID()));
+                groupIds.add(group.getId());
+                membersByGroup.put(group.getId(), addMembers(group));
+                expensesByGroup.put(group.getId(), new CopyOnWriteArrayList<>());
+            }
+
+            AtomicInteger writes = new AtomicInteger();
+            AtomicInteger rejected = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+            long start = System.nanoTime();
+            try {
+                List<Callable<Void>> tasks = new ArrayList<>();
+                for (int w = 0; w < WRITERS; w++) {
+                    Random rnd = new Random(w);
+                    tasks.add(() -> {
+                        for (int i = 0; i < OPS_PER_WRITER; i++) {
+                            Long groupId = groupIds.get(rnd.nextInt(GROUPS));
+                            List<Long> members = membersByGroup.get(groupId);
+                            List<Long> expenses = expensesByGroup.get(groupId);
+                            Long payer = members.get(rnd.nextInt(MEMBERS));
+                            BigDecimal amount = BigDecimal.valueOf(100 + rnd.nextInt(10_000), 2);
+                            int op = rnd.nextInt(20);
+                            Supplier<Object> write;
+                            if (op < 11 || expenses.isEmpty()) {
+                                write = () -> expenses.add(service.createExpense(groupId, null,
+                                        new CreateExpenseRequest("Stress", amount, payer, members), null).expenseId());
+                            } else if (op < 15) {
+                                Long expenseId = expenses.get(rnd.nextInt(expenses.size()));
+                                List<Long> subset = members.subList(0, 2 + rnd.nextInt(MEMBERS - 1));
+                                write = () -> service.updateExpense(groupId, null, expenseId,
+                                        new CreateExpenseRequest("Stress", amount, payer, subset));
+                            } else if (op < 18) {
+                                Long expenseId = expenses.get(rnd.nextInt(expenses.size()));
+                                write = () -> {
+                                    service.voidExpense(groupId, null, expenseId);
+                                    return null;
+                                };
+                            } else {
+                                Long to = members.get((members.indexOf(payer) + 1) % MEMBERS);
+                                write = () -> service.confirmSettlements(groupId, null, new ConfirmSettlementsRequest(
+                                        List.of(new ConfirmSettlementsRequest.Transfer(payer, to, amount))), null);
+                            }
+                            try {
+                                tx.execute(status -> write.get());
+                                writes.incrementAndGet();
+                            } catch (BadRequestException e) {
+                                rejected.incrementAndGet(); // e.g. updating an expense another writer voided
+                            } catch (RuntimeException e) {
+                                failed.incrementAndGet(); // lock timeouts or deadlocks without serialization
+                            }
+                        }
+                        return null;
+                    });
+                }
+                for (Future<Void> f : pool.invokeAll(tasks)) {
+                    f.get();
+                }
+            } finally {
+                pool.shutdown();
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("group write lock %-8s %5d writes in %5d ms = %7.1f writes/sec (%d rejected, %d failed)%n",
+                    strategy, writes.get(), millis, writes.get() * 1000.0 / Math.max(1, millis), rejected.get(), failed.get());
+            return new Run(groupIds, writes.get(), rejected.get(), failed.get(), millis);
+        }
+
+        // What the ledger should hold if every write was applied against the state the previous one left
+        private Map<Long, BigDecimal> recomputed(Long groupId, Iterable<Long> ledgerUsers) {
+            Map<Long, BigDecimal> expected = new HashMap<>();
+            for (Long userId : ledgerUsers) expected.put(userId, BigDecimal.ZERO);
+            List<Long> liveExpenseIds = new ArrayList<>();
+            for (Expense e : expenseRepo.findByGroupIdOrderByCreatedAtDesc(groupId)) {
+                if (e.isVoided()) continue;
+                liveExpenseIds.add(e.getId());
+                expected.merge(e.getPayerUserId(), e.getAmount(), BigDecimal::add);
+            }
+            if (!liveExpenseIds.isEmpty()) {
+                for (ExpenseParticipant p : participantRepo.findByExpenseIdInOrderByExpenseIdAscUserIdAsc(liveExpenseIds)) {
+                    expected.merge(p.getUserId(), p.getShareAmount().negate(), BigDecimal::add);
+                }
+            }
+            for (ConfirmedTransfer t : confirmedTransferRepo.findByGroupId(groupId, Pageable.unpaged())) {
+                expected.merge(t.getFromUserId(), t.getAmount(), BigDecimal::add);
+                expected.merge(t.getToUserId(), t.getAmount().negate(), BigDecimal::add);
+            }
+            return expected;
+        }
+
+        private GroupCounters.Counts countedRows(Long groupId) {
+            return new GroupCounters.Counts(
+                    jdbcTemplate.queryForObject("SELECT COUNT(*) FROM expenses WHERE group_id = ? AND (voided IS NULL OR voided = FALSE)", Long.class, groupId),
+                    jdbcTemplate.queryForObject("SELECT COUNT(*) FROM expense_events WHERE group_id = ?", Long.class, groupId),
+                    jdbcTemplate.queryForObject("SELECT COUNT(*) FROM confirmed_transfers WHERE group_id = ?", Long.class, groupId));
+        }
+
+        private Map<Long, BigDecimal> balances(Long groupId) {
+            Map<Long, BigDecimal> out = new HashMap<>();
+            for (LedgerEntry entry : ledgerRepo.findByGroupIdOrderByUserIdAsc(groupId)) {
+                out.put(entry.getUserId(), entry.getNetBalance());
+            }
+            return out;
+        }
+
+        private List<Long> addMembers(Group group) {
+            List<Long> ids = new ArrayList<>(MEMBERS);
+            for (int i = 0; i < MEMBERS; i++) {
+                User user = userRepo.save(new User("stress" + i, "stress" + i + "+" + UUID.randomUUID() + "@example.com"));
+                groupMemberRepo.save(new GroupMember(group, user, GroupMember.Role.MEMBER));
+                ids.add(user.getId());
+            }
+            return ids;
+        }
+    }
+
+    private record Run(List<Long> groupIds, int writes, int rejected, int failed, long millis) {
+    }
+}
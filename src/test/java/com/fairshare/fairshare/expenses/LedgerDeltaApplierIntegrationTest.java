@@ -0,0 +1,125 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.expenses.api.CreateExpenseRequest;
+import com.fairshare.fairshare.expenses.model.LedgerEntry;
+import com.fairshare.fairshare.expenses.service.ExpenseService;
+import com.fairshare.fairshare.groups.model.Group;
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.GroupRepository;
+import com.fairshare.fairshare.users.model.User;
+import com.fairshare.fairshare.users.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class LedgerDeltaApplierIntegrationTest {
+
+    @Autowired
+    private LedgerDeltaApplier applier;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private LedgerEntryRepository ledgerRepo;
+
+    @Autowired
+    private GroupRepository groupRepo;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private GroupMemberRepository memberRepo;
+
+    @Test
+    @DisplayName("Upsert creates missing ledger rows and increments existing ones")
+    void upsertCreatesThenIncrements() {
+        Group group = groupRepo.save(new Group("Upsert " + UUID.randomUUID()));
+        List<Long> ids = addMembers(group, 2);
+
+        applier.apply(group.getId(), new LedgerDeltas()
+                .add(ids.get(0), new BigDecimal("10.00"))
+                .add(ids.get(1), new BigDecimal("-10.00")));
+        applier.apply(group.getId(), new LedgerDeltas()
+                .add(ids.get(0), new BigDecimal("-2.50"))
+                .add(ids.get(0), new BigDecimal("-2.50"))
+                .add(ids.get(1), new BigDecimal("5.00")));
+
+        Map<Long, BigDecimal> balances = balances(group.getId());
+        assertThat(balances).hasSize(2);
+        assertThat(balances.get(ids.get(0))).isEqualByComparingTo("5.00");
+        assertThat(balances.get(ids.get(1))).isEqualByComparingTo("-5.00");
+    }
+
+    @Test
+    @DisplayName("Concurrent expenses on one group do not lose ledger updates")
+    void concurrentExpensesKeepLedgerConsistent() throws Exception {
+        Group group = groupRepo.save(new Group("Concurrent " + UUID.randomUUID()));
+        List<Long> ids = addMembers(group, 4);
+        Long payer = ids.get(0);
+        CreateExpenseRequest req = new CreateExpenseRequest("Coffee", new BigDecimal("8.00"), payer, ids);
+
+        // first expense creates the ledger rows so the concurrent ones all hit existing entries
+        expenseService.createExpense(group.getId(), null, req, null);
+
+        int writers = 8;
+        int perWriter = 5;
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                tasks.add(() -> {
+                    for (int j = 0; j < perWriter; j++) {
+                        expenseService.createExpense(group.getId(), null, req, null);
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> f : pool.invokeAll(tasks)) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        int expenses = 1 + writers * perWriter;
+        Map<Long, BigDecimal> balances = balances(group.getId());
+        assertThat(balances.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add)).isEqualByComparingTo("0.00");
+        assertThat(balances.get(payer)).isEqualByComparingTo(new BigDecimal("6.00").multiply(BigDecimal.valueOf(expenses)));
+        for (Long other : ids.subList(1, ids.size())) {
+            assertThat(balances.get(other)).isEqualByComparingTo(new BigDecimal("-2.00").multiply(BigDecimal.valueOf(expenses)));
+        }
+    }
+
+    private Map<Long, BigDecimal> balances(Long groupId) {
+        return ledgerRepo.findByGroupIdOrderByUserIdAsc(groupId).stream()
+                .collect(Collectors.toMap(LedgerEntry::getUserId, LedgerEntry::getNetBalance));
+    }
+
+    private List<Long> addMembers(Group group, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = userRepo.save(new User("ledger" + i, "ledger" + i + "+" + UUID.randomUUID() + "@example.com"));
+            memberRepo.save(new GroupMember(group, user, GroupMember.Role.MEMBER));
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
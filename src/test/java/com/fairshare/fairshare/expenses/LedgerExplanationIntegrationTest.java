@@ -0,0 +1,181 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.common.BadRequestException;
+import com.fairshare.fairshare.common.KeysetCursor;
+import com.fairshare.fairshare.common.api.CursorPage;
+import com.fairshare.fairshare.expenses.api.ConfirmSettlementsRequest;
+import com.fairshare.fairshare.expenses.api.CreateExpenseRequest;
+import com.fairshare.fairshare.expenses.api.ExpenseResponse;
+import com.fairshare.fairshare.expenses.api.LedgerContributionResponse;
+import com.fairshare.fairshare.expenses.api.LedgerExplanationResponse;
+import com.fairshare.fairshare.expenses.api.LedgerResponse;
+import com.fairshare.fairshare.expenses.service.ExpenseService;
+import com.fairshare.fairshare.groups.model.Group;
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.GroupRepository;
+import com.fairshare.fairshare.support.SqlStatementCounter;
+import com.fairshare.fairshare.users.model.User;
+import com.fairshare.fairshare.users.repository.UserRepository;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.fairshare.fairshare.support.SqlStatementCounter")
+public class LedgerExplanationIntegrationTest {
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private GroupRepository groupRepo;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private GroupMemberRepository memberRepo;
+
+    @Test
+    @DisplayName("Explanations take a fixed number of queries, skip voided expenses and match the ledger")
+    void explanationsUseConstantQueries() {
+        Group group = groupRepo.save(new Group("Explain " + UUID.randomUUID()));
+        Long groupId = group.getId();
+        List<Long> members = addMembers(group, 30);
+        for (int i = 0; i < 10; i++) {
+            expenseService.createExpense(groupId, null, new CreateExpenseRequest("Round " + i, new BigDecimal("60.00"),
+                    members.get(i * 3), members.subList(i, i + 12)), null);
+        }
+        ExpenseResponse typo = expenseService.createExpense(groupId, null,
+                new CreateExpenseRequest("Typo", new BigDecimal("900.00"), members.get(5), members), null);
+        expenseService.voidExpense(groupId, null, typo.expenseId());
+        expenseService.confirmSettlements(groupId, null, new ConfirmSettlementsRequest(List.of(
+                new ConfirmSettlementsRequest.Transfer(members.get(1), members.get(0), new BigDecimal("5.00")),
+                new ConfirmSettlementsRequest.Transfer(members.get(5), members.get(3), new BigDecimal("2.50")))), null);
+
+        // warm the roster cache so only the explanation queries are counted
+        expenseService.getLedgerExplanation(groupId, members.get(0), members.get(0));
+        SqlStatementCounter.reset();
+        LedgerExplanationResponse all = expenseService.getLedgerExplanation(groupId, null, null);
+        assertThat(SqlStatementCounter.selects()).isEqualTo(3);
+
+        assertThat(all.explanations()).extracting(LedgerExplanationResponse.UserLedgerExplanation::userId)
+                .containsExactlyElementsOf(members);
+        Map<Long, BigDecimal> ledger = expenseService.getLedger(groupId, null).entries().stream()
+                .collect(Collectors.toMap(LedgerResponse.Entry::userId, LedgerResponse.Entry::netBalance));
+        for (LedgerExplanationResponse.UserLedgerExplanation explanation : all.explanations()) {
+            assertThat(explanation.netBalance())
+                    .as("user %d", explanation.userId())
+                    .isEqualByComparingTo(ledger.getOrDefault(explanation.userId(), BigDecimal.ZERO));
+            assertThat(explanation.contributions())
+                    .isSortedAccordingTo(Comparator.comparing(LedgerExplanationResponse.Contribution::timestamp).reversed())
+                    .noneMatch(c -> c.referenceId().equals(typo.expenseId()) && c.type().startsWith("EXPENSE"));
+        }
+
+        SqlStatementCounter.reset();
+        LedgerExplanationResponse one = expenseService.getLedgerExplanation(groupId, null, members.get(5));
+        assertThat(SqlStatementCounter.selects()).isEqualTo(3);
+        assertThat(one.explanations()).hasSize(1);
+        assertThat(one.explanations().get(0)).isEqualTo(all.explanations().get(5));
+    }
+
+    @Test
+    @DisplayName("A member's ledger pages newest first with running balances and matches the full explanation")
+    void pagesOneMembersLedger() {
+        Group group = groupRepo.save(new Group("Explain " + UUID.randomUUID()));
+        Long groupId = group.getId();
+        List<Long> members = addMembers(group, 4);
+        Long user = members.get(1);
+        for (int i = 0; i < 5; i++) {
+            expenseService.createExpense(groupId, null, new CreateExpenseRequest("Round " + i, new BigDecimal("12.00"),
+                    members.get(i % 4), members), null);
+        }
+        ExpenseResponse typo = expenseService.createExpense(groupId, null,
+                new CreateExpenseRequest("Typo", new BigDecimal("80.00"), user, members), null);
+        expenseService.voidExpense(groupId, null, typo.expenseId());
+        expenseService.confirmSettlements(groupId, null, new ConfirmSettlementsRequest(List.of(
+                new ConfirmSettlementsRequest.Transfer(user, members.get(0), new BigDecimal("1.50")),
+                new ConfirmSettlementsRequest.Transfer(members.get(2), user, new BigDecimal("4.00")))), null);
+
+        List<LedgerContributionResponse> paged = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<LedgerContributionResponse> page = expenseService.getUserLedgerExplanation(groupId, null, user, cursor, 3);
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(3);
+            paged.addAll(page.items());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        LedgerExplanationResponse.UserLedgerExplanation full = expenseService.getLedgerExplanation(groupId, null, user).explanations().get(0);
+        assertThat(pages).isEqualTo((full.contributions().size() + 2) / 3);
+        assertThat(paged).extracting(LedgerContributionResponse::type, LedgerContributionResponse::amount, LedgerContributionResponse::description,
+                        LedgerContributionResponse::timestamp, LedgerContributionResponse::referenceId)
+                .containsExactlyElementsOf(full.contributions().stream()
+                        .map(c -> Tuple.tuple(c.type(), c.amount(), c.description(), c.timestamp(), c.referenceId()))
+                        .toList());
+
+        // each running balance is the one after it plus that contribution, down to zero before the first
+        assertThat(paged.get(0).runningBalance()).isEqualByComparingTo(full.netBalance());
+        for (int i = 0; i < paged.size() - 1; i++) {
+            assertThat(paged.get(i).runningBalance().subtract(paged.get(i).amount()))
+                    .isEqualByComparingTo(paged.get(i + 1).runningBalance());
+        }
+        LedgerContributionResponse oldest = paged.get(paged.size() - 1);
+        assertThat(oldest.runningBalance().subtract(oldest.amount())).isEqualByComparingTo(BigDecimal.ZERO);
+
+        assertThatThrownBy(() -> expenseService.getUserLedgerExplanation(groupId, null, user, "not-a-cursor", 3))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> expenseService.getUserLedgerExplanation(groupId, null, user, null, 0))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    @DisplayName("A cursor whose running balance was edited is rejected")
+    void editedCursorRejected() {
+        Group group = groupRepo.save(new Group("Explain " + UUID.randomUUID()));
+        Long groupId = group.getId();
+        List<Long> members = addMembers(group, 2);
+        for (int i = 0; i < 3; i++) {
+            expenseService.createExpense(groupId, null, new CreateExpenseRequest("Round " + i, new BigDecimal("10.00"), members.get(0), members), null);
+        }
+        String cursor = expenseService.getUserLedgerExplanation(groupId, null, members.get(0), null, 1).nextCursor();
+        assertThat(expenseService.getUserLedgerExplanation(groupId, null, members.get(0), cursor, 1).items()).hasSize(1);
+
+        // timestamp seconds, nanos, type, referenceId, balance, signature
+        String[] parts = KeysetCursor.decode(cursor, 6);
+        parts[4] = "1000000.00";
+        String edited = KeysetCursor.encode((Object[]) parts);
+        assertThatThrownBy(() -> expenseService.getUserLedgerExplanation(groupId, null, members.get(0), edited, 1))
+                .isInstanceOf(BadRequestException.class);
+
+        String unsigned = KeysetCursor.encode((Object[]) Arrays.copyOf(parts, 5));
+        assertThatThrownBy(() -> expenseService.getUserLedgerExplanation(groupId, null, members.get(0), unsigned, 1))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private List<Long> addMembers(Group group, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = userRepo.save(new User("member" + i, "explain-" + UUID.randomUUID() + "@example.com"));
+            memberRepo.save(new GroupMember(group, user, GroupMember.Role.MEMBER));
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
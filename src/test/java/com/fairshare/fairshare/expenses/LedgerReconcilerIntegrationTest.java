@@ -0,0 +1,159 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.expenses.api.ConfirmSettlementsRequest;
+import com.fairshare.fairshare.expenses.api.CreateExpenseRequest;
+import com.fairshare.fairshare.expenses.api.ExpenseResponse;
+import com.fairshare.fairshare.expenses.service.ExpenseService;
+import com.fairshare.fairshare.groups.model.Group;
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.GroupRepository;
+import com.fairshare.fairshare.users.model.User;
+import com.fairshare.fairshare.users.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// small batches so a run spans several checkpoints
+@SpringBootTest(properties = {"fairshare.reconciliation.batch-size=2", "fairshare.reconciliation.threads=3"})
+public class LedgerReconcilerIntegrationTest {
+
+    @Autowired
+    private LedgerReconciler reconciler;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private GroupRepository groupRepo;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private GroupMemberRepository memberRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("Balances built by the service reconcile; a tampered balance is reported as drift")
+    void reportsDrift() {
+        Group clean = groupRepo.save(new Group("Clean " + UUID.randomUUID()));
+        List<Long> members = addMembers(clean, 3);
+        expenseService.createExpense(clean.getId(), null, new CreateExpenseRequest("Dinner", new BigDecimal("30.00"), members.get(0), members), null);
+        ExpenseResponse taxi = expenseService.createExpense(clean.getId(), null, new CreateExpenseRequest("Taxi", new BigDecimal("12.00"), members.get(1), members), null);
+        ExpenseResponse voided = expenseService.createExpense(clean.getId(), null, new CreateExpenseRequest("Typo", new BigDecimal("99.00"), members.get(2), members), null);
+        expenseService.updateExpense(clean.getId(), null, taxi.expenseId(), new CreateExpenseRequest("Taxi", new BigDecimal("15.00"), members.get(1), members.subList(0, 2)));
+        expenseService.voidExpense(clean.getId(), null, voided.expenseId());
+        expenseService.confirmSettlements(clean.getId(), null, new ConfirmSettlementsRequest(List.of(
+                new ConfirmSettlementsRequest.Transfer(members.get(2), members.get(0), new BigDecimal("10.00")))), null);
+        assertThat(reconciler.check(clean.getId())).isEmpty();
+
+        Group tampered = groupRepo.save(new Group("Tampered " + UUID.randomUUID()));
+        List<Long> others = addMembers(tampered, 2);
+        expenseService.createExpense(tampered.getId(), null, new CreateExpenseRequest("Fuel", new BigDecimal("20.00"), others.get(0), others), null);
+        tamper(tampered.getId(), others.get(1));
+
+        assertThat(reconciler.check(tampered.getId())).containsExactly(
+                new LedgerReconciler.Drift(tampered.getId(), others.get(1), new BigDecimal("-10.00"), new BigDecimal("-9.00")));
+
+        double driftedBefore = meterRegistry.get(LedgerReconciler.USERS_DRIFTED).counter().count();
+        LedgerReconciler.RunSummary summary = reconciler.run().orElseThrow();
+
+        assertThat(summary.resumed()).isFalse();
+        assertThat(summary.groupsChecked()).isGreaterThanOrEqualTo(2);
+        assertThat(driftedGroups(summary.runId())).contains(tampered.getId()).doesNotContain(clean.getId());
+        assertThat(meterRegistry.get(LedgerReconciler.USERS_DRIFTED).counter().count()).isGreaterThan(driftedBefore);
+        assertThat(meterRegistry.get(LedgerReconciler.RUN_GROUPS_DRIFTED).gauge().value()).isEqualTo(summary.groupsDrifted());
+        assertThat(meterRegistry.get(LedgerReconciler.RUN_THROUGHPUT).gauge().value()).isPositive();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reconciliation_runs WHERE finished_at IS NULL", Integer.class)).isZero();
+    }
+
+    @Test
+    @DisplayName("An unfinished run resumes after its checkpoint")
+    void resumesFromCheckpoint() {
+        Group before = groupRepo.save(new Group("Before " + UUID.randomUUID()));
+        List<Long> first = addMembers(before, 2);
+        expenseService.createExpense(before.getId(), null, new CreateExpenseRequest("Fuel", new BigDecimal("20.00"), first.get(0), first), null);
+        tamper(before.getId(), first.get(0));
+
+        Group after = groupRepo.save(new Group("After " + UUID.randomUUID()));
+        List<Long> second = addMembers(after, 2);
+        expenseService.createExpense(after.getId(), null, new CreateExpenseRequest("Fuel", new BigDecimal("20.00"), second.get(0), second), null);
+        tamper(after.getId(), second.get(0));
+
+        // a run that stopped right after checking the first group
+        jdbcTemplate.update("INSERT INTO reconciliation_runs (started_at, last_group_id, groups_checked, groups_drifted) VALUES (?, ?, 7, 1)",
+                Timestamp.from(Instant.now()), before.getId());
+
+        LedgerReconciler.RunSummary summary = reconciler.run().orElseThrow();
+
+        assertThat(summary.resumed()).isTrue();
+        assertThat(summary.groupsChecked()).isGreaterThanOrEqualTo(8);
+        assertThat(driftedGroups(summary.runId())).containsExactly(after.getId());
+    }
+
+    @Test
+    @DisplayName("A run leased to another instance is skipped until its lease lapses, then taken over")
+    void leasedRunIsSkipped() {
+        Group group = groupRepo.save(new Group("Leased " + UUID.randomUUID()));
+        List<Long> members = addMembers(group, 2);
+        expenseService.createExpense(group.getId(), null, new CreateExpenseRequest("Fuel", new BigDecimal("20.00"), members.get(0), members), null);
+        tamper(group.getId(), members.get(0));
+
+        // another instance is part way through a run and checkpointed recently
+        jdbcTemplate.update("INSERT INTO reconciliation_runs (started_at, last_group_id, groups_checked, groups_drifted, claimed_by, claimed_until) VALUES (?, 0, 0, 0, 'other', ?)",
+                Timestamp.from(Instant.now()), Timestamp.from(Instant.now().plusSeconds(3600)));
+        long runId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM reconciliation_runs", Long.class);
+        double checkedBefore = meterRegistry.get(LedgerReconciler.GROUPS_CHECKED).counter().count();
+
+        assertThat(reconciler.run()).isEmpty();
+        assertThat(driftedGroups(runId)).isEmpty();
+        assertThat(meterRegistry.get(LedgerReconciler.GROUPS_CHECKED).counter().count()).isEqualTo(checkedBefore);
+        assertThat(jdbcTemplate.queryForObject("SELECT groups_checked FROM reconciliation_runs WHERE id = ?", Long.class, runId)).isZero();
+
+        // that instance went away
+        jdbcTemplate.update("UPDATE reconciliation_runs SET claimed_until = ? WHERE id = ?", Timestamp.from(Instant.now().minusSeconds(1)), runId);
+
+        LedgerReconciler.RunSummary summary = reconciler.run().orElseThrow();
+        assertThat(summary.runId()).isEqualTo(runId);
+        assertThat(summary.resumed()).isTrue();
+        assertThat(driftedGroups(runId)).contains(group.getId());
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reconciliation_runs WHERE id = ? AND finished_at IS NOT NULL AND claimed_by IS NULL",
+                Integer.class, runId)).isEqualTo(1);
+    }
+
+    private List<Long> driftedGroups(long runId) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT group_id FROM ledger_drifts WHERE run_id = ? ORDER BY group_id", Long.class, runId);
+    }
+
+    private void tamper(Long groupId, Long userId) {
+        jdbcTemplate.update("UPDATE ledger_entries SET net_balance = net_balance + 1 WHERE group_id = ? AND user_id = ?", groupId, userId);
+    }
+
+    private List<Long> addMembers(Group group, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = userRepo.save(new User("member" + i, "recon-" + UUID.randomUUID() + "@example.com"));
+            memberRepo.save(new GroupMember(group, user, GroupMember.Role.MEMBER));
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
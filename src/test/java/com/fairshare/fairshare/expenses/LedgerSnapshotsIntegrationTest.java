@@ -0,0 +1,170 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.common.BadRequestException;
+import com.fairshare.fairshare.expenses.api.CreateExpenseRequest;
+import com.fairshare.fairshare.expenses.api.LedgerResponse;
+import com.fairshare.fairshare.expenses.service.ExpenseService;
+import com.fairshare.fairshare.groups.model.Group;
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.GroupRepository;
+import com.fairshare.fairshare.users.model.User;
+import com.fairshare.fairshare.users.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+public class LedgerSnapshotsIntegrationTest {
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private LedgerSnapshots ledgerSnapshots;
+
+    @Autowired
+    private GroupRepository groupRepo;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private GroupMemberRepository memberRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Balances as of an instant replay the journal on top of the nearest earlier snapshot")
+    void balancesAsOfInstant() throws Exception {
+        Group group = groupRepo.save(new Group("History " + UUID.randomUUID()));
+        Long groupId = group.getId();
+        List<Long> members = addMembers(group, 2);
+        Long a = members.get(0);
+        Long b = members.get(1);
+
+        Instant beforeAnything = tick();
+        expenseService.createExpense(groupId, null, new CreateExpenseRequest("Fuel", new BigDecimal("20.00"), a, members), null);
+        Instant afterFirst = tick();
+
+        // no snapshot yet: the whole journal is replayed from zero
+        assertThat(entries(groupId, beforeAnything)).isEmpty();
+        assertThat(entries(groupId, afterFirst)).containsExactly(
+                new LedgerResponse.Entry(a, new BigDecimal("10.00")),
+                new LedgerResponse.Entry(b, new BigDecimal("-10.00")));
+
+        assertThat(snapshot(groupId)).isTrue();
+        assertThat(snapshot(groupId)).as("unchanged ledger is not snapshotted again").isFalse();
+        Instant afterSnapshot = tick();
+
+        expenseService.createExpense(groupId, null, new CreateExpenseRequest("Hotel", new BigDecimal("60.00"), b, members), null);
+        Instant afterSecond = tick();
+
+        // the journal up to the snapshot is no longer needed for reads at or after it
+        jdbcTemplate.update("DELETE FROM ledger_deltas WHERE group_id = ? AND ledger_version <= 1", groupId);
+
+        assertThat(entries(groupId, afterSnapshot)).containsExactly(
+                new LedgerResponse.Entry(a, new BigDecimal("10.00")),
+                new LedgerResponse.Entry(b, new BigDecimal("-10.00")));
+        assertThat(entries(groupId, afterSecond)).containsExactly(
+                new LedgerResponse.Entry(a, new BigDecimal("-20.00")),
+                new LedgerResponse.Entry(b, new BigDecimal("20.00")));
+        assertThat(entries(groupId, afterSecond))
+                .isEqualTo(expenseService.getLedger(groupId, null).entries());
+    }
+
+    @Test
+    @DisplayName("The scheduled pass only snapshots groups whose ledger changed")
+    void snapshotsChangedGroupsOnly() {
+        Group group = groupRepo.save(new Group("History " + UUID.randomUUID()));
+        List<Long> members = addMembers(group, 2);
+        Group idle = groupRepo.save(new Group("Idle " + UUID.randomUUID()));
+        addMembers(idle, 2);
+        expenseService.createExpense(group.getId(), null, new CreateExpenseRequest("Fuel", new BigDecimal("20.00"), members.get(0), members), null);
+
+        assertThat(ledgerSnapshots.snapshotChangedGroups()).isPositive();
+        assertThat(ledgerSnapshots.snapshotChangedGroups()).isZero();
+        assertThat(snapshotCount(group.getId())).isEqualTo(1);
+        assertThat(snapshotCount(idle.getId())).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ledger_snapshot_balances WHERE group_id = ?", Integer.class, group.getId()))
+                .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("asOf in the future is rejected")
+    void futureAsOfRejected() {
+        Group group = groupRepo.save(new Group("History " + UUID.randomUUID()));
+        assertThatThrownBy(() -> expenseService.getLedgerAsOf(group.getId(), null, Instant.now().plus(Duration.ofDays(1))))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    @DisplayName("asOf before a seeded group's first snapshot is rejected instead of returning an empty ledger")
+    void asOfBeforeHistoryRejected() throws Exception {
+        Group group = groupRepo.save(new Group("History " + UUID.randomUUID()));
+        Long groupId = group.getId();
+        List<Long> members = addMembers(group, 2);
+        expenseService.createExpense(groupId, null, new CreateExpenseRequest("Fuel", new BigDecimal("20.00"), members.get(0), members), null);
+        Instant beforeSeed = tick();
+
+        // what docs/0008 leaves for a group that had balances before the journal: a seed snapshot and no deltas
+        assertThat(snapshot(groupId)).isTrue();
+        jdbcTemplate.update("DELETE FROM ledger_deltas WHERE group_id = ?", groupId);
+        Instant afterSeed = tick();
+
+        assertThatThrownBy(() -> entries(groupId, beforeSeed))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("starts at");
+        assertThat(entries(groupId, afterSeed)).containsExactly(
+                new LedgerResponse.Entry(members.get(0), new BigDecimal("10.00")),
+                new LedgerResponse.Entry(members.get(1), new BigDecimal("-10.00")));
+    }
+
+    private List<LedgerResponse.Entry> entries(Long groupId, Instant asOf) {
+        return expenseService.getLedgerAsOf(groupId, null, asOf).entries();
+    }
+
+    private boolean snapshot(Long groupId) {
+        return Boolean.TRUE.equals(new TransactionTemplate(transactionManager).execute(status -> ledgerSnapshots.snapshot(groupId)));
+    }
+
+    private int snapshotCount(Long groupId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ledger_snapshots WHERE group_id = ?", Integer.class, groupId);
+    }
+
+    // keeps journal and snapshot timestamps strictly on one side of the returned instant
+    private static Instant tick() throws InterruptedException {
+        Thread.sleep(5);
+        Instant now = Instant.now();
+        Thread.sleep(5);
+        return now;
+    }
+
+    private List<Long> addMembers(Group group, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = userRepo.save(new User("member" + i, "snap-" + UUID.randomUUID() + "@example.com"));
+            memberRepo.save(new GroupMember(group, user, GroupMember.Role.MEMBER));
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
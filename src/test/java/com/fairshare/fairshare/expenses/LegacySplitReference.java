@@ -0,0 +1,151 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.common.BadRequestException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The BigDecimal split implementation that ExpenseService used before SplitEngine, kept verbatim as
+ * the reference for equivalence tests and benchmarks.
+ */
+final class LegacySplitReference {
+
+    private LegacySplitReference() {
+    }
+
+    static Map<Long, BigDecimal> allocate(BigDecimal totalAmount, Long payer, List<Long> participantUserIds,
+                                          List<BigDecimal> exactAmounts, List<BigDecimal> percentages, List<Integer> shares) {
+        LinkedHashSet<Long> participants = new LinkedHashSet<>(participantUserIds);
+        participants.add(payer);
+        List<Long> splitUserIds = new ArrayList<>(participants);
+
+        if (exactAmounts != null && !exactAmounts.isEmpty()) {
+            if (exactAmounts.size() != participantUserIds.size()) {
+                throw new BadRequestException("exactAmounts length must match participantUserIds length");
+            }
+            Map<Long, BigDecimal> requestedShares = new LinkedHashMap<>();
+            for (int i = 0; i < participantUserIds.size(); i++) {
+                requestedShares.put(participantUserIds.get(i), normalizeAmount(exactAmounts.get(i)));
+            }
+            if (!requestedShares.containsKey(payer)) {
+                requestedShares.put(payer, BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+            }
+            BigDecimal requestedTotal = requestedShares.values().stream()
+                    .reduce(BigDecimal.ZERO, BigDecimal::add)
+                    .setScale(2, RoundingMode.HALF_UP);
+            BigDecimal tolerance = new BigDecimal("0.01");
+            if (requestedTotal.subtract(totalAmount).abs().compareTo(tolerance) > 0) {
+                throw new BadRequestException("Exact amounts must sum to total amount within $0.01 tolerance");
+            }
+            return rebalanceRoundedShares(requestedShares, totalAmount);
+        } else if (percentages != null && !percentages.isEmpty()) {
+            if (percentages.size() != participantUserIds.size()) {
+                throw new BadRequestException("percentages length must match participantUserIds length");
+            }
+            BigDecimal percentageTotal = percentages.stream().reduce(BigDecimal.ZERO, BigDecimal::add).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal tolerance = new BigDecimal("0.01");
+            if (percentageTotal.subtract(new BigDecimal("100")).abs().compareTo(tolerance) > 0) {
+                throw new BadRequestException("Percentages must sum to 100% within 0.01 tolerance");
+            }
+            Map<Long, BigDecimal> requestedShares = new LinkedHashMap<>();
+            for (int i = 0; i < participantUserIds.size(); i++) {
+                BigDecimal share = totalAmount.multiply(percentages.get(i))
+                        .divide(new BigDecimal("100"), 10, RoundingMode.HALF_UP);
+                requestedShares.put(participantUserIds.get(i), share.setScale(2, RoundingMode.DOWN));
+            }
+            if (!requestedShares.containsKey(payer)) {
+                requestedShares.put(payer, BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+            }
+            return rebalanceRoundedShares(requestedShares, totalAmount);
+        } else if (shares != null && !shares.isEmpty()) {
+            if (shares.size() != participantUserIds.size()) {
+                throw new BadRequestException("shares length must match participantUserIds length");
+            }
+            int totalWeight = shares.stream().mapToInt(Integer::intValue).sum();
+            if (totalWeight <= 0) throw new BadRequestException("Sum of shares must be positive");
+            Map<Long, BigDecimal> requestedShares = new LinkedHashMap<>();
+            for (int i = 0; i < participantUserIds.size(); i++) {
+                BigDecimal fraction = new BigDecimal(shares.get(i)).divide(new BigDecimal(totalWeight), 10, RoundingMode.HALF_UP);
+                BigDecimal share = totalAmount.multiply(fraction).setScale(2, RoundingMode.DOWN);
+                requestedShares.put(participantUserIds.get(i), share);
+            }
+            if (!requestedShares.containsKey(payer)) {
+                requestedShares.put(payer, BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
+            }
+            return rebalanceRoundedShares(requestedShares, totalAmount);
+        } else {
+            return splitEqually(totalAmount, splitUserIds);
+        }
+    }
+
+    private static BigDecimal normalizeAmount(BigDecimal amount) {
+        if (amount == null) throw new IllegalArgumentException("Amount cannot be null");
+        BigDecimal normalized = amount.setScale(2, RoundingMode.HALF_UP);
+        if (normalized.compareTo(BigDecimal.ZERO) < 0) throw new IllegalArgumentException("Amount must be non-negative");
+        return normalized;
+    }
+
+    private static Map<Long, BigDecimal> rebalanceRoundedShares(Map<Long, BigDecimal> roundedShares, BigDecimal totalAmount) {
+        List<Map.Entry<Long, BigDecimal>> entries = new ArrayList<>(roundedShares.entrySet());
+        entries.sort(Map.Entry.comparingByKey());
+
+        Map<Long, BigDecimal> normalizedShares = new LinkedHashMap<>();
+        for (Map.Entry<Long, BigDecimal> entry : entries) {
+            normalizedShares.put(entry.getKey(), normalizeAmount(entry.getValue()));
+        }
+
+        BigDecimal allocatedTotal = normalizedShares.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal remainder = totalAmount.setScale(2, RoundingMode.HALF_UP).subtract(allocatedTotal).setScale(2, RoundingMode.HALF_UP);
+
+        int remainingCents = remainder.movePointRight(2).intValueExact();
+
+        Map<Long, BigDecimal> rebalancedShares = new LinkedHashMap<>();
+        for (Map.Entry<Long, BigDecimal> entry : entries) {
+            rebalancedShares.put(entry.getKey(), normalizedShares.get(entry.getKey()));
+        }
+
+        int i = 0;
+        int n = entries.size();
+        while (remainingCents > 0) {
+            Long id = entries.get(i % n).getKey();
+            rebalancedShares.put(id, rebalancedShares.get(id).add(new BigDecimal("0.01")));
+            i++;
+            remainingCents--;
+        }
+        while (remainingCents < 0) {
+            Long id = entries.get(i % n).getKey();
+            rebalancedShares.put(id, rebalancedShares.get(id).subtract(new BigDecimal("0.01")));
+            i++;
+            remainingCents++;
+        }
+
+        rebalancedShares.replaceAll((k, v) -> normalizeAmount(v));
+
+        return rebalancedShares;
+    }
+
+    private static Map<Long, BigDecimal> splitEqually(BigDecimal amount, List<Long> userIds) {
+        int participantCount = userIds.size();
+
+        BigDecimal baseShare = amount.divide(BigDecimal.valueOf(participantCount), 2, RoundingMode.DOWN);
+        BigDecimal allocatedTotal = baseShare.multiply(BigDecimal.valueOf(participantCount));
+        BigDecimal remainder = amount.subtract(allocatedTotal);
+
+        Map<Long, BigDecimal> equalShares = new LinkedHashMap<>();
+        for (Long id : userIds) equalShares.put(id, baseShare);
+
+        int cents = remainder.movePointRight(2).intValueExact();
+        for (int i = 0; i < cents; i++) {
+            Long id = userIds.get(i % participantCount);
+            equalShares.put(id, equalShares.get(id).add(new BigDecimal("0.01")));
+        }
+        equalShares.replaceAll((k, v) -> normalizeAmount(v));
+        return equalShares;
+    }
+}
@@ -0,0 +1,159 @@
+package com.fairshare.fairshare.expenses;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MinTransferSettlementTest {
+
+    private static final Duration BUDGET = Duration.ofSeconds(5);
+
+    @Test
+    @DisplayName("Exact search finds the zero-sum split greedy misses")
+    void exactBeatsGreedy() {
+        long[] ids = {1, 2, 3, 4, 5};
+        long[] cents = {500, 400, -400, -300, -200};
+
+        MinTransferSettlement.Plan plan = MinTransferSettlement.compute(ids, cents, 20, BUDGET);
+
+        assertThat(plan.source()).isEqualTo(MinTransferSettlement.Source.EXACT);
+        assertThat(plan.greedyTransferCount()).isEqualTo(4);
+        assertThat(plan.transfers()).hasSize(3);
+        assertThat(plan.transfersSaved()).isEqualTo(1);
+        assertSettles(ids, cents, plan.transfers());
+    }
+
+    @Test
+    @DisplayName("Exact plans settle every balance and reach the minimum for random small groups")
+    void exactPlansAreValidAndMinimal() {
+        Random rnd = new Random(21L);
+        for (int c = 0; c < 300; c++) {
+            int groups = 1 + rnd.nextInt(4);
+            int n = 0;
+            long[] ids = new long[16];
+            long[] cents = new long[16];
+            // build the balances out of known zero-sum groups so the minimum is n - groups at most
+            for (int g = 0; g < groups; g++) {
+                int size = 2 + rnd.nextInt(3);
+                long sum = 0;
+                for (int k = 0; k < size - 1; k++) {
+                    long v = (rnd.nextBoolean() ? 1 : -1) * (1 + rnd.nextInt(50)) * 100L;
+                    ids[n] = n + 1;
+                    cents[n++] = v;
+                    sum += v;
+                }
+                ids[n] = n + 1;
+                cents[n++] = sum == 0 ? 0 : -sum;
+            }
+            long[] groupIds = Arrays.copyOf(ids, n);
+            long[] groupCents = Arrays.copyOf(cents, n);
+            long nonZero = Arrays.stream(groupCents).filter(v -> v != 0).count();
+
+            MinTransferSettlement.Plan plan = MinTransferSettlement.compute(groupIds, groupCents, 20, BUDGET);
+
+            assertSettles(groupIds, groupCents, plan.transfers());
+            assertThat(plan.transfers().size()).isLessThanOrEqualTo(plan.greedyTransferCount());
+            assertThat((long) plan.transfers().size()).isLessThanOrEqualTo(Math.max(0, nonZero - groups));
+        }
+    }
+
+    @Test
+    @DisplayName("Heuristic search pairs off equal and opposite balances in large groups")
+    void heuristicPairsOffMatchingBalances() {
+        Random rnd = new Random(22L);
+        int pairs = 5_000;
+        long[] ids = new long[pairs * 2 + 3];
+        long[] cents = new long[pairs * 2 + 3];
+        for (int p = 0; p < pairs; p++) {
+            long v = 100L * (1 + rnd.nextInt(1_000));
+            ids[2 * p] = 2L * p + 1;
+            cents[2 * p] = v;
+            ids[2 * p + 1] = 2L * p + 2;
+            cents[2 * p + 1] = -v;
+        }
+        // one creditor larger than any pair, owed by two debtors; greedy matches it against the largest
+        // pair debtor and every match after that is off by the difference
+        int t = pairs * 2;
+        ids[t] = t + 1;
+        cents[t] = 200_000;
+        ids[t + 1] = t + 2;
+        cents[t + 1] = -150_050;
+        ids[t + 2] = t + 3;
+        cents[t + 2] = -49_950;
+
+        MinTransferSettlement.Plan plan = MinTransferSettlement.compute(ids, cents, 20, BUDGET);
+
+        assertThat(plan.source()).isEqualTo(MinTransferSettlement.Source.HEURISTIC);
+        assertThat(plan.transfers()).hasSize(pairs + 2);
+        assertThat(plan.transfersSaved()).isPositive();
+        assertSettles(ids, cents, plan.transfers());
+    }
+
+    @Test
+    @DisplayName("Heuristic search splits off triples where two balances add up to a third")
+    void heuristicFindsTriples() {
+        long[] ids = {1, 2, 3, 4, 5, 6};
+        long[] cents = {500, -300, -200, 700, -600, -100};
+
+        MinTransferSettlement.Plan plan = MinTransferSettlement.compute(ids, cents, 2, BUDGET);
+
+        assertThat(plan.source()).isEqualTo(MinTransferSettlement.Source.HEURISTIC);
+        assertThat(plan.transfers()).hasSize(4);
+        assertSettles(ids, cents, plan.transfers());
+    }
+
+    @Test
+    @DisplayName("An exhausted budget or an unbalanced ledger falls back to the greedy plan")
+    void fallsBackToGreedy() {
+        long[] ids = {1, 2, 3, 4, 5};
+        long[] cents = {500, 400, -400, -300, -200};
+        List<SettlementCalculator.Transfer> greedy = SettlementCalculator.compute(ids, cents);
+
+        MinTransferSettlement.Plan noTime = MinTransferSettlement.compute(ids, cents, 20, Duration.ZERO);
+        assertThat(noTime.source()).isEqualTo(MinTransferSettlement.Source.GREEDY);
+        assertThat(noTime.transfers()).isEqualTo(greedy);
+        assertThat(noTime.transfersSaved()).isZero();
+
+        long[] unbalanced = {500, 400, -400, -300, -100};
+        MinTransferSettlement.Plan plan = MinTransferSettlement.compute(ids, unbalanced, 20, BUDGET);
+        assertThat(plan.source()).isEqualTo(MinTransferSettlement.Source.GREEDY);
+        assertThat(plan.transfers()).isEqualTo(SettlementCalculator.compute(ids, unbalanced));
+    }
+
+    @Test
+    @DisplayName("Map input is rounded to cents like the greedy calculator")
+    void mapInputMatchesArrays() {
+        Map<Long, BigDecimal> net = new HashMap<>();
+        net.put(1L, new BigDecimal("5.004"));
+        net.put(2L, new BigDecimal("4.00"));
+        net.put(3L, new BigDecimal("-4.00"));
+        net.put(4L, new BigDecimal("-3.00"));
+        net.put(5L, new BigDecimal("-2.00"));
+
+        MinTransferSettlement.Plan plan = MinTransferSettlement.compute(net, 20, BUDGET);
+
+        assertThat(plan.transfers()).hasSize(3);
+        assertThat(plan.transfers()).allSatisfy(t -> assertThat(t.amount().scale()).isEqualTo(2));
+    }
+
+    private static void assertSettles(long[] ids, long[] cents, List<SettlementCalculator.Transfer> transfers) {
+        Map<Long, Long> remaining = new HashMap<>();
+        for (int k = 0; k < ids.length; k++) remaining.put(ids[k], cents[k]);
+        for (SettlementCalculator.Transfer t : transfers) {
+            long amount = t.amount().movePointRight(2).longValueExact();
+            assertThat(amount).isPositive();
+            remaining.merge(t.fromUserId(), amount, Long::sum);
+            remaining.merge(t.toUserId(), -amount, Long::sum);
+        }
+        assertThat(remaining.values()).allMatch(v -> v == 0);
+    }
+}
@@ -0,0 +1,96 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.expenses.api.ConfirmSettlementsRequest;
+import com.fairshare.fairshare.expenses.api.CreateExpenseRequest;
+import com.fairshare.fairshare.expenses.api.ExpenseResponse;
+import com.fairshare.fairshare.expenses.api.OwesMatrixResponse;
+import com.fairshare.fairshare.expenses.service.ExpenseService;
+import com.fairshare.fairshare.groups.model.Group;
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.GroupRepository;
+import com.fairshare.fairshare.support.SqlStatementCounter;
+import com.fairshare.fairshare.users.model.User;
+import com.fairshare.fairshare.users.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.fairshare.fairshare.support.SqlStatementCounter")
+public class OwesMatrixIntegrationTest {
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private GroupRepository groupRepo;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private GroupMemberRepository memberRepo;
+
+    @Test
+    @DisplayName("The matrix matches /owes for every ordered pair and ignores voided expenses")
+    void matrixMatchesPairwiseOwes() {
+        Group group = groupRepo.save(new Group("Matrix " + UUID.randomUUID()));
+        Long groupId = group.getId();
+        List<Long> m = addMembers(group, 4);
+
+        expenseService.createExpense(groupId, null, new CreateExpenseRequest("Dinner", new BigDecimal("40.00"), m.get(0), m), null);
+        expenseService.createExpense(groupId, null, new CreateExpenseRequest("Taxi", new BigDecimal("9.00"), m.get(1), m.subList(0, 3)), null);
+        expenseService.createExpense(groupId, null, new CreateExpenseRequest("Tickets", new BigDecimal("30.00"), m.get(2), m.subList(1, 4),
+                List.of(1, 1, 4), null, null), null);
+        ExpenseResponse typo = expenseService.createExpense(groupId, null, new CreateExpenseRequest("Typo", new BigDecimal("500.00"), m.get(3), m), null);
+        expenseService.voidExpense(groupId, null, typo.expenseId());
+        expenseService.confirmSettlements(groupId, null, new ConfirmSettlementsRequest(List.of(
+                new ConfirmSettlementsRequest.Transfer(m.get(1), m.get(0), new BigDecimal("10.00")),
+                new ConfirmSettlementsRequest.Transfer(m.get(3), m.get(2), new BigDecimal("5.00")))), null);
+
+        SqlStatementCounter.reset();
+        OwesMatrixResponse matrix = expenseService.getOwesMatrix(groupId, null);
+        assertThat(SqlStatementCounter.selects()).isEqualTo(2);
+
+        Map<String, BigDecimal> cells = new HashMap<>();
+        for (OwesMatrixResponse.Entry e : matrix.entries()) {
+            assertThat(e.amount().signum()).isNotZero();
+            cells.put(e.fromUserId() + ">" + e.toUserId(), e.amount());
+        }
+        for (Long from : m) {
+            for (Long to : m) {
+                if (from.equals(to)) continue;
+                BigDecimal pairwise = expenseService.amountOwedHistorical(groupId, null, from, to);
+                assertThat(cells.getOrDefault(from + ">" + to, BigDecimal.ZERO))
+                        .as("%d owes %d", from, to)
+                        .isEqualByComparingTo(pairwise);
+            }
+        }
+
+        // the voided expense paid by m3 contributes nothing, and m1's transfer settled their dinner share
+        assertThat(cells).doesNotContainKey(m.get(0) + ">" + m.get(3));
+        assertThat(cells).doesNotContainKey(m.get(1) + ">" + m.get(0));
+        assertThat(cells.get(m.get(3) + ">" + m.get(2))).isEqualByComparingTo("15.00");
+        assertThat(cells.get(m.get(3) + ">" + m.get(0))).isEqualByComparingTo("10.00");
+    }
+
+    private List<Long> addMembers(Group group, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = userRepo.save(new User("member" + i, "matrix-" + UUID.randomUUID() + "@example.com"));
+            memberRepo.save(new GroupMember(group, user, GroupMember.Role.MEMBER));
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,70 @@
+package com.fairshare.fairshare.expenses;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares SettlementCalculator's cent arithmetic against its BigDecimal implementation.
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.fairshare.fairshare.expenses.SettlementCalculatorBenchmark}
+ * or from the IDE via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SettlementCalculatorBenchmark {
+
+    @Param({"10", "1000", "10000", "100000"})
+    public int members;
+
+    private Map<Long, BigDecimal> netBalances;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(42L);
+        netBalances = new LinkedHashMap<>(members * 2);
+        long sum = 0;
+        for (int i = 1; i < members; i++) {
+            // a narrow range so many members share a balance and ties are broken by userId
+            long cents = (rnd.nextInt(2_001) - 1_000) * 10L;
+            netBalances.put((long) i * 7, BigDecimal.valueOf(cents, 2));
+            sum += cents;
+        }
+        netBalances.put((long) members * 7, BigDecimal.valueOf(-sum, 2));
+    }
+
+    @Benchmark
+    public List<SettlementCalculator.Transfer> primitive() {
+        return SettlementCalculator.compute(netBalances);
+    }
+
+    @Benchmark
+    public List<SettlementCalculator.Transfer> legacy() {
+        return SettlementCalculator.compute(netBalances, SettlementCalculator.Arithmetic.BIG_DECIMAL);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SettlementCalculatorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
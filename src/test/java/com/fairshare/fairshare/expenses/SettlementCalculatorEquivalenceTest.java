@@ -0,0 +1,112 @@
+package com.fairshare.fairshare.expenses;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SettlementCalculatorEquivalenceTest {
+
+    private static final int CASES = 5_000;
+
+    @Test
+    @DisplayName("Balanced groups settle exactly as the BigDecimal implementation does")
+    void balancedGroupsMatchLegacy() {
+        Random rnd = new Random(11L);
+        for (int c = 0; c < CASES; c++) {
+            int n = 1 + rnd.nextInt(rnd.nextInt(10) == 0 ? 400 : 15);
+            Map<Long, BigDecimal> net = new LinkedHashMap<>();
+            long sum = 0;
+            for (int i = 0; i < n - 1; i++) {
+                long cents = randomCents(rnd);
+                net.put(nextId(rnd, net), BigDecimal.valueOf(cents, 2));
+                sum += cents;
+            }
+            net.put(nextId(rnd, net), BigDecimal.valueOf(-sum, 2));
+            assertSameTransfers(net);
+        }
+    }
+
+    @Test
+    @DisplayName("Ties, zero balances, unbalanced totals and sub-cent values match the BigDecimal implementation")
+    void edgeCasesMatchLegacy() {
+        Random rnd = new Random(12L);
+        for (int c = 0; c < CASES; c++) {
+            int n = 1 + rnd.nextInt(30);
+            Map<Long, BigDecimal> net = new LinkedHashMap<>();
+            for (int i = 0; i < n; i++) {
+                BigDecimal value = switch (rnd.nextInt(5)) {
+                    // a handful of repeated amounts so equal values have to be ordered by userId
+                    case 0 -> BigDecimal.valueOf((rnd.nextInt(3) - 1) * 500L, 2);
+                    case 1 -> BigDecimal.ZERO;
+                    // a third decimal exercises half-up rounding, including values that round to zero
+                    case 2 -> BigDecimal.valueOf(rnd.nextInt(41) - 20, 3);
+                    case 3 -> BigDecimal.valueOf(randomCents(rnd) * 10 + rnd.nextInt(10), 3);
+                    default -> BigDecimal.valueOf(randomCents(rnd), 2);
+                };
+                net.put(nextId(rnd, net), value);
+            }
+            assertSameTransfers(net);
+        }
+    }
+
+    @Test
+    @DisplayName("Balances and ids too wide to pack into one sort key use the fallback sort and still match")
+    void wideValuesMatchLegacy() {
+        Random rnd = new Random(13L);
+        for (int c = 0; c < 500; c++) {
+            int n = 2 + rnd.nextInt(50);
+            Map<Long, BigDecimal> net = new LinkedHashMap<>();
+            long sum = 0;
+            for (int i = 0; i < n - 1; i++) {
+                long cents = (rnd.nextBoolean() ? 1 : -1) * (long) (rnd.nextDouble() * 9_999_999_999L);
+                long id = rnd.nextBoolean() ? 5_000_000_000L + rnd.nextInt(1_000_000) : 1L + rnd.nextInt(1_000_000);
+                if (net.putIfAbsent(id, BigDecimal.valueOf(cents, 2)) == null) sum += cents;
+            }
+            net.put(nextId(rnd, net), BigDecimal.valueOf(-sum, 2));
+            assertSameTransfers(net);
+        }
+    }
+
+    @Test
+    @DisplayName("A 50k member group matches the BigDecimal implementation")
+    void largeGroupMatchesLegacy() {
+        Random rnd = new Random(14L);
+        Map<Long, BigDecimal> net = new LinkedHashMap<>();
+        long sum = 0;
+        for (int i = 0; i < 49_999; i++) {
+            long cents = rnd.nextInt(200_001) - 100_000;
+            net.put(nextId(rnd, net), BigDecimal.valueOf(cents, 2));
+            sum += cents;
+        }
+        net.put(nextId(rnd, net), BigDecimal.valueOf(-sum, 2));
+        assertSameTransfers(net);
+    }
+
+    private static void assertSameTransfers(Map<Long, BigDecimal> net) {
+        assertThat(SettlementCalculator.compute(net))
+                .as("balances %s", net)
+                .containsExactlyElementsOf(SettlementCalculator.compute(net, SettlementCalculator.Arithmetic.BIG_DECIMAL));
+    }
+
+    private static long randomCents(Random rnd) {
+        return switch (rnd.nextInt(3)) {
+            case 0 -> rnd.nextInt(201) - 100;
+            case 1 -> rnd.nextInt(200_001) - 100_000;
+            default -> (long) ((rnd.nextDouble() - 0.5) * 2_000_000_000L);
+        };
+    }
+
+    private static Long nextId(Random rnd, Map<Long, BigDecimal> taken) {
+        long id;
+        do {
+            id = 1L + rnd.nextInt(1_000_000);
+        } while (taken.containsKey(id));
+        return id;
+    }
+}
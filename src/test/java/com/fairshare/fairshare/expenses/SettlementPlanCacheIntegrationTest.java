@@ -0,0 +1,102 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.expenses.api.CreateExpenseRequest;
+import com.fairshare.fairshare.expenses.api.SettlementResponse;
+import com.fairshare.fairshare.expenses.service.ExpenseService;
+import com.fairshare.fairshare.groups.model.Group;
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.GroupRepository;
+import com.fairshare.fairshare.support.SqlStatementCounter;
+import com.fairshare.fairshare.users.model.User;
+import com.fairshare.fairshare.users.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.fairshare.fairshare.support.SqlStatementCounter")
+public class SettlementPlanCacheIntegrationTest {
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private LedgerDeltaApplier ledgerDeltaApplier;
+
+    @Autowired
+    private GroupRepository groupRepo;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private GroupMemberRepository memberRepo;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("Settlements are served from the cache until a ledger change bumps the version")
+    void cachedUntilLedgerVersionChanges() {
+        Group group = groupRepo.save(new Group("Settle " + UUID.randomUUID()));
+        List<Long> members = addMembers(group, 3);
+        expenseService.createExpense(group.getId(), null,
+                new CreateExpenseRequest("Dinner", new BigDecimal("30.00"), members.get(0), members), null);
+        long version = ledgerDeltaApplier.version(group.getId());
+        assertThat(version).isEqualTo(1L);
+
+        double hitsBefore = gets("hit");
+        long computedBefore = computeCount();
+        SettlementResponse first = expenseService.getSettlements(group.getId(), null, SettlementStrategy.GREEDY);
+        assertThat(first.transfers()).hasSize(2);
+        assertThat(computeCount() - computedBefore).isEqualTo(1);
+
+        SqlStatementCounter.reset();
+        SettlementResponse second = expenseService.getSettlements(group.getId(), null, SettlementStrategy.GREEDY);
+        assertThat(second).isSameAs(first);
+        assertThat(SqlStatementCounter.total()).as("ledger is not reloaded on a hit").isZero();
+        assertThat(computeCount() - computedBefore).isEqualTo(1);
+        assertThat(gets("hit") - hitsBefore).isEqualTo(1.0);
+
+        // member 1 pays for an equal expense; the version moves and the next read recomputes
+        expenseService.createExpense(group.getId(), null,
+                new CreateExpenseRequest("Taxi", new BigDecimal("30.00"), members.get(1), members), null);
+        assertThat(ledgerDeltaApplier.version(group.getId())).isEqualTo(version + 1);
+
+        SettlementResponse third = expenseService.getSettlements(group.getId(), null, SettlementStrategy.GREEDY);
+        assertThat(third).isNotSameAs(first);
+        assertThat(third.transfers()).hasSize(2).allSatisfy(t -> {
+            assertThat(t.fromUserId()).isEqualTo(members.get(2));
+            assertThat(t.amount()).isEqualByComparingTo("10.00");
+        });
+        assertThat(computeCount() - computedBefore).isEqualTo(2);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tags("cache", SettlementPlanCache.CACHE_NAME, "result", result)
+                .functionCounter().count();
+    }
+
+    private long computeCount() {
+        return meterRegistry.get(SettlementPlanCache.COMPUTE_TIMER).tag("strategy", "greedy").timer().count();
+    }
+
+    private List<Long> addMembers(Group group, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = userRepo.save(new User("m" + i, "settle-" + UUID.randomUUID() + "@example.com"));
+            memberRepo.save(new GroupMember(group, user, GroupMember.Role.MEMBER));
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,102 @@
+package com.fairshare.fairshare.expenses;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares SplitEngine against the previous BigDecimal implementation.
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.fairshare.fairshare.expenses.SplitEngineBenchmark}
+ * or from the IDE via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SplitEngineBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    public int participants;
+
+    private BigDecimal total;
+    private Long payer;
+    private List<Long> userIds;
+    private List<Integer> shares;
+    private List<BigDecimal> percentages;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(42L);
+        total = new BigDecimal("98765.43");
+        userIds = new ArrayList<>(participants);
+        shares = new ArrayList<>(participants);
+        percentages = new ArrayList<>(participants);
+        for (int i = 0; i < participants; i++) {
+            // descending ids so the sort in the rebalancing modes has real work to do
+            userIds.add((long) (participants - i) * 7);
+            shares.add(1 + rnd.nextInt(5));
+        }
+        long remaining = 1_000_000L; // 100% at four decimals
+        for (int i = 0; i < participants - 1; i++) {
+            long p = remaining / (participants - i);
+            percentages.add(BigDecimal.valueOf(p, 4));
+            remaining -= p;
+        }
+        percentages.add(BigDecimal.valueOf(remaining, 4));
+        payer = userIds.get(0);
+    }
+
+    @Benchmark
+    public Map<Long, BigDecimal> equalEngine() {
+        return SplitEngine.allocate(total, payer, userIds, null, null, null);
+    }
+
+    @Benchmark
+    public Map<Long, BigDecimal> equalLegacy() {
+        return LegacySplitReference.allocate(total, payer, userIds, null, null, null);
+    }
+
+    @Benchmark
+    public Map<Long, BigDecimal> sharesEngine() {
+        return SplitEngine.allocate(total, payer, userIds, null, null, shares);
+    }
+
+    @Benchmark
+    public Map<Long, BigDecimal> sharesLegacy() {
+        return LegacySplitReference.allocate(total, payer, userIds, null, null, shares);
+    }
+
+    @Benchmark
+    public Map<Long, BigDecimal> percentagesEngine() {
+        return SplitEngine.allocate(total, payer, userIds, null, percentages, null);
+    }
+
+    @Benchmark
+    public Map<Long, BigDecimal> percentagesLegacy() {
+        return LegacySplitReference.allocate(total, payer, userIds, null, percentages, null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SplitEngineBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,175 @@
+package com.fairshare.fairshare.expenses;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+class SplitEngineEquivalenceTest {
+
+    private static final int CASES_PER_MODE = 5_000;
+
+    @Test
+    @DisplayName("Equal split matches the BigDecimal implementation for random inputs")
+    void equalSplitMatchesLegacy() {
+        Random rnd = new Random(1L);
+        for (int c = 0; c < CASES_PER_MODE; c++) {
+            Case k = randomCase(rnd);
+            assertSameOutcome(k, null, null, null);
+        }
+    }
+
+    @Test
+    @DisplayName("Exact amounts match the BigDecimal implementation, including rejections")
+    void exactAmountsMatchLegacy() {
+        Random rnd = new Random(2L);
+        for (int c = 0; c < CASES_PER_MODE; c++) {
+            Case k = randomCase(rnd);
+            int n = k.participants.size();
+            long[] parts = randomPartition(rnd, k.totalCents, n);
+            // nudge the sum off by up to two cents so the tolerance check is exercised
+            parts[rnd.nextInt(n)] += rnd.nextInt(5) - 2;
+            List<BigDecimal> exact = new ArrayList<>(n);
+            for (long p : parts) {
+                BigDecimal amount = BigDecimal.valueOf(p, 2);
+                // a third digit exercises half-up normalization of the inputs
+                if (rnd.nextInt(4) == 0) amount = amount.add(BigDecimal.valueOf(rnd.nextInt(10), 3));
+                exact.add(amount);
+            }
+            assertSameOutcome(k, exact, null, null);
+        }
+    }
+
+    @Test
+    @DisplayName("Percentages match the BigDecimal implementation at scales from 0 to 10")
+    void percentagesMatchLegacy() {
+        Random rnd = new Random(3L);
+        for (int c = 0; c < CASES_PER_MODE; c++) {
+            Case k = randomCase(rnd);
+            int n = k.participants.size();
+            int scale = rnd.nextInt(11);
+            long hundred = 100L * pow10(scale);
+            long[] parts = randomPartition(rnd, hundred, n);
+            if (rnd.nextInt(3) == 0) {
+                parts[rnd.nextInt(n)] += rnd.nextInt(21) - 10;
+                // an accepted-but-off total leaves a remainder the legacy code walks one cent at a time
+                long smaller = k.totalCents % 10_000_000L;
+                k = new Case(k.participants, k.payer, BigDecimal.valueOf(smaller, 2), smaller);
+            }
+            List<BigDecimal> percentages = new ArrayList<>(n);
+            for (long p : parts) percentages.add(BigDecimal.valueOf(p, scale));
+            assertSameOutcome(k, null, percentages, null);
+        }
+    }
+
+    @Test
+    @DisplayName("Share weights match the BigDecimal implementation, including invalid weights")
+    void sharesMatchLegacy() {
+        Random rnd = new Random(4L);
+        for (int c = 0; c < CASES_PER_MODE; c++) {
+            Case k = randomCase(rnd);
+            int n = k.participants.size();
+            List<Integer> weights = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int w = rnd.nextInt(20) == 0 ? rnd.nextInt(5) - 3 : 1 + rnd.nextInt(rnd.nextBoolean() ? 10 : 1_000_000);
+                weights.add(w);
+            }
+            assertSameOutcome(k, null, null, weights);
+        }
+    }
+
+    @Test
+    @DisplayName("Large participant counts match the BigDecimal implementation")
+    void largeGroupsMatchLegacy() {
+        Random rnd = new Random(5L);
+        List<Long> participants = distinctIds(rnd, 5_000);
+        Long payer = participants.get(rnd.nextInt(participants.size()));
+        BigDecimal total = BigDecimal.valueOf(123_456_789L, 2);
+        List<Integer> weights = new ArrayList<>();
+        List<BigDecimal> percentages = new ArrayList<>();
+        long[] pct = randomPartition(rnd, 100_000_000L, participants.size());
+        for (int i = 0; i < participants.size(); i++) {
+            weights.add(1 + rnd.nextInt(7));
+            percentages.add(BigDecimal.valueOf(pct[i], 6));
+        }
+        Case k = new Case(participants, payer, total, total.movePointRight(2).longValueExact());
+        assertSameOutcome(k, null, null, null);
+        assertSameOutcome(k, null, null, weights);
+        assertSameOutcome(k, null, percentages, null);
+    }
+
+    private static void assertSameOutcome(Case k, List<BigDecimal> exact, List<BigDecimal> percentages, List<Integer> shares) {
+        Map<Long, BigDecimal> expected;
+        try {
+            expected = LegacySplitReference.allocate(k.total, k.payer, k.participants, exact, percentages, shares);
+        } catch (RuntimeException legacyError) {
+            try {
+                SplitEngine.allocate(k.total, k.payer, k.participants, exact, percentages, shares);
+            } catch (RuntimeException engineError) {
+                assertThat(engineError).as(k.describe(exact, percentages, shares))
+                        .isExactlyInstanceOf(legacyError.getClass())
+                        .hasMessage(legacyError.getMessage());
+                return;
+            }
+            fail("Expected %s (%s) for %s", legacyError.getClass().getSimpleName(), legacyError.getMessage(), k.describe(exact, percentages, shares));
+            return;
+        }
+        Map<Long, BigDecimal> actual = SplitEngine.allocate(k.total, k.payer, k.participants, exact, percentages, shares);
+        assertThat(new ArrayList<>(actual.entrySet()))
+                .as(k.describe(exact, percentages, shares))
+                .containsExactlyElementsOf(new ArrayList<>(expected.entrySet()));
+    }
+
+    private static Case randomCase(Random rnd) {
+        int n = 1 + rnd.nextInt(rnd.nextInt(10) == 0 ? 300 : 12);
+        List<Long> participants = distinctIds(rnd, n);
+        Long payer = rnd.nextBoolean() ? participants.get(rnd.nextInt(n)) : 2_000_000L + rnd.nextInt(1000);
+        long totalCents = switch (rnd.nextInt(4)) {
+            case 0 -> rnd.nextInt(100);
+            case 1 -> rnd.nextInt(100_000);
+            case 2 -> (long) (rnd.nextDouble() * 1_000_000_000L);
+            default -> (long) (rnd.nextDouble() * 999_999_999_999L);
+        };
+        return new Case(participants, payer, BigDecimal.valueOf(totalCents, 2), totalCents);
+    }
+
+    private static List<Long> distinctIds(Random rnd, int n) {
+        LinkedHashSet<Long> ids = new LinkedHashSet<>();
+        while (ids.size() < n) ids.add(1L + rnd.nextInt(1_000_000));
+        return new ArrayList<>(ids);
+    }
+
+    private static long[] randomPartition(Random rnd, long total, int n) {
+        long[] parts = new long[n];
+        long left = total;
+        for (int i = 0; i < n - 1; i++) {
+            long p = left == 0 ? 0 : (long) (rnd.nextDouble() * (left / Math.max(1, n - i) * 2));
+            p = Math.min(p, left);
+            parts[i] = p;
+            left -= p;
+        }
+        parts[n - 1] = left;
+        return parts;
+    }
+
+    private static long pow10(int exp) {
+        long v = 1;
+        for (int i = 0; i < exp; i++) v *= 10;
+        return v;
+    }
+
+    private record Case(List<Long> participants, Long payer, BigDecimal total, long totalCents) {
+        String describe(List<BigDecimal> exact, List<BigDecimal> percentages, List<Integer> shares) {
+            return "total=" + total + " payer=" + payer + " participants=" + participants
+                    + " exact=" + exact + " percentages=" + percentages + " shares=" + shares;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.fairshare.fairshare.expenses;
+
+import com.fairshare.fairshare.auth.AuthContext;
+import com.fairshare.fairshare.expenses.api.ConfirmSettlementsRequest;
+import com.fairshare.fairshare.expenses.api.CreateExpenseRequest;
+import com.fairshare.fairshare.expenses.service.ExpenseService;
+import com.fairshare.fairshare.groups.model.Group;
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.GroupRepository;
+import com.fairshare.fairshare.support.JdbcRoundTripCounter;
+import com.fairshare.fairshare.users.model.User;
+import com.fairshare.fairshare.users.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(JdbcRoundTripCounter.Config.class)
+public class UserSettlementIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private GroupRepository groupRepo;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private GroupMemberRepository memberRepo;
+
+    @Test
+    @DisplayName("Transfers with the same counterparty are netted across groups from the cached group plans")
+    void consolidatesAcrossGroups() throws Exception {
+        Long u = newUser("u");
+        Long v = newUser("v");
+        Long w = newUser("w");
+        Long trip = newGroup(u, v);
+        Long flat = newGroup(u, v, w);
+        Long other = newGroup(v, w);
+
+        // v owes u 10.00 from the trip; u owes v 15.00 and w owes v 15.00 from the flat
+        expenseService.createExpense(trip, null, new CreateExpenseRequest("Fuel", new BigDecimal("20.00"), u, List.of(u, v)), null);
+        expenseService.createExpense(flat, null, new CreateExpenseRequest("Rent", new BigDecimal("45.00"), v, List.of(u, v, w)), null);
+        expenseService.createExpense(other, null, new CreateExpenseRequest("Lunch", new BigDecimal("8.00"), w, List.of(v, w)), null);
+
+        // the ledger versions, then one ledger load for both groups that miss the plan cache
+        JdbcRoundTripCounter.reset();
+        JsonNode plan = settlements(u);
+        assertThat(JdbcRoundTripCounter.roundTrips()).isEqualTo(2);
+
+        // nothing changed, so the second request is answered from the cache after the version lookup
+        JdbcRoundTripCounter.reset();
+        assertThat(settlements(u)).isEqualTo(plan);
+        assertThat(JdbcRoundTripCounter.roundTrips()).isEqualTo(1);
+
+        assertThat(plan.get("userId").asLong()).isEqualTo(u);
+        JsonNode transfers = plan.get("transfers");
+        assertThat(transfers).hasSize(1);
+        JsonNode toV = transfers.get(0);
+        assertThat(toV.get("fromUserId").asLong()).isEqualTo(u);
+        assertThat(toV.get("toUserId").asLong()).isEqualTo(v);
+        assertThat(toV.get("amount").asText()).isEqualTo("5.00");
+
+        assertThat(plan.get("offsets")).isEmpty();
+
+        JsonNode allocations = toV.get("allocations");
+        assertThat(allocations).hasSize(2);
+        assertThat(allocations.get(0).get("groupId").asLong()).isEqualTo(trip);
+        assertThat(allocations.get(0).get("fromUserId").asLong()).isEqualTo(v);
+        assertThat(allocations.get(0).get("amount").asText()).isEqualTo("10.00");
+        assertThat(allocations.get(1).get("groupId").asLong()).isEqualTo(flat);
+        assertThat(allocations.get(1).get("fromUserId").asLong()).isEqualTo(u);
+        assertThat(allocations.get(1).get("amount").asText()).isEqualTo("15.00");
+
+        // confirming the allocations in their groups leaves nothing to settle for u
+        for (JsonNode a : allocations) {
+            expenseService.confirmSettlements(a.get("groupId").asLong(), null, new ConfirmSettlementsRequest(List.of(
+                    new ConfirmSettlementsRequest.Transfer(a.get("fromUserId").asLong(), a.get("toUserId").asLong(), new BigDecimal(a.get("amount").asText())))), null);
+        }
+        assertThat(settlements(u).get("transfers")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("A counterparty whose allocations cancel out is listed as an offset, not as a zero transfer")
+    void cancellingAllocationsAreOffsets() throws Exception {
+        Long u = newUser("u");
+        Long v = newUser("v");
+        Long trip = newGroup(u, v);
+        Long flat = newGroup(u, v);
+
+        // v owes u 10.00 from the trip and u owes v 10.00 from the flat
+        expenseService.createExpense(trip, null, new CreateExpenseRequest("Fuel", new BigDecimal("20.00"), u, List.of(u, v)), null);
+        expenseService.createExpense(flat, null, new CreateExpenseRequest("Rent", new BigDecimal("20.00"), v, List.of(u, v)), null);
+
+        JsonNode plan = settlements(u);
+        assertThat(plan.get("transfers")).isEmpty();
+        JsonNode offsets = plan.get("offsets");
+        assertThat(offsets).hasSize(1);
+        assertThat(offsets.get(0).get("counterpartyUserId").asLong()).isEqualTo(v);
+        JsonNode allocations = offsets.get(0).get("allocations");
+        assertThat(allocations).hasSize(2);
+        assertThat(allocations.get(0).get("groupId").asLong()).isEqualTo(trip);
+        assertThat(allocations.get(0).get("fromUserId").asLong()).isEqualTo(v);
+        assertThat(allocations.get(0).get("amount").asText()).isEqualTo("10.00");
+        assertThat(allocations.get(1).get("groupId").asLong()).isEqualTo(flat);
+        assertThat(allocations.get(1).get("fromUserId").asLong()).isEqualTo(u);
+        assertThat(allocations.get(1).get("amount").asText()).isEqualTo("10.00");
+    }
+
+    @Test
+    @DisplayName("Only the user can view their consolidated settlement")
+    void otherUsersAreForbidden() throws Exception {
+        Long u = newUser("u");
+        Long v = newUser("v");
+        mvc.perform(get("/users/" + u + "/settlements").header(AuthContext.USER_ID_HEADER, String.valueOf(v)))
+                .andExpect(status().isForbidden());
+        mvc.perform(get("/users/" + u + "/settlements").header(AuthContext.USER_ID_HEADER, String.valueOf(u)))
+                .andExpect(status().isOk());
+    }
+
+    private JsonNode settlements(Long userId) throws Exception {
+        return mapper.readTree(mvc.perform(get("/users/" + userId + "/settlements"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+    }
+
+    private Long newUser(String name) {
+        return userRepo.save(new User(name, name + "-" + UUID.randomUUID() + "@example.com")).getId();
+    }
+
+    private Long newGroup(Long... userIds) {
+        Group group = groupRepo.save(new Group("Shared " + UUID.randomUUID()));
+        for (Long id : userIds) {
+            memberRepo.save(new GroupMember(group, userRepo.findById(id).orElseThrow(), GroupMember.Role.MEMBER));
+        }
+        return group.getId();
+    }
+}
@@ -10,6 +10,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -137,4 +139,149 @@ public class GroupFilterAndPaginationIntegrationTest {
         assertThat(group.get("members").size()).isEqualTo(2);
         assertThat(group.path("actorUserId").isNull()).isTrue();
     }
+
+    @Test
+    @DisplayName("memberCount sort reads the maintained count and pages by cursor in (memberCount, id) order")
+    void memberCountSortPagesByCursor() throws Exception {
+        String prefix = "ByMembers " + UUID.randomUUID();
+        int[] memberCounts = {2, 0, 3, 2, 1};
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < memberCounts.length; i++) {
+            String createResp = mvc.perform(post("/groups").contentType(MediaType.APPLICATION_JSON)
+                            .content(String.format("{\"name\":\"%s %d\"}", prefix, i)))
+                    .andExpect(status().isCreated())
+                    .andReturn().getResponse().getContentAsString();
+            long gid = mapper.readTree(createResp).get("id").asLong();
+            ids.add(gid);
+            for (int m = 0; m < memberCounts[i]; m++) {
+                String member = String.format("{\"name\":\"m%d\",\"email\":\"m%d+%d@example.com\"}", m, m, gid);
+                mvc.perform(post("/groups/" + gid + "/members").contentType(MediaType.APPLICATION_JSON).content(member))
+                        .andExpect(status().isCreated());
+                // adding the same member again leaves the count alone
+                mvc.perform(post("/groups/" + gid + "/members").contentType(MediaType.APPLICATION_JSON).content(member))
+                        .andExpect(status().isCreated());
+            }
+        }
+        // ids in (memberCount desc, id desc): 3 | 2, 2 | 1 | 0
+        List<Long> expected = List.of(ids.get(2), ids.get(3), ids.get(0), ids.get(4), ids.get(1));
+
+        List<Long> walked = new ArrayList<>();
+        String cursor = null;
+        do {
+            var req = get("/groups").param("name", prefix).param("limit", "2");
+            if (cursor != null) req = req.param("cursor", cursor);
+            JsonNode page = mapper.readTree(mvc.perform(req).andExpect(status().isOk())
+                    .andExpect(jsonPath("$.totalItems").doesNotExist())
+                    .andReturn().getResponse().getContentAsString());
+            for (JsonNode g : page.get("items")) {
+                walked.add(g.get("id").asLong());
+                assertThat(g.get("memberCount").asInt()).isEqualTo(memberCounts[ids.indexOf(g.get("id").asLong())]);
+            }
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+        assertThat(walked).containsExactlyElementsOf(expected);
+
+        JsonNode ascending = mapper.readTree(mvc.perform(get("/groups").param("name", prefix).param("limit", "10").param("sort", "memberCount,asc"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        List<Long> ascendingIds = new ArrayList<>();
+        for (JsonNode g : ascending.get("items")) ascendingIds.add(g.get("id").asLong());
+        assertThat(ascendingIds).containsExactly(ids.get(1), ids.get(4), ids.get(0), ids.get(3), ids.get(2));
+
+        JsonNode offsetPage = mapper.readTree(mvc.perform(get("/groups").param("name", prefix).param("page", "1").param("size", "2").param("sort", "memberCount,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalItems").value(5))
+                .andReturn().getResponse().getContentAsString());
+        assertThat(offsetPage.get("items").get(0).get("id").asLong()).isEqualTo(expected.get(2));
+        assertThat(offsetPage.get("items").get(1).get("id").asLong()).isEqualTo(expected.get(3));
+
+        mvc.perform(get("/groups").param("limit", "2").param("sort", "name,asc")).andExpect(status().isBadRequest());
+        mvc.perform(get("/groups").param("limit", "2").param("cursor", "not-a-cursor")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("sort=relevance ranks substring matches and the name filter matches % and _ literally")
+    void relevanceRanksNameMatches() throws Exception {
+        String token = "rel" + UUID.randomUUID().toString().substring(0, 8);
+        long contains = createGroup("Trip with " + token + " friends");
+        long exact = createGroup(token);
+        long prefix = createGroup(token + " weekend");
+        long percent = createGroup(token + " 100% off");
+
+        JsonNode ranked = mapper.readTree(mvc.perform(get("/groups").param("name", token.toUpperCase()).param("sort", "relevance"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalItems").value(4))
+                .andReturn().getResponse().getContentAsString());
+        List<Long> rankedIds = new ArrayList<>();
+        for (JsonNode g : ranked.get("items")) rankedIds.add(g.get("id").asLong());
+        assertThat(rankedIds).containsExactly(exact, prefix, percent, contains);
+
+        JsonNode literal = mapper.readTree(mvc.perform(get("/groups").param("name", token + " 100%"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertThat(literal.get("items")).hasSize(1);
+        assertThat(literal.get("items").get(0).get("id").asLong()).isEqualTo(percent);
+        mvc.perform(get("/groups").param("name", token + "_"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalItems").value(0));
+
+        mvc.perform(get("/groups").param("sort", "relevance")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("view=summary omits member lists and members page by user id with a cursor")
+    void summaryViewAndMemberPages() throws Exception {
+        String name = "Summary " + UUID.randomUUID();
+        long gid = createGroup(name);
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String resp = mvc.perform(post("/groups/" + gid + "/members").contentType(MediaType.APPLICATION_JSON)
+                            .content(String.format("{\"name\":\"s%d\",\"email\":\"s%d+%d@example.com\"}", i, i, gid)))
+                    .andExpect(status().isCreated())
+                    .andReturn().getResponse().getContentAsString();
+            userIds.add(mapper.readTree(resp).get("userId").asLong());
+        }
+
+        mvc.perform(get("/groups/" + gid).param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(gid))
+                .andExpect(jsonPath("$.name").value(name))
+                .andExpect(jsonPath("$.memberCount").value(5))
+                .andExpect(jsonPath("$.members").doesNotExist());
+        mvc.perform(get("/groups").param("view", "summary").param("name", name))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalItems").value(1))
+                .andExpect(jsonPath("$.items[0].memberCount").value(5))
+                .andExpect(jsonPath("$.items[0].members").doesNotExist());
+        mvc.perform(get("/groups").param("view", "summary").param("name", name).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(gid))
+                .andExpect(jsonPath("$.items[0].members").doesNotExist());
+
+        List<Long> walked = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        do {
+            var req = get("/groups/" + gid + "/members").param("limit", "2");
+            if (cursor != null) req = req.param("cursor", cursor);
+            JsonNode page = mapper.readTree(mvc.perform(req).andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+            assertThat(page.get("items").size()).isLessThanOrEqualTo(2);
+            for (JsonNode m : page.get("items")) {
+                walked.add(m.get("id").asLong());
+                names.add(m.get("name").asText());
+            }
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+        assertThat(walked).containsExactlyElementsOf(userIds.stream().sorted().toList());
+        assertThat(names).containsExactlyInAnyOrder("s0", "s1", "s2", "s3", "s4");
+
+        mvc.perform(get("/groups/" + gid + "/members").param("limit", "201")).andExpect(status().isBadRequest());
+        mvc.perform(get("/groups/" + gid + "/members").param("cursor", "not-a-cursor")).andExpect(status().isBadRequest());
+    }
+
+    private long createGroup(String name) throws Exception {
+        String createResp = mvc.perform(post("/groups").contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(java.util.Map.of("name", name))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(createResp).get("id").asLong();
+    }
 }
@@ -0,0 +1,116 @@
+package com.fairshare.fairshare.groups;
+
+import com.fairshare.fairshare.FairshareApplication;
+import com.fairshare.fairshare.groups.model.Group;
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.GroupMemberView;
+import com.fairshare.fairshare.groups.repository.GroupRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the time and heap of reading a large group's roster as member entities with lazily read
+ * users, as join-fetched entities and through the {@link GroupMemberView} projection, against the test
+ * H2 database. The select counts and managed entities of the same reads are asserted by
+ * {@link LargeGroupMemberReadIntegrationTest}. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.fairshare.fairshare.groups.GroupMemberReadBenchmark}
+ * or from the IDE via {@link #main(String[])}; bytes per read are reported as {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupMemberReadBenchmark {
+
+    @Param({"1000", "10000"})
+    public int members;
+
+    private ConfigurableApplicationContext context;
+    private EntityManager em;
+    private GroupMemberRepository memberRepo;
+    private TransactionTemplate tx;
+    private Long groupId;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(FairshareApplication.class).web(WebApplicationType.NONE).run();
+        em = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        memberRepo = context.getBean(GroupMemberRepository.class);
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        tx.setReadOnly(true);
+
+        Group group = context.getBean(GroupRepository.class).save(new Group("Large " + UUID.randomUUID()));
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        String tag = UUID.randomUUID().toString();
+        List<Object[]> users = new ArrayList<>(members);
+        for (int i = 0; i < members; i++) users.add(new Object[]{"member" + i, "large-" + i + "-" + tag + "@example.com"});
+        jdbcTemplate.batchUpdate("INSERT INTO users (name, email) VALUES (?, ?)", users);
+        jdbcTemplate.update("INSERT INTO group_members (group_id, user_id, role) SELECT ?, id, 'MEMBER' FROM users WHERE email LIKE ?",
+                group.getId(), "large-%-" + tag + "@example.com");
+        jdbcTemplate.update("UPDATE groups SET member_count = ? WHERE id = ?", members, group.getId());
+        groupId = group.getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<String> lazyUsers() {
+        return tx.execute(status -> em.createQuery("SELECT gm FROM GroupMember gm WHERE gm.group.id = :groupId", GroupMember.class)
+                .setParameter("groupId", groupId).getResultList()
+                .stream().map(gm -> gm.getUser().getName()).toList());
+    }
+
+    @Benchmark
+    public List<String> joinFetched() {
+        return tx.execute(status -> em.createQuery(
+                        "SELECT gm FROM GroupMember gm JOIN FETCH gm.user JOIN FETCH gm.group WHERE gm.group.id = :groupId", GroupMember.class)
+                .setParameter("groupId", groupId).getResultList()
+                .stream().map(gm -> gm.getUser().getName()).toList());
+    }
+
+    @Benchmark
+    public List<String> projected() {
+        return tx.execute(status -> memberRepo.findViewsByGroupId(groupId).stream().map(GroupMemberView::name).toList());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GroupMemberReadBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,113 @@
+package com.fairshare.fairshare.groups;
+
+import com.fairshare.fairshare.auth.AuthContext;
+import com.fairshare.fairshare.groups.service.GroupMembershipCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class GroupMembershipCacheIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("Membership checks are served from the cache and adding a member invalidates it")
+    void repeatedChecksHitCacheAndAddMemberInvalidates() throws Exception {
+        Long ownerId = createUser("owner");
+        Long laterId = createUser("later");
+        long groupId = createGroup(ownerId);
+
+        // the create response already read the group back, so the roster is cached from here on
+        double missesBefore = gets("miss");
+        double hitsBefore = gets("hit");
+        for (int i = 0; i < 5; i++) {
+            mvc.perform(get("/groups/" + groupId + "/ledger")
+                            .header(AuthContext.USER_ID_HEADER, String.valueOf(ownerId)))
+                    .andExpect(status().isOk());
+        }
+        assertThat(gets("miss") - missesBefore).isZero();
+        assertThat(gets("hit") - hitsBefore).isEqualTo(5.0);
+
+        mvc.perform(get("/groups/" + groupId)
+                        .header(AuthContext.USER_ID_HEADER, String.valueOf(laterId)))
+                .andExpect(status().isForbidden());
+
+        mvc.perform(post("/groups/" + groupId + "/members")
+                        .header(AuthContext.USER_ID_HEADER, String.valueOf(ownerId))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":" + laterId + "}"))
+                .andExpect(status().isCreated());
+
+        mvc.perform(get("/groups/" + groupId)
+                        .header(AuthContext.USER_ID_HEADER, String.valueOf(laterId)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Cache statistics are exposed through the actuator metrics endpoint")
+    void statsExposedThroughActuator() throws Exception {
+        Long ownerId = createUser("owner");
+        long groupId = createGroup(ownerId);
+        mvc.perform(get("/groups/" + groupId + "/events")
+                        .header(AuthContext.USER_ID_HEADER, String.valueOf(ownerId)))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/actuator/metrics/cache.gets")
+                        .param("tag", "cache:" + GroupMembershipCache.CACHE_NAME, "result:miss"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").isNumber());
+        mvc.perform(get("/actuator/metrics/cache.evictions")
+                        .param("tag", "cache:" + GroupMembershipCache.CACHE_NAME))
+                .andExpect(status().isOk());
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tags("cache", GroupMembershipCache.CACHE_NAME, "result", result)
+                .functionCounter()
+                .count();
+    }
+
+    private long createGroup(Long ownerId) throws Exception {
+        String created = mvc.perform(post("/groups")
+                        .header(AuthContext.USER_ID_HEADER, String.valueOf(ownerId))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Cached Group\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(created).get("id").asLong();
+    }
+
+    private Long createUser(String name) throws Exception {
+        String email = name + "+" + System.nanoTime() + "@example.com";
+        String response = mvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"email\":\"" + email + "\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode node = mapper.readTree(response);
+        return node.get("id").asLong();
+    }
+}
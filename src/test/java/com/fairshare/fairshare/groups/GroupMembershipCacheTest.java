@@ -0,0 +1,53 @@
+package com.fairshare.fairshare.groups;
+
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.MemberRole;
+import com.fairshare.fairshare.groups.service.GroupMembershipCache;
+import com.fairshare.fairshare.groups.service.GroupRoster;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GroupMembershipCacheTest {
+
+    @Mock
+    private GroupMemberRepository memberRepo;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void rosterIsLoadedOnceUntilTtlOrInvalidation() {
+        GroupMembershipCache cache = new GroupMembershipCache(memberRepo, 1_000, Duration.ofMinutes(5), nanos::get);
+        when(memberRepo.findMemberRolesByGroupId(7L)).thenReturn(List.of(
+                new MemberRole(3L, GroupMember.Role.OWNER),
+                new MemberRole(1L, GroupMember.Role.MEMBER)));
+
+        GroupRoster roster = cache.roster(7L);
+        cache.roster(7L);
+        verify(memberRepo, times(1)).findMemberRolesByGroupId(7L);
+        assertThat(roster.memberIds()).containsExactly(3L, 1L);
+        assertThat(roster.isOwner(3L)).isTrue();
+        assertThat(roster.isOwner(1L)).isFalse();
+        assertThat(roster.isMember(2L)).isFalse();
+
+        nanos.addAndGet(Duration.ofMinutes(5).plusSeconds(1).toNanos());
+        cache.roster(7L);
+        verify(memberRepo, times(2)).findMemberRolesByGroupId(7L);
+
+        cache.invalidate(7L);
+        cache.roster(7L);
+        verify(memberRepo, times(3)).findMemberRolesByGroupId(7L);
+    }
+}
@@ -5,11 +5,13 @@ import com.fairshare.fairshare.groups.api.dto.GroupResponse;
 import com.fairshare.fairshare.groups.model.Group;
 import com.fairshare.fairshare.groups.model.GroupMember;
 import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.GroupMemberView;
 import com.fairshare.fairshare.groups.repository.GroupRepository;
+import com.fairshare.fairshare.groups.service.GroupMembershipCache;
+import com.fairshare.fairshare.groups.service.GroupNameSearch;
 import com.fairshare.fairshare.groups.service.GroupService;
-import com.fairshare.fairshare.users.model.User;
 import com.fairshare.fairshare.users.repository.UserRepository;
-import jakarta.persistence.EntityManager;
+import com.github.benmanes.caffeine.cache.Ticker;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -20,6 +22,7 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Set;
 
@@ -41,13 +44,14 @@ class GroupServiceScalabilityTest {
     @Mock
     private GroupMemberRepository memberRepo;
     @Mock
-    private EntityManager em;
+    private GroupNameSearch nameSearch;
     @Captor
     private ArgumentCaptor<Set<Long>> idsCaptor;
 
     @Test
     void listGroups_usesDbPagingAndBatchMemberLookup() {
-        GroupService service = new GroupService(groupRepo, userRepo, memberRepo, em);
+        GroupService service = new GroupService(groupRepo, userRepo, memberRepo,
+                new GroupMembershipCache(memberRepo, 10_000, Duration.ofMinutes(5), Ticker.systemTicker()), nameSearch);
 
         Group g1 = new Group("Alpha");
         Group g2 = new Group("Beta");
@@ -57,16 +61,10 @@ class GroupServiceScalabilityTest {
         when(groupRepo.findAll(any(PageRequest.class)))
                 .thenReturn(new PageImpl<>(List.of(g1, g2), PageRequest.of(0, 2), 9));
 
-        User u1 = new User("User 1", "u1@example.com");
-        User u2 = new User("User 2", "u2@example.com");
-        ReflectionTestUtils.setField(u1, "id", 1001L);
-        ReflectionTestUtils.setField(u2, "id", 1002L);
-
-        GroupMember gm1 = new GroupMember(g1, u1, GroupMember.Role.OWNER);
-        GroupMember gm2 = new GroupMember(g1, u2, GroupMember.Role.MEMBER);
-        GroupMember gm3 = new GroupMember(g2, u2, GroupMember.Role.MEMBER);
-        when(memberRepo.findByGroupIdInOrderByGroupIdAscUserIdAsc(anySet()))
-                .thenReturn(List.of(gm1, gm2, gm3));
+        when(memberRepo.findViewsByGroupIdIn(anySet())).thenReturn(List.of(
+                new GroupMemberView(11L, 1001L, "User 1", GroupMember.Role.OWNER),
+                new GroupMemberView(11L, 1002L, "User 2", GroupMember.Role.MEMBER),
+                new GroupMemberView(22L, 1002L, "User 2", GroupMember.Role.MEMBER)));
 
         PaginatedResponse<GroupResponse> response = service.listGroups(null, 0, 2, "name,asc", null);
 
@@ -76,10 +74,10 @@ class GroupServiceScalabilityTest {
         assertThat(response.items().get(1).memberCount()).isEqualTo(1);
 
         verify(groupRepo, times(1)).findAll(any(PageRequest.class));
-        verify(memberRepo, times(1)).findByGroupIdInOrderByGroupIdAscUserIdAsc(anySet());
-        verify(memberRepo, never()).findByGroupId(any(Long.class));
+        verify(memberRepo, times(1)).findViewsByGroupIdIn(anySet());
+        verify(memberRepo, never()).findViewsByGroupId(any(Long.class));
 
-        verify(memberRepo).findByGroupIdInOrderByGroupIdAscUserIdAsc(idsCaptor.capture());
+        verify(memberRepo).findViewsByGroupIdIn(idsCaptor.capture());
         assertThat(idsCaptor.getValue()).containsExactlyInAnyOrder(11L, 22L);
     }
 }
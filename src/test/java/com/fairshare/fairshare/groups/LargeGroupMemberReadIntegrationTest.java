@@ -0,0 +1,105 @@
+package com.fairshare.fairshare.groups;
+
+import com.fairshare.fairshare.groups.model.Group;
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.GroupMemberView;
+import com.fairshare.fairshare.groups.repository.GroupRepository;
+import com.fairshare.fairshare.support.SqlStatementCounter;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reads the roster of a large group three ways and checks the selects issued and the entities left in
+ * the persistence context by each:
+ * <ul>
+ *     <li>member entities whose lazy user is then read, one select per user;</li>
+ *     <li>member entities with the user and group join-fetched, one select but two managed entities per member;</li>
+ *     <li>the {@link GroupMemberView} projection the service now uses, one select and no entities.</li>
+ * </ul>
+ * Heap and time per read are measured by {@link GroupMemberReadBenchmark}, which is not part of the test run.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.fairshare.fairshare.support.SqlStatementCounter")
+public class LargeGroupMemberReadIntegrationTest {
+
+    private static final int MEMBERS = 500;
+
+    @Autowired
+    private GroupRepository groupRepo;
+
+    @Autowired
+    private GroupMemberRepository memberRepo;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Projected roster reads of a large group use one select and hydrate no entities")
+    void projectionAvoidsEntityHydration() {
+        Long groupId = seedGroup();
+
+        Read lazyUsers = measure(() -> {
+            List<GroupMember> members = em.createQuery("SELECT gm FROM GroupMember gm WHERE gm.group.id = :groupId", GroupMember.class)
+                    .setParameter("groupId", groupId).getResultList();
+            return members.stream().map(gm -> gm.getUser().getName()).toList();
+        });
+        Read joinFetched = measure(() -> em.createQuery(
+                        "SELECT gm FROM GroupMember gm JOIN FETCH gm.user JOIN FETCH gm.group WHERE gm.group.id = :groupId", GroupMember.class)
+                .setParameter("groupId", groupId).getResultList()
+                .stream().map(gm -> gm.getUser().getName()).toList());
+        Read projected = measure(() -> memberRepo.findViewsByGroupId(groupId).stream().map(GroupMemberView::name).toList());
+
+        assertThat(lazyUsers.selects()).isGreaterThan(MEMBERS);
+        assertThat(joinFetched.selects()).isEqualTo(1);
+        assertThat(joinFetched.managedEntities()).isGreaterThan(2 * MEMBERS);
+        assertThat(projected.selects()).isEqualTo(1);
+        assertThat(projected.managedEntities()).isZero();
+    }
+
+    private Long seedGroup() {
+        Group group = groupRepo.save(new Group("Large " + UUID.randomUUID()));
+        String tag = UUID.randomUUID().toString();
+        List<Object[]> users = new ArrayList<>(MEMBERS);
+        for (int i = 0; i < MEMBERS; i++) users.add(new Object[]{"member" + i, "large-" + i + "-" + tag + "@example.com"});
+        jdbcTemplate.batchUpdate("INSERT INTO users (name, email) VALUES (?, ?)", users);
+        jdbcTemplate.update("INSERT INTO group_members (group_id, user_id, role) SELECT ?, id, 'MEMBER' FROM users WHERE email LIKE ?",
+                group.getId(), "large-%-" + tag + "@example.com");
+        jdbcTemplate.update("UPDATE groups SET member_count = ? WHERE id = ?", MEMBERS, group.getId());
+        return group.getId();
+    }
+
+    // runs the read in its own transaction, so each starts from an empty persistence context
+    private Read measure(Supplier<List<String>> read) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        return tx.execute(status -> {
+            SqlStatementCounter.reset();
+            assertThat(read.get()).hasSize(MEMBERS);
+            int managed = em.unwrap(Session.class).getStatistics().getEntityCount();
+            return new Read(SqlStatementCounter.selects(), managed);
+        });
+    }
+
+    private record Read(int selects, int managedEntities) {
+    }
+}
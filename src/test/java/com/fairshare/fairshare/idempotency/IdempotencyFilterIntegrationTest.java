@@ -0,0 +1,192 @@
+package com.fairshare.fairshare.idempotency;
+
+import com.fairshare.fairshare.auth.AuthContext;
+import com.fairshare.fairshare.support.SqlStatementCounter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.fairshare.fairshare.support.SqlStatementCounter")
+@AutoConfigureMockMvc
+public class IdempotencyFilterIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private IdempotencyStore store;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Test
+    @DisplayName("A replayed request returns the stored response without touching domain tables")
+    void replayReturnsStoredBytes() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String body = userBody("replay");
+
+        MockHttpServletResponse first = createUser(key, body).andExpect(status().isCreated()).andReturn().getResponse();
+
+        SqlStatementCounter.reset();
+        MockHttpServletResponse second = createUser(key, body).andExpect(status().isCreated()).andReturn().getResponse();
+
+        assertThat(SqlStatementCounter.total()).isZero();
+        assertThat(second.getContentAsString()).isEqualTo(first.getContentAsString());
+        assertThat(second.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(first.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+    }
+
+    @Test
+    @DisplayName("Reusing a key with a different payload is rejected with 422")
+    void differentPayloadRejected() throws Exception {
+        String key = UUID.randomUUID().toString();
+        createUser(key, userBody("first")).andExpect(status().isCreated());
+        createUser(key, userBody("second")).andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    @DisplayName("Failed requests are not stored, so the key can be retried with a corrected payload")
+    void failedRequestReleasesKey() throws Exception {
+        String key = UUID.randomUUID().toString();
+        mvc.perform(post("/groups")
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"\"}"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/groups")
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Retried\"}"))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    @DisplayName("Expired records are purged and the key then behaves as new")
+    void expiredRecordsArePurged() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String body = userBody("expiring");
+        createUser(key, body).andExpect(status().isCreated());
+
+        assertThat(store.purgeExpired(Instant.now().plus(Duration.ofDays(2)))).isPositive();
+
+        // nothing is replayed any more: the create runs again and trips over the existing email
+        MockHttpServletResponse retried = createUser(key, body)
+                .andExpect(status().isBadRequest())
+                .andReturn().getResponse();
+        assertThat(retried.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+    }
+
+    @Test
+    @DisplayName("The same key sent to different groups names different records")
+    void keysAreScopedToMethodAndPath() throws Exception {
+        long first = createGroupWithMember("Scoped A");
+        long second = createGroupWithMember("Scoped B");
+
+        String a = createExpense(first, "1", expenseBody(first, "Lunch")).andExpect(status().isCreated()).andReturn().getResponse().getContentAsString();
+        MockHttpServletResponse b = createExpense(second, "1", expenseBody(second, "Taxi")).andExpect(status().isCreated()).andReturn().getResponse();
+
+        assertThat(b.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+        assertThat(mapper.readTree(b.getContentAsString()).get("expenseId").asLong())
+                .isNotEqualTo(mapper.readTree(a).get("expenseId").asLong());
+    }
+
+    @Test
+    @DisplayName("Reusing an expense Idempotency-Key with a different body is 422 rather than a replay of the original expense")
+    void expenseKeyWithDifferentBodyRejected() throws Exception {
+        long gid = createGroupWithMember("Expense keys");
+        String key = UUID.randomUUID().toString();
+
+        String original = createExpense(gid, key, expenseBody(gid, "Coffee")).andExpect(status().isCreated()).andReturn().getResponse().getContentAsString();
+        createExpense(gid, key, expenseBody(gid, "Dinner")).andExpect(status().isUnprocessableEntity());
+
+        MockHttpServletResponse replayed = createExpense(gid, key, expenseBody(gid, "Coffee")).andExpect(status().isCreated()).andReturn().getResponse();
+        assertThat(replayed.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(replayed.getContentAsString()).isEqualTo(original);
+    }
+
+    @Test
+    @DisplayName("Reservations held by a running request are extended until it completes or is released")
+    void heldReservationsAreKeptAlive() {
+        String key = "heartbeat:" + UUID.randomUUID();
+        Instant now = Instant.now();
+        assertThat(store.reserve(key, "f".repeat(64), now)).isTrue();
+
+        Instant later = now.plus(Duration.ofMinutes(5));
+        assertThat(store.extendHeldReservations(later)).isEqualTo(1);
+        assertThat(store.find(key)).get().extracting(IdempotencyStore.StoredResponse::expiresAt).matches(later::isBefore);
+        assertThat(store.deleteIfExpired(key, later)).isFalse();
+
+        store.release(key);
+        assertThat(store.extendHeldReservations(later)).isZero();
+        assertThat(store.find(key)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("When auth is required a keyed request without X-User-Id is rejected before anything is reserved")
+    void missingActorRejectedWhenAuthRequired() throws Exception {
+        IdempotencyStore unusedStore = org.mockito.Mockito.mock(IdempotencyStore.class);
+        IdempotencyFilter filter = new IdempotencyFilter(unusedStore, new AuthContext(true), mapper);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/users");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "k");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(chain.getRequest()).isNull();
+        org.mockito.Mockito.verifyNoInteractions(unusedStore);
+    }
+
+    private long createGroupWithMember(String name) throws Exception {
+        String group = mvc.perform(post("/groups").contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"" + name + "\"}"))
+                .andExpect(status().isCreated()).andReturn().getResponse().getContentAsString();
+        long gid = mapper.readTree(group).get("id").asLong();
+        mvc.perform(post("/groups/" + gid + "/members").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"payer\",\"email\":\"payer+" + gid + "-" + System.nanoTime() + "@example.com\"}"))
+                .andExpect(status().isCreated());
+        return gid;
+    }
+
+    private String expenseBody(long gid, String description) throws Exception {
+        String members = mvc.perform(get("/groups/" + gid)).andReturn().getResponse().getContentAsString();
+        long payer = mapper.readTree(members).get("members").get(0).get("id").asLong();
+        return "{\"description\":\"" + description + "\",\"amount\":\"5.00\",\"payerUserId\":" + payer + "}";
+    }
+
+    private ResultActions createExpense(long gid, String key, String body) throws Exception {
+        return mvc.perform(post("/groups/" + gid + "/expenses")
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+
+    private ResultActions createUser(String key, String body) throws Exception {
+        return mvc.perform(post("/users")
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+
+    private static String userBody(String name) {
+        return "{\"name\":\"" + name + "\",\"email\":\"" + name + "+" + System.nanoTime() + "@example.com\"}";
+    }
+}
@@ -0,0 +1,153 @@
+package com.fairshare.fairshare.pagination;
+
+import com.fairshare.fairshare.expenses.api.ConfirmSettlementsRequest;
+import com.fairshare.fairshare.expenses.api.CreateExpenseRequest;
+import com.fairshare.fairshare.expenses.api.ExpenseResponse;
+import com.fairshare.fairshare.expenses.service.ExpenseService;
+import com.fairshare.fairshare.groups.model.Group;
+import com.fairshare.fairshare.groups.model.GroupMember;
+import com.fairshare.fairshare.groups.repository.GroupMemberRepository;
+import com.fairshare.fairshare.groups.repository.GroupRepository;
+import com.fairshare.fairshare.support.SqlStatementCounter;
+import com.fairshare.fairshare.users.model.User;
+import com.fairshare.fairshare.users.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.fairshare.fairshare.support.SqlStatementCounter")
+@AutoConfigureMockMvc
+public class KeysetPaginationIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private GroupRepository groupRepo;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private GroupMemberRepository memberRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Expense cursor pages walk every active expense newest first and skip the count query")
+    void pagesExpensesByCursor() throws Exception {
+        Group group = groupRepo.save(new Group("Keyset " + UUID.randomUUID()));
+        Long gid = group.getId();
+        List<Long> members = addMembers(group, 3);
+        List<Long> active = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            ExpenseResponse created = expenseService.createExpense(gid, null,
+                    new CreateExpenseRequest("Round " + i, new BigDecimal("9.00"), members.get(i % 3), members), null);
+            if (i == 4) {
+                expenseService.voidExpense(gid, null, created.expenseId());
+            } else {
+                active.add(0, created.expenseId());
+            }
+        }
+        // rows written before the voided column existed hold NULL and are still active
+        jdbcTemplate.update("UPDATE expenses SET voided = NULL WHERE id = ?", active.get(2));
+
+        assertThat(walk("/groups/" + gid + "/expenses", "", 3, "expenseId")).containsExactlyElementsOf(active);
+
+        // warm the roster so both requests below do the same membership work
+        mvc.perform(get("/groups/" + gid + "/expenses?limit=2")).andExpect(status().isOk());
+        // a date range makes the offset page count its matches
+        SqlStatementCounter.reset();
+        mvc.perform(get("/groups/" + gid + "/expenses?page=0&size=2&fromDate=2000-01-01T00:00:00Z&toDate=9000-01-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalItems").isNumber());
+        int offsetSelects = SqlStatementCounter.selects();
+        SqlStatementCounter.reset();
+        mvc.perform(get("/groups/" + gid + "/expenses?limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalItems").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").isString());
+        assertThat(SqlStatementCounter.selects()).isEqualTo(offsetSelects - 1);
+
+        mvc.perform(get("/groups/" + gid + "/expenses?limit=2&cursor=not-a-cursor")).andExpect(status().isBadRequest());
+        mvc.perform(get("/groups/" + gid + "/expenses?limit=0")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Event and confirmed transfer cursor pages follow (createdAt, id) and keep their filters")
+    void pagesEventsAndTransfersByCursor() throws Exception {
+        Group group = groupRepo.save(new Group("Keyset " + UUID.randomUUID()));
+        Long gid = group.getId();
+        List<Long> members = addMembers(group, 3);
+        for (int i = 0; i < 4; i++) {
+            expenseService.createExpense(gid, null,
+                    new CreateExpenseRequest("Round " + i, new BigDecimal("6.00"), members.get(i % 3), members.subList(0, 2 + i % 2)), null);
+        }
+        for (int i = 0; i < 5; i++) {
+            expenseService.confirmSettlements(gid, null, new ConfirmSettlementsRequest(List.of(
+                    new ConfirmSettlementsRequest.Transfer(members.get(1), members.get(0), new BigDecimal("1.00")))), null);
+        }
+
+        List<Long> events = jdbcTemplate.queryForList(
+                "SELECT id FROM expense_events WHERE group_id = ? ORDER BY created_at DESC, id DESC", Long.class, gid);
+        assertThat(walk("/groups/" + gid + "/events", "", 3, "eventId")).containsExactlyElementsOf(events);
+
+        // the third member shares rounds 1 and 3 and pays round 2
+        List<Long> thirdMemberEvents = jdbcTemplate.queryForList(
+                "SELECT id FROM expense_events WHERE group_id = ? AND CAST(payload AS VARCHAR) LIKE ? ORDER BY created_at DESC, id DESC",
+                Long.class, gid, "%\"userId\":" + members.get(2) + ",%");
+        assertThat(thirdMemberEvents).hasSize(3);
+        assertThat(walk("/groups/" + gid + "/events", "userId=" + members.get(2) + "&", 1, "eventId")).containsExactlyElementsOf(thirdMemberEvents);
+
+        List<Long> transfers = jdbcTemplate.queryForList(
+                "SELECT id FROM confirmed_transfers WHERE group_id = ? ORDER BY created_at DESC, id DESC", Long.class, gid);
+        assertThat(transfers).hasSize(5);
+        assertThat(walk("/groups/" + gid + "/confirmed-transfers", "", 2, "id")).containsExactlyElementsOf(transfers);
+    }
+
+    private List<Long> walk(String path, String filters, int limit, String idField) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            String url = path + "?" + filters + "limit=" + limit + (cursor == null ? "" : "&cursor=" + cursor);
+            JsonNode page = mapper.readTree(mvc.perform(get(url)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+            assertThat(page.get("items").size()).isLessThanOrEqualTo(limit);
+            for (JsonNode item : page.get("items")) ids.add(item.get(idField).asLong());
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private List<Long> addMembers(Group group, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = userRepo.save(new User("member" + i, "keyset-" + UUID.randomUUID() + "@example.com"));
+            memberRepo.save(new GroupMember(group, user, GroupMember.Role.MEMBER));
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,159 @@
+package com.fairshare.fairshare.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Counts round trips to the database at the JDBC layer: every {@code execute*} call on a statement is
+ * one, and so is every {@code executeBatch}, however many rows the batch carries. Unlike
+ * {@link SqlStatementCounter} it sees Hibernate and {@code JdbcTemplate} alike, and a Hibernate insert
+ * split into several batches is counted once per batch.
+ * <p>
+ * Only statements run on the thread that last called {@link #reset()} are counted, so scheduled jobs
+ * do not leak into a measurement. Import {@link Config} into the test context to wrap its DataSource.
+ */
+public final class JdbcRoundTripCounter {
+
+    /** One execution: the SQL as prepared and, for a batch, how many parameter sets it sent. */
+    public record RoundTrip(String sql, boolean batch, int rows) {
+    }
+
+    private static final List<RoundTrip> ROUND_TRIPS = new ArrayList<>();
+    private static volatile Thread counted;
+
+    private JdbcRoundTripCounter() {
+    }
+
+    public static synchronized void reset() {
+        ROUND_TRIPS.clear();
+        counted = Thread.currentThread();
+    }
+
+    public static synchronized int roundTrips() {
+        return ROUND_TRIPS.size();
+    }
+
+    public static synchronized int batches() {
+        return (int) ROUND_TRIPS.stream().filter(RoundTrip::batch).count();
+    }
+
+    /** Round trips whose SQL contains {@code fragment}, ignoring case. */
+    public static synchronized int roundTrips(String fragment) {
+        String needle = fragment.toLowerCase(Locale.ROOT);
+        return (int) ROUND_TRIPS.stream().filter(r -> r.sql() != null && r.sql().toLowerCase(Locale.ROOT).contains(needle)).count();
+    }
+
+    public static synchronized List<RoundTrip> log() {
+        return List.copyOf(ROUND_TRIPS);
+    }
+
+    private static synchronized void record(String sql, boolean batch, int rows) {
+        if (Thread.currentThread() == counted) ROUND_TRIPS.add(new RoundTrip(sql, batch, rows));
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    public static class Config {
+        @Bean
+        static BeanPostProcessor jdbcRoundTripCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new CountingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    private static final class CountingDataSource extends DelegatingDataSource {
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return proxy(Connection.class, new ConnectionHandler(super.getConnection()));
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return proxy(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+        }
+    }
+
+    private record ConnectionHandler(Connection target) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeTarget(target, method, args);
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+            if (result instanceof CallableStatement cs) return proxy(CallableStatement.class, new StatementHandler(cs, sql));
+            if (result instanceof PreparedStatement ps) return proxy(PreparedStatement.class, new StatementHandler(ps, sql));
+            if (result instanceof Statement st) return proxy(Statement.class, new StatementHandler(st, null));
+            return result;
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedSql;
+        private final List<String> batchedSql = new ArrayList<>();
+        private int batchedRows;
+
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "addBatch" -> {
+                    batchedRows++;
+                    if (args != null && args.length == 1 && args[0] instanceof String s) batchedSql.add(s);
+                }
+                case "clearBatch" -> {
+                    batchedRows = 0;
+                    batchedSql.clear();
+                }
+                case "executeBatch", "executeLargeBatch" -> {
+                    record(preparedSql != null ? preparedSql : String.join(";", batchedSql), true, batchedRows);
+                    batchedRows = 0;
+                    batchedSql.clear();
+                }
+                case "execute", "executeQuery", "executeUpdate", "executeLargeUpdate" ->
+                        record(args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql, false, 1);
+                default -> {
+                }
+            }
+            return invokeTarget(target, method, args);
+        }
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(JdbcRoundTripCounter.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
@@ -0,0 +1,71 @@
+package com.fairshare.fairshare.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the SQL strings Hibernate prepares, by leading keyword. A batched insert is counted once
+ * however many {@code executeBatch} calls it takes, and statements run through {@code JdbcTemplate} are
+ * never seen, so these are not round trips; use {@link JdbcRoundTripCounter} for those. Sequence fetches
+ * for pooled ids are counted separately from selects.
+ * Register with {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}.
+ */
+public class SqlStatementCounter implements StatementInspector {
+    private static final AtomicInteger SELECTS = new AtomicInteger();
+    private static final AtomicInteger SEQUENCE_FETCHES = new AtomicInteger();
+    private static final AtomicInteger INSERTS = new AtomicInteger();
+    private static final AtomicInteger UPDATES = new AtomicInteger();
+    private static final AtomicInteger DELETES = new AtomicInteger();
+    private static final AtomicInteger OTHER = new AtomicInteger();
+
+    @Override
+    public String inspect(String sql) {
+        String head = sql.stripLeading().toLowerCase(Locale.ROOT);
+        if (head.contains("next value for") || head.contains("nextval(")) SEQUENCE_FETCHES.incrementAndGet();
+        else if (head.startsWith("select") || head.startsWith("with")) SELECTS.incrementAndGet();
+        else if (head.startsWith("insert")) INSERTS.incrementAndGet();
+        else if (head.startsWith("update")) UPDATES.incrementAndGet();
+        else if (head.startsWith("delete")) DELETES.incrementAndGet();
+        else OTHER.incrementAndGet();
+        return sql;
+    }
+
+    public static void reset() {
+        SELECTS.set(0);
+        SEQUENCE_FETCHES.set(0);
+        INSERTS.set(0);
+        UPDATES.set(0);
+        DELETES.set(0);
+        OTHER.set(0);
+    }
+
+    public static int selects() {
+        return SELECTS.get();
+    }
+
+    public static int sequenceFetches() {
+        return SEQUENCE_FETCHES.get();
+    }
+
+    public static int inserts() {
+        return INSERTS.get();
+    }
+
+    public static int updates() {
+        return UPDATES.get();
+    }
+
+    public static int deletes() {
+        return DELETES.get();
+    }
+
+    public static int writes() {
+        return INSERTS.get() + UPDATES.get() + DELETES.get();
+    }
+
+    public static int total() {
+        return SELECTS.get() + SEQUENCE_FETCHES.get() + writes() + OTHER.get();
+    }
+}